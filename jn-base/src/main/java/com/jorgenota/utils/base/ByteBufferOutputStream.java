@@ -0,0 +1,113 @@
+package com.jorgenota.utils.base;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+import static com.jorgenota.utils.base.Preconditions.state;
+
+/**
+ * An {@link OutputStream} that writes into a buffer acquired from a {@link ByteBufferPool}, replacing it with a buffer
+ * twice as large when it's full.
+ * <p>
+ * The written bytes are handed over, without copying them, with {@link #toPooledBuffer()}, which can be called
+ * before or after the stream is closed. Closing the stream only prevents further writes; if the bytes aren't handed
+ * over, the buffer must be returned to the pool with {@link #release()}. Instances are not thread-safe.
+ *
+ * @author Jorge Alonso
+ */
+public final class ByteBufferOutputStream extends OutputStream {
+    private final ByteBufferPool pool;
+    private ByteBuffer buffer;
+    private boolean closed;
+    private boolean handedOver;
+
+    public ByteBufferOutputStream(ByteBufferPool pool) {
+        this(pool, pool.getMinBufferSize());
+    }
+
+    public ByteBufferOutputStream(ByteBufferPool pool, int initialCapacity) {
+        this.pool = notNull(pool, "pool may not be null");
+        this.buffer = pool.acquire(initialCapacity);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureRemaining(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if ((off | len | (b.length - (len + off)) | (off + len)) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureRemaining(len);
+        buffer.put(b, off, len);
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer, advancing its position.
+     *
+     * @param source the buffer to write
+     */
+    public void write(ByteBuffer source) {
+        ensureRemaining(source.remaining());
+        buffer.put(source);
+    }
+
+    public int size() {
+        state(!handedOver, "The bytes have been handed over");
+        return buffer.position();
+    }
+
+    /**
+     * Hands the written bytes over to the caller and closes the stream.
+     *
+     * @return the written bytes, whose buffer is released to the pool when it's closed
+     */
+    public PooledByteBuffer toPooledBuffer() {
+        state(!handedOver, "The bytes have been handed over");
+        closed = true;
+        handedOver = true;
+        buffer.flip();
+        return new PooledByteBuffer(buffer, pool);
+    }
+
+    /**
+     * Closes the stream and releases its buffer, unless it has been handed over with {@link #toPooledBuffer()}.
+     * Further calls have no effect.
+     */
+    public void release() {
+        if (!handedOver) {
+            closed = true;
+            handedOver = true;
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Prevents further writes. The buffer is kept, to be handed over or released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private void ensureRemaining(int length) {
+        state(!closed, "The stream is closed");
+        if (buffer.remaining() >= length) {
+            return;
+        }
+        long required = (long) buffer.position() + length;
+        if (required > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Required buffer size " + required + " is too large");
+        }
+        int newCapacity = (int) Math.max(required, Math.min((long) buffer.capacity() << 1, Integer.MAX_VALUE - 8));
+        ByteBuffer newBuffer = pool.acquire(newCapacity);
+        buffer.flip();
+        newBuffer.put(buffer);
+        pool.release(buffer);
+        buffer = newBuffer;
+    }
+}
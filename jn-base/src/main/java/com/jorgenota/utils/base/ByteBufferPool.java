@@ -0,0 +1,196 @@
+package com.jorgenota.utils.base;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.jorgenota.utils.base.Preconditions.isTrue;
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * A pool of reusable {@link ByteBuffer}s, direct by default, in power-of-two size classes between a minimum and a
+ * maximum size.
+ * <p>
+ * {@link #acquire(int)} returns a cleared buffer of the smallest size class that fits the requested capacity, reusing
+ * a released one if possible. Requests above the maximum size are served with buffers that are never pooled. Each
+ * size class retains a bounded number of released buffers, so the memory held by the pool is bounded too. Instances
+ * are thread-safe.
+ *
+ * @author Jorge Alonso
+ * @see ByteBufferOutputStream
+ */
+public final class ByteBufferPool {
+    private static final ByteBufferPool SHARED = newBuilder().build();
+
+    private final int minBufferSize;
+    private final int maxBufferSize;
+    private final boolean direct;
+    private final int minShift;
+    private final BlockingQueue<ByteBuffer>[] sizeClasses;
+    private final AtomicLong allocations = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    private ByteBufferPool(int minBufferSize, int maxBufferSize, int maxPooledBuffersPerSize, boolean direct) {
+        this.minBufferSize = minBufferSize;
+        this.maxBufferSize = maxBufferSize;
+        this.direct = direct;
+        this.minShift = Integer.numberOfTrailingZeros(minBufferSize);
+        int classCount = Integer.numberOfTrailingZeros(maxBufferSize) - minShift + 1;
+        this.sizeClasses = new BlockingQueue[classCount];
+        for (int i = 0; i < classCount; i++) {
+            sizeClasses[i] = new ArrayBlockingQueue<>(maxPooledBuffersPerSize);
+        }
+    }
+
+    /**
+     * Returns a pool of direct buffers between 4 KiB and 4 MiB, retaining up to 32 buffers per size class, shared by
+     * the whole application.
+     *
+     * @return the shared pool
+     */
+    public static ByteBufferPool shared() {
+        return SHARED;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a cleared buffer with at least the given capacity.
+     *
+     * @param minCapacity the minimum capacity
+     * @return the buffer, which should be {@link #release(ByteBuffer) released} when no longer used
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        isTrue(minCapacity >= 0, "minCapacity must be >= 0 but is %d", minCapacity);
+        if (minCapacity > maxBufferSize) {
+            allocations.incrementAndGet();
+            return allocate(minCapacity);
+        }
+        int sizeClass = sizeClass(minCapacity);
+        ByteBuffer buffer = sizeClasses[sizeClass].poll();
+        if (buffer == null) {
+            allocations.incrementAndGet();
+            return allocate(minBufferSize << sizeClass);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers that weren't acquired from a pool of this configuration, or that don't fit
+     * in the pool, are left to the garbage collector. The buffer must not be used after being released.
+     *
+     * @param buffer the buffer to release
+     */
+    public void release(ByteBuffer buffer) {
+        notNull(buffer, "buffer may not be null");
+        int capacity = buffer.capacity();
+        if (buffer.isDirect() != direct || buffer.isReadOnly() || Integer.bitCount(capacity) != 1
+            || capacity < minBufferSize || capacity > maxBufferSize) {
+            return;
+        }
+        buffer.clear();
+        sizeClasses[Integer.numberOfTrailingZeros(capacity) - minShift].offer(buffer);
+    }
+
+    public int getMinBufferSize() {
+        return minBufferSize;
+    }
+
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Returns the number of buffers allocated by the pool so far, i.e. the number of acquisitions that couldn't reuse a
+     * released buffer.
+     *
+     * @return the number of allocations
+     */
+    public long allocationCount() {
+        return allocations.get();
+    }
+
+    private int sizeClass(int capacity) {
+        if (capacity <= minBufferSize) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - minShift;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    public static final class Builder {
+        private int minBufferSize = 4 * 1024;
+        private int maxBufferSize = 4 * 1024 * 1024;
+        private int maxPooledBuffersPerSize = 32;
+        private boolean direct = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the smallest size class, which is rounded up to a power of two.
+         *
+         * @param minBufferSize the minimum buffer size, in bytes
+         * @return <code>this</code>
+         */
+        public Builder withMinBufferSize(int minBufferSize) {
+            isTrue(minBufferSize > 0 && minBufferSize <= (1 << 30), "minBufferSize must be in (0, 2^30] but is %d",
+                minBufferSize);
+            this.minBufferSize = minBufferSize;
+            return this;
+        }
+
+        /**
+         * Sets the largest size class, which is rounded up to a power of two.
+         *
+         * @param maxBufferSize the maximum buffer size, in bytes
+         * @return <code>this</code>
+         */
+        public Builder withMaxBufferSize(int maxBufferSize) {
+            isTrue(maxBufferSize > 0 && maxBufferSize <= (1 << 30), "maxBufferSize must be in (0, 2^30] but is %d",
+                maxBufferSize);
+            this.maxBufferSize = maxBufferSize;
+            return this;
+        }
+
+        public Builder withMaxPooledBuffersPerSize(int maxPooledBuffersPerSize) {
+            isTrue(maxPooledBuffersPerSize > 0, "maxPooledBuffersPerSize must be > 0 but is %d",
+                maxPooledBuffersPerSize);
+            this.maxPooledBuffersPerSize = maxPooledBuffersPerSize;
+            return this;
+        }
+
+        /**
+         * Sets whether the pool allocates direct buffers, which the NIO channels can use without an intermediate copy,
+         * or heap buffers.
+         *
+         * @param direct <code>true</code> for direct buffers
+         * @return <code>this</code>
+         */
+        public Builder withDirectBuffers(boolean direct) {
+            this.direct = direct;
+            return this;
+        }
+
+        public ByteBufferPool build() {
+            int min = roundUpToPowerOfTwo(minBufferSize);
+            int max = roundUpToPowerOfTwo(maxBufferSize);
+            isTrue(min <= max, "minBufferSize must be <= maxBufferSize (%d) but is %d", max, min);
+            return new ByteBufferPool(min, max, maxPooledBuffersPerSize, direct);
+        }
+
+        private static int roundUpToPowerOfTwo(int value) {
+            return (value == 1) ? 1 : Integer.highestOneBit(value - 1) << 1;
+        }
+    }
+}
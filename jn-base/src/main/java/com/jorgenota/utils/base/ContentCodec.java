@@ -0,0 +1,72 @@
+package com.jorgenota.utils.base;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Encodes and decodes values in a {@link DataFormat}, through the cached readers and writers of a mapper configured
+ * for it. Instances are thread-safe.
+ *
+ * @author Jorge Alonso
+ * @see ContentCodecs
+ */
+public final class ContentCodec {
+    private final DataFormat format;
+    private final ObjectMapperCache cache;
+
+    public ContentCodec(DataFormat format, ObjectMapperCache cache) {
+        this.format = notNull(format, "format may not be null");
+        this.cache = notNull(cache, "cache may not be null");
+    }
+
+    public DataFormat getFormat() {
+        return format;
+    }
+
+    public String getContentType() {
+        return format.getContentType();
+    }
+
+    public ObjectMapperCache getObjectMapperCache() {
+        return cache;
+    }
+
+    public byte[] encode(Object value) throws IOException {
+        return cache.writeValueAsBytes(value);
+    }
+
+    public PooledByteBuffer encode(Object value, ByteBufferPool pool) throws IOException {
+        return cache.writeValueAsBuffer(value, pool);
+    }
+
+    public void encode(OutputStream outputStream, Object value) throws IOException {
+        cache.writeValue(outputStream, value);
+    }
+
+    public <T> T decode(byte[] bytes, Class<T> type) throws IOException {
+        return cache.readValue(bytes, type);
+    }
+
+    public <T> T decode(byte[] bytes, TypeReference<T> type) throws IOException {
+        return cache.readValue(bytes, type);
+    }
+
+    public <T> T decode(ByteBuffer buffer, Class<T> type) throws IOException {
+        return cache.readValue(buffer, type);
+    }
+
+    public <T> T decode(InputStream inputStream, Class<T> type) throws IOException {
+        return cache.readValue(inputStream, type);
+    }
+
+    @Override
+    public String toString() {
+        return "ContentCodec(" + format + ")";
+    }
+}
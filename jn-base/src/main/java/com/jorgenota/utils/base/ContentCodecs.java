@@ -0,0 +1,106 @@
+package com.jorgenota.utils.base;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * The default {@link ContentCodec}s, one per {@link DataFormat}, whose mappers are configured as
+ * {@link ObjectMappingUtils#OBJECT_MAPPER}. The JSON codec uses that same mapper; the binary ones are created the first
+ * time they are needed, so their jackson-dataformat modules are only required if they are used.
+ * <p>
+ * Content can be decoded given its content type (e.g. the value of a message attribute) or, when there is none,
+ * detecting its format.
+ *
+ * @author Jorge Alonso
+ */
+public final class ContentCodecs {
+    // Read without locking once created
+    private static final Map<DataFormat, ContentCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        CODECS.put(DataFormat.JSON, new ContentCodec(DataFormat.JSON, ObjectMappingUtils.OBJECT_MAPPER_CACHE));
+    }
+
+    private ContentCodecs() {
+    }
+
+    public static ContentCodec json() {
+        return forFormat(DataFormat.JSON);
+    }
+
+    public static ContentCodec smile() {
+        return forFormat(DataFormat.SMILE);
+    }
+
+    public static ContentCodec cbor() {
+        return forFormat(DataFormat.CBOR);
+    }
+
+    /**
+     * Returns the codec of a format.
+     *
+     * @param format the data format
+     * @return the codec
+     * @throws IllegalStateException if the module of the data format is not available
+     */
+    public static ContentCodec forFormat(DataFormat format) {
+        notNull(format, "format may not be null");
+        ContentCodec codec = CODECS.get(format);
+        if (codec != null) {
+            return codec;
+        }
+        return CODECS.computeIfAbsent(format, f -> new ContentCodec(f, new ObjectMapperCache(
+            ObjectMappingUtils.configureObjectMapper(f, ObjectMapperOptions.defaults()))));
+    }
+
+    /**
+     * Returns the codec of a content type.
+     *
+     * @param contentType the content type
+     * @return the codec
+     * @throws IllegalArgumentException if the content type is not supported
+     */
+    public static ContentCodec forContentType(String contentType) {
+        DataFormat format = DataFormat.forContentType(contentType);
+        if (format == null) {
+            throw new IllegalArgumentException("Unsupported content type " + contentType);
+        }
+        return forFormat(format);
+    }
+
+    /**
+     * Decodes content in the format of its content type or, if it has none, in the format detected from its bytes.
+     *
+     * @param bytes       the content
+     * @param contentType the content type, if known
+     * @param type        the type to read
+     * @param <T>         the type to read
+     * @return the decoded value
+     * @throws IOException if the content can't be read
+     */
+    public static <T> T decode(byte[] bytes, @Nullable String contentType, Class<T> type) throws IOException {
+        return codecFor(bytes, contentType).decode(bytes, type);
+    }
+
+    public static <T> T decode(byte[] bytes, @Nullable String contentType, TypeReference<T> type) throws IOException {
+        return codecFor(bytes, contentType).decode(bytes, type);
+    }
+
+    public static <T> T decode(ByteBuffer buffer, @Nullable String contentType, Class<T> type) throws IOException {
+        ContentCodec codec = (contentType != null)
+            ? forContentType(contentType)
+            : forFormat(DataFormat.detect(buffer));
+        return codec.decode(buffer, type);
+    }
+
+    private static ContentCodec codecFor(byte[] bytes, @Nullable String contentType) {
+        return (contentType != null) ? forContentType(contentType) : forFormat(DataFormat.detect(bytes));
+    }
+}
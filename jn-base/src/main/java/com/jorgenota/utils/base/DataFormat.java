@@ -0,0 +1,113 @@
+package com.jorgenota.utils.base;
+
+import org.springframework.lang.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * The data formats supported by {@link ContentCodec}s: JSON and the binary Smile and CBOR formats, which encode the
+ * same data model with fewer bytes and less parsing work.
+ *
+ * @author Jorge Alonso
+ * @see ContentCodecs
+ */
+public enum DataFormat {
+    JSON("application/json", "com.fasterxml.jackson.core.JsonFactory"),
+    SMILE("application/x-jackson-smile", "com.fasterxml.jackson.dataformat.smile.SmileFactory"),
+    CBOR("application/cbor", "com.fasterxml.jackson.dataformat.cbor.CBORFactory");
+
+    private final String contentType;
+    private final String factoryClassName;
+
+    DataFormat(String contentType, String factoryClassName) {
+        this.contentType = contentType;
+        this.factoryClassName = factoryClassName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    String getFactoryClassName() {
+        return factoryClassName;
+    }
+
+    /**
+     * Returns the format of a content type. Parameters (such as the charset) and case are ignored, and any
+     * {@code +json} structured syntax suffix is taken as JSON.
+     *
+     * @param contentType the content type
+     * @return the format, or <code>null</code> if the content type is not supported
+     */
+    @Nullable
+    public static DataFormat forContentType(@Nullable String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int semicolon = contentType.indexOf(';');
+        String mediaType = ((semicolon < 0) ? contentType : contentType.substring(0, semicolon))
+            .trim()
+            .toLowerCase(Locale.ROOT);
+        for (DataFormat format : values()) {
+            if (format.contentType.equals(mediaType)) {
+                return format;
+            }
+        }
+        return mediaType.endsWith("+json") ? JSON : null;
+    }
+
+    /**
+     * Detects the format of some content from its first bytes.
+     * <p>
+     * Smile content is recognized by its header, which Smile generators write by default. Content starting with a
+     * byte that can start a JSON document (whitespace, a byte order mark, a structural character or the start of a
+     * literal) is taken as JSON. Any other content is taken as CBOR, which is reliable for objects and arrays.
+     *
+     * @param bytes the content
+     * @return the detected format
+     */
+    public static DataFormat detect(byte[] bytes) {
+        return detect(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Detects the format of the remaining bytes of a buffer, without changing its position.
+     *
+     * @param buffer the content
+     * @return the detected format
+     * @see #detect(byte[])
+     */
+    public static DataFormat detect(ByteBuffer buffer) {
+        int position = buffer.position();
+        int remaining = buffer.remaining();
+        if (remaining == 0) {
+            return JSON;
+        }
+        int first = buffer.get(position) & 0xFF;
+        if (remaining >= 3 && first == ':' && buffer.get(position + 1) == ')' && buffer.get(position + 2) == '\n') {
+            return SMILE;
+        }
+        return isJsonStart(first) ? JSON : CBOR;
+    }
+
+    private static boolean isJsonStart(int b) {
+        switch (b) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\r':
+            case 0xEF: // UTF-8 byte order mark
+            case '{':
+            case '[':
+            case '"':
+            case '-':
+            case 't':
+            case 'f':
+            case 'n':
+                return true;
+            default:
+                return b >= '0' && b <= '9';
+        }
+    }
+}
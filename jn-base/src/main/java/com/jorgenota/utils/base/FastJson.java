@@ -0,0 +1,26 @@
+package com.jorgenota.utils.base;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose JSON serializer and deserializer are generated at build time by the jn-json-processor
+ * annotation processor, as a {@link FastJsonCodec}. The mappers configured by {@link ObjectMappingUtils} register the
+ * generated codecs found on the classpath, so the class is (de)serialized without runtime introspection nor
+ * reflection.
+ * <p>
+ * The class must be a non-abstract, non-generic top-level or static nested class extending {@link Object}, with a
+ * non-private no-argument constructor. Its properties are its public fields and the fields with public getters and
+ * setters, named as Jackson would name them; {@code @JsonProperty} (to rename) and {@code @JsonIgnore} are the only
+ * Jackson annotations allowed. Other types referenced by the properties are (de)serialized by Jackson as usual.
+ *
+ * @author Jorge Alonso
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface FastJson {
+}
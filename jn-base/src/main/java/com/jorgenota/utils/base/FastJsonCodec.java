@@ -0,0 +1,21 @@
+package com.jorgenota.utils.base;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+
+/**
+ * A serializer and a deserializer generated for a class annotated with {@link FastJson}. Implementations are
+ * registered as services in {@code META-INF/services/com.jorgenota.utils.base.FastJsonCodec} by the annotation
+ * processor.
+ *
+ * @param <T> the type of the annotated class
+ * @author Jorge Alonso
+ */
+public interface FastJsonCodec<T> {
+
+    Class<T> getType();
+
+    JsonSerializer<T> serializer();
+
+    JsonDeserializer<T> deserializer();
+}
@@ -0,0 +1,107 @@
+package com.jorgenota.utils.base;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+import static com.jorgenota.utils.base.Preconditions.state;
+
+/**
+ * Writes values incrementally, either as the elements of a JSON array or as NDJSON lines, through a single
+ * {@link JsonGenerator}. Values are not flushed one by one: the generator buffers the output and flushes it when its
+ * buffer is full, on {@link #flush()} and on {@link #close()}.
+ * <p>
+ * Closing the writer ends the array, if any, and closes the target. Instances are not thread-safe.
+ *
+ * @param <T> the type of the values
+ * @author Jorge Alonso
+ * @see JsonStreams
+ */
+public final class JsonStreamWriter<T> implements Closeable, Flushable {
+    private final JsonGenerator generator;
+    private final ObjectWriter writer;
+    private final boolean array;
+    private long count;
+    private boolean closed;
+
+    private JsonStreamWriter(JsonGenerator generator, ObjectWriter writer, boolean array) {
+        this.generator = generator;
+        this.writer = writer;
+        this.array = array;
+    }
+
+    public static <T> JsonStreamWriter<T> array(OutputStream outputStream, ObjectWriter writer) throws IOException {
+        JsonGenerator generator = createGenerator(outputStream, writer);
+        generator.writeStartArray();
+        return new JsonStreamWriter<>(generator, writer.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE), true);
+    }
+
+    public static <T> JsonStreamWriter<T> lines(OutputStream outputStream, ObjectWriter writer) throws IOException {
+        JsonGenerator generator = createGenerator(outputStream, writer);
+        // Lines are terminated explicitly instead
+        generator.setRootValueSeparator(null);
+        return new JsonStreamWriter<>(generator, writer.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE), false);
+    }
+
+    public void write(T value) throws IOException {
+        state(!closed, "The writer is closed");
+        writer.writeValue(generator, value);
+        if (!array) {
+            generator.writeRaw('\n');
+        }
+        count++;
+    }
+
+    public void writeAll(Iterable<? extends T> values) throws IOException {
+        writeAll(values.iterator());
+    }
+
+    public void writeAll(Iterator<? extends T> values) throws IOException {
+        while (values.hasNext()) {
+            write(values.next());
+        }
+    }
+
+    /**
+     * Returns the number of values written so far.
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (array) {
+                generator.writeEndArray();
+            }
+        } finally {
+            generator.close();
+        }
+    }
+
+    private static JsonGenerator createGenerator(OutputStream outputStream, ObjectWriter writer) throws IOException {
+        notNull(outputStream, "outputStream may not be null");
+        JsonGenerator generator = writer.createGenerator(outputStream);
+        generator.enable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+}
@@ -0,0 +1,100 @@
+package com.jorgenota.utils.base;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.jorgenota.utils.base.ObjectMappingUtils.OBJECT_MAPPER_CACHE;
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Helpers to read and write large JSON arrays and NDJSON (newline-delimited JSON) content one value at a time, so
+ * memory stays flat regardless of the size of the content.
+ * <p>
+ * The returned streams are lazy and sequential, and own their source: they must be closed (e.g. in a
+ * try-with-resources block) unless they are fully consumed. The helpers taking a type use the cached readers and
+ * writers of {@link ObjectMappingUtils#OBJECT_MAPPER}.
+ *
+ * @author Jorge Alonso
+ * @see JsonValueIterator
+ * @see JsonStreamWriter
+ */
+public final class JsonStreams {
+
+    private JsonStreams() {
+    }
+
+    public static <T> Stream<T> readArray(InputStream inputStream, Class<T> type) throws IOException {
+        return readArray(inputStream, OBJECT_MAPPER_CACHE.readerFor(type));
+    }
+
+    public static <T> Stream<T> readArray(ReadableByteChannel channel, Class<T> type) throws IOException {
+        return readArray(Channels.newInputStream(notNull(channel, "channel may not be null")), type);
+    }
+
+    /**
+     * Returns a lazy stream over the elements of the JSON array read from a source.
+     *
+     * @param inputStream the source, which is closed when the stream is closed
+     * @param reader      the reader of the elements
+     * @param <T>         the type of the elements
+     * @return the stream of elements
+     * @throws IOException if the root value can't be read or isn't an array
+     */
+    public static <T> Stream<T> readArray(InputStream inputStream, ObjectReader reader) throws IOException {
+        notNull(inputStream, "inputStream may not be null");
+        return stream(JsonValueIterator.overArray(reader.createParser(inputStream), reader));
+    }
+
+    public static <T> Stream<T> readLines(InputStream inputStream, Class<T> type) throws IOException {
+        return readLines(inputStream, OBJECT_MAPPER_CACHE.readerFor(type));
+    }
+
+    public static <T> Stream<T> readLines(ReadableByteChannel channel, Class<T> type) throws IOException {
+        return readLines(Channels.newInputStream(notNull(channel, "channel may not be null")), type);
+    }
+
+    /**
+     * Returns a lazy stream over the values of the NDJSON content read from a source. Blank lines are skipped.
+     *
+     * @param inputStream the source, which is closed when the stream is closed
+     * @param reader      the reader of the values
+     * @param <T>         the type of the values
+     * @return the stream of values
+     * @throws IOException if the parser can't be created
+     */
+    public static <T> Stream<T> readLines(InputStream inputStream, ObjectReader reader) throws IOException {
+        notNull(inputStream, "inputStream may not be null");
+        return stream(JsonValueIterator.overValues(reader.createParser(inputStream), reader));
+    }
+
+    public static <T> JsonStreamWriter<T> writeArray(OutputStream outputStream, Class<T> type) throws IOException {
+        return JsonStreamWriter.array(outputStream, OBJECT_MAPPER_CACHE.writerFor(type));
+    }
+
+    public static <T> JsonStreamWriter<T> writeArray(WritableByteChannel channel, Class<T> type) throws IOException {
+        return writeArray(Channels.newOutputStream(notNull(channel, "channel may not be null")), type);
+    }
+
+    public static <T> JsonStreamWriter<T> writeLines(OutputStream outputStream, Class<T> type) throws IOException {
+        return JsonStreamWriter.lines(outputStream, OBJECT_MAPPER_CACHE.writerFor(type));
+    }
+
+    public static <T> JsonStreamWriter<T> writeLines(WritableByteChannel channel, Class<T> type) throws IOException {
+        return writeLines(Channels.newOutputStream(notNull(channel, "channel may not be null")), type);
+    }
+
+    private static <T> Stream<T> stream(JsonValueIterator<T> iterator) {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+}
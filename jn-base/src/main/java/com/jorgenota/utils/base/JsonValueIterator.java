@@ -0,0 +1,133 @@
+package com.jorgenota.utils.base;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A lazy iterator over the elements of a JSON array or over a sequence of root-level JSON values (such as NDJSON),
+ * which reads one value at a time from an underlying {@link JsonParser}.
+ * <p>
+ * Only the value being returned and the buffers of the parser are kept in memory, whatever the size of the source.
+ * The parser, and therefore its source, is closed when the iterator is exhausted, when reading fails or when the
+ * iterator is closed. Read errors are thrown as {@link UncheckedIOException}s.
+ *
+ * @param <T> the type of the values
+ * @author Jorge Alonso
+ * @see JsonStreams
+ */
+public final class JsonValueIterator<T> implements Iterator<T>, Closeable {
+    private final JsonParser parser;
+    private final ObjectReader reader;
+    private final boolean array;
+    private boolean pending;
+    private boolean done;
+
+    private JsonValueIterator(JsonParser parser, ObjectReader reader, boolean array) {
+        this.parser = parser;
+        this.reader = reader;
+        this.array = array;
+    }
+
+    /**
+     * Creates an iterator over the elements of the array at the root of a parser, which must not have been advanced.
+     *
+     * @param parser the parser
+     * @param reader the reader of the elements
+     * @param <T>    the type of the elements
+     * @return the iterator
+     * @throws IOException if the root value can't be read or isn't an array
+     */
+    public static <T> JsonValueIterator<T> overArray(JsonParser parser, ObjectReader reader) throws IOException {
+        JsonToken token;
+        try {
+            token = parser.nextToken();
+        } catch (IOException e) {
+            parser.close();
+            throw e;
+        }
+        if (token != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new JsonParseException(parser, "Expected the start of an array but found " + token);
+        }
+        return new JsonValueIterator<>(parser, reader, true);
+    }
+
+    /**
+     * Creates an iterator over the root-level values of a parser, which must not have been advanced. The values may
+     * be separated by any whitespace, so this reads NDJSON.
+     *
+     * @param parser the parser
+     * @param reader the reader of the values
+     * @param <T>    the type of the values
+     * @return the iterator
+     */
+    public static <T> JsonValueIterator<T> overValues(JsonParser parser, ObjectReader reader) {
+        return new JsonValueIterator<>(parser, reader, false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pending) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        JsonToken token;
+        try {
+            token = parser.nextToken();
+        } catch (IOException e) {
+            throw failed(e);
+        }
+        if (token == null || (array && token == JsonToken.END_ARRAY)) {
+            close();
+            return false;
+        }
+        pending = true;
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        pending = false;
+        try {
+            return reader.readValue(parser);
+        } catch (IOException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (done) {
+            return;
+        }
+        done = true;
+        pending = false;
+        try {
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private UncheckedIOException failed(IOException e) {
+        try {
+            close();
+        } catch (UncheckedIOException closeFailure) {
+            e.addSuppressed(closeFailure.getCause());
+        }
+        return new UncheckedIOException(e);
+    }
+}
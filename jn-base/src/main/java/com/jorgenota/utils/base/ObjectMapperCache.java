@@ -0,0 +1,213 @@
+package com.jorgenota.utils.base;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * A cache of pre-built {@link ObjectReader} and {@link ObjectWriter} instances of an {@link ObjectMapper}, per type
+ * and per view.
+ * <p>
+ * Each call to {@code ObjectMapper.readValue} or {@code ObjectMapper.writeValueAsBytes} resolves the type and looks up
+ * its (de)serializer again. Readers and writers are immutable and thread-safe, so they are built once per type and
+ * view and then reused, which avoids most of that work. The mapper must not be reconfigured after the cache is created.
+ *
+ * @author Jorge Alonso
+ * @see ObjectMappingUtils#readerFor(Class)
+ * @see ObjectMappingUtils#writerFor(Class)
+ */
+public final class ObjectMapperCache {
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Type, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ViewKey, ObjectReader> viewReaders = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ViewKey, ObjectWriter> viewWriters = new ConcurrentHashMap<>();
+
+    public ObjectMapperCache(ObjectMapper objectMapper) {
+        this.objectMapper = notNull(objectMapper, "objectMapper may not be null");
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    public ObjectReader readerFor(Class<?> type) {
+        ObjectReader reader = readers.get(type);
+        return (reader != null) ? reader : readers.computeIfAbsent(type, t -> objectMapper.readerFor(type));
+    }
+
+    public ObjectReader readerFor(TypeReference<?> type) {
+        Type key = type.getType();
+        ObjectReader reader = readers.get(key);
+        return (reader != null) ? reader : readers.computeIfAbsent(key, t -> objectMapper.readerFor(type));
+    }
+
+    /**
+     * Returns a reader for the given type that only deserializes the properties included in the given view.
+     *
+     * @param type the type to read
+     * @param view the view to activate
+     * @return the cached reader
+     */
+    public ObjectReader readerFor(Class<?> type, Class<?> view) {
+        return viewReaders.computeIfAbsent(new ViewKey(type, view), k -> objectMapper.readerFor(type).withView(view));
+    }
+
+    public ObjectWriter writerFor(Class<?> type) {
+        ObjectWriter writer = writers.get(type);
+        return (writer != null) ? writer : writers.computeIfAbsent(type, t -> objectMapper.writerFor(type));
+    }
+
+    public ObjectWriter writerFor(TypeReference<?> type) {
+        Type key = type.getType();
+        ObjectWriter writer = writers.get(key);
+        return (writer != null) ? writer : writers.computeIfAbsent(key, t -> objectMapper.writerFor(type));
+    }
+
+    /**
+     * Returns a writer for the given type that only serializes the properties included in the given view.
+     *
+     * @param type the type to write
+     * @param view the view to activate
+     * @return the cached writer
+     */
+    public ObjectWriter writerFor(Class<?> type, Class<?> view) {
+        return viewWriters.computeIfAbsent(new ViewKey(type, view), k -> objectMapper.writerFor(type).withView(view));
+    }
+
+    public <T> T readValue(byte[] bytes, Class<T> type) throws IOException {
+        return readerFor(type).readValue(bytes);
+    }
+
+    public <T> T readValue(byte[] bytes, TypeReference<T> type) throws IOException {
+        return readerFor(type).readValue(bytes);
+    }
+
+    /**
+     * Reads a value from the remaining bytes of a buffer. The position of the buffer is not changed.
+     *
+     * @param buffer the buffer to read
+     * @param type   the type to read
+     * @param <T>    the type to read
+     * @return the read value
+     * @throws IOException if the content can't be read
+     */
+    public <T> T readValue(ByteBuffer buffer, Class<T> type) throws IOException {
+        return readValue(readerFor(type), buffer);
+    }
+
+    public <T> T readValue(ByteBuffer buffer, TypeReference<T> type) throws IOException {
+        return readValue(readerFor(type), buffer);
+    }
+
+    /**
+     * Reads a value from a stream. The stream is not closed.
+     *
+     * @param inputStream the stream to read
+     * @param type        the type to read
+     * @param <T>         the type to read
+     * @return the read value
+     * @throws IOException if the content can't be read
+     */
+    public <T> T readValue(InputStream inputStream, Class<T> type) throws IOException {
+        return readerFor(type).readValue(inputStream);
+    }
+
+    public <T> T readValue(InputStream inputStream, TypeReference<T> type) throws IOException {
+        return readerFor(type).readValue(inputStream);
+    }
+
+    /**
+     * Serializes a value using the writer of its runtime class.
+     *
+     * @param value the value to write
+     * @return the serialized value
+     * @throws IOException if the value can't be serialized
+     */
+    public byte[] writeValueAsBytes(Object value) throws IOException {
+        return writerFor(notNull(value, "value may not be null").getClass()).writeValueAsBytes(value);
+    }
+
+    /**
+     * Serializes a value into a stream using the writer of its runtime class. The stream is not closed.
+     *
+     * @param outputStream the stream to write to
+     * @param value        the value to write
+     * @throws IOException if the value can't be serialized
+     */
+    public void writeValue(OutputStream outputStream, Object value) throws IOException {
+        writerFor(notNull(value, "value may not be null").getClass())
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .writeValue(outputStream, value);
+    }
+
+    /**
+     * Serializes a value into a buffer borrowed from a pool, using the writer of its runtime class, so no intermediate
+     * array is created. The caller must close the returned buffer once its bytes have been consumed.
+     *
+     * @param value the value to write
+     * @param pool  the pool of buffers
+     * @return the serialized value
+     * @throws IOException if the value can't be serialized
+     */
+    public PooledByteBuffer writeValueAsBuffer(Object value, ByteBufferPool pool) throws IOException {
+        ByteBufferOutputStream outputStream = new ByteBufferOutputStream(pool);
+        try {
+            // Closing the stream keeps its buffer, so the cached writer can be used as is
+            writerFor(notNull(value, "value may not be null").getClass()).writeValue(outputStream, value);
+            return outputStream.toPooledBuffer();
+        } finally {
+            outputStream.release();
+        }
+    }
+
+    private static <T> T readValue(ObjectReader reader, ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            return reader.readValue(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        try (InputStream inputStream = new ByteBufferBackedInputStream(buffer.duplicate())) {
+            return reader.readValue(inputStream);
+        }
+    }
+
+    private static final class ViewKey {
+        private final Type type;
+        private final Class<?> view;
+
+        private ViewKey(Type type, Class<?> view) {
+            this.type = type;
+            this.view = view;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ViewKey)) {
+                return false;
+            }
+            ViewKey other = (ViewKey) o;
+            return type.equals(other.type) && view.equals(other.view);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, view);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.jorgenota.utils.base;
+
+/**
+ * Performance options applied by {@link ObjectMappingUtils#configureObjectMapper(ObjectMapperOptions)} on top of the
+ * default configuration.
+ * <p>
+ * By default the generated codecs are registered when they are on the classpath, buffer recycling is enabled (as it is
+ * in Jackson), no feature is disabled and no bytecode-accelerated module is registered, which is the configuration of
+ * {@link ObjectMappingUtils#configureObjectMapper()}.
+ *
+ * @author Jorge Alonso
+ */
+public final class ObjectMapperOptions {
+    private static final ObjectMapperOptions DEFAULTS = newBuilder().build();
+
+    private final boolean bytecodeAcceleration;
+    private final boolean bufferRecycling;
+    private final boolean expensiveFeaturesDisabled;
+    private final boolean generatedCodecs;
+
+    private ObjectMapperOptions(Builder builder) {
+        this.bytecodeAcceleration = builder.bytecodeAcceleration;
+        this.bufferRecycling = builder.bufferRecycling;
+        this.expensiveFeaturesDisabled = builder.expensiveFeaturesDisabled;
+        this.generatedCodecs = builder.generatedCodecs;
+    }
+
+    public static ObjectMapperOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public boolean isBytecodeAcceleration() {
+        return bytecodeAcceleration;
+    }
+
+    public boolean isBufferRecycling() {
+        return bufferRecycling;
+    }
+
+    public boolean isExpensiveFeaturesDisabled() {
+        return expensiveFeaturesDisabled;
+    }
+
+    public boolean isGeneratedCodecs() {
+        return generatedCodecs;
+    }
+
+    public static final class Builder {
+        private boolean bytecodeAcceleration;
+        private boolean bufferRecycling = true;
+        private boolean expensiveFeaturesDisabled;
+        private boolean generatedCodecs = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Registers Blackbird, or Afterburner if Blackbird is not available, when they are on the classpath. Both
+         * replace the reflection-based property accessors of databind with generated ones. Disabled by default.
+         * <p>
+         * Afterburner (at least up to 2.11) ignores the active view when deserializing, so it must not be enabled for
+         * mappers that read values with {@code @JsonView} filtering.
+         *
+         * @param bytecodeAcceleration <code>true</code> to register the modules if they are present
+         * @return <code>this</code>
+         */
+        public Builder withBytecodeAcceleration(boolean bytecodeAcceleration) {
+            this.bytecodeAcceleration = bytecodeAcceleration;
+            return this;
+        }
+
+        /**
+         * Reuses the read and write buffers of parsers and generators through thread-local recyclers. It should only
+         * be disabled when the mapper is used from a large number of short-lived threads.
+         *
+         * @param bufferRecycling <code>true</code> to recycle the buffers
+         * @return <code>this</code>
+         */
+        public Builder withBufferRecycling(boolean bufferRecycling) {
+            this.bufferRecycling = bufferRecycling;
+            return this;
+        }
+
+        /**
+         * Disables the features that cost time on every call without being needed to process well-formed messages:
+         * interning of field names, keeping a reference to the source for error locations and flushing after each
+         * written value.
+         *
+         * @param expensiveFeaturesDisabled <code>true</code> to disable the features
+         * @return <code>this</code>
+         */
+        public Builder withExpensiveFeaturesDisabled(boolean expensiveFeaturesDisabled) {
+            this.expensiveFeaturesDisabled = expensiveFeaturesDisabled;
+            return this;
+        }
+
+        /**
+         * Registers the {@link FastJsonCodec}s generated for the classes annotated with {@link FastJson} that are
+         * found on the classpath.
+         *
+         * @param generatedCodecs <code>true</code> to register the generated codecs
+         * @return <code>this</code>
+         */
+        public Builder withGeneratedCodecs(boolean generatedCodecs) {
+            this.generatedCodecs = generatedCodecs;
+            return this;
+        }
+
+        public ObjectMapperOptions build() {
+            return new ObjectMapperOptions(this);
+        }
+    }
+}
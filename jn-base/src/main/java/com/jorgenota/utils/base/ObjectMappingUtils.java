@@ -1,27 +1,128 @@
 package com.jorgenota.utils.base;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.TSFBuilder;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 import org.springframework.util.ClassUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.util.ServiceLoader;
 
 public final class ObjectMappingUtils {
 
     public static final ObjectMapper OBJECT_MAPPER = configureObjectMapper();
 
+    /**
+     * The readers and writers of {@link #OBJECT_MAPPER}, which must not be reconfigured.
+     */
+    public static final ObjectMapperCache OBJECT_MAPPER_CACHE = new ObjectMapperCache(OBJECT_MAPPER);
+
     private ObjectMappingUtils() {
     }
 
-    @SuppressWarnings("unchecked")
+    public static ObjectReader readerFor(Class<?> type) {
+        return OBJECT_MAPPER_CACHE.readerFor(type);
+    }
+
+    public static ObjectReader readerFor(TypeReference<?> type) {
+        return OBJECT_MAPPER_CACHE.readerFor(type);
+    }
+
+    public static ObjectReader readerFor(Class<?> type, Class<?> view) {
+        return OBJECT_MAPPER_CACHE.readerFor(type, view);
+    }
+
+    public static ObjectWriter writerFor(Class<?> type) {
+        return OBJECT_MAPPER_CACHE.writerFor(type);
+    }
+
+    public static ObjectWriter writerFor(TypeReference<?> type) {
+        return OBJECT_MAPPER_CACHE.writerFor(type);
+    }
+
+    public static ObjectWriter writerFor(Class<?> type, Class<?> view) {
+        return OBJECT_MAPPER_CACHE.writerFor(type, view);
+    }
+
+    public static <T> T readValue(byte[] bytes, Class<T> type) throws IOException {
+        return OBJECT_MAPPER_CACHE.readValue(bytes, type);
+    }
+
+    public static <T> T readValue(byte[] bytes, TypeReference<T> type) throws IOException {
+        return OBJECT_MAPPER_CACHE.readValue(bytes, type);
+    }
+
+    public static <T> T readValue(ByteBuffer buffer, Class<T> type) throws IOException {
+        return OBJECT_MAPPER_CACHE.readValue(buffer, type);
+    }
+
+    public static <T> T readValue(ByteBuffer buffer, TypeReference<T> type) throws IOException {
+        return OBJECT_MAPPER_CACHE.readValue(buffer, type);
+    }
+
+    public static <T> T readValue(InputStream inputStream, Class<T> type) throws IOException {
+        return OBJECT_MAPPER_CACHE.readValue(inputStream, type);
+    }
+
+    public static <T> T readValue(InputStream inputStream, TypeReference<T> type) throws IOException {
+        return OBJECT_MAPPER_CACHE.readValue(inputStream, type);
+    }
+
+    public static byte[] writeValueAsBytes(Object value) throws IOException {
+        return OBJECT_MAPPER_CACHE.writeValueAsBytes(value);
+    }
+
+    public static PooledByteBuffer writeValueAsBuffer(Object value) throws IOException {
+        return OBJECT_MAPPER_CACHE.writeValueAsBuffer(value, ByteBufferPool.shared());
+    }
+
     public static ObjectMapper configureObjectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
+        return configureObjectMapper(ObjectMapperOptions.defaults());
+    }
+
+    public static ObjectMapper configureObjectMapper(ObjectMapperOptions options) {
+        return configureObjectMapper(DataFormat.JSON, options);
+    }
+
+    /**
+     * Configures a mapper for a data format the same way the JSON one is configured. The binary formats need their
+     * jackson-dataformat module on the classpath.
+     *
+     * @param format  the data format
+     * @param options the performance options
+     * @return the configured mapper
+     * @throws IllegalStateException if the module of the data format is not available
+     */
+    @SuppressWarnings("unchecked")
+    public static ObjectMapper configureObjectMapper(DataFormat format, ObjectMapperOptions options) {
+        JsonFactory factory = (format == DataFormat.JSON) ? new JsonFactory() : createFactory(format);
+        TSFBuilder<?, ?> factoryBuilder = factory.rebuild()
+            .configure(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING, options.isBufferRecycling());
+        if (options.isExpensiveFeaturesDisabled()) {
+            factoryBuilder.disable(JsonFactory.Feature.INTERN_FIELD_NAMES);
+        }
+        ObjectMapper objectMapper = new ObjectMapper(factoryBuilder.build());
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         objectMapper.configure(MapperFeature.DEFAULT_VIEW_INCLUSION, false);
 
+        if (options.isExpensiveFeaturesDisabled()) {
+            objectMapper.configure(JsonParser.Feature.INCLUDE_SOURCE_IN_LOCATION, false);
+            objectMapper.configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false);
+        }
+
         ClassLoader classLoader = ObjectMappingUtils.class.getClassLoader();
 
         // Java 8 java.util.Optional class present?
@@ -57,9 +158,58 @@ public final class ObjectMappingUtils {
             }
         }
 
+        // Bytecode-accelerated accessors: Blackbird (Jackson 2.12+) or else Afterburner
+        if (options.isBytecodeAcceleration()) {
+            try {
+                Class<? extends Module> blackbirdModule = (Class<? extends Module>)
+                    ClassUtils.forName("com.fasterxml.jackson.module.blackbird.BlackbirdModule", classLoader);
+                objectMapper.registerModule(instantiateClass(blackbirdModule));
+            } catch (ClassNotFoundException ex) {
+                // jackson-module-blackbird not available
+                try {
+                    Class<? extends Module> afterburnerModule = (Class<? extends Module>)
+                        ClassUtils.forName("com.fasterxml.jackson.module.afterburner.AfterburnerModule", classLoader);
+                    objectMapper.registerModule(instantiateClass(afterburnerModule));
+                } catch (ClassNotFoundException ex2) {
+                    // jackson-module-afterburner not available
+                }
+            }
+        }
+
+        // Serializers and deserializers generated for the classes annotated with @FastJson
+        if (options.isGeneratedCodecs()) {
+            SimpleModule fastJsonModule = null;
+            for (FastJsonCodec<?> codec : ServiceLoader.load(FastJsonCodec.class, classLoader)) {
+                if (fastJsonModule == null) {
+                    fastJsonModule = new SimpleModule("FastJsonModule");
+                }
+                addCodec(fastJsonModule, codec);
+            }
+            if (fastJsonModule != null) {
+                objectMapper.registerModule(fastJsonModule);
+            }
+        }
+
         return objectMapper;
     }
 
+    private static <T> void addCodec(SimpleModule module, FastJsonCodec<T> codec) {
+        module.addSerializer(codec.getType(), codec.serializer());
+        module.addDeserializer(codec.getType(), codec.deserializer());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JsonFactory createFactory(DataFormat format) {
+        try {
+            Class<? extends JsonFactory> factory = (Class<? extends JsonFactory>)
+                ClassUtils.forName(format.getFactoryClassName(), ObjectMappingUtils.class.getClassLoader());
+            return instantiateClass(factory);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalStateException(format + " is not available, " + format.getFactoryClassName()
+                + " was not found", ex);
+        }
+    }
+
     private static <T> T instantiateClass(Class<T> clazz) {
         try {
             Constructor<T> ctor = clazz.getDeclaredConstructor();
@@ -0,0 +1,80 @@
+package com.jorgenota.utils.base;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.jorgenota.utils.base.Preconditions.state;
+
+/**
+ * Bytes held in a buffer borrowed from a {@link ByteBufferPool}, which is released back to it when this is closed.
+ * <p>
+ * The views returned by {@link #buffer()} and {@link #inputStream()} share the bytes of the pooled buffer, so they can
+ * be handed to a client (e.g. an AWS SDK request accepting a {@code ByteBuffer} or an {@code InputStream}) without
+ * copying them, but they must not be used once this is closed, i.e. it must only be closed after the request
+ * completes.
+ *
+ * @author Jorge Alonso
+ * @see ByteBufferOutputStream
+ */
+public final class PooledByteBuffer implements AutoCloseable {
+    private final ByteBuffer buffer;
+    private final ByteBufferPool pool;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    PooledByteBuffer(ByteBuffer buffer, ByteBufferPool pool) {
+        this.buffer = buffer;
+        this.pool = pool;
+    }
+
+    public int size() {
+        return buffer.limit();
+    }
+
+    /**
+     * Returns a new view of the bytes, positioned at the first one. The views are independent, so each one can be
+     * consumed separately.
+     *
+     * @return the view
+     */
+    public ByteBuffer buffer() {
+        checkNotReleased();
+        return buffer.duplicate();
+    }
+
+    /**
+     * Returns a new stream reading the bytes from the first one.
+     *
+     * @return the stream
+     */
+    public InputStream inputStream() {
+        return new ByteBufferBackedInputStream(buffer());
+    }
+
+    /**
+     * Copies the bytes into a new array, for the clients that can only take arrays.
+     *
+     * @return the bytes
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[size()];
+        buffer().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Releases the buffer back to the pool. Further calls have no effect.
+     */
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(buffer);
+        }
+    }
+
+    private void checkNotReleased() {
+        state(!released.get(), "The buffer has been released");
+    }
+}
@@ -4,6 +4,8 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
+import java.util.function.Supplier;
+
 /**
  * Assertion utility class that assists in validating arguments.
  * <p>
@@ -54,6 +56,193 @@ public final class Preconditions {
         }
     }
 
+    /**
+     * Ensures the truth of an expression involving one or more parameters to the calling method. The message is only built if the
+     * check fails.
+     *
+     * @param expression           a boolean expression
+     * @param errorMessageSupplier supplier of the exception message to use if the check fails; a {@code null}
+     *                             supplier gives a {@code "null"} message, as a {@code null} message does
+     * @throws IllegalArgumentException if {@code expression} is false
+     */
+    public static void isTrue(boolean expression, @Nullable Supplier<String> errorMessageSupplier) {
+        if (!expression) {
+            throw new IllegalArgumentException(message(errorMessageSupplier));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the argument
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, int errorMessageArg) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the argument
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, long errorMessageArg) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the argument
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, double errorMessageArg) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the argument
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, char errorMessageArg) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array unless the check
+     * fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, @Nullable Object errorMessageArg) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, int errorMessageArg1,
+                              int errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, long errorMessageArg1,
+                              long errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, long errorMessageArg1,
+                              @Nullable Object errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, char errorMessageArg1,
+                              char errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, char errorMessageArg1,
+                              int errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, int errorMessageArg1,
+                              char errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, char errorMessageArg1,
+                              long errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, long errorMessageArg1,
+                              char errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, char errorMessageArg1,
+                              @Nullable Object errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array unless the check
+     * fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, @Nullable Object errorMessageArg1,
+                              @Nullable Object errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #isTrue(boolean, String, Object...)}, but doesn't allocate a varargs array unless the check
+     * fails.
+     */
+    public static void isTrue(boolean expression, String errorMessageTemplate, @Nullable Object errorMessageArg1,
+                              @Nullable Object errorMessageArg2, @Nullable Object errorMessageArg3) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2,
+                errorMessageArg3));
+        }
+    }
+
     /**
      * Ensures the truth of an expression involving the state of the calling instance, but not
      * involving any parameters to the calling method.
@@ -92,6 +281,193 @@ public final class Preconditions {
         }
     }
 
+    /**
+     * Ensures the truth of an expression involving the state of the calling instance. The message is only built if the
+     * check fails.
+     *
+     * @param expression           a boolean expression
+     * @param errorMessageSupplier supplier of the exception message to use if the check fails; a {@code null}
+     *                             supplier gives a {@code "null"} message, as a {@code null} message does
+     * @throws IllegalStateException if {@code expression} is false
+     */
+    public static void state(boolean expression, @Nullable Supplier<String> errorMessageSupplier) {
+        if (!expression) {
+            throw new IllegalStateException(message(errorMessageSupplier));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the argument
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, int errorMessageArg) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the argument
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, long errorMessageArg) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the argument
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, double errorMessageArg) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the argument
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, char errorMessageArg) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array unless the check
+     * fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, @Nullable Object errorMessageArg) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, int errorMessageArg1,
+                              int errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, long errorMessageArg1,
+                              long errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, long errorMessageArg1,
+                              @Nullable Object errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, char errorMessageArg1,
+                              char errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, char errorMessageArg1,
+                              int errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, int errorMessageArg1,
+                              char errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, char errorMessageArg1,
+                              long errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, long errorMessageArg1,
+                              char errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array nor box the arguments
+     * unless the check fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, char errorMessageArg1,
+                              @Nullable Object errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array unless the check
+     * fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, @Nullable Object errorMessageArg1,
+                              @Nullable Object errorMessageArg2) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2));
+        }
+    }
+
+    /**
+     * Same as {@link #state(boolean, String, Object...)}, but doesn't allocate a varargs array unless the check
+     * fails.
+     */
+    public static void state(boolean expression, String errorMessageTemplate, @Nullable Object errorMessageArg1,
+                              @Nullable Object errorMessageArg2, @Nullable Object errorMessageArg3) {
+        if (!expression) {
+            throw new IllegalStateException(String.format(errorMessageTemplate, errorMessageArg1, errorMessageArg2,
+                errorMessageArg3));
+        }
+    }
+
     /**
      * Ensures that an object reference passed as a parameter to the calling method is not null.
      *
@@ -108,6 +484,23 @@ public final class Preconditions {
         return reference;
     }
 
+    /**
+     * Ensures that an object reference passed as a parameter to the calling method is not null. The message is only
+     * built if the check fails.
+     *
+     * @param reference            an object reference
+     * @param errorMessageSupplier supplier of the exception message to use if the check fails; a {@code null}
+     *                             supplier gives a {@code "null"} message, as a {@code null} message does
+     * @return the non-null reference that was validated
+     * @throws NullPointerException if {@code reference} is null
+     */
+    public static <T> T notNull(@Nullable T reference, @Nullable Supplier<String> errorMessageSupplier) {
+        if (reference == null) {
+            throw new NullPointerException(message(errorMessageSupplier));
+        }
+        return reference;
+    }
+
     /**
      * Assert that the given CharSequence is not empty; that is,
      * it must not be {@code null} and not the empty String.
@@ -230,4 +623,9 @@ public final class Preconditions {
             }
         }
     }
+
+    private static String message(@Nullable Supplier<String> errorMessageSupplier) {
+        // A null literal message resolves to the supplier overloads
+        return (errorMessageSupplier != null) ? errorMessageSupplier.get() : "null";
+    }
 }
@@ -0,0 +1,96 @@
+package com.jorgenota.utils.base.service;
+
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A blocking {@link ObjectStore} waiting for the results of an {@link AsyncObjectStore}.
+ *
+ * @author Jorge Alonso
+ */
+final class AsyncBlockingObjectStore implements ObjectStore {
+    private final AsyncObjectStore store;
+
+    AsyncBlockingObjectStore(AsyncObjectStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public byte[] getObjectAsBytes(String storageName, String key) {
+        return join(store.getObjectAsBytes(storageName, key));
+    }
+
+    @Override
+    public String getObjectAsString(String storageName, String key) {
+        return join(store.getObjectAsString(storageName, key));
+    }
+
+    @Override
+    public InputStream openObject(String storageName, String key) {
+        return join(store.openObject(storageName, key));
+    }
+
+    @Override
+    public InputStream getObjectRange(String storageName, String key, long offset, long length) {
+        return join(store.getObjectRange(storageName, key, offset, length));
+    }
+
+    @Override
+    public ObjectMetadata headObject(String storageName, String key) {
+        return join(store.headObject(storageName, key));
+    }
+
+    @Override
+    public long copyObjectTo(String storageName, String key, WritableByteChannel target) {
+        return join(store.copyObjectTo(storageName, key, target));
+    }
+
+    @Override
+    public void putObject(String storageName, String key, byte[] content, String contentType) {
+        join(store.putObject(storageName, key, content, contentType));
+    }
+
+    @Override
+    public void putObject(String storageName, String key, String content, String contentType) {
+        join(store.putObject(storageName, key, content, contentType));
+    }
+
+    @Override
+    public void putObject(String storageName, String key, InputStream content, long contentLength,
+                          String contentType) {
+        join(store.putObject(storageName, key, content, contentLength, contentType));
+    }
+
+    @Override
+    public void deleteObject(String storageName, String key) {
+        join(store.deleteObject(storageName, key));
+    }
+
+    @Override
+    public void deleteObjects(String storageName, Collection<String> keys) {
+        join(store.deleteObjects(storageName, keys));
+    }
+
+    @Override
+    public void deleteBucket(String storageName) {
+        join(store.deleteBucket(storageName));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+            if (cause instanceof ServiceException) {
+                throw (ServiceException) cause;
+            }
+            throw new ServiceException(cause);
+        } catch (CancellationException e) {
+            throw new ServiceException("The operation was cancelled", e);
+        }
+    }
+}
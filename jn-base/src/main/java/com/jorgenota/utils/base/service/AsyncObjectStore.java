@@ -0,0 +1,87 @@
+package com.jorgenota.utils.base.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The asynchronous counterpart of {@link ObjectStore}: every operation returns at once, with a future completed when
+ * the operation ends, or completed exceptionally (usually with a {@link ServiceException}) when it fails.
+ * <p>
+ * {@link AsyncObjectStores} adapts blocking stores to this interface and back, and limits the number of operations in
+ * flight.
+ *
+ * @author Jorge Alonso
+ * @see AsyncObjectStores
+ */
+public interface AsyncObjectStore {
+
+    CompletableFuture<byte[]> getObjectAsBytes(String storageName, String key);
+
+    default CompletableFuture<String> getObjectAsString(String storageName, String key) {
+        return getObjectAsBytes(storageName, key).thenApply(bytes -> new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Opens the content of an object for reading.
+     *
+     * @param storageName name of the storage containing the object to retrieve
+     * @param key         key of the object to retrieve
+     * @return a future with the content of the object, which must be closed to release the underlying resources
+     */
+    CompletableFuture<InputStream> openObject(String storageName, String key);
+
+    /**
+     * Opens a range of the content of an object for reading.
+     *
+     * @param storageName name of the storage containing the object to retrieve
+     * @param key         key of the object to retrieve
+     * @param offset      the position of the first byte of the range
+     * @param length      the number of bytes of the range, which is truncated at the end of the object
+     * @return a future with the content of the range, which must be closed to release the underlying resources
+     */
+    CompletableFuture<InputStream> getObjectRange(String storageName, String key, long offset, long length);
+
+    CompletableFuture<ObjectMetadata> headObject(String storageName, String key);
+
+    /**
+     * Copies the content of an object to a channel, which is not closed.
+     *
+     * @param storageName name of the storage containing the object to retrieve
+     * @param key         key of the object to retrieve
+     * @param target      the channel to write the content to
+     * @return a future with the number of bytes copied
+     */
+    CompletableFuture<Long> copyObjectTo(String storageName, String key, WritableByteChannel target);
+
+    default CompletableFuture<Void> putObject(String storageName, String key, byte[] content, String contentType) {
+        return putObject(storageName, key, new ByteArrayInputStream(content), content.length, contentType);
+    }
+
+    default CompletableFuture<Void> putObject(String storageName, String key, String content, String contentType) {
+        return putObject(storageName, key, content.getBytes(StandardCharsets.UTF_8), contentType);
+    }
+
+    /**
+     * Stores an object from a stream, which must not be used until the returned future completes.
+     *
+     * @param storageName   name of the storage to put the object into
+     * @param key           key of the object
+     * @param content       the content of the object, which is read until its end (or <code>contentLength</code>
+     *                      bytes) but not closed
+     * @param contentLength the number of bytes of the content, or {@link ObjectStore#UNKNOWN_LENGTH}
+     * @param contentType   the content type of the object
+     * @return a future completed when the object is stored
+     */
+    CompletableFuture<Void> putObject(String storageName, String key, InputStream content, long contentLength,
+                                      String contentType);
+
+    CompletableFuture<Void> deleteObject(String storageName, String key);
+
+    CompletableFuture<Void> deleteObjects(String storageName, Collection<String> keys);
+
+    CompletableFuture<Void> deleteBucket(String storageName);
+}
@@ -0,0 +1,55 @@
+package com.jorgenota.utils.base.service;
+
+import java.util.concurrent.Executor;
+
+import static com.jorgenota.utils.base.Preconditions.isTrue;
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Adapters between {@link ObjectStore}s and {@link AsyncObjectStore}s.
+ *
+ * @author Jorge Alonso
+ */
+public final class AsyncObjectStores {
+
+    private AsyncObjectStores() {
+    }
+
+    /**
+     * Returns an asynchronous view of a blocking store, whose operations are run by an executor. The size of the
+     * executor bounds the number of operations running at the same time.
+     *
+     * @param store    the blocking store
+     * @param executor the executor running the operations
+     * @return the asynchronous store
+     */
+    public static AsyncObjectStore fromBlocking(ObjectStore store, Executor executor) {
+        return new BlockingAsyncObjectStore(notNull(store, "store may not be null"),
+            notNull(executor, "executor may not be null"));
+    }
+
+    /**
+     * Returns a blocking view of an asynchronous store, which waits for the result of every operation. The failures
+     * are thrown as {@link ServiceException}s.
+     *
+     * @param store the asynchronous store
+     * @return the blocking store
+     */
+    public static ObjectStore toBlocking(AsyncObjectStore store) {
+        return new AsyncBlockingObjectStore(notNull(store, "store may not be null"));
+    }
+
+    /**
+     * Returns a store that starts at most <code>maxInFlight</code> operations of another one at the same time. The
+     * operations beyond the limit are queued, without blocking the caller, and started in order as the running ones
+     * complete.
+     *
+     * @param store       the store to limit
+     * @param maxInFlight the maximum number of operations in flight
+     * @return the limited store
+     */
+    public static AsyncObjectStore withInFlightLimit(AsyncObjectStore store, int maxInFlight) {
+        isTrue(maxInFlight > 0, "maxInFlight must be > 0 but is %d", maxInFlight);
+        return new InFlightLimitedObjectStore(notNull(store, "store may not be null"), maxInFlight);
+    }
+}
@@ -0,0 +1,84 @@
+package com.jorgenota.utils.base.service;
+
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * An {@link AsyncObjectStore} running the operations of a blocking {@link ObjectStore} in an executor.
+ *
+ * @author Jorge Alonso
+ */
+final class BlockingAsyncObjectStore implements AsyncObjectStore {
+    private final ObjectStore store;
+    private final Executor executor;
+
+    BlockingAsyncObjectStore(ObjectStore store, Executor executor) {
+        this.store = store;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getObjectAsBytes(String storageName, String key) {
+        return CompletableFuture.supplyAsync(() -> store.getObjectAsBytes(storageName, key), executor);
+    }
+
+    @Override
+    public CompletableFuture<String> getObjectAsString(String storageName, String key) {
+        return CompletableFuture.supplyAsync(() -> store.getObjectAsString(storageName, key), executor);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> openObject(String storageName, String key) {
+        return CompletableFuture.supplyAsync(() -> store.openObject(storageName, key), executor);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getObjectRange(String storageName, String key, long offset, long length) {
+        return CompletableFuture.supplyAsync(() -> store.getObjectRange(storageName, key, offset, length), executor);
+    }
+
+    @Override
+    public CompletableFuture<ObjectMetadata> headObject(String storageName, String key) {
+        return CompletableFuture.supplyAsync(() -> store.headObject(storageName, key), executor);
+    }
+
+    @Override
+    public CompletableFuture<Long> copyObjectTo(String storageName, String key, WritableByteChannel target) {
+        return CompletableFuture.supplyAsync(() -> store.copyObjectTo(storageName, key, target), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> putObject(String storageName, String key, byte[] content, String contentType) {
+        return CompletableFuture.runAsync(() -> store.putObject(storageName, key, content, contentType), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> putObject(String storageName, String key, String content, String contentType) {
+        return CompletableFuture.runAsync(() -> store.putObject(storageName, key, content, contentType), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> putObject(String storageName, String key, InputStream content, long contentLength,
+                                             String contentType) {
+        return CompletableFuture.runAsync(
+            () -> store.putObject(storageName, key, content, contentLength, contentType), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteObject(String storageName, String key) {
+        return CompletableFuture.runAsync(() -> store.deleteObject(storageName, key), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteObjects(String storageName, Collection<String> keys) {
+        return CompletableFuture.runAsync(() -> store.deleteObjects(storageName, keys), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteBucket(String storageName) {
+        return CompletableFuture.runAsync(() -> store.deleteBucket(storageName), executor);
+    }
+}
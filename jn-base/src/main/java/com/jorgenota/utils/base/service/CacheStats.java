@@ -0,0 +1,64 @@
+package com.jorgenota.utils.base.service;
+
+/**
+ * A snapshot of the statistics of an object cache: hits and misses of the reads since it was created, objects evicted
+ * to make room for others (or because they expired), and objects and bytes it holds.
+ *
+ * @author Jorge Alonso
+ */
+public final class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long objectCount;
+    private final long weightedBytes;
+
+    CacheStats(long hitCount, long missCount, long evictionCount, long objectCount, long weightedBytes) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.objectCount = objectCount;
+        this.weightedBytes = weightedBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the ratio of reads served from the cache.
+     *
+     * @return the hits divided by the reads, or 1 if there were no reads
+     */
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return (requestCount == 0) ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * Returns the bytes of content of the objects in the cache, which never exceed its maximum.
+     *
+     * @return the bytes held
+     */
+    public long getWeightedBytes() {
+        return weightedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount
+            + ", objectCount=" + objectCount + ", weightedBytes=" + weightedBytes + '}';
+    }
+}
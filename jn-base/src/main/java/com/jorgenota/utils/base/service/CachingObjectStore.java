@@ -0,0 +1,568 @@
+package com.jorgenota.utils.base.service;
+
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.jorgenota.utils.base.Preconditions.hasText;
+import static com.jorgenota.utils.base.Preconditions.isTrue;
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * An {@link ObjectStore} caching in the heap the content of the objects read from another one, up to a number of
+ * bytes.
+ * <p>
+ * {@link #getObjectAsBytes(String, String)} and {@link #getObjectAsString(String, String)} load the objects not in the
+ * cache (concurrent reads of the same object wait for a single load); the rest of reads are served from the cache when
+ * the object is there, and from the other store otherwise. Metadata is not cached. Writes and deletes go to the other
+ * store and remove the objects from the cache, also discarding the loads in progress.
+ * <p>
+ * Objects are evicted with W-TinyLFU, weighted by their size: new objects enter a small LRU window (1% of the bytes),
+ * and the ones leaving it only stay in the main area if they have been read more often than the ones they would
+ * evict, according to a frequency sketch of the recent reads (hits and misses). The main area keeps the objects read
+ * again in a protected segment (80% of it), so a burst of new objects doesn't flush the ones read often. Evictions
+ * are done before adding an object, so the cache never holds more than its maximum bytes.
+ * <p>
+ * Hits don't block: they record the access only if the policy isn't busy with another thread, so access order and
+ * frequencies are approximate under contention. Instances are thread-safe.
+ *
+ * @author Jorge Alonso
+ */
+public final class CachingObjectStore implements ObjectStore {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final ObjectStore store;
+    private final long maximumBytes;
+    private final long maximumObjectBytes;
+    private final long maximumWindowBytes;
+    private final long maximumProtectedBytes;
+    private final long expireAfterWriteMillis;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, Node> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>> loads = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by the lock
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+    private long windowBytes;
+    private long protectedBytes;
+    private long weightedBytes;
+    private long evictionCount;
+
+    private CachingObjectStore(Builder builder) {
+        this.store = builder.store;
+        this.maximumBytes = builder.maximumBytes;
+        this.maximumObjectBytes = Math.min(builder.maximumObjectBytes, builder.maximumBytes);
+        this.maximumWindowBytes = Math.max(1, maximumBytes / 100);
+        this.maximumProtectedBytes = (maximumBytes - maximumWindowBytes) * 8 / 10;
+        this.expireAfterWriteMillis = builder.expireAfterWrite.toMillis();
+        this.clock = builder.clock;
+        sketch.ensureCapacity(64);
+    }
+
+    public static Builder newBuilder(ObjectStore store) {
+        return new Builder(store);
+    }
+
+    public CacheStats getStats() {
+        lock.lock();
+        try {
+            return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount, data.size(), weightedBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of reads waiting for loads in progress started by other reads.
+     *
+     * @return the number of waiting reads
+     */
+    int getWaitingReads() {
+        return loads.values().stream().mapToInt(CompletableFuture::getNumberOfDependents).sum();
+    }
+
+    @Override
+    public byte[] getObjectAsBytes(String storageName, String key) throws ServiceException {
+        return content(storageName, key).clone();
+    }
+
+    @Override
+    public String getObjectAsString(String storageName, String key) throws ServiceException {
+        return new String(content(storageName, key), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public InputStream openObject(String storageName, String key) throws ServiceException {
+        Node node = lookup(cacheKey(storageName, key));
+        return (node != null) ? new ByteArrayInputStream(node.content) : store.openObject(storageName, key);
+    }
+
+    @Override
+    public InputStream getObjectRange(String storageName, String key, long offset, long length)
+        throws ServiceException {
+        isTrue(offset >= 0, "offset must be >= 0 but is %d", offset);
+        isTrue(length >= 0, "length must be >= 0 but is %d", length);
+        Node node = lookup(cacheKey(storageName, key));
+        if (node == null) {
+            return store.getObjectRange(storageName, key, offset, length);
+        }
+        int start = (int) Math.min(offset, node.content.length);
+        return new ByteArrayInputStream(node.content, start, (int) Math.min(length, node.content.length - start));
+    }
+
+    @Override
+    public ObjectMetadata headObject(String storageName, String key) throws ServiceException {
+        return store.headObject(storageName, key);
+    }
+
+    @Override
+    public long copyObjectTo(String storageName, String key, WritableByteChannel target) throws ServiceException {
+        Node node = lookup(cacheKey(storageName, key));
+        if (node == null) {
+            return store.copyObjectTo(storageName, key, target);
+        }
+        ByteBuffer content = ByteBuffer.wrap(node.content).asReadOnlyBuffer();
+        try {
+            while (content.hasRemaining()) {
+                target.write(content);
+            }
+            return node.content.length;
+        } catch (IOException e) {
+            throw new ServiceException("Could not copy object " + storageName + "/" + key, e);
+        }
+    }
+
+    @Override
+    public void putObject(String storageName, String key, byte[] content, String contentType)
+        throws ServiceException {
+        String cacheKey = cacheKey(storageName, key);
+        try {
+            store.putObject(storageName, key, content, contentType);
+        } finally {
+            invalidate(cacheKey);
+        }
+    }
+
+    @Override
+    public void putObject(String storageName, String key, String content, String contentType)
+        throws ServiceException {
+        String cacheKey = cacheKey(storageName, key);
+        try {
+            store.putObject(storageName, key, content, contentType);
+        } finally {
+            invalidate(cacheKey);
+        }
+    }
+
+    @Override
+    public void putObject(String storageName, String key, InputStream content, String contentType)
+        throws ServiceException {
+        String cacheKey = cacheKey(storageName, key);
+        try {
+            store.putObject(storageName, key, content, contentType);
+        } finally {
+            invalidate(cacheKey);
+        }
+    }
+
+    @Override
+    public void putObject(String storageName, String key, InputStream content, long contentLength,
+                          String contentType) throws ServiceException {
+        String cacheKey = cacheKey(storageName, key);
+        try {
+            store.putObject(storageName, key, content, contentLength, contentType);
+        } finally {
+            invalidate(cacheKey);
+        }
+    }
+
+    @Override
+    public void deleteObject(String storageName, String key) throws ServiceException {
+        String cacheKey = cacheKey(storageName, key);
+        try {
+            store.deleteObject(storageName, key);
+        } finally {
+            invalidate(cacheKey);
+        }
+    }
+
+    @Override
+    public void deleteObjects(String storageName, Collection<String> keys) throws ServiceException {
+        try {
+            store.deleteObjects(storageName, keys);
+        } finally {
+            for (String key : keys) {
+                invalidate(cacheKey(storageName, key));
+            }
+        }
+    }
+
+    @Override
+    public void deleteBucket(String storageName) throws ServiceException {
+        String prefix = checkStorageName(storageName) + '/';
+        try {
+            store.deleteBucket(storageName);
+        } finally {
+            lock.lock();
+            try {
+                loads.keySet().removeIf(cacheKey -> cacheKey.startsWith(prefix));
+                for (Node node : data.values()) {
+                    if (node.key.startsWith(prefix)) {
+                        unlink(node);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static String cacheKey(String storageName, String key) {
+        hasText(key, "key may not be empty");
+        return checkStorageName(storageName) + '/' + key;
+    }
+
+    private static String checkStorageName(String storageName) {
+        hasText(storageName, "storageName may not be empty");
+        isTrue(storageName.indexOf('/') < 0, "storageName may not contain '/' but is %s", storageName);
+        return storageName;
+    }
+
+    /**
+     * Returns the content of an object, from the cache or loading it, which must not be modified.
+     */
+    private byte[] content(String storageName, String key) {
+        String cacheKey = cacheKey(storageName, key);
+        Node node = lookup(cacheKey);
+        if (node != null) {
+            return node.content;
+        }
+
+        CompletableFuture<byte[]> loading = new CompletableFuture<>();
+        CompletableFuture<byte[]> inProgress = loads.putIfAbsent(cacheKey, loading);
+        if (inProgress != null) {
+            try {
+                return inProgress.join();
+            } catch (CompletionException e) {
+                throw new ServiceException("Could not get object " + storageName + "/" + key, e.getCause());
+            }
+        }
+        byte[] content;
+        try {
+            content = store.getObjectAsBytes(storageName, key);
+        } catch (RuntimeException | Error e) {
+            loads.remove(cacheKey, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+        loading.complete(content);
+        add(cacheKey, content, loading);
+        return content;
+    }
+
+    @Nullable
+    private Node lookup(String cacheKey) {
+        Node node = data.get(cacheKey);
+        if (node != null && node.expiresAt != Long.MAX_VALUE && node.expiresAt <= clock.millis()) {
+            lock.lock();
+            try {
+                if (!node.removed) {
+                    unlink(node);
+                    evictionCount++;
+                }
+            } finally {
+                lock.unlock();
+            }
+            node = null;
+        }
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        if (lock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Adds a loaded object, unless it was invalidated while being loaded, or it's too large.
+     */
+    private void add(String cacheKey, byte[] content, CompletableFuture<byte[]> loading) {
+        lock.lock();
+        try {
+            sketch.increment(cacheKey.hashCode());
+            if (!loads.remove(cacheKey, loading) || content.length > maximumObjectBytes) {
+                return;
+            }
+            Node previous = data.get(cacheKey);
+            if (previous != null) {
+                unlink(previous);
+            }
+            long expiresAt = (expireAfterWriteMillis == 0) ? Long.MAX_VALUE : clock.millis() + expireAfterWriteMillis;
+            Node node = new Node(cacheKey, content, expiresAt);
+            window.add(node);
+            windowBytes += content.length;
+            weightedBytes += content.length;
+            evict();
+            if (!node.removed) {
+                data.put(cacheKey, node);
+                sketch.ensureCapacity(data.size());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void invalidate(String cacheKey) {
+        lock.lock();
+        try {
+            loads.remove(cacheKey);
+            Node node = data.get(cacheKey);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the objects overflowing the window to the main area, where each one is kept only if it's more frequent
+     * than the objects it needs to evict. Must hold the lock.
+     */
+    private void evict() {
+        while (windowBytes > maximumWindowBytes) {
+            Node candidate = window.first();
+            window.remove(candidate);
+            windowBytes -= candidate.content.length;
+            candidate.queue = PROBATION;
+            probation.add(candidate);
+            while (weightedBytes > maximumBytes && !candidate.removed) {
+                Node victim = (probation.first() != candidate) ? probation.first() : protectedQueue.first();
+                if (victim == null || !admit(candidate, victim)) {
+                    victim = candidate;
+                }
+                unlink(victim);
+                evictionCount++;
+            }
+        }
+        while (weightedBytes > maximumBytes) {
+            Node victim = probation.first();
+            if (victim == null) {
+                victim = (protectedQueue.first() != null) ? protectedQueue.first() : window.first();
+            }
+            unlink(victim);
+            evictionCount++;
+        }
+    }
+
+    private boolean admit(Node candidate, Node victim) {
+        int candidateFrequency = sketch.frequency(candidate.key.hashCode());
+        int victimFrequency = sketch.frequency(victim.key.hashCode());
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        if (candidateFrequency <= 5) {
+            return false;
+        }
+        // Admit a warm candidate now and then, so colliding keys can't keep the victim forever
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    /**
+     * Records a read of an object. Must hold the lock.
+     */
+    private void onAccess(Node node) {
+        sketch.increment(node.key.hashCode());
+        if (node.removed) {
+            return;
+        }
+        if (node.queue == WINDOW) {
+            window.moveToBack(node);
+        } else if (node.queue == PROTECTED) {
+            protectedQueue.moveToBack(node);
+        } else {
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedQueue.add(node);
+            protectedBytes += node.content.length;
+            while (protectedBytes > maximumProtectedBytes) {
+                Node demoted = protectedQueue.first();
+                protectedQueue.remove(demoted);
+                protectedBytes -= demoted.content.length;
+                demoted.queue = PROBATION;
+                probation.add(demoted);
+            }
+        }
+    }
+
+    /**
+     * Removes an object from the policy and the data. Must hold the lock.
+     */
+    private void unlink(Node node) {
+        if (node.queue == WINDOW) {
+            window.remove(node);
+            windowBytes -= node.content.length;
+        } else if (node.queue == PROTECTED) {
+            protectedQueue.remove(node);
+            protectedBytes -= node.content.length;
+        } else {
+            probation.remove(node);
+        }
+        weightedBytes -= node.content.length;
+        node.removed = true;
+        data.remove(node.key, node);
+    }
+
+    private static final class Node {
+        final String key;
+        final byte[] content;
+        final long expiresAt;
+        // Guarded by the lock of the store
+        int queue = WINDOW;
+        boolean removed;
+        @Nullable
+        Node previous;
+        @Nullable
+        Node next;
+
+        Node(String key, byte[] content, long expiresAt) {
+            this.key = key;
+            this.content = content;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes, from the least to the most recently accessed.
+     */
+    private static final class AccessQueue {
+        @Nullable
+        private Node first;
+        @Nullable
+        private Node last;
+
+        @Nullable
+        Node first() {
+            return first;
+        }
+
+        void add(Node node) {
+            node.previous = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+
+        void remove(Node node) {
+            if (node.previous == null) {
+                first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node node) {
+            if (node != last) {
+                remove(node);
+                add(node);
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final ObjectStore store;
+        private long maximumBytes = 64L * 1024 * 1024;
+        private long maximumObjectBytes = 1024 * 1024;
+        private Duration expireAfterWrite = Duration.ZERO;
+        private Clock clock = Clock.systemUTC();
+
+        private Builder(ObjectStore store) {
+            this.store = notNull(store, "store may not be null");
+        }
+
+        /**
+         * Sets the maximum bytes of content of the cached objects. The default maximum is 64 MiB.
+         *
+         * @param maximumBytes the maximum bytes
+         * @return <code>this</code>
+         */
+        public Builder withMaximumBytes(long maximumBytes) {
+            isTrue(maximumBytes > 0, "maximumBytes must be > 0 but is %d", maximumBytes);
+            this.maximumBytes = maximumBytes;
+            return this;
+        }
+
+        /**
+         * Sets the size of the largest objects to cache; larger ones are read from the other store every time. The
+         * default is 1 MiB, or the maximum bytes of the cache if it's smaller.
+         *
+         * @param maximumObjectBytes the maximum size of an object, in bytes
+         * @return <code>this</code>
+         */
+        public Builder withMaximumObjectBytes(long maximumObjectBytes) {
+            isTrue(maximumObjectBytes >= 0, "maximumObjectBytes must be >= 0 but is %d", maximumObjectBytes);
+            this.maximumObjectBytes = maximumObjectBytes;
+            return this;
+        }
+
+        /**
+         * Sets how long objects are served from the cache after being loaded. By default, they don't expire.
+         *
+         * @param expireAfterWrite the time to live, or zero for no expiration
+         * @return <code>this</code>
+         */
+        public Builder withExpireAfterWrite(Duration expireAfterWrite) {
+            isTrue(!expireAfterWrite.isNegative(), "expireAfterWrite must be >= 0 but is %s", expireAfterWrite);
+            this.expireAfterWrite = expireAfterWrite;
+            return this;
+        }
+
+        public Builder withClock(Clock clock) {
+            this.clock = notNull(clock, "clock may not be null");
+            return this;
+        }
+
+        public CachingObjectStore build() {
+            return new CachingObjectStore(this);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.jorgenota.utils.base.service;
+
+import org.springframework.lang.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static com.jorgenota.utils.base.Preconditions.hasText;
+import static com.jorgenota.utils.base.Preconditions.isTrue;
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * An {@link ObjectStore} backed by a local directory, e.g. for edge nodes, development or as a stand-in for S3 in load
+ * tests. Storages are subdirectories of the root directory.
+ * <p>
+ * Objects are written to a temporary file of their storage, which is then atomically renamed to the object file, so
+ * readers see either the previous content or the new one, never a partial write; readers that opened (or mapped) the
+ * previous file keep reading it. Object files are spread in levels of up to 256 subdirectories, chosen by the hash of
+ * the key, so directories stay small. Keys are URL-encoded into file names, or hashed if they are too long.
+ * <p>
+ * Objects are read through {@link FileChannel}s: whole objects are read into arrays of their exact size, copied to
+ * other channels with {@link FileChannel#transferTo(long, long, WritableByteChannel)} (which the OS can do without
+ * copying them into user space, e.g. to sockets), and can be mapped into memory with
+ * {@link #mapObject(String, String)}. The content type is kept in a user-defined attribute of the file when the file
+ * system supports them, and the ETag is derived from the size, modification time and file key of the file.
+ *
+ * @author Jorge Alonso
+ */
+public final class FileSystemObjectStore implements ObjectStore {
+    private static final String TEMPORARY_DIRECTORY = ".tmp";
+    private static final String CONTENT_TYPE_ATTRIBUTE = "content-type";
+    private static final int MAX_ENCODED_KEY_LENGTH = 200;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    private static final String[] SHARD_NAMES = new String[256];
+
+    static {
+        for (int i = 0; i < SHARD_NAMES.length; i++) {
+            SHARD_NAMES[i] = String.format("%02x", i);
+        }
+    }
+
+    private final Path root;
+    private final int shardLevels;
+    private final boolean sync;
+    private final boolean contentTypes;
+
+    private FileSystemObjectStore(Path root, int shardLevels, boolean sync, boolean contentTypes) {
+        this.root = root;
+        this.shardLevels = shardLevels;
+        this.sync = sync;
+        this.contentTypes = contentTypes;
+    }
+
+    public static Builder newBuilder(Path root) {
+        return new Builder(root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public byte[] getObjectAsBytes(String storageName, String key) throws ServiceException {
+        try (FileChannel channel = FileChannel.open(objectPath(storageName, key), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_ARRAY_SIZE) {
+                throw new ServiceException("Object " + storageName + "/" + key + " is too large for an array: " + size
+                    + " bytes");
+            }
+            ByteBuffer content = ByteBuffer.allocate((int) size);
+            while (content.hasRemaining()) {
+                if (channel.read(content) == -1) {
+                    throw new EOFException("Object " + storageName + "/" + key + " ended after " + content.position()
+                        + " of " + size + " bytes");
+                }
+            }
+            return content.array();
+        } catch (IOException e) {
+            throw failure("get object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public String getObjectAsString(String storageName, String key) throws ServiceException {
+        return new String(getObjectAsBytes(storageName, key), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Maps the content of an object into memory, so it can be read without copying it into the heap. The mapping
+     * stays valid (with the same content) even if the object is replaced or deleted, and is released when the buffer
+     * is garbage collected. Mapping a file costs about as much as reading tens of kilobytes, so it pays off for large
+     * objects, or for objects read many times through the same buffer.
+     *
+     * @param storageName name of the storage containing the object to map
+     * @param key         key of the object to map
+     * @return a read-only buffer with the content of the object
+     */
+    public MappedByteBuffer mapObject(String storageName, String key) throws ServiceException {
+        try (FileChannel channel = FileChannel.open(objectPath(storageName, key), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw failure("map object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public InputStream openObject(String storageName, String key) throws ServiceException {
+        return Channels.newInputStream(openObjectChannel(storageName, key));
+    }
+
+    @Override
+    public InputStream getObjectRange(String storageName, String key, long offset, long length)
+        throws ServiceException {
+        isTrue(offset >= 0, "offset must be >= 0 but is %d", offset);
+        isTrue(length >= 0, "length must be >= 0 but is %d", length);
+        try {
+            FileChannel channel = FileChannel.open(objectPath(storageName, key), StandardOpenOption.READ);
+            return new BoundedInputStream(Channels.newInputStream(channel.position(offset)), length);
+        } catch (IOException e) {
+            throw failure("get range of object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public ObjectMetadata headObject(String storageName, String key) throws ServiceException {
+        Path path = objectPath(storageName, key);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return ObjectMetadata.newBuilder()
+                .withContentLength(attributes.size())
+                .withETag(eTag(attributes))
+                .withLastModified(attributes.lastModifiedTime().toInstant())
+                .withContentType(contentTypes ? readContentType(path) : null)
+                .build();
+        } catch (IOException e) {
+            throw failure("get metadata of object", storageName, key, e);
+        }
+    }
+
+    /**
+     * Derives the ETag of a file from its size, its modification time and, when the file system provides it, its file
+     * key (e.g. the inode). Every write renames a new file into place, so the file key tells apart writes of the same
+     * size within the granularity of the modification times.
+     */
+    private static String eTag(BasicFileAttributes attributes) {
+        String eTag = Long.toHexString(attributes.size()) + "-"
+            + Long.toHexString(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+        Object fileKey = attributes.fileKey();
+        return (fileKey != null) ? eTag + "-" + Integer.toHexString(fileKey.hashCode()) : eTag;
+    }
+
+    @Override
+    public ReadableByteChannel openObjectChannel(String storageName, String key) throws ServiceException {
+        try {
+            return FileChannel.open(objectPath(storageName, key), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw failure("get object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public long copyObjectTo(String storageName, String key, WritableByteChannel target) throws ServiceException {
+        try (FileChannel channel = FileChannel.open(objectPath(storageName, key), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long copied = 0;
+            while (copied < size) {
+                copied += channel.transferTo(copied, size - copied, target);
+            }
+            return copied;
+        } catch (IOException e) {
+            throw failure("get object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public void putObject(String storageName, String key, InputStream content, long contentLength,
+                          String contentType) throws ServiceException {
+        Path path = objectPath(storageName, key);
+        Path temporaryFile = null;
+        try {
+            Path temporaryDirectory = storagePath(storageName).resolve(TEMPORARY_DIRECTORY);
+            Files.createDirectories(temporaryDirectory);
+            temporaryFile = Files.createTempFile(temporaryDirectory, "put", null);
+            InputStream source = (contentLength == UNKNOWN_LENGTH) ? content
+                : new BoundedInputStream(content, contentLength);
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE);
+                 OutputStream target = Channels.newOutputStream(channel)) {
+                long written = source.transferTo(target);
+                if (contentLength != UNKNOWN_LENGTH && written < contentLength) {
+                    throw new EOFException("Content ended after " + written + " of " + contentLength + " bytes");
+                }
+                if (sync) {
+                    channel.force(true);
+                }
+            }
+            if (contentTypes) {
+                Files.getFileAttributeView(temporaryFile, UserDefinedFileAttributeView.class)
+                    .write(CONTENT_TYPE_ATTRIBUTE, StandardCharsets.UTF_8.encode(contentType));
+            }
+            Files.createDirectories(path.getParent());
+            Files.move(temporaryFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            ServiceException failure = failure("put object", storageName, key, e);
+            if (temporaryFile != null) {
+                try {
+                    Files.deleteIfExists(temporaryFile);
+                } catch (IOException deleteFailure) {
+                    failure.addSuppressed(deleteFailure);
+                }
+            }
+            throw failure;
+        }
+    }
+
+    @Override
+    public void deleteObject(String storageName, String key) throws ServiceException {
+        try {
+            Files.deleteIfExists(objectPath(storageName, key));
+        } catch (IOException e) {
+            throw failure("delete object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public void deleteObjects(String storageName, Collection<String> keys) throws ServiceException {
+        for (String key : keys) {
+            deleteObject(storageName, key);
+        }
+    }
+
+    /**
+     * Deletes a storage with all its objects.
+     *
+     * @param storageName name of the storage to delete
+     */
+    @Override
+    public void deleteBucket(String storageName) throws ServiceException {
+        Path storage = storagePath(storageName);
+        try {
+            Files.walkFileTree(storage, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, @Nullable IOException exc) throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (NoSuchFileException e) {
+            // Nothing to delete
+        } catch (IOException e) {
+            throw failure("delete bucket", storageName, null, e);
+        }
+    }
+
+    /**
+     * Returns the file of an object, which exists only if the object does.
+     *
+     * @param storageName name of the storage containing the object
+     * @param key         key of the object
+     * @return the path of the file
+     */
+    Path objectPath(String storageName, String key) {
+        hasText(key, "key may not be empty");
+        Path path = storagePath(storageName);
+        int hash = key.hashCode() * 0x9E3779B9;
+        for (int level = 0; level < shardLevels; level++) {
+            path = path.resolve(SHARD_NAMES[(hash >>> (24 - 8 * level)) & 0xff]);
+        }
+        return path.resolve(fileName(key));
+    }
+
+    private Path storagePath(String storageName) {
+        hasText(storageName, "storageName may not be empty");
+        isTrue(storageName.indexOf('/') < 0 && storageName.indexOf('\\') < 0 && storageName.charAt(0) != '.',
+            "storageName must be a valid directory name but is %s", storageName);
+        return root.resolve(storageName);
+    }
+
+    private static String fileName(String key) {
+        // Leading dots are encoded, so names can't be "." or ".." nor clash with the temporary directory
+        String encoded = URLEncoder.encode(key, StandardCharsets.UTF_8);
+        if (encoded.startsWith(".")) {
+            encoded = "%2E" + encoded.substring(1);
+        }
+        if (encoded.length() <= MAX_ENCODED_KEY_LENGTH) {
+            return encoded;
+        }
+        // '#' is always encoded, so hashed names never clash with encoded ones
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder("#");
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >>> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Nullable
+    private static String readContentType(Path path) throws IOException {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+        if (!view.list().contains(CONTENT_TYPE_ATTRIBUTE)) {
+            return null;
+        }
+        ByteBuffer value = ByteBuffer.allocate(view.size(CONTENT_TYPE_ATTRIBUTE));
+        view.read(CONTENT_TYPE_ATTRIBUTE, value);
+        return StandardCharsets.UTF_8.decode(value.flip()).toString();
+    }
+
+    private static ServiceException failure(String operation, String storageName, @Nullable String key,
+                                            IOException e) {
+        return new ServiceException("Could not " + operation + " " + storageName + ((key == null) ? "" : "/" + key),
+            e);
+    }
+
+    public static final class Builder {
+        private final Path root;
+        private int shardLevels = 2;
+        private boolean sync;
+
+        private Builder(Path root) {
+            this.root = notNull(root, "root may not be null");
+        }
+
+        /**
+         * Sets the number of levels of subdirectories the objects of each storage are spread in, from 0 to 4. Each
+         * level has up to 256 subdirectories. The default is 2 levels, i.e. up to 65536 subdirectories per storage.
+         *
+         * @param shardLevels the number of levels of subdirectories
+         * @return <code>this</code>
+         */
+        public Builder withShardLevels(int shardLevels) {
+            isTrue(shardLevels >= 0 && shardLevels <= 4, "shardLevels must be in [0, 4] but is %d", shardLevels);
+            this.shardLevels = shardLevels;
+            return this;
+        }
+
+        /**
+         * Sets whether the content of the objects is forced to the storage device before they are renamed into place,
+         * so they survive a crash of the OS. Disabled by default.
+         *
+         * @param sync <code>true</code> to force the content of the objects to the device
+         * @return <code>this</code>
+         */
+        public Builder withSync(boolean sync) {
+            this.sync = sync;
+            return this;
+        }
+
+        public FileSystemObjectStore build() {
+            try {
+                Files.createDirectories(root);
+                return new FileSystemObjectStore(root.toAbsolutePath(), shardLevels, sync, supportsAttributes());
+            } catch (IOException e) {
+                throw new ServiceException("Could not create the root directory " + root, e);
+            }
+        }
+
+        private boolean supportsAttributes() throws IOException {
+            // Some file systems claim to support user-defined attributes but fail to write them
+            Path probe = Files.createTempFile(root, ".probe", null);
+            try {
+                UserDefinedFileAttributeView view = Files.getFileAttributeView(probe,
+                    UserDefinedFileAttributeView.class);
+                if (view == null) {
+                    return false;
+                }
+                view.write(CONTENT_TYPE_ATTRIBUTE, StandardCharsets.UTF_8.encode("text/plain"));
+                return true;
+            } catch (IOException | UnsupportedOperationException e) {
+                return false;
+            } finally {
+                Files.delete(probe);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.jorgenota.utils.base.service;
+
+/**
+ * A count-min sketch estimating how often keys are accessed, with 4-bit counters (so estimations saturate at 15) that
+ * are halved once the number of increments reaches ten times the number of counters, so old accesses fade away.
+ * <p>
+ * The table packs 16 counters in every <code>long</code>. Each key increments one counter in each of 4 rows: the word
+ * of every row is selected by a different hash of the key, and the counter in that word by the row and the key, so an
+ * increment touches at most 4 words (and cache lines). Instances are not thread-safe.
+ *
+ * @author Jorge Alonso
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private long[] table = new long[0];
+    private int sampleSize;
+    private int additions;
+
+    /**
+     * Grows the table (clearing it) to have at least as many words as the number of keys it should tell apart.
+     *
+     * @param maximumSize the expected maximum number of keys
+     */
+    void ensureCapacity(long maximumSize) {
+        int length = Integer.highestOneBit((int) Math.max(8, Math.min(maximumSize, 1 << 30)) - 1) << 1;
+        if (table.length < length) {
+            table = new long[length];
+            sampleSize = 10 * length;
+            additions = 0;
+        }
+    }
+
+    int frequency(int hashCode) {
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            long word = table[indexOf(hash, i)];
+            frequency = Math.min(frequency, (int) ((word >>> ((start + i) << 2)) & 0xfL));
+        }
+        return frequency;
+    }
+
+    void increment(int hashCode) {
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halves every counter. The counters with odd values lose half an access each, which is discounted from the
+     * additions since the last reset.
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = (additions >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & (table.length - 1);
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
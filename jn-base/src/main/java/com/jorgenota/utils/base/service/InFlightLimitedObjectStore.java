@@ -0,0 +1,159 @@
+package com.jorgenota.utils.base.service;
+
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * An {@link AsyncObjectStore} starting at most a number of operations of another one at the same time, and queueing
+ * the rest without blocking.
+ * <p>
+ * Only one thread at a time starts the queued operations (whichever queues an operation or completes one when no
+ * other thread is doing it), so operations completing synchronously don't nest the start of the following ones.
+ *
+ * @author Jorge Alonso
+ */
+final class InFlightLimitedObjectStore implements AsyncObjectStore {
+    private final AsyncObjectStore store;
+    private final int maxInFlight;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    InFlightLimitedObjectStore(AsyncObjectStore store, int maxInFlight) {
+        this.store = store;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getObjectAsBytes(String storageName, String key) {
+        return submit(() -> store.getObjectAsBytes(storageName, key));
+    }
+
+    @Override
+    public CompletableFuture<String> getObjectAsString(String storageName, String key) {
+        return submit(() -> store.getObjectAsString(storageName, key));
+    }
+
+    @Override
+    public CompletableFuture<InputStream> openObject(String storageName, String key) {
+        return submit(() -> store.openObject(storageName, key));
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getObjectRange(String storageName, String key, long offset, long length) {
+        return submit(() -> store.getObjectRange(storageName, key, offset, length));
+    }
+
+    @Override
+    public CompletableFuture<ObjectMetadata> headObject(String storageName, String key) {
+        return submit(() -> store.headObject(storageName, key));
+    }
+
+    @Override
+    public CompletableFuture<Long> copyObjectTo(String storageName, String key, WritableByteChannel target) {
+        return submit(() -> store.copyObjectTo(storageName, key, target));
+    }
+
+    @Override
+    public CompletableFuture<Void> putObject(String storageName, String key, byte[] content, String contentType) {
+        return submit(() -> store.putObject(storageName, key, content, contentType));
+    }
+
+    @Override
+    public CompletableFuture<Void> putObject(String storageName, String key, String content, String contentType) {
+        return submit(() -> store.putObject(storageName, key, content, contentType));
+    }
+
+    @Override
+    public CompletableFuture<Void> putObject(String storageName, String key, InputStream content, long contentLength,
+                                             String contentType) {
+        return submit(() -> store.putObject(storageName, key, content, contentLength, contentType));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteObject(String storageName, String key) {
+        return submit(() -> store.deleteObject(storageName, key));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteObjects(String storageName, Collection<String> keys) {
+        return submit(() -> store.deleteObjects(storageName, keys));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteBucket(String storageName) {
+        return submit(() -> store.deleteBucket(storageName));
+    }
+
+    /**
+     * Returns the number of operations started and not completed yet.
+     *
+     * @return the number of operations in flight
+     */
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Returns the number of operations waiting to be started.
+     *
+     * @return the number of queued operations
+     */
+    int getPending() {
+        return pending.size();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        pending.add(() -> start(operation, result));
+        drain();
+        return result;
+    }
+
+    private <T> void start(Supplier<CompletableFuture<T>> operation, CompletableFuture<T> result) {
+        CompletableFuture<T> future;
+        try {
+            future = notNull(operation.get(), "The operation returned a null future");
+        } catch (Throwable e) {
+            // The operation still has to leave the in-flight ones, or the queued operations would never start
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((value, failure) -> {
+            inFlight.decrementAndGet();
+            drain();
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            // Another thread is draining, and will loop once more
+            return;
+        }
+        int requests = 1;
+        do {
+            // Only the draining thread increments inFlight, so checking and incrementing it isn't racy
+            while (inFlight.get() < maxInFlight) {
+                Runnable next = pending.poll();
+                if (next == null) {
+                    break;
+                }
+                inFlight.incrementAndGet();
+                next.run();
+            }
+            requests = drainRequests.addAndGet(-requests);
+        } while (requests != 0);
+    }
+}
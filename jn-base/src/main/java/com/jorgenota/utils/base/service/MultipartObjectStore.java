@@ -0,0 +1,63 @@
+package com.jorgenota.utils.base.service;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * An {@link ObjectStore} that can store large objects as a sequence of parts uploaded separately (in parallel or
+ * retrying the failed ones), like S3 multipart uploads.
+ * <p>
+ * An upload is started with {@link #createMultipartUpload(String, String, String)}, and the object only becomes
+ * visible when it's completed with {@link #completeMultipartUpload(String, String, String, List)}. Uploads that fail
+ * must be aborted with {@link #abortMultipartUpload(String, String, String)}, so the uploaded parts are discarded.
+ * Stores may require a minimum size for every part but the last one (5 MiB for S3).
+ *
+ * @author Jorge Alonso
+ */
+public interface MultipartObjectStore extends ObjectStore {
+
+    /**
+     * Starts a multipart upload.
+     *
+     * @param storageName name of the storage to put the object into
+     * @param key         key of the object
+     * @param contentType the content type of the object
+     * @return the id of the upload, passed to the rest of the methods
+     */
+    String createMultipartUpload(String storageName, String key, String contentType) throws ServiceException;
+
+    /**
+     * Uploads a part. Uploading a part again with the same number replaces it, so failed parts can be retried.
+     *
+     * @param storageName name of the storage to put the object into
+     * @param key         key of the object
+     * @param uploadId    the id of the upload
+     * @param partNumber  the number of the part, from 1
+     * @param content     the content of the part, i.e. the remaining bytes of the buffer. The position of the buffer
+     *                    may be changed, and the buffer must not be used once this method returns
+     * @return the ETag of the part, passed to {@link #completeMultipartUpload(String, String, String, List)}
+     */
+    String uploadPart(String storageName, String key, String uploadId, int partNumber, ByteBuffer content)
+        throws ServiceException;
+
+    /**
+     * Completes a multipart upload, making the object visible.
+     *
+     * @param storageName name of the storage to put the object into
+     * @param key         key of the object
+     * @param uploadId    the id of the upload
+     * @param partETags   the ETags of all the parts, in order of their part numbers (starting with the part 1)
+     */
+    void completeMultipartUpload(String storageName, String key, String uploadId, List<String> partETags)
+        throws ServiceException;
+
+    /**
+     * Aborts a multipart upload, discarding its parts. Parts still being uploaded may not be discarded, so uploads
+     * should only be aborted once no part is being uploaded.
+     *
+     * @param storageName name of the storage to put the object into
+     * @param key         key of the object
+     * @param uploadId    the id of the upload
+     */
+    void abortMultipartUpload(String storageName, String key, String uploadId) throws ServiceException;
+}
@@ -0,0 +1,126 @@
+package com.jorgenota.utils.base.service;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import static com.jorgenota.utils.base.Preconditions.isTrue;
+
+/**
+ * The metadata of an object in an {@link ObjectStore}: its size and, when the store provides them, its ETag, last
+ * modification time and content type.
+ *
+ * @author Jorge Alonso
+ */
+public final class ObjectMetadata {
+    private final long contentLength;
+    @Nullable
+    private final String eTag;
+    @Nullable
+    private final Instant lastModified;
+    @Nullable
+    private final String contentType;
+
+    private ObjectMetadata(Builder builder) {
+        this.contentLength = builder.contentLength;
+        this.eTag = builder.eTag;
+        this.lastModified = builder.lastModified;
+        this.contentType = builder.contentType;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the size of the object.
+     *
+     * @return the size, in bytes
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Returns the entity tag of the object, which changes whenever its content changes.
+     *
+     * @return the ETag, or <code>null</code> if the store doesn't provide one
+     */
+    @Nullable
+    public String getETag() {
+        return eTag;
+    }
+
+    @Nullable
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    @Nullable
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ObjectMetadata)) {
+            return false;
+        }
+        ObjectMetadata that = (ObjectMetadata) o;
+        return contentLength == that.contentLength && Objects.equals(eTag, that.eTag)
+            && Objects.equals(lastModified, that.lastModified) && Objects.equals(contentType, that.contentType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(contentLength, eTag, lastModified, contentType);
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectMetadata{contentLength=" + contentLength + ", eTag=" + eTag + ", lastModified=" + lastModified
+            + ", contentType=" + contentType + '}';
+    }
+
+    public static final class Builder {
+        private long contentLength;
+        @Nullable
+        private String eTag;
+        @Nullable
+        private Instant lastModified;
+        @Nullable
+        private String contentType;
+
+        private Builder() {
+        }
+
+        public Builder withContentLength(long contentLength) {
+            isTrue(contentLength >= 0, "contentLength must be >= 0 but is %d", contentLength);
+            this.contentLength = contentLength;
+            return this;
+        }
+
+        public Builder withETag(@Nullable String eTag) {
+            this.eTag = eTag;
+            return this;
+        }
+
+        public Builder withLastModified(@Nullable Instant lastModified) {
+            this.lastModified = lastModified;
+            return this;
+        }
+
+        public Builder withContentType(@Nullable String contentType) {
+            this.contentType = contentType;
+            return this;
+        }
+
+        public ObjectMetadata build() {
+            return new ObjectMetadata(this);
+        }
+    }
+}
@@ -1,12 +1,43 @@
 package com.jorgenota.utils.base.service;
 
+import com.jorgenota.utils.base.ByteBufferPool;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 
+import static com.jorgenota.utils.base.Preconditions.isTrue;
+
 /**
+ * A store of objects (such as S3 buckets) organized in storages.
+ * <p>
+ * The streaming methods ({@link #openObject(String, String)}, {@link #putObject(String, String, InputStream, long,
+ * String)} and the ones built on them) keep in memory no more than a buffer, whatever the size of the object. The
+ * methods taking or returning a whole <code>byte[]</code> or <code>String</code> are implemented on top of them, and
+ * are meant for small objects. Strings are encoded in UTF-8.
+ *
  * @author Jorge Alonso
  */
 public interface ObjectStore {
 
+    /**
+     * Content length of the objects whose size isn't known in advance.
+     */
+    long UNKNOWN_LENGTH = -1L;
+
+    /**
+     * Size of the buffers used to copy the content of the objects.
+     */
+    int COPY_BUFFER_SIZE = 64 * 1024;
+
     /**
      * Get object from the store.
      *
@@ -14,7 +45,13 @@ public interface ObjectStore {
      * @param key         key of the object to retrieve
      * @return byte[] representing the object stored in the bucket
      */
-    byte[] getObjectAsBytes(String storageName, String key) throws ServiceException;
+    default byte[] getObjectAsBytes(String storageName, String key) throws ServiceException {
+        try (InputStream content = openObject(storageName, key)) {
+            return content.readAllBytes();
+        } catch (IOException e) {
+            throw new ServiceException(e);
+        }
+    }
 
     /**
      * Get object from the store.
@@ -23,11 +60,152 @@ public interface ObjectStore {
      * @param key         key of the object to retrieve
      * @return string representing the object stored in the bucket
      */
-    String getObjectAsString(String storageName, String key) throws ServiceException;
+    default String getObjectAsString(String storageName, String key) throws ServiceException {
+        // Decoded while read, so the bytes are never held in memory as a whole
+        try (Reader content = new InputStreamReader(openObject(storageName, key), StandardCharsets.UTF_8)) {
+            StringBuilder string = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                string.append(buffer, 0, read);
+            }
+            return string.toString();
+        } catch (IOException e) {
+            throw new ServiceException(e);
+        }
+    }
+
+    /**
+     * Opens the content of an object for reading.
+     *
+     * @param storageName name of the storage containing the object to retrieve
+     * @param key         key of the object to retrieve
+     * @return the content of the object, which must be closed to release the underlying resources (e.g. connections)
+     */
+    InputStream openObject(String storageName, String key) throws ServiceException;
+
+    /**
+     * Opens a range of the content of an object for reading, e.g. to read the footer of a large file. Stores should
+     * transfer only the bytes of the range: the default implementation reads and discards the bytes before it.
+     *
+     * @param storageName name of the storage containing the object to retrieve
+     * @param key         key of the object to retrieve
+     * @param offset      the position of the first byte of the range
+     * @param length      the number of bytes of the range, which is truncated at the end of the object
+     * @return the content of the range, which must be closed to release the underlying resources (e.g. connections)
+     */
+    default InputStream getObjectRange(String storageName, String key, long offset, long length)
+        throws ServiceException {
+        isTrue(offset >= 0, "offset must be >= 0 but is %d", offset);
+        isTrue(length >= 0, "length must be >= 0 but is %d", length);
+        InputStream content = openObject(storageName, key);
+        try {
+            long skipped = 0;
+            while (skipped < offset) {
+                long n = content.skip(offset - skipped);
+                if (n <= 0) {
+                    if (content.read() == -1) {
+                        break;
+                    }
+                    n = 1;
+                }
+                skipped += n;
+            }
+            return new BoundedInputStream(content, length);
+        } catch (IOException | RuntimeException e) {
+            try {
+                content.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw (e instanceof ServiceException) ? (ServiceException) e : new ServiceException(e);
+        }
+    }
+
+    /**
+     * Gets the metadata of an object without its content, e.g. to check its size or whether it has changed.
+     *
+     * @param storageName name of the storage containing the object
+     * @param key         key of the object
+     * @return the metadata of the object
+     */
+    ObjectMetadata headObject(String storageName, String key) throws ServiceException;
+
+    /**
+     * Opens the content of an object for reading, as a channel.
+     *
+     * @param storageName name of the storage containing the object to retrieve
+     * @param key         key of the object to retrieve
+     * @return the content of the object, which must be closed to release the underlying resources (e.g. connections)
+     */
+    default ReadableByteChannel openObjectChannel(String storageName, String key) throws ServiceException {
+        return Channels.newChannel(openObject(storageName, key));
+    }
+
+    /**
+     * Copies the content of an object to a channel, through a buffer borrowed from {@link ByteBufferPool#shared()}.
+     * The target channel is not closed.
+     *
+     * @param storageName name of the storage containing the object to retrieve
+     * @param key         key of the object to retrieve
+     * @param target      the channel to write the content to
+     * @return the number of bytes copied
+     */
+    default long copyObjectTo(String storageName, String key, WritableByteChannel target) throws ServiceException {
+        ByteBufferPool pool = ByteBufferPool.shared();
+        ByteBuffer buffer = pool.acquire(COPY_BUFFER_SIZE);
+        try (ReadableByteChannel content = openObjectChannel(storageName, key)) {
+            long copied = 0;
+            while (content.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    copied += target.write(buffer);
+                }
+                buffer.clear();
+            }
+            return copied;
+        } catch (IOException e) {
+            throw new ServiceException(e);
+        } finally {
+            pool.release(buffer);
+        }
+    }
 
-    void putObject(String storageName, String key, byte[] content, String contentType) throws ServiceException;
+    default void putObject(String storageName, String key, byte[] content, String contentType)
+        throws ServiceException {
+        putObject(storageName, key, new ByteArrayInputStream(content), content.length, contentType);
+    }
 
-    void putObject(String storageName, String key, String content, String contentType) throws ServiceException;
+    default void putObject(String storageName, String key, String content, String contentType)
+        throws ServiceException {
+        putObject(storageName, key, content.getBytes(StandardCharsets.UTF_8), contentType);
+    }
+
+    /**
+     * Stores an object whose size isn't known in advance.
+     *
+     * @param storageName name of the storage to put the object into
+     * @param key         key of the object
+     * @param content     the content of the object, which is read until its end but not closed
+     * @param contentType the content type of the object
+     */
+    default void putObject(String storageName, String key, InputStream content, String contentType)
+        throws ServiceException {
+        putObject(storageName, key, content, UNKNOWN_LENGTH, contentType);
+    }
+
+    /**
+     * Stores an object from a stream.
+     *
+     * @param storageName   name of the storage to put the object into
+     * @param key           key of the object
+     * @param content       the content of the object, which is read until its end (or <code>contentLength</code>
+     *                      bytes) but not closed
+     * @param contentLength the number of bytes of the content, or {@link #UNKNOWN_LENGTH}
+     * @param contentType   the content type of the object
+     */
+    void putObject(String storageName, String key, InputStream content, long contentLength, String contentType)
+        throws ServiceException;
 
     void deleteObject(String storageName, String key) throws ServiceException;
 
@@ -0,0 +1,627 @@
+package com.jorgenota.utils.base.service;
+
+import org.springframework.lang.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.jorgenota.utils.base.Preconditions.hasText;
+import static com.jorgenota.utils.base.Preconditions.isTrue;
+
+/**
+ * An in-process {@link ObjectStore} keeping the content of the objects off the heap, so it can hold gigabytes without
+ * growing the heap nor the GC pauses, e.g. as a cache tier or as a fast test double.
+ * <p>
+ * The memory is allocated in slabs (direct buffers) when needed, up to the capacity, and divided into fixed-size
+ * blocks. Each object takes as many blocks as its size needs, not necessarily contiguous, so there is no external
+ * fragmentation and the waste is less than a block per object. The index keeps just the block numbers of each object
+ * (an <code>int</code> per block) and its metadata. Blocks of deleted or replaced objects go to a free list and are
+ * reused by later writes. When there aren't enough free blocks for a write, the least recently used objects that
+ * aren't being read are evicted, unless eviction is disabled, in which case the write fails.
+ * <p>
+ * Streams and reads pin the object they read, so its blocks are only freed (if it's deleted, replaced or evicted
+ * meanwhile) when they finish; streams must be closed. The index is guarded by a lock, but content is copied in and
+ * out of the blocks without holding it. Instances are thread-safe.
+ *
+ * @author Jorge Alonso
+ */
+public final class OffHeapObjectStore implements ObjectStore {
+    private final long capacity;
+    private final int blockSize;
+    private final int blockShift;
+    private final int blocksPerSlab;
+    private final int maxBlocks;
+    private final boolean eviction;
+    private final ByteBuffer[] slabs;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Access-ordered, so iteration starts with the least recently used object
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(64, 0.75f, true);
+    private int[] freeBlocks = new int[64];
+    private int freeCount;
+    private int carvedBlocks;
+    private int usedBlocks;
+    private long version;
+    private long evictionCount;
+
+    private OffHeapObjectStore(long capacity, int blockSize, int slabSize, boolean eviction) {
+        this.blockSize = blockSize;
+        this.blockShift = Integer.numberOfTrailingZeros(blockSize);
+        this.blocksPerSlab = slabSize >>> blockShift;
+        this.maxBlocks = (int) Math.min(Integer.MAX_VALUE, capacity >>> blockShift);
+        this.capacity = (long) maxBlocks << blockShift;
+        this.eviction = eviction;
+        this.slabs = new ByteBuffer[(maxBlocks + blocksPerSlab - 1) / blocksPerSlab];
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the maximum number of bytes of the blocks, i.e. the capacity rounded down to a multiple of the block
+     * size.
+     *
+     * @return the capacity in bytes
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the size of the blocks, so that every object takes its size rounded up to a multiple of it.
+     *
+     * @return the block size in bytes
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the number of bytes of the blocks used by objects, including objects removed but still pinned by reads.
+     *
+     * @return the used bytes
+     */
+    public long getUsedBytes() {
+        lock.lock();
+        try {
+            return (long) usedBlocks << blockShift;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the slabs allocated so far, which never exceeds the capacity.
+     *
+     * @return the allocated bytes
+     */
+    public long getAllocatedBytes() {
+        lock.lock();
+        try {
+            long allocated = 0;
+            for (ByteBuffer slab : slabs) {
+                if (slab != null) {
+                    allocated += slab.capacity();
+                }
+            }
+            return allocated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getObjectCount() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getEvictionCount() {
+        lock.lock();
+        try {
+            return evictionCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] getObjectAsBytes(String storageName, String key) throws ServiceException {
+        Entry entry = pin(storageName, key);
+        try {
+            if (entry.length > Integer.MAX_VALUE - 8) {
+                throw new ServiceException("Object " + storageName + "/" + key + " is too large for an array: "
+                    + entry.length + " bytes");
+            }
+            byte[] content = new byte[(int) entry.length];
+            int position = 0;
+            for (int block : entry.blocks) {
+                int length = Math.min(blockSize, content.length - position);
+                block(block).get(content, position, length);
+                position += length;
+            }
+            return content;
+        } finally {
+            unpin(entry);
+        }
+    }
+
+    @Override
+    public String getObjectAsString(String storageName, String key) throws ServiceException {
+        return new String(getObjectAsBytes(storageName, key), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public InputStream openObject(String storageName, String key) throws ServiceException {
+        return new EntryInputStream(pin(storageName, key), 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public InputStream getObjectRange(String storageName, String key, long offset, long length)
+        throws ServiceException {
+        isTrue(offset >= 0, "offset must be >= 0 but is %d", offset);
+        isTrue(length >= 0, "length must be >= 0 but is %d", length);
+        return new EntryInputStream(pin(storageName, key), offset, length);
+    }
+
+    @Override
+    public ObjectMetadata headObject(String storageName, String key) throws ServiceException {
+        Entry entry = pin(storageName, key);
+        unpin(entry);
+        return ObjectMetadata.newBuilder()
+            .withContentLength(entry.length)
+            .withETag(Long.toHexString(entry.version))
+            .withLastModified(entry.lastModified)
+            .withContentType(entry.contentType)
+            .build();
+    }
+
+    @Override
+    public long copyObjectTo(String storageName, String key, WritableByteChannel target) throws ServiceException {
+        Entry entry = pin(storageName, key);
+        try {
+            long remaining = entry.length;
+            for (int block : entry.blocks) {
+                int length = (int) Math.min(blockSize, remaining);
+                ByteBuffer content = block(block);
+                content.limit(content.position() + length);
+                while (content.hasRemaining()) {
+                    target.write(content);
+                }
+                remaining -= length;
+            }
+            return entry.length;
+        } catch (IOException e) {
+            throw new ServiceException("Could not copy object " + storageName + "/" + key, e);
+        } finally {
+            unpin(entry);
+        }
+    }
+
+    @Override
+    public void putObject(String storageName, String key, InputStream content, long contentLength,
+                          String contentType) throws ServiceException {
+        String indexKey = indexKey(storageName, key);
+        isTrue(contentLength <= capacity, "contentLength must be <= the capacity (%d) but is %d", capacity,
+            contentLength);
+        ReadableByteChannel source = Channels.newChannel(content);
+        int[] blocks = new int[0];
+        int count = 0;
+        long length = 0;
+        try {
+            if (contentLength != UNKNOWN_LENGTH) {
+                blocks = allocate((int) ((contentLength + blockSize - 1) >>> blockShift));
+                count = blocks.length;
+                for (int block : blocks) {
+                    length += fill(source, block, (int) Math.min(blockSize, contentLength - length));
+                }
+                if (length < contentLength) {
+                    throw new EOFException("Content ended after " + length + " of " + contentLength + " bytes");
+                }
+            } else {
+                // Blocks are allocated as the content is read, and the last one is freed if it ends up empty
+                blocks = new int[16];
+                int read;
+                do {
+                    int block = allocate();
+                    if (count == blocks.length) {
+                        blocks = Arrays.copyOf(blocks, (int) Math.min(2L * count, maxBlocks));
+                    }
+                    blocks[count++] = block;
+                    read = fill(source, block, blockSize);
+                    length += read;
+                } while (read == blockSize);
+                if (read == 0) {
+                    free(new int[]{blocks[--count]});
+                }
+                blocks = Arrays.copyOf(blocks, count);
+            }
+        } catch (IOException | RuntimeException e) {
+            free(Arrays.copyOf(blocks, count));
+            throw (e instanceof ServiceException) ? (ServiceException) e
+                : new ServiceException("Could not put object " + storageName + "/" + key, e);
+        }
+
+        lock.lock();
+        try {
+            Entry previous = index.put(indexKey, new Entry(blocks, length, ++version, Instant.now(), contentType));
+            if (previous != null) {
+                remove(previous);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteObject(String storageName, String key) throws ServiceException {
+        String indexKey = indexKey(storageName, key);
+        lock.lock();
+        try {
+            Entry entry = index.remove(indexKey);
+            if (entry != null) {
+                remove(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteObjects(String storageName, Collection<String> keys) throws ServiceException {
+        for (String key : keys) {
+            deleteObject(storageName, key);
+        }
+    }
+
+    @Override
+    public void deleteBucket(String storageName) throws ServiceException {
+        String prefix = checkStorageName(storageName) + '/';
+        lock.lock();
+        try {
+            for (Iterator<Map.Entry<String, Entry>> entries = index.entrySet().iterator(); entries.hasNext(); ) {
+                Map.Entry<String, Entry> entry = entries.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    entries.remove();
+                    remove(entry.getValue());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String indexKey(String storageName, String key) {
+        hasText(key, "key may not be empty");
+        return checkStorageName(storageName) + '/' + key;
+    }
+
+    private static String checkStorageName(String storageName) {
+        hasText(storageName, "storageName may not be empty");
+        isTrue(storageName.indexOf('/') < 0, "storageName may not contain '/' but is %s", storageName);
+        return storageName;
+    }
+
+    private Entry pin(String storageName, String key) {
+        String indexKey = indexKey(storageName, key);
+        lock.lock();
+        try {
+            Entry entry = index.get(indexKey);
+            if (entry == null) {
+                throw new ServiceException("Not found: " + indexKey);
+            }
+            entry.readers++;
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unpin(Entry entry) {
+        lock.lock();
+        try {
+            if (--entry.readers == 0 && entry.removed) {
+                freeBlocks(entry.blocks);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes an entry already taken out of the index, freeing its blocks unless it's pinned. Must hold the lock.
+     */
+    private void remove(Entry entry) {
+        entry.removed = true;
+        if (entry.readers == 0) {
+            freeBlocks(entry.blocks);
+        }
+    }
+
+    private int[] allocate(int count) {
+        int[] blocks = new int[count];
+        lock.lock();
+        try {
+            makeRoom(count);
+            for (int i = 0; i < count; i++) {
+                blocks[i] = takeBlock();
+            }
+            return blocks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int allocate() {
+        lock.lock();
+        try {
+            makeRoom(1);
+            return takeBlock();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Evicts the least recently used objects not pinned by reads until there are enough free blocks, as their blocks
+     * are freed right away. Must hold the lock.
+     */
+    private void makeRoom(int count) {
+        Iterator<Entry> eldest = index.values().iterator();
+        while (freeCount + (maxBlocks - carvedBlocks) < count) {
+            Entry victim = null;
+            while (eviction && victim == null && eldest.hasNext()) {
+                Entry entry = eldest.next();
+                if (entry.readers == 0) {
+                    victim = entry;
+                }
+            }
+            if (victim == null) {
+                throw new ServiceException("Not enough space for " + count + " blocks: " + usedBlocks + " of "
+                    + maxBlocks + " are used");
+            }
+            eldest.remove();
+            remove(victim);
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Must hold the lock, and there must be a free block.
+     */
+    private int takeBlock() {
+        usedBlocks++;
+        return (freeCount > 0) ? freeBlocks[--freeCount] : carveBlock();
+    }
+
+    private int carveBlock() {
+        int block = carvedBlocks++;
+        int slab = block / blocksPerSlab;
+        if (slabs[slab] == null) {
+            int slabBlocks = Math.min(blocksPerSlab, maxBlocks - slab * blocksPerSlab);
+            slabs[slab] = ByteBuffer.allocateDirect(slabBlocks << blockShift);
+        }
+        return block;
+    }
+
+    private void free(int[] blocks) {
+        lock.lock();
+        try {
+            freeBlocks(blocks);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void freeBlocks(int[] blocks) {
+        if (freeCount + blocks.length > freeBlocks.length) {
+            freeBlocks = Arrays.copyOf(freeBlocks, Math.max(freeBlocks.length * 2, freeCount + blocks.length));
+        }
+        System.arraycopy(blocks, 0, freeBlocks, freeCount, blocks.length);
+        freeCount += blocks.length;
+        usedBlocks -= blocks.length;
+    }
+
+    /**
+     * Returns a view of a block. Slabs are never replaced once allocated, and the blocks being read or written are
+     * owned by the caller, so no lock is needed.
+     */
+    private ByteBuffer block(int block) {
+        ByteBuffer slab = slabs[block / blocksPerSlab].duplicate();
+        int offset = (block % blocksPerSlab) << blockShift;
+        slab.limit(offset + blockSize).position(offset);
+        return slab;
+    }
+
+    private int fill(ReadableByteChannel source, int block, int length) throws IOException {
+        ByteBuffer target = block(block);
+        target.limit(target.position() + length);
+        int read = 0;
+        while (target.hasRemaining()) {
+            int n = source.read(target);
+            if (n == -1) {
+                break;
+            }
+            read += n;
+        }
+        return read;
+    }
+
+    private static final class Entry {
+        final int[] blocks;
+        final long length;
+        final long version;
+        final Instant lastModified;
+        final String contentType;
+        // Guarded by the lock of the store
+        int readers;
+        boolean removed;
+
+        Entry(int[] blocks, long length, long version, Instant lastModified, String contentType) {
+            this.blocks = blocks;
+            this.length = length;
+            this.version = version;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+        }
+    }
+
+    /**
+     * A stream reading the blocks of a pinned entry, which is unpinned when the stream is closed.
+     */
+    private final class EntryInputStream extends InputStream {
+        @Nullable
+        private Entry entry;
+        private final long end;
+        private long position;
+
+        private EntryInputStream(Entry entry, long offset, long length) {
+            this.entry = entry;
+            this.position = Math.min(offset, entry.length);
+            this.end = (length > entry.length - position) ? entry.length : position + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            Entry current = checkOpen();
+            if (position >= end) {
+                return -1;
+            }
+            int block = current.blocks[(int) (position >>> blockShift)];
+            int offset = ((block % blocksPerSlab) << blockShift) + (int) (position & (blockSize - 1));
+            position++;
+            // An absolute get, so the slab needs no duplicate
+            return slabs[block / blocksPerSlab].get(offset) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Entry current = checkOpen();
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            ByteBuffer block = block(current.blocks[(int) (position >>> blockShift)]);
+            block.position(block.position() + (int) (position & (blockSize - 1)));
+            int read = (int) Math.min(Math.min(len, block.remaining()), end - position);
+            block.get(b, off, read);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            checkOpen();
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            checkOpen();
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        @Override
+        public void close() {
+            if (entry != null) {
+                unpin(entry);
+                entry = null;
+            }
+        }
+
+        private Entry checkOpen() throws IOException {
+            if (entry == null) {
+                throw new IOException("Stream closed");
+            }
+            return entry;
+        }
+    }
+
+    public static final class Builder {
+        private long capacity = 256L * 1024 * 1024;
+        private int blockSize = 4 * 1024;
+        private int slabSize = 64 * 1024 * 1024;
+        private boolean eviction = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of bytes of the blocks, which is rounded down to a multiple of the block size. The
+         * default capacity is 256 MiB.
+         *
+         * @param capacity the capacity in bytes
+         * @return <code>this</code>
+         */
+        public Builder withCapacity(long capacity) {
+            isTrue(capacity > 0, "capacity must be > 0 but is %d", capacity);
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Sets the size of the blocks the objects are stored in, a power of two. Objects waste less than a block each,
+         * so it should be close to the size of the smallest objects. The default block size is 4 KiB.
+         *
+         * @param blockSize the block size in bytes
+         * @return <code>this</code>
+         */
+        public Builder withBlockSize(int blockSize) {
+            isTrue(blockSize >= 64 && Integer.bitCount(blockSize) == 1,
+                "blockSize must be a power of two >= 64 but is %d", blockSize);
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        /**
+         * Sets the size of the direct buffers the blocks are carved from, which is rounded down to a multiple of the
+         * block size. The default slab size is 64 MiB.
+         *
+         * @param slabSize the slab size in bytes
+         * @return <code>this</code>
+         */
+        public Builder withSlabSize(int slabSize) {
+            isTrue(slabSize > 0 && slabSize <= (1 << 30), "slabSize must be in (0, 2^30] but is %d", slabSize);
+            this.slabSize = slabSize;
+            return this;
+        }
+
+        /**
+         * Sets whether the least recently used objects are evicted when there is no space for a write. Otherwise, the
+         * write fails. Enabled by default.
+         *
+         * @param eviction <code>true</code> to evict objects
+         * @return <code>this</code>
+         */
+        public Builder withEviction(boolean eviction) {
+            this.eviction = eviction;
+            return this;
+        }
+
+        public OffHeapObjectStore build() {
+            isTrue(blockSize <= slabSize, "blockSize must be <= slabSize (%d) but is %d", slabSize, blockSize);
+            isTrue(blockSize <= capacity, "blockSize must be <= capacity (%d) but is %d", capacity, blockSize);
+            return new OffHeapObjectStore(capacity, blockSize, slabSize, eviction);
+        }
+    }
+}
@@ -4,6 +4,10 @@ package com.jorgenota.utils.base.service;
  * @author Jorge Alonso
  */
 public class ServiceException extends RuntimeException {
+    public ServiceException(String message) {
+        super(message);
+    }
+
     public ServiceException(Throwable t) {
         super(t);
     }
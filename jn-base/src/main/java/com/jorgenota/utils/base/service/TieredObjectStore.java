@@ -0,0 +1,928 @@
+package com.jorgenota.utils.base.service;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static com.jorgenota.utils.base.Preconditions.hasText;
+import static com.jorgenota.utils.base.Preconditions.isTrue;
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * An {@link ObjectStore} caching the objects read from another one in three tiers: a small heap tier for tiny hot
+ * objects, an off-heap tier for medium ones and, optionally, a local disk tier for large ones, read through memory
+ * mappings. Reads are served from the first tier holding the object, and fall through to the other store when none
+ * does. Writes and deletes go to the other store and remove the objects from every tier.
+ * <p>
+ * The heap tier is a {@link CachingObjectStore} over the other tiers, so it admits the tiny objects read more often
+ * than the ones they would evict, and keeps copies of objects also held below. Objects read from the other store are
+ * placed in the off-heap tier if they are not larger than its maximum object size, or in the disk tier otherwise.
+ * When the off-heap tier is full, the least frequently read of its least recently used objects are demoted to disk
+ * if they have been read at least the promotion frequency, or dropped; objects on disk read that often that fit the
+ * off-heap tier are promoted back to it. The disk tier drops its least recently used objects when full.
+ * <p>
+ * {@link #getObjectAsBytes(String, String)} and {@link #getObjectAsString(String, String)} load the objects not in
+ * any tier. With a disk tier, {@link #openObject(String, String)} and {@link #copyObjectTo(String, String,
+ * WritableByteChannel)} load the objects not in any tier too, downloading the large ones into the disk tier with
+ * bounded memory and serving them from there (only these loads ask the other store for the size of the object, and
+ * the objects too large for the disk tier are remembered so they are not asked for again); the rest of reads are served
+ * from the tiers when the object is there, and from the other store otherwise.
+ * <p>
+ * Placements, demotions and promotions are serialized, but the objects are copied to and from the disk tier outside
+ * of the lock, and hits never wait for it: a hit finding it held is not recorded in the read frequencies. Instances are
+ * thread-safe.
+ *
+ * @author Jorge Alonso
+ */
+public final class TieredObjectStore implements ObjectStore {
+    private static final int OFF_HEAP = 0;
+    private static final int DISK = 1;
+    // Number of least recently used objects of the off-heap tier to choose the least frequent from when demoting
+    private static final int VICTIM_SAMPLE = 8;
+    private static final String CONTENT_TYPE = "application/octet-stream";
+    // Number of objects too large for the disk tier that are remembered
+    private static final int MAX_TOO_LARGE_KEYS = 1024;
+
+    private final ObjectStore store;
+    private final CachingObjectStore heap;
+    private final OffHeapObjectStore offHeap;
+    @Nullable
+    private final FileSystemObjectStore disk;
+    private final long offHeapObjectBytes;
+    private final long diskBytes;
+    private final long diskObjectBytes;
+    private final int promotionFrequency;
+    private final ConcurrentHashMap<String, Placement> placements = new ConcurrentHashMap<>();
+    private final Set<String> tooLargeKeys = ConcurrentHashMap.newKeySet();
+    // Loads and demotions in progress, discarded by the writes of their objects so they don't place stale content
+    private final ConcurrentHashMap<String, Load> loads = new ConcurrentHashMap<>();
+    private final AtomicLong diskKeyCount = new AtomicLong();
+    private final LongAdder lookupCount = new LongAdder();
+    private final LongAdder offHeapHitCount = new LongAdder();
+    private final LongAdder diskHitCount = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by the lock
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final LinkedHashMap<String, Placement> offHeapObjects = new LinkedHashMap<>(64, 0.75f, true);
+    private final LinkedHashMap<String, Placement> diskObjects = new LinkedHashMap<>(64, 0.75f, true);
+    private long diskUsedBytes;
+    private long offHeapEvictionCount;
+    private long diskEvictionCount;
+
+    private TieredObjectStore(Builder builder, @Nullable FileSystemObjectStore disk) {
+        this.store = builder.store;
+        this.heap = CachingObjectStore.newBuilder(new LocalTiers())
+            .withMaximumBytes(builder.heapBytes)
+            .withMaximumObjectBytes(builder.heapObjectBytes)
+            .build();
+        this.offHeap = OffHeapObjectStore.newBuilder().withCapacity(builder.offHeapBytes).withEviction(false).build();
+        this.disk = disk;
+        this.offHeapObjectBytes = builder.offHeapObjectBytes;
+        this.diskBytes = builder.diskBytes;
+        this.diskObjectBytes = Math.min(builder.diskObjectBytes, builder.diskBytes);
+        this.promotionFrequency = builder.promotionFrequency;
+        sketch.ensureCapacity(1024);
+    }
+
+    public static Builder newBuilder(ObjectStore store) {
+        return new Builder(store);
+    }
+
+    public CacheStats getHeapStats() {
+        return heap.getStats();
+    }
+
+    /**
+     * Returns the statistics of the off-heap tier, where misses are the reads that missed the heap tier and weren't
+     * served by this one, and evictions include demotions to the disk tier.
+     *
+     * @return the statistics of the off-heap tier
+     */
+    public CacheStats getOffHeapStats() {
+        lock.lock();
+        try {
+            long hits = offHeapHitCount.sum();
+            return new CacheStats(hits, lookupCount.sum() - hits, offHeapEvictionCount, offHeapObjects.size(),
+                offHeap.getUsedBytes());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the statistics of the disk tier, where misses are the reads that missed the heap and off-heap tiers and
+     * weren't served by this one.
+     *
+     * @return the statistics of the disk tier
+     */
+    public CacheStats getDiskStats() {
+        lock.lock();
+        try {
+            long hits = diskHitCount.sum();
+            return new CacheStats(hits, lookupCount.sum() - offHeapHitCount.sum() - hits, diskEvictionCount,
+                diskObjects.size(), diskUsedBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] getObjectAsBytes(String storageName, String key) throws ServiceException {
+        return heap.getObjectAsBytes(storageName, key);
+    }
+
+    @Override
+    public String getObjectAsString(String storageName, String key) throws ServiceException {
+        return heap.getObjectAsString(storageName, key);
+    }
+
+    @Override
+    public InputStream openObject(String storageName, String key) throws ServiceException {
+        return heap.openObject(storageName, key);
+    }
+
+    @Override
+    public InputStream getObjectRange(String storageName, String key, long offset, long length)
+        throws ServiceException {
+        return heap.getObjectRange(storageName, key, offset, length);
+    }
+
+    @Override
+    public ObjectMetadata headObject(String storageName, String key) throws ServiceException {
+        return heap.headObject(storageName, key);
+    }
+
+    @Override
+    public long copyObjectTo(String storageName, String key, WritableByteChannel target) throws ServiceException {
+        return heap.copyObjectTo(storageName, key, target);
+    }
+
+    @Override
+    public void putObject(String storageName, String key, byte[] content, String contentType)
+        throws ServiceException {
+        heap.putObject(storageName, key, content, contentType);
+    }
+
+    @Override
+    public void putObject(String storageName, String key, String content, String contentType)
+        throws ServiceException {
+        heap.putObject(storageName, key, content, contentType);
+    }
+
+    @Override
+    public void putObject(String storageName, String key, InputStream content, String contentType)
+        throws ServiceException {
+        heap.putObject(storageName, key, content, contentType);
+    }
+
+    @Override
+    public void putObject(String storageName, String key, InputStream content, long contentLength,
+                          String contentType) throws ServiceException {
+        heap.putObject(storageName, key, content, contentLength, contentType);
+    }
+
+    @Override
+    public void deleteObject(String storageName, String key) throws ServiceException {
+        heap.deleteObject(storageName, key);
+    }
+
+    @Override
+    public void deleteObjects(String storageName, Collection<String> keys) throws ServiceException {
+        heap.deleteObjects(storageName, keys);
+    }
+
+    @Override
+    public void deleteBucket(String storageName) throws ServiceException {
+        heap.deleteBucket(storageName);
+    }
+
+    private static String cacheKey(String storageName, String key) {
+        hasText(storageName, "storageName may not be empty");
+        hasText(key, "key may not be empty");
+        return storageName + '/' + key;
+    }
+
+    @Nullable
+    private Placement lookup(String cacheKey) {
+        lookupCount.increment();
+        return placements.get(cacheKey);
+    }
+
+    /**
+     * Opens the content of an object in its tier, or returns <code>null</code> if it has just been removed from it.
+     */
+    @Nullable
+    private InputStream open(Placement placement) {
+        try {
+            return (placement.tier == OFF_HEAP) ? offHeap.openObject(placement.storageName, placement.key)
+                : new ByteBufferBackedInputStream(map(placement));
+        } catch (ServiceException e) {
+            return null;
+        }
+    }
+
+    private ByteBuffer map(Placement placement) {
+        return notNull(disk, "disk").mapObject(placement.storageName, placement.diskKey);
+    }
+
+    /**
+     * Records a hit, unless the lock is held, promoting objects read often enough from the disk tier.
+     */
+    private void onHit(Placement placement) {
+        if (placement.tier == OFF_HEAP) {
+            offHeapHitCount.increment();
+        } else {
+            diskHitCount.increment();
+        }
+        if (!lock.tryLock()) {
+            return;
+        }
+        int hash = placement.cacheKey.hashCode();
+        boolean promote;
+        try {
+            sketch.increment(hash);
+            if (placement.tier == OFF_HEAP) {
+                offHeapObjects.get(placement.cacheKey);
+                return;
+            }
+            diskObjects.get(placement.cacheKey);
+            promote = placements.get(placement.cacheKey) == placement && placement.size <= offHeapObjectBytes
+                && sketch.frequency(hash) >= promotionFrequency;
+        } finally {
+            lock.unlock();
+        }
+        if (promote) {
+            promote(placement);
+        }
+    }
+
+    /**
+     * Moves an object from the disk tier to the off-heap one, unless it's removed from the disk tier meanwhile or the
+     * lock is held, in which case it's promoted by a later hit.
+     */
+    private void promote(Placement placement) {
+        byte[] content;
+        try {
+            content = notNull(disk, "disk").getObjectAsBytes(placement.storageName, placement.diskKey);
+        } catch (ServiceException e) {
+            return;
+        }
+        if (!lock.tryLock()) {
+            return;
+        }
+        List<Demotion> demotions;
+        try {
+            if (placements.get(placement.cacheKey) != placement) {
+                return;
+            }
+            removeFromDisk(placement);
+            demotions = placeOffHeap(placement.storageName, placement.key, placement.cacheKey, content);
+        } finally {
+            lock.unlock();
+        }
+        writeToDisk(demotions);
+    }
+
+    /**
+     * Places an object loaded from the other store, unless it has been written since it started loading or it's
+     * already placed.
+     */
+    private void place(String storageName, String key, String cacheKey, byte[] content, Load load) {
+        List<Demotion> demotions = Collections.emptyList();
+        lock.lock();
+        try {
+            sketch.increment(cacheKey.hashCode());
+            if (content.length <= offHeapObjectBytes && !load.discarded && !placements.containsKey(cacheKey)) {
+                demotions = placeOffHeap(storageName, key, cacheKey, content);
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeToDisk(demotions);
+        if (content.length > offHeapObjectBytes && disk != null && content.length <= diskObjectBytes) {
+            String diskKey = newDiskKey(key);
+            try {
+                disk.putObject(storageName, diskKey, content, CONTENT_TYPE);
+            } catch (RuntimeException e) {
+                // Not cached, e.g. because the storage name isn't valid for the disk tier
+                deleteQuietly(storageName, diskKey);
+                return;
+            }
+            registerOnDisk(new Placement(storageName, key, cacheKey, DISK, content.length, diskKey), load);
+        }
+    }
+
+    /**
+     * Places an object in the off-heap tier, demoting others to make room, and returns the demoted objects to be
+     * written to the disk tier once the lock is released. Must hold the lock.
+     */
+    private List<Demotion> placeOffHeap(String storageName, String key, String cacheKey, byte[] content) {
+        List<Demotion> demotions = new ArrayList<>();
+        int blockSize = offHeap.getBlockSize();
+        long needed = (content.length + blockSize - 1L) / blockSize * blockSize;
+        while (offHeap.getCapacity() - offHeap.getUsedBytes() < needed && !offHeapObjects.isEmpty()) {
+            Demotion demotion = demote();
+            if (demotion != null) {
+                demotions.add(demotion);
+            }
+        }
+        try {
+            offHeap.putObject(storageName, key, content, CONTENT_TYPE);
+        } catch (ServiceException e) {
+            // Not enough space, because blocks of removed objects are still being read
+            return demotions;
+        }
+        Placement placement = new Placement(storageName, key, cacheKey, OFF_HEAP, content.length, key);
+        offHeapObjects.put(cacheKey, placement);
+        placements.put(cacheKey, placement);
+        sketch.ensureCapacity(placements.size());
+        return demotions;
+    }
+
+    /**
+     * Removes the least frequent of the least recently used objects of the off-heap tier, and returns it to be moved
+     * to the disk tier if it has been read often enough. Must hold the lock.
+     */
+    @Nullable
+    private Demotion demote() {
+        Iterator<Placement> eldest = offHeapObjects.values().iterator();
+        Placement victim = eldest.next();
+        int victimFrequency = sketch.frequency(victim.cacheKey.hashCode());
+        for (int i = 1; i < VICTIM_SAMPLE && eldest.hasNext(); i++) {
+            Placement placement = eldest.next();
+            int frequency = sketch.frequency(placement.cacheKey.hashCode());
+            if (frequency < victimFrequency) {
+                victim = placement;
+                victimFrequency = frequency;
+            }
+        }
+        offHeapObjects.remove(victim.cacheKey);
+        placements.remove(victim.cacheKey, victim);
+        offHeapEvictionCount++;
+        Demotion demotion = null;
+        if (disk != null && victimFrequency >= promotionFrequency) {
+            demotion = new Demotion(victim, offHeap.getObjectAsBytes(victim.storageName, victim.key),
+                startLoad(victim.cacheKey));
+        }
+        offHeap.deleteObject(victim.storageName, victim.key);
+        return demotion;
+    }
+
+    /**
+     * Writes objects demoted from the off-heap tier to the disk tier. Must not hold the lock.
+     */
+    private void writeToDisk(List<Demotion> demotions) {
+        for (Demotion demotion : demotions) {
+            Placement victim = demotion.placement;
+            String diskKey = newDiskKey(victim.key);
+            try {
+                try {
+                    notNull(disk, "disk").putObject(victim.storageName, diskKey, demotion.content, CONTENT_TYPE);
+                } catch (RuntimeException e) {
+                    deleteQuietly(victim.storageName, diskKey);
+                    continue;
+                }
+                registerOnDisk(new Placement(victim.storageName, victim.key, victim.cacheKey, DISK,
+                    demotion.content.length, diskKey), demotion.load);
+            } finally {
+                endLoad(victim.cacheKey, demotion.load);
+            }
+        }
+    }
+
+    /**
+     * Registers an object written to the disk tier, dropping others to make room, unless it has been written since it
+     * started loading or it's already placed, in which case it's deleted.
+     */
+    private boolean registerOnDisk(Placement placement, Load load) {
+        FileSystemObjectStore diskStore = notNull(disk, "disk");
+        lock.lock();
+        try {
+            if (load.discarded || placements.containsKey(placement.cacheKey)) {
+                diskStore.deleteObject(placement.storageName, placement.diskKey);
+                return false;
+            }
+            while (diskUsedBytes + placement.size > diskBytes && !diskObjects.isEmpty()) {
+                removeFromDisk(diskObjects.values().iterator().next());
+                diskEvictionCount++;
+            }
+            diskObjects.put(placement.cacheKey, placement);
+            placements.put(placement.cacheKey, placement);
+            sketch.ensureCapacity(placements.size());
+            diskUsedBytes += placement.size;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must hold the lock.
+     */
+    private void removeFromDisk(Placement placement) {
+        diskObjects.remove(placement.cacheKey);
+        placements.remove(placement.cacheKey, placement);
+        diskUsedBytes -= placement.size;
+        notNull(disk, "disk").deleteObject(placement.storageName, placement.diskKey);
+    }
+
+    /**
+     * Returns a key for a new file of an object in the disk tier, so a stale load never replaces the file of a newer
+     * placement of the same object.
+     */
+    private String newDiskKey(String key) {
+        return key + '@' + Long.toHexString(diskKeyCount.incrementAndGet());
+    }
+
+    /**
+     * Reads an object not in any tier from the other store, placing it in the off-heap tier if it fits there, or
+     * downloading it into the disk tier, with bounded memory, and serving it from there if it fits there. Must have a
+     * disk tier.
+     */
+    private InputStream load(String storageName, String key, String cacheKey) {
+        FileSystemObjectStore diskStore = notNull(disk, "disk");
+        if (tooLargeKeys.contains(cacheKey)) {
+            return store.openObject(storageName, key);
+        }
+        Load load = startLoad(cacheKey);
+        try {
+            InputStream content = store.openObject(storageName, key);
+            byte[] head;
+            try {
+                head = content.readNBytes((int) Math.min(offHeapObjectBytes + 1, Integer.MAX_VALUE - 8));
+            } catch (IOException e) {
+                closeQuietly(content);
+                throw new ServiceException("Could not read object " + storageName + "/" + key, e);
+            }
+            if (head.length <= offHeapObjectBytes) {
+                closeQuietly(content);
+                place(storageName, key, cacheKey, head, load);
+                return new ByteArrayInputStream(head);
+            }
+
+            InputStream remaining = new SequenceInputStream(new ByteArrayInputStream(head), content);
+            long size;
+            try {
+                size = store.headObject(storageName, key).getContentLength();
+            } catch (RuntimeException e) {
+                closeQuietly(remaining);
+                throw e;
+            }
+            if (size <= offHeapObjectBytes || size > diskObjectBytes) {
+                if (size > diskObjectBytes) {
+                    rememberTooLarge(cacheKey);
+                }
+                return remaining;
+            }
+            lock.lock();
+            try {
+                sketch.increment(cacheKey.hashCode());
+            } finally {
+                lock.unlock();
+            }
+            String diskKey = newDiskKey(key);
+            try (InputStream source = remaining) {
+                diskStore.putObject(storageName, diskKey, source, size, CONTENT_TYPE);
+            } catch (IOException | RuntimeException e) {
+                // Read from the other store instead, which reports its failures
+                deleteQuietly(storageName, diskKey);
+                return store.openObject(storageName, key);
+            }
+            Placement placement = new Placement(storageName, key, cacheKey, DISK, size, diskKey);
+            InputStream placed = registerOnDisk(placement, load) ? open(placement) : null;
+            if (placed == null) {
+                return store.openObject(storageName, key);
+            }
+            onHit(placement);
+            return placed;
+        } finally {
+            endLoad(cacheKey, load);
+        }
+    }
+
+    /**
+     * Registers a load or a demotion of an object, joining the ones in progress that haven't been discarded.
+     */
+    private Load startLoad(String cacheKey) {
+        return loads.compute(cacheKey, (k, load) -> {
+            if (load == null) {
+                return new Load();
+            }
+            load.count++;
+            return load;
+        });
+    }
+
+    private void endLoad(String cacheKey, Load load) {
+        loads.computeIfPresent(cacheKey, (k, current) -> (current != load || --current.count > 0) ? current : null);
+    }
+
+    /**
+     * Discards the loads and demotions in progress of an object. Must be called before removing it from the tiers.
+     */
+    private void discardLoad(String cacheKey) {
+        Load load = loads.remove(cacheKey);
+        if (load != null) {
+            load.discarded = true;
+        }
+    }
+
+    private void rememberTooLarge(String cacheKey) {
+        if (tooLargeKeys.size() >= MAX_TOO_LARGE_KEYS) {
+            tooLargeKeys.clear();
+        }
+        tooLargeKeys.add(cacheKey);
+    }
+
+    private static void closeQuietly(InputStream content) {
+        try {
+            content.close();
+        } catch (IOException e) {
+            // Nothing else to read from it
+        }
+    }
+
+    private void deleteQuietly(String storageName, String diskKey) {
+        try {
+            notNull(disk, "disk").deleteObject(storageName, diskKey);
+        } catch (RuntimeException e) {
+            // Nothing was written
+        }
+    }
+
+    private void invalidate(String cacheKey) {
+        discardLoad(cacheKey);
+        tooLargeKeys.remove(cacheKey);
+        lock.lock();
+        try {
+            Placement placement = placements.get(cacheKey);
+            if (placement != null) {
+                remove(placement);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must hold the lock.
+     */
+    private void remove(Placement placement) {
+        if (placement.tier == OFF_HEAP) {
+            offHeapObjects.remove(placement.cacheKey);
+            placements.remove(placement.cacheKey, placement);
+            offHeap.deleteObject(placement.storageName, placement.key);
+        } else {
+            removeFromDisk(placement);
+        }
+    }
+
+    private static final class Demotion {
+        final Placement placement;
+        final byte[] content;
+        final Load load;
+
+        Demotion(Placement placement, byte[] content, Load load) {
+            this.placement = placement;
+            this.content = content;
+            this.load = load;
+        }
+    }
+
+    /**
+     * The loads and demotions of an object in progress, sharing whether they have been discarded by a write.
+     */
+    private static final class Load {
+        // Only updated by the atomic computations of the map of loads
+        int count = 1;
+        volatile boolean discarded;
+    }
+
+    private static final class Placement {
+        final String storageName;
+        final String key;
+        final String cacheKey;
+        final int tier;
+        final long size;
+        final String diskKey;
+
+        Placement(String storageName, String key, String cacheKey, int tier, long size, String diskKey) {
+            this.storageName = storageName;
+            this.key = key;
+            this.cacheKey = cacheKey;
+            this.tier = tier;
+            this.size = size;
+            this.diskKey = diskKey;
+        }
+    }
+
+    /**
+     * The off-heap and disk tiers over the other store, wrapped by the heap tier.
+     */
+    private final class LocalTiers implements ObjectStore {
+
+        @Override
+        public byte[] getObjectAsBytes(String storageName, String key) throws ServiceException {
+            String cacheKey = cacheKey(storageName, key);
+            Placement placement = lookup(cacheKey);
+            if (placement != null) {
+                try {
+                    byte[] content = (placement.tier == OFF_HEAP)
+                        ? offHeap.getObjectAsBytes(placement.storageName, placement.key)
+                        : notNull(disk, "disk").getObjectAsBytes(placement.storageName, placement.diskKey);
+                    onHit(placement);
+                    return content;
+                } catch (ServiceException e) {
+                    // Removed from its tier meanwhile
+                }
+            }
+            Load load = startLoad(cacheKey);
+            try {
+                byte[] content = store.getObjectAsBytes(storageName, key);
+                place(storageName, key, cacheKey, content, load);
+                return content;
+            } finally {
+                endLoad(cacheKey, load);
+            }
+        }
+
+        @Override
+        public InputStream openObject(String storageName, String key) throws ServiceException {
+            String cacheKey = cacheKey(storageName, key);
+            Placement placement = lookup(cacheKey);
+            InputStream content = (placement != null) ? open(placement) : null;
+            if (content != null) {
+                onHit(placement);
+                return content;
+            }
+            return (disk != null) ? load(storageName, key, cacheKey) : store.openObject(storageName, key);
+        }
+
+        @Override
+        public InputStream getObjectRange(String storageName, String key, long offset, long length)
+            throws ServiceException {
+            isTrue(offset >= 0, "offset must be >= 0 but is %d", offset);
+            isTrue(length >= 0, "length must be >= 0 but is %d", length);
+            Placement placement = lookup(cacheKey(storageName, key));
+            if (placement != null) {
+                try {
+                    InputStream range;
+                    if (placement.tier == OFF_HEAP) {
+                        range = offHeap.getObjectRange(placement.storageName, placement.key, offset, length);
+                    } else {
+                        ByteBuffer content = map(placement);
+                        content.position((int) Math.min(offset, content.limit()));
+                        content.limit(content.position() + (int) Math.min(length, content.remaining()));
+                        range = new ByteBufferBackedInputStream(content);
+                    }
+                    onHit(placement);
+                    return range;
+                } catch (ServiceException e) {
+                    // Removed from its tier meanwhile
+                }
+            }
+            return store.getObjectRange(storageName, key, offset, length);
+        }
+
+        @Override
+        public ObjectMetadata headObject(String storageName, String key) throws ServiceException {
+            return store.headObject(storageName, key);
+        }
+
+        @Override
+        public long copyObjectTo(String storageName, String key, WritableByteChannel target)
+            throws ServiceException {
+            String cacheKey = cacheKey(storageName, key);
+            Placement placement = lookup(cacheKey);
+            InputStream content = (placement != null) ? open(placement) : null;
+            if (content != null) {
+                onHit(placement);
+            } else if (disk != null) {
+                content = load(storageName, key, cacheKey);
+            } else {
+                return store.copyObjectTo(storageName, key, target);
+            }
+            try (InputStream source = content) {
+                long copied = 0;
+                byte[] buffer = new byte[8192];
+                for (int n = source.read(buffer); n != -1; n = source.read(buffer)) {
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+                    while (chunk.hasRemaining()) {
+                        target.write(chunk);
+                    }
+                    copied += n;
+                }
+                return copied;
+            } catch (IOException e) {
+                throw new ServiceException("Could not copy object " + storageName + "/" + key, e);
+            }
+        }
+
+        @Override
+        public void putObject(String storageName, String key, byte[] content, String contentType)
+            throws ServiceException {
+            try {
+                store.putObject(storageName, key, content, contentType);
+            } finally {
+                invalidate(cacheKey(storageName, key));
+            }
+        }
+
+        @Override
+        public void putObject(String storageName, String key, String content, String contentType)
+            throws ServiceException {
+            try {
+                store.putObject(storageName, key, content, contentType);
+            } finally {
+                invalidate(cacheKey(storageName, key));
+            }
+        }
+
+        @Override
+        public void putObject(String storageName, String key, InputStream content, String contentType)
+            throws ServiceException {
+            try {
+                store.putObject(storageName, key, content, contentType);
+            } finally {
+                invalidate(cacheKey(storageName, key));
+            }
+        }
+
+        @Override
+        public void putObject(String storageName, String key, InputStream content, long contentLength,
+                              String contentType) throws ServiceException {
+            try {
+                store.putObject(storageName, key, content, contentLength, contentType);
+            } finally {
+                invalidate(cacheKey(storageName, key));
+            }
+        }
+
+        @Override
+        public void deleteObject(String storageName, String key) throws ServiceException {
+            try {
+                store.deleteObject(storageName, key);
+            } finally {
+                invalidate(cacheKey(storageName, key));
+            }
+        }
+
+        @Override
+        public void deleteObjects(String storageName, Collection<String> keys) throws ServiceException {
+            try {
+                store.deleteObjects(storageName, keys);
+            } finally {
+                for (String key : keys) {
+                    invalidate(cacheKey(storageName, key));
+                }
+            }
+        }
+
+        @Override
+        public void deleteBucket(String storageName) throws ServiceException {
+            try {
+                store.deleteBucket(storageName);
+            } finally {
+                String prefix = storageName + '/';
+                for (String cacheKey : loads.keySet()) {
+                    if (cacheKey.startsWith(prefix)) {
+                        discardLoad(cacheKey);
+                    }
+                }
+                tooLargeKeys.removeIf(cacheKey -> cacheKey.startsWith(prefix));
+                lock.lock();
+                try {
+                    for (Placement placement : placements.values()) {
+                        if (placement.storageName.equals(storageName)) {
+                            remove(placement);
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final ObjectStore store;
+        private long heapBytes = 16L * 1024 * 1024;
+        private long heapObjectBytes = 16 * 1024;
+        private long offHeapBytes = 256L * 1024 * 1024;
+        private long offHeapObjectBytes = 1024 * 1024;
+        @Nullable
+        private Path diskDirectory;
+        private long diskBytes = 10L * 1024 * 1024 * 1024;
+        private long diskObjectBytes = 1024L * 1024 * 1024;
+        private int promotionFrequency = 2;
+
+        private Builder(ObjectStore store) {
+            this.store = notNull(store, "store may not be null");
+        }
+
+        /**
+         * Sets the maximum bytes of the heap tier, and the size of the largest objects it holds. The defaults are
+         * 16 MiB and 16 KiB.
+         *
+         * @param heapBytes       the maximum bytes of the heap tier
+         * @param heapObjectBytes the maximum size of an object in the heap tier
+         * @return <code>this</code>
+         */
+        public Builder withHeapTier(long heapBytes, long heapObjectBytes) {
+            isTrue(heapBytes > 0, "heapBytes must be > 0 but is %d", heapBytes);
+            isTrue(heapObjectBytes >= 0, "heapObjectBytes must be >= 0 but is %d", heapObjectBytes);
+            this.heapBytes = heapBytes;
+            this.heapObjectBytes = heapObjectBytes;
+            return this;
+        }
+
+        /**
+         * Sets the capacity of the off-heap tier, and the size of the largest objects it holds. The defaults are
+         * 256 MiB and 1 MiB.
+         *
+         * @param offHeapBytes       the capacity of the off-heap tier
+         * @param offHeapObjectBytes the maximum size of an object in the off-heap tier
+         * @return <code>this</code>
+         */
+        public Builder withOffHeapTier(long offHeapBytes, long offHeapObjectBytes) {
+            isTrue(offHeapBytes > 0, "offHeapBytes must be > 0 but is %d", offHeapBytes);
+            isTrue(offHeapObjectBytes >= 0 && offHeapObjectBytes <= offHeapBytes,
+                "offHeapObjectBytes must be in [0, offHeapBytes] but is %d", offHeapObjectBytes);
+            this.offHeapBytes = offHeapBytes;
+            this.offHeapObjectBytes = offHeapObjectBytes;
+            return this;
+        }
+
+        /**
+         * Adds a disk tier in a directory owned by the cache, whose content is deleted when the cache is built. The
+         * defaults are 10 GiB and objects of up to 1 GiB. Objects are read through a single memory mapping, so they
+         * can't be larger than 2 GiB.
+         *
+         * @param diskDirectory   the directory of the disk tier
+         * @param diskBytes       the maximum bytes of the disk tier
+         * @param diskObjectBytes the maximum size of an object in the disk tier, up to {@link Integer#MAX_VALUE}
+         * @return <code>this</code>
+         */
+        public Builder withDiskTier(Path diskDirectory, long diskBytes, long diskObjectBytes) {
+            isTrue(diskBytes > 0, "diskBytes must be > 0 but is %d", diskBytes);
+            isTrue(diskObjectBytes >= 0 && diskObjectBytes <= Integer.MAX_VALUE,
+                "diskObjectBytes must be in [0, %d] but is %d", Integer.MAX_VALUE, diskObjectBytes);
+            this.diskDirectory = notNull(diskDirectory, "diskDirectory may not be null");
+            this.diskBytes = diskBytes;
+            this.diskObjectBytes = diskObjectBytes;
+            return this;
+        }
+
+        /**
+         * Sets how many recent reads of an object (hits and misses) promote it from the disk tier to the off-heap
+         * one, or demote it to the disk tier instead of dropping it. The default is 2.
+         *
+         * @param promotionFrequency the number of reads, from 1 to 15
+         * @return <code>this</code>
+         */
+        public Builder withPromotionFrequency(int promotionFrequency) {
+            isTrue(promotionFrequency >= 1 && promotionFrequency <= 15,
+                "promotionFrequency must be in [1, 15] but is %d", promotionFrequency);
+            this.promotionFrequency = promotionFrequency;
+            return this;
+        }
+
+        public TieredObjectStore build() {
+            isTrue(heapObjectBytes <= offHeapObjectBytes, "heapObjectBytes must be <= offHeapObjectBytes (%d) but is %d",
+                offHeapObjectBytes, heapObjectBytes);
+            if (diskDirectory == null) {
+                return new TieredObjectStore(this, null);
+            }
+            FileSystemObjectStore disk = FileSystemObjectStore.newBuilder(diskDirectory).build();
+            try (Stream<Path> storages = Files.list(disk.getRoot())) {
+                storages.filter(Files::isDirectory)
+                    .map(storage -> storage.getFileName().toString())
+                    .filter(storageName -> !storageName.startsWith("."))
+                    .forEach(disk::deleteBucket);
+            } catch (IOException e) {
+                throw new ServiceException("Could not clean the disk tier " + diskDirectory, e);
+            }
+            return new TieredObjectStore(this, disk);
+        }
+    }
+}
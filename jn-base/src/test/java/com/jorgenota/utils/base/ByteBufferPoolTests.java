@@ -0,0 +1,115 @@
+package com.jorgenota.utils.base;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class ByteBufferPoolTests {
+
+    private final ByteBufferPool pool = ByteBufferPool.newBuilder()
+        .withMinBufferSize(16)
+        .withMaxBufferSize(100)
+        .withMaxPooledBuffersPerSize(2)
+        .build();
+
+    @Test
+    void testSizeClasses() {
+        assertThat(pool.getMaxBufferSize()).isEqualTo(128);
+        assertThat(pool.acquire(0).capacity()).isEqualTo(16);
+        assertThat(pool.acquire(16).capacity()).isEqualTo(16);
+        assertThat(pool.acquire(17).capacity()).isEqualTo(32);
+        assertThat(pool.acquire(128).capacity()).isEqualTo(128);
+        assertThat(pool.acquire(129).capacity()).isEqualTo(129);
+        assertThat(pool.acquire(1).isDirect()).isTrue();
+    }
+
+    @Test
+    void testReleasedBuffersAreReused() {
+        ByteBuffer buffer = pool.acquire(20);
+        buffer.putInt(1);
+        pool.release(buffer);
+        long allocations = pool.allocationCount();
+
+        ByteBuffer reused = pool.acquire(30);
+
+        assertThat(reused).isSameAs(buffer);
+        assertThat(reused.position()).isZero();
+        assertThat(pool.allocationCount()).isEqualTo(allocations);
+    }
+
+    @Test
+    void testRetainedBuffersAreBounded() {
+        ByteBuffer[] buffers = {pool.acquire(16), pool.acquire(16), pool.acquire(16)};
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+        }
+        pool.release(ByteBuffer.allocate(16));
+        pool.release(ByteBuffer.allocateDirect(200));
+
+        assertThat(pool.acquire(16)).isSameAs(buffers[0]);
+        assertThat(pool.acquire(16)).isSameAs(buffers[1]);
+        long allocations = pool.allocationCount();
+        pool.acquire(16);
+        assertThat(pool.allocationCount()).isEqualTo(allocations + 1);
+    }
+
+    @Test
+    void testOutputStreamGrows() throws IOException {
+        byte[] bytes = new byte[300];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        ByteBufferOutputStream outputStream = new ByteBufferOutputStream(pool);
+        outputStream.write(bytes, 0, 10);
+        outputStream.write(bytes[10]);
+        outputStream.write(ByteBuffer.wrap(bytes, 11, 289));
+        outputStream.close();
+
+        try (PooledByteBuffer buffer = outputStream.toPooledBuffer()) {
+            assertThat(buffer.size()).isEqualTo(300);
+            assertThat(buffer.toByteArray()).isEqualTo(bytes);
+            assertThat(buffer.buffer()).isNotSameAs(buffer.buffer());
+        }
+        assertThatThrownBy(() -> outputStream.write(1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testWriteValueAsBuffer() throws IOException {
+        Map<String, String> value = Collections.singletonMap("key", "value");
+        long allocations;
+
+        try (PooledByteBuffer buffer = ObjectMappingUtils.OBJECT_MAPPER_CACHE.writeValueAsBuffer(value, pool)) {
+            ByteBuffer view = buffer.buffer();
+            assertThat(view.isDirect()).isTrue();
+            assertThat(StandardCharsets.UTF_8.decode(view).toString()).isEqualTo("{\"key\":\"value\"}");
+            try (InputStream inputStream = buffer.inputStream()) {
+                assertThat(ObjectMappingUtils.readValue(inputStream, Map.class)).isEqualTo(value);
+            }
+            allocations = pool.allocationCount();
+        }
+
+        // The released buffer is reused
+        ObjectMappingUtils.OBJECT_MAPPER_CACHE.writeValueAsBuffer(value, pool).close();
+        assertThat(pool.allocationCount()).isEqualTo(allocations);
+    }
+
+    @Test
+    void testReleasedBufferCantBeRead() throws IOException {
+        PooledByteBuffer buffer = ContentCodecs.json().encode("value", pool);
+        buffer.close();
+        buffer.close();
+
+        assertThatThrownBy(buffer::buffer).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,100 @@
+package com.jorgenota.utils.base;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class ContentCodecsTests {
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Event event = new Event(42L, "created", Arrays.asList("a", "b"));
+
+        for (DataFormat format : DataFormat.values()) {
+            ContentCodec codec = ContentCodecs.forFormat(format);
+            byte[] bytes = codec.encode(event);
+
+            assertThat(DataFormat.detect(bytes)).isEqualTo(format);
+            assertThat(codec.decode(bytes, Event.class)).isEqualTo(event);
+            assertThat(ContentCodecs.decode(bytes, null, Event.class)).isEqualTo(event);
+            assertThat(ContentCodecs.decode(ByteBuffer.wrap(bytes), codec.getContentType(), Event.class))
+                .isEqualTo(event);
+        }
+    }
+
+    @Test
+    void testBinaryFormatsAreSmaller() throws IOException {
+        Event event = new Event(42L, "created", Arrays.asList("a", "b"));
+
+        int jsonSize = ContentCodecs.json().encode(event).length;
+
+        assertThat(ContentCodecs.smile().encode(event).length).isLessThan(jsonSize);
+        assertThat(ContentCodecs.cbor().encode(event).length).isLessThan(jsonSize);
+    }
+
+    @Test
+    void testCodecsAreShared() {
+        assertThat(ContentCodecs.json().getObjectMapperCache()).isSameAs(ObjectMappingUtils.OBJECT_MAPPER_CACHE);
+        assertThat(ContentCodecs.smile()).isSameAs(ContentCodecs.forContentType("application/x-jackson-smile"));
+    }
+
+    @Test
+    void testForContentType() {
+        assertThat(DataFormat.forContentType("application/json")).isEqualTo(DataFormat.JSON);
+        assertThat(DataFormat.forContentType("Application/JSON; charset=UTF-8")).isEqualTo(DataFormat.JSON);
+        assertThat(DataFormat.forContentType("application/vnd.api+json")).isEqualTo(DataFormat.JSON);
+        assertThat(DataFormat.forContentType("application/cbor")).isEqualTo(DataFormat.CBOR);
+        assertThat(DataFormat.forContentType("text/plain")).isNull();
+        assertThatThrownBy(() -> ContentCodecs.forContentType("text/plain"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testDetect() {
+        assertThat(DataFormat.detect(new byte[0])).isEqualTo(DataFormat.JSON);
+        assertThat(DataFormat.detect(" [1]".getBytes())).isEqualTo(DataFormat.JSON);
+        assertThat(DataFormat.detect(new byte[]{(byte) 0xA1, 0x61, 0x61, 0x01})).isEqualTo(DataFormat.CBOR);
+        ByteBuffer buffer = ByteBuffer.wrap("xx:)\n".getBytes());
+        buffer.position(2);
+        assertThat(DataFormat.detect(buffer)).isEqualTo(DataFormat.SMILE);
+        assertThat(buffer.position()).isEqualTo(2);
+    }
+
+    static class Event {
+        public long id;
+        public String type;
+        public List<String> tags;
+
+        Event() {
+        }
+
+        Event(long id, String type, List<String> tags) {
+            this.id = id;
+            this.type = type;
+            this.tags = tags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Event)) {
+                return false;
+            }
+            Event other = (Event) o;
+            return id == other.id && type.equals(other.type) && tags.equals(other.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
+        }
+    }
+}
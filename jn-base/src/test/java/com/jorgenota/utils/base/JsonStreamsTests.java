@@ -0,0 +1,187 @@
+package com.jorgenota.utils.base;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class JsonStreamsTests {
+
+    @Test
+    void testReadArray() throws IOException {
+        InputStream inputStream = input("[{\"id\":1,\"name\":\"a\"}, {\"id\":2,\"name\":\"b\"}]");
+
+        try (Stream<Item> items = JsonStreams.readArray(inputStream, Item.class)) {
+            assertThat(items.map(item -> item.name).collect(Collectors.toList())).containsExactly("a", "b");
+        }
+    }
+
+    @Test
+    void testReadEmptyArray() throws IOException {
+        try (Stream<Item> items = JsonStreams.readArray(input("[]"), Item.class)) {
+            assertThat(items).isEmpty();
+        }
+    }
+
+    @Test
+    void testReadArrayRejectsOtherValues() {
+        assertThatThrownBy(() -> JsonStreams.readArray(input("{\"id\":1}"), Item.class))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("Expected the start of an array");
+    }
+
+    @Test
+    void testReadLinesFromChannel() throws IOException {
+        InputStream inputStream = input("{\"id\":1}\n\n{\"id\":2}\n{\"id\":3}\n");
+
+        try (Stream<Item> items = JsonStreams.readLines(Channels.newChannel(inputStream), Item.class)) {
+            assertThat(items.map(item -> item.id).collect(Collectors.toList())).containsExactly(1, 2, 3);
+        }
+    }
+
+    @Test
+    void testMalformedContentFailsWhileStreaming() throws IOException {
+        try (Stream<Item> items = JsonStreams.readLines(input("{\"id\":1}\n{\"id\":"), Item.class)) {
+            assertThatThrownBy(() -> items.forEach(item -> {
+            })).isInstanceOf(UncheckedIOException.class);
+        }
+    }
+
+    @Test
+    void testReadsLazily() throws IOException {
+        int count = 100_000;
+        CountingInputStream inputStream = new CountingInputStream(generatedArray(count));
+
+        try (Stream<Item> items = JsonStreams.readArray(inputStream, Item.class)) {
+            assertThat(items.findFirst().get().id).isEqualTo(0);
+            // Only the first buffer has been read
+            assertThat(inputStream.read).isLessThan(64 * 1024);
+        }
+        assertThat(inputStream.closed).isTrue();
+
+        try (Stream<Item> items = JsonStreams.readArray(generatedArray(count), Item.class)) {
+            assertThat(items.count()).isEqualTo(count);
+        }
+    }
+
+    @Test
+    void testWriteArray() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (JsonStreamWriter<Item> writer = JsonStreams.writeArray(outputStream, Item.class)) {
+            writer.writeAll(Arrays.asList(new Item(1, "a"), new Item(2, "b")));
+            assertThat(writer.getCount()).isEqualTo(2L);
+        }
+
+        assertThat(outputStream.toString(StandardCharsets.UTF_8))
+            .isEqualTo("[{\"id\":1,\"name\":\"a\"},{\"id\":2,\"name\":\"b\"}]");
+    }
+
+    @Test
+    void testWriteLinesRoundTrip() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (JsonStreamWriter<Item> writer = JsonStreams.writeLines(Channels.newChannel(outputStream), Item.class)) {
+            writer.write(new Item(1, "a"));
+            writer.write(new Item(2, "b"));
+        }
+
+        assertThat(outputStream.toString(StandardCharsets.UTF_8))
+            .isEqualTo("{\"id\":1,\"name\":\"a\"}\n{\"id\":2,\"name\":\"b\"}\n");
+        try (Stream<Item> items = JsonStreams.readLines(input(outputStream.toString(StandardCharsets.UTF_8)),
+            Item.class)) {
+            List<String> names = items.map(item -> item.name).collect(Collectors.toList());
+            assertThat(names).containsExactly("a", "b");
+        }
+    }
+
+    private static InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Generates a JSON array of items on the fly, so the whole content is never in memory.
+     */
+    private static InputStream generatedArray(int count) {
+        return new InputStream() {
+            private int next;
+            private byte[] chunk = "[".getBytes(StandardCharsets.UTF_8);
+            private int position;
+
+            @Override
+            public int read() {
+                if (position == chunk.length) {
+                    if (next > count) {
+                        return -1;
+                    }
+                    String element = (next == count) ? "]" : ((next > 0) ? "," : "") + "{\"id\":" + next + "}";
+                    chunk = element.getBytes(StandardCharsets.UTF_8);
+                    position = 0;
+                    next++;
+                }
+                return chunk[position++];
+            }
+        };
+    }
+
+    static class Item {
+        public int id;
+        public String name;
+
+        Item() {
+        }
+
+        Item(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private static final class CountingInputStream extends InputStream {
+        private final InputStream delegate;
+        private long read;
+        private boolean closed;
+
+        private CountingInputStream(InputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0) {
+                read++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, len);
+            if (n > 0) {
+                read += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.jorgenota.utils.base;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Jorge Alonso
+ */
+class ObjectMapperCacheTests {
+
+    private static final String JSON = "{\"name\":\"jn\",\"secret\":\"s3cr3t\",\"unknown\":1}";
+
+    private final ObjectMapperCache cache = new ObjectMapperCache(ObjectMappingUtils.configureObjectMapper());
+
+    @Test
+    void testReadersAndWritersAreCached() {
+        assertThat(cache.readerFor(Item.class)).isSameAs(cache.readerFor(Item.class));
+        assertThat(cache.writerFor(Item.class)).isSameAs(cache.writerFor(Item.class));
+        assertThat(cache.readerFor(new TypeReference<List<Item>>() {
+        })).isSameAs(cache.readerFor(new TypeReference<List<Item>>() {
+        }));
+        assertThat(cache.readerFor(Item.class, Public.class)).isSameAs(cache.readerFor(Item.class, Public.class))
+            .isNotSameAs(cache.readerFor(Item.class));
+        assertThat(ObjectMappingUtils.readerFor(Item.class)).isSameAs(ObjectMappingUtils.readerFor(Item.class));
+    }
+
+    @Test
+    void testReadValue() throws IOException {
+        byte[] bytes = JSON.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(cache.readValue(bytes, Item.class).name).isEqualTo("jn");
+        assertThat(cache.readValue(new ByteArrayInputStream(bytes), Item.class).secret).isEqualTo("s3cr3t");
+        assertThat(cache.readValue(bytes, new TypeReference<Map<String, Object>>() {
+        })).containsEntry("unknown", 1);
+    }
+
+    @Test
+    void testReadValueFromByteBuffers() throws IOException {
+        byte[] bytes = ("xx" + JSON).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer heap = ByteBuffer.wrap(bytes);
+        heap.position(2);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip().position(2);
+
+        assertThat(cache.readValue(heap.slice(), Item.class).name).isEqualTo("jn");
+        assertThat(cache.readValue(heap, Item.class).name).isEqualTo("jn");
+        assertThat(cache.readValue(direct, Item.class).name).isEqualTo("jn");
+        assertThat(heap.position()).isEqualTo(2);
+        assertThat(direct.position()).isEqualTo(2);
+    }
+
+    @Test
+    void testViews() throws IOException {
+        Item item = new Item();
+        item.name = "jn";
+        item.secret = "s3cr3t";
+
+        String json = cache.writerFor(Item.class, Public.class).writeValueAsString(item);
+
+        assertThat(json).isEqualTo("{\"name\":\"jn\"}");
+        assertThat(cache.readerFor(Item.class, Public.class).<Item>readValue(JSON).secret).isNull();
+        assertThat(new String(cache.writeValueAsBytes(item), StandardCharsets.UTF_8)).contains("s3cr3t");
+    }
+
+    interface Public {
+    }
+
+    static class Item {
+        @JsonView(Public.class)
+        public String name;
+        public String secret;
+    }
+}
@@ -0,0 +1,83 @@
+package com.jorgenota.utils.base;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Jorge Alonso
+ */
+class ObjectMappingUtilsTests {
+
+    @Test
+    void testRegistersAfterburnerWhenPresent() throws IOException {
+        ObjectMapper objectMapper = ObjectMappingUtils.configureObjectMapper(ObjectMapperOptions.newBuilder()
+            .withBytecodeAcceleration(true)
+            .build());
+
+        assertThat(objectMapper.getRegisteredModuleIds()).contains(AfterburnerModule.class.getName());
+        Item item = objectMapper.readValue("{\"name\":\"jn\",\"size\":3,\"unknown\":true}", Item.class);
+        assertThat(item.getName()).isEqualTo("jn");
+        assertThat(item.getSize()).isEqualTo(3);
+    }
+
+    @Test
+    void testBytecodeAccelerationIsDisabledByDefault() {
+        ObjectMapper objectMapper = ObjectMappingUtils.configureObjectMapper();
+
+        assertThat(objectMapper.getRegisteredModuleIds()).doesNotContain(AfterburnerModule.class.getName());
+    }
+
+    @Test
+    void testDefaultFeatures() {
+        ObjectMapper objectMapper = ObjectMappingUtils.configureObjectMapper();
+
+        assertThat(objectMapper.getFactory().isEnabled(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING))
+            .isTrue();
+        assertThat(objectMapper.getFactory().isEnabled(JsonFactory.Feature.INTERN_FIELD_NAMES)).isTrue();
+        assertThat(objectMapper.isEnabled(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)).isTrue();
+    }
+
+    @Test
+    void testExpensiveFeaturesCanBeDisabled() throws IOException {
+        ObjectMapper objectMapper = ObjectMappingUtils.configureObjectMapper(ObjectMapperOptions.newBuilder()
+            .withBufferRecycling(false)
+            .withExpensiveFeaturesDisabled(true)
+            .build());
+
+        assertThat(objectMapper.getFactory().isEnabled(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING))
+            .isFalse();
+        assertThat(objectMapper.getFactory().isEnabled(JsonFactory.Feature.INTERN_FIELD_NAMES)).isFalse();
+        assertThat(objectMapper.isEnabled(JsonParser.Feature.INCLUDE_SOURCE_IN_LOCATION)).isFalse();
+        assertThat(objectMapper.isEnabled(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)).isFalse();
+        assertThat(objectMapper.readValue("{\"name\":\"jn\"}", Item.class).getName()).isEqualTo("jn");
+    }
+
+    public static class Item {
+        private String name;
+        private int size;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.util.Optional;
 
 import static java.util.Collections.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
 
 /**
@@ -331,4 +332,67 @@ class PreconditionsTests {
         }
     }
 
+    @Test
+    void testIsTrueWithFixedArityArgs() {
+        Preconditions.isTrue(true, "bla %d", 1_000);
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %d", 1_000))
+            .isInstanceOf(IllegalArgumentException.class).hasMessage("bla 1000");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %d", 1_000L))
+            .hasMessage("bla 1000");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %s", 0.5d))
+            .hasMessage("bla 0.5");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %s", (Object) null))
+            .hasMessage("bla null");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %d %d", 1, 2))
+            .hasMessage("bla 1 2");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %d %d", 1L, 2L))
+            .hasMessage("bla 1 2");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %d %s", 1L, "A"))
+            .hasMessage("bla 1 A");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %s %s %s", "A", "B", "C"))
+            .hasMessage("bla A B C");
+    }
+
+    @Test
+    void testCharArgsAreNotWidened() {
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %s", 'x')).hasMessage("bla x");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %c %c", 'x', 'y')).hasMessage("bla x y");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %c %d", 'x', 1)).hasMessage("bla x 1");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %d %c", 1, 'y')).hasMessage("bla 1 y");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %c %d", 'x', 1L)).hasMessage("bla x 1");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %d %c", 1L, 'y')).hasMessage("bla 1 y");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %c %s", 'x', "A")).hasMessage("bla x A");
+        assertThatThrownBy(() -> Preconditions.isTrue(false, "bla %s %c", "A", 'y')).hasMessage("bla A y");
+        assertThatThrownBy(() -> Preconditions.state(false, "bla %s", 'x')).hasMessage("bla x");
+        assertThatThrownBy(() -> Preconditions.state(false, "bla %c %d", 'x', 1L)).hasMessage("bla x 1");
+    }
+
+    @Test
+    void testStateWithFixedArityArgs() {
+        Preconditions.state(true, "bla %d", 1_000L);
+        assertThatThrownBy(() -> Preconditions.state(false, "bla %d", 1_000))
+            .isInstanceOf(IllegalStateException.class).hasMessage("bla 1000");
+        assertThatThrownBy(() -> Preconditions.state(false, "bla %s %s", "A", "B"))
+            .isInstanceOf(IllegalStateException.class).hasMessage("bla A B");
+    }
+
+    @Test
+    void testMessageSupplierIsOnlyCalledOnFailure() {
+        Preconditions.isTrue(true, () -> {
+            throw new AssertionError("Should not be called");
+        });
+        Preconditions.state(true, () -> {
+            throw new AssertionError("Should not be called");
+        });
+        assertThat(Preconditions.notNull("A", () -> {
+            throw new AssertionError("Should not be called");
+        })).isEqualTo("A");
+
+        assertThatThrownBy(() -> Preconditions.isTrue(false, () -> "enigma"))
+            .isInstanceOf(IllegalArgumentException.class).hasMessage("enigma");
+        assertThatThrownBy(() -> Preconditions.state(false, () -> "enigma"))
+            .isInstanceOf(IllegalStateException.class).hasMessage("enigma");
+        assertThatThrownBy(() -> Preconditions.notNull(null, () -> "enigma"))
+            .isInstanceOf(NullPointerException.class).hasMessage("enigma");
+    }
 }
@@ -0,0 +1,160 @@
+package com.jorgenota.utils.base.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class AsyncObjectStoresTests {
+
+    @Test
+    void testFromAndToBlocking() throws Exception {
+        InMemoryObjectStore blocking = new InMemoryObjectStore();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AsyncObjectStore async = AsyncObjectStores.fromBlocking(blocking, executor);
+            ObjectStore store = AsyncObjectStores.toBlocking(async);
+
+            async.putObject("storage", "key", "value", "text/plain").get();
+            ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+            assertThat(async.getObjectAsString("storage", "key").get()).isEqualTo("value");
+            assertThat(store.getObjectAsBytes("storage", "key")).isEqualTo("value".getBytes());
+            assertThat(store.copyObjectTo("storage", "key", Channels.newChannel(target))).isEqualTo(5);
+            store.deleteObject("storage", "key");
+            assertThat(blocking.objects).isEmpty();
+            assertThatThrownBy(() -> store.getObjectAsString("storage", "key"))
+                .isInstanceOf(ServiceException.class).hasMessage("Not found: storage/key");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testInFlightLimit() {
+        ManualObjectStore manual = new ManualObjectStore();
+        InFlightLimitedObjectStore limited =
+            (InFlightLimitedObjectStore) AsyncObjectStores.withInFlightLimit(manual, 2);
+
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(limited.deleteObject("storage", "key" + i));
+        }
+
+        assertThat(manual.started).hasSize(2);
+        assertThat(limited.getPending()).isEqualTo(3);
+        manual.started.get(1).complete(null);
+        assertThat(results.get(1)).isCompleted();
+        assertThat(manual.started).hasSize(3);
+        manual.started.get(0).completeExceptionally(new ServiceException("Failed"));
+        assertThat(results.get(0)).isCompletedExceptionally();
+        assertThat(manual.started).hasSize(4);
+        new ArrayList<>(manual.started).forEach(future -> future.complete(null));
+        assertThat(manual.started).hasSize(5);
+        new ArrayList<>(manual.started).forEach(future -> future.complete(null));
+        assertThat(results).allMatch(CompletableFuture::isDone);
+        assertThat(limited.getInFlight()).isZero();
+        assertThat(limited.getPending()).isZero();
+    }
+
+    @Test
+    void testInFlightLimitWithSynchronousCompletions() {
+        InFlightLimitedObjectStore limited = (InFlightLimitedObjectStore) AsyncObjectStores.withInFlightLimit(
+            AsyncObjectStores.fromBlocking(new InMemoryObjectStore(), Runnable::run), 1);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(limited.putObject("storage", "key" + i, new byte[1], "application/octet-stream"))
+                .isCompleted();
+        }
+        assertThat(limited.getInFlight()).isZero();
+    }
+
+    @Test
+    void testInFlightLimitWithBrokenOperations() {
+        ManualObjectStore manual = new ManualObjectStore();
+        InFlightLimitedObjectStore limited =
+            (InFlightLimitedObjectStore) AsyncObjectStores.withInFlightLimit(manual, 1);
+
+        CompletableFuture<Void> nullFuture = limited.deleteObjects("storage", List.of("key"));
+        CompletableFuture<Void> error = limited.deleteBucket("storage");
+        CompletableFuture<Void> delete = limited.deleteObject("storage", "key");
+
+        assertThatThrownBy(nullFuture::join).hasCauseInstanceOf(NullPointerException.class);
+        assertThatThrownBy(error::join).hasCauseInstanceOf(AssertionError.class);
+        assertThat(manual.started).hasSize(1);
+        manual.started.get(0).complete(null);
+        assertThat(delete).isCompleted();
+        assertThat(limited.getInFlight()).isZero();
+    }
+
+    /**
+     * Deletes whose futures are completed by the tests.
+     */
+    private static class ManualObjectStore implements AsyncObjectStore {
+        private final List<CompletableFuture<Void>> started = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<Void> deleteObject(String storageName, String key) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            started.add(future);
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<byte[]> getObjectAsBytes(String storageName, String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<InputStream> openObject(String storageName, String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<InputStream> getObjectRange(String storageName, String key, long offset,
+                                                             long length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<ObjectMetadata> headObject(String storageName, String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Long> copyObjectTo(String storageName, String key, WritableByteChannel target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Void> putObject(String storageName, String key, InputStream content,
+                                                 long contentLength, String contentType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Void> deleteObjects(String storageName, Collection<String> keys) {
+            // A broken implementation
+            return null;
+        }
+
+        @Override
+        public CompletableFuture<Void> deleteBucket(String storageName) {
+            throw new AssertionError("Broken implementation");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.jorgenota.utils.base.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class CachingObjectStoreTests {
+
+    private final CountingObjectStore backingStore = new CountingObjectStore();
+
+    @Test
+    void testReadsAreCached() throws IOException {
+        CachingObjectStore cache = CachingObjectStore.newBuilder(backingStore).build();
+        backingStore.putObject("storage", "key", "content", "text/plain");
+
+        assertThat(cache.getObjectAsString("storage", "key")).isEqualTo("content");
+        byte[] content = cache.getObjectAsBytes("storage", "key");
+        content[0] = 'X';
+        assertThat(cache.getObjectAsString("storage", "key")).isEqualTo("content");
+        try (InputStream stream = cache.openObject("storage", "key")) {
+            assertThat(stream.readAllBytes()).isEqualTo("content".getBytes());
+        }
+        try (InputStream range = cache.getObjectRange("storage", "key", 3, 100)) {
+            assertThat(range.readAllBytes()).isEqualTo("tent".getBytes());
+        }
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        assertThat(cache.copyObjectTo("storage", "key", Channels.newChannel(copy))).isEqualTo(7);
+
+        assertThat(backingStore.reads).hasValue(1);
+        CacheStats stats = cache.getStats();
+        assertThat(stats.getHitCount()).isEqualTo(5);
+        assertThat(stats.getMissCount()).isEqualTo(1);
+        assertThat(stats.getObjectCount()).isEqualTo(1);
+        assertThat(stats.getWeightedBytes()).isEqualTo(7);
+    }
+
+    @Test
+    void testWritesAndDeletesInvalidate() {
+        CachingObjectStore cache = CachingObjectStore.newBuilder(backingStore).build();
+        cache.putObject("storage", "a", "a1", "text/plain");
+        cache.putObject("storage", "b", "b1", "text/plain");
+        cache.putObject("other", "c", "c1", "text/plain");
+        cache.getObjectAsString("storage", "a");
+        cache.getObjectAsString("storage", "b");
+        cache.getObjectAsString("other", "c");
+
+        cache.putObject("storage", "a", "a2", "text/plain");
+        assertThat(cache.getObjectAsString("storage", "a")).isEqualTo("a2");
+        cache.deleteObjects("storage", Arrays.asList("a", "b"));
+        assertThatThrownBy(() -> cache.getObjectAsString("storage", "b")).isInstanceOf(ServiceException.class);
+
+        cache.putObject("storage", "a", "a3", "text/plain");
+        cache.getObjectAsString("storage", "a");
+        cache.deleteBucket("storage");
+        assertThat(cache.getStats().getObjectCount()).isEqualTo(1);
+        assertThat(cache.getObjectAsString("other", "c")).isEqualTo("c1");
+    }
+
+    @Test
+    void testNeverHoldsMoreThanMaximumBytes() {
+        CachingObjectStore cache = CachingObjectStore.newBuilder(backingStore)
+            .withMaximumBytes(10_000)
+            .withMaximumObjectBytes(3_000)
+            .build();
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            backingStore.putObject("storage", "key" + i, new byte[random.nextInt(4_000)], "application/octet-stream");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            int key = (int) Math.abs(random.nextGaussian() * 30) % 200;
+            assertThat(cache.getObjectAsBytes("storage", "key" + key)).hasSize(backingStore.objects
+                .get("storage/key" + key).length);
+            assertThat(cache.getStats().getWeightedBytes()).isLessThanOrEqualTo(10_000);
+        }
+        assertThat(cache.getStats().getEvictionCount()).isPositive();
+    }
+
+    @Test
+    void testFrequentObjectsSurviveScans() {
+        CachingObjectStore cache = CachingObjectStore.newBuilder(backingStore).withMaximumBytes(100 * 1024).build();
+        for (int i = 0; i < 1_000; i++) {
+            backingStore.putObject("storage", "key" + i, new byte[1024], "application/octet-stream");
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.getObjectAsBytes("storage", "key" + i);
+            }
+        }
+
+        for (int i = 50; i < 1_000; i++) {
+            cache.getObjectAsBytes("storage", "key" + i);
+        }
+        int reads = backingStore.reads.get();
+        for (int i = 0; i < 50; i++) {
+            cache.getObjectAsBytes("storage", "key" + i);
+        }
+
+        assertThat(backingStore.reads.get() - reads).isLessThan(5);
+    }
+
+    @Test
+    void testLargeObjectsAreNotCached() {
+        CachingObjectStore cache = CachingObjectStore.newBuilder(backingStore).withMaximumObjectBytes(10).build();
+        backingStore.putObject("storage", "key", new byte[11], "application/octet-stream");
+
+        cache.getObjectAsBytes("storage", "key");
+        cache.getObjectAsBytes("storage", "key");
+
+        assertThat(backingStore.reads).hasValue(2);
+        assertThat(cache.getStats().getObjectCount()).isZero();
+    }
+
+    @Test
+    void testObjectsExpire() {
+        MutableClock clock = new MutableClock();
+        CachingObjectStore cache = CachingObjectStore.newBuilder(backingStore)
+            .withExpireAfterWrite(Duration.ofSeconds(10))
+            .withClock(clock)
+            .build();
+        backingStore.putObject("storage", "key", "content", "text/plain");
+
+        cache.getObjectAsString("storage", "key");
+        clock.advance(9_999);
+        cache.getObjectAsString("storage", "key");
+        assertThat(backingStore.reads).hasValue(1);
+        clock.advance(1);
+        cache.getObjectAsString("storage", "key");
+
+        assertThat(backingStore.reads).hasValue(2);
+        assertThat(cache.getStats().getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testConcurrentMissesShareTheLoad() throws Exception {
+        CachingObjectStore cache = CachingObjectStore.newBuilder(backingStore).build();
+        backingStore.putObject("storage", "key", "content", "text/plain");
+        backingStore.blockReads();
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.getObjectAsString("storage", "key"));
+        assertThat(backingStore.readStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(
+            () -> cache.getObjectAsString("storage", "key"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getWaitingReads() == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(cache.getWaitingReads()).isEqualTo(1);
+        backingStore.unblockReads();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("content");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("content");
+        assertThat(backingStore.reads).hasValue(1);
+    }
+
+    @Test
+    void testWritesDiscardLoadsInProgress() throws Exception {
+        CachingObjectStore cache = CachingObjectStore.newBuilder(backingStore).build();
+        backingStore.putObject("storage", "key", "old", "text/plain");
+        backingStore.blockReads();
+
+        CompletableFuture<String> read = CompletableFuture.supplyAsync(() -> cache.getObjectAsString("storage", "key"));
+        assertThat(backingStore.readStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        cache.putObject("storage", "key", "new", "text/plain");
+        backingStore.unblockReads();
+
+        assertThat(read.get(5, TimeUnit.SECONDS)).isEqualTo("old");
+        assertThat(cache.getObjectAsString("storage", "key")).isEqualTo("new");
+    }
+
+}
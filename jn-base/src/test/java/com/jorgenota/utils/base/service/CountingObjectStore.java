@@ -0,0 +1,45 @@
+package com.jorgenota.utils.base.service;
+
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link InMemoryObjectStore} counting the reads and the requests of metadata. Reads can be blocked (after getting
+ * the content) until they are unblocked.
+ *
+ * @author Jorge Alonso
+ */
+final class CountingObjectStore extends InMemoryObjectStore {
+    final AtomicInteger reads = new AtomicInteger();
+    final AtomicInteger heads = new AtomicInteger();
+    final CountDownLatch readStarted = new CountDownLatch(1);
+    private volatile CountDownLatch readsBlocked = new CountDownLatch(0);
+
+    @Override
+    public InputStream openObject(String storageName, String key) {
+        reads.incrementAndGet();
+        InputStream content = super.openObject(storageName, key);
+        readStarted.countDown();
+        try {
+            readsBlocked.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return content;
+    }
+
+    @Override
+    public ObjectMetadata headObject(String storageName, String key) {
+        heads.incrementAndGet();
+        return super.headObject(storageName, key);
+    }
+
+    void blockReads() {
+        readsBlocked = new CountDownLatch(1);
+    }
+
+    void unblockReads() {
+        readsBlocked.countDown();
+    }
+}
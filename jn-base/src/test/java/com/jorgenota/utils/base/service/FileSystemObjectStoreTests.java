@@ -0,0 +1,162 @@
+package com.jorgenota.utils.base.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class FileSystemObjectStoreTests {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void testReadsAndWrites() throws IOException {
+        FileSystemObjectStore store = FileSystemObjectStore.newBuilder(root).build();
+        byte[] content = new byte[100_000];
+        new Random(42).nextBytes(content);
+
+        store.putObject("storage", "dir/object", content, "application/octet-stream");
+        store.putObject("storage", "string", "¡Hola!", "text/plain");
+
+        assertThat(store.getObjectAsBytes("storage", "dir/object")).isEqualTo(content);
+        assertThat(store.getObjectAsString("storage", "string")).isEqualTo("¡Hola!");
+        try (InputStream stream = store.openObject("storage", "dir/object")) {
+            assertThat(stream.readAllBytes()).isEqualTo(content);
+        }
+        try (InputStream range = store.getObjectRange("storage", "dir/object", 99_990, 100)) {
+            assertThat(range.readAllBytes()).isEqualTo(Arrays.copyOfRange(content, 99_990, 100_000));
+        }
+        MappedByteBuffer mapped = store.mapObject("storage", "dir/object");
+        assertThat(mapped.isReadOnly()).isTrue();
+        assertThat(mapped).isEqualTo(ByteBuffer.wrap(content));
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        assertThat(store.copyObjectTo("storage", "dir/object", Channels.newChannel(copy))).isEqualTo(content.length);
+        assertThat(copy.toByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void testHeadObject() {
+        FileSystemObjectStore store = FileSystemObjectStore.newBuilder(root).build();
+        store.putObject("storage", "key", "content", "text/plain");
+        ObjectMetadata metadata = store.headObject("storage", "key");
+
+        assertThat(metadata.getContentLength()).isEqualTo(7);
+        assertThat(metadata.getETag()).isNotEmpty();
+        assertThat(metadata.getLastModified()).isNotNull();
+        assertThat(metadata.getContentType()).isIn("text/plain", null);
+
+        store.putObject("storage", "key", "other content", "text/plain");
+        assertThat(store.headObject("storage", "key").getETag()).isNotEqualTo(metadata.getETag());
+    }
+
+    @Test
+    void testETagChangesWithWritesOfTheSameSizeAndTime() throws IOException {
+        FileSystemObjectStore store = FileSystemObjectStore.newBuilder(root).build();
+        store.putObject("storage", "key", "content", "text/plain");
+        Path file = objectFile();
+        FileTime lastModified = Files.getLastModifiedTime(file);
+        String eTag = store.headObject("storage", "key").getETag();
+
+        store.putObject("storage", "key", "CONTENT", "text/plain");
+        // As if both writes happened within the granularity of the modification times
+        Files.setLastModifiedTime(objectFile(), lastModified);
+
+        assertThat(store.headObject("storage", "key").getETag()).isNotEqualTo(eTag);
+    }
+
+    @Test
+    void testObjectsAreShardedAndKeysEncoded() throws IOException {
+        FileSystemObjectStore store = FileSystemObjectStore.newBuilder(root).withShardLevels(2).build();
+        String longKey = String.join("/", Collections.nCopies(100, "segment"));
+
+        store.putObject("storage", "..", "dots", "text/plain");
+        store.putObject("storage", ".tmp", "temporary", "text/plain");
+        store.putObject("storage", longKey, "long", "text/plain");
+
+        assertThat(store.getObjectAsString("storage", "..")).isEqualTo("dots");
+        assertThat(store.getObjectAsString("storage", ".tmp")).isEqualTo("temporary");
+        assertThat(store.getObjectAsString("storage", longKey)).isEqualTo("long");
+        Path path = store.objectPath("storage", "..");
+        assertThat(root.resolve("storage").relativize(path).getNameCount()).isEqualTo(3);
+        assertThat(path.getFileName().toString()).isEqualTo("%2E.");
+        assertThat(store.objectPath("storage", longKey).getFileName().toString()).startsWith("#").hasSize(65);
+        try (Stream<Path> temporaryFiles = Files.list(root.resolve("storage").resolve(".tmp"))) {
+            assertThat(temporaryFiles).isEmpty();
+        }
+    }
+
+    @Test
+    void testFailedWritesKeepPreviousContent() {
+        FileSystemObjectStore store = FileSystemObjectStore.newBuilder(root).withSync(true).build();
+        store.putObject("storage", "key", "previous", "text/plain");
+
+        assertThatThrownBy(() -> store.putObject("storage", "key", new ByteArrayInputStream(new byte[3]), 10,
+            "text/plain"))
+            .isInstanceOf(ServiceException.class)
+            .hasMessage("Could not put object storage/key");
+
+        assertThat(store.getObjectAsString("storage", "key")).isEqualTo("previous");
+    }
+
+    @Test
+    void testDeletes() {
+        FileSystemObjectStore store = FileSystemObjectStore.newBuilder(root).build();
+        store.putObject("storage", "a", "a", "text/plain");
+        store.putObject("storage", "b", "b", "text/plain");
+        store.putObject("storage", "c", "c", "text/plain");
+
+        store.deleteObject("storage", "a");
+        store.deleteObject("storage", "a");
+        store.deleteObjects("storage", Arrays.asList("b", "missing"));
+
+        assertThatThrownBy(() -> store.getObjectAsBytes("storage", "a"))
+            .isInstanceOf(ServiceException.class)
+            .hasMessage("Could not get object storage/a")
+            .hasCauseInstanceOf(NoSuchFileException.class);
+        assertThat(store.getObjectAsString("storage", "c")).isEqualTo("c");
+
+        store.deleteBucket("storage");
+        store.deleteBucket("storage");
+        assertThat(root.resolve("storage")).doesNotExist();
+    }
+
+    @Test
+    void testRejectsInvalidStorageNames() {
+        FileSystemObjectStore store = FileSystemObjectStore.newBuilder(root).build();
+
+        assertThatThrownBy(() -> store.getObjectAsBytes("../etc", "passwd"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.getObjectAsBytes("..", "passwd"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Path objectFile() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                .filter(file -> !file.getParent().getFileName().toString().equals(".tmp"))
+                .findFirst()
+                .orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.jorgenota.utils.base.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An {@link ObjectStore} keeping the objects in memory, implementing just the required methods.
+ *
+ * @author Jorge Alonso
+ */
+class InMemoryObjectStore implements ObjectStore {
+    final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    final Map<String, String> contentTypes = new ConcurrentHashMap<>();
+
+    @Override
+    public InputStream openObject(String storageName, String key) {
+        byte[] object = objects.get(storageName + "/" + key);
+        if (object == null) {
+            throw new ServiceException("Not found: " + storageName + "/" + key);
+        }
+        return new ByteArrayInputStream(object);
+    }
+
+    @Override
+    public ObjectMetadata headObject(String storageName, String key) {
+        byte[] object = objects.get(storageName + "/" + key);
+        if (object == null) {
+            throw new ServiceException("Not found: " + storageName + "/" + key);
+        }
+        return ObjectMetadata.newBuilder()
+            .withContentLength(object.length)
+            .withETag(Integer.toHexString(Arrays.hashCode(object)))
+            .withContentType(contentTypes.get(storageName + "/" + key))
+            .build();
+    }
+
+    @Override
+    public void putObject(String storageName, String key, InputStream content, long contentLength,
+                          String contentType) {
+        try {
+            byte[] object = (contentLength == UNKNOWN_LENGTH) ? content.readAllBytes()
+                : content.readNBytes((int) contentLength);
+            objects.put(storageName + "/" + key, object);
+            contentTypes.put(storageName + "/" + key, contentType);
+        } catch (IOException e) {
+            throw new ServiceException(e);
+        }
+    }
+
+    @Override
+    public void deleteObject(String storageName, String key) {
+        objects.remove(storageName + "/" + key);
+    }
+
+    @Override
+    public void deleteObjects(String storageName, Collection<String> keys) {
+        keys.forEach(key -> deleteObject(storageName, key));
+    }
+
+    @Override
+    public void deleteBucket(String storageName) {
+        objects.keySet().removeIf(key -> key.startsWith(storageName + "/"));
+    }
+}
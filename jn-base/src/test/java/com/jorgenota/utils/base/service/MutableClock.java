@@ -0,0 +1,39 @@
+package com.jorgenota.utils.base.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A clock that only moves when the tests advance it.
+ *
+ * @author Jorge Alonso
+ */
+final class MutableClock extends Clock {
+    private volatile long millis;
+
+    void advance(long delta) {
+        millis += delta;
+    }
+
+    @Override
+    public ZoneOffset getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+}
@@ -0,0 +1,92 @@
+package com.jorgenota.utils.base.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class ObjectStoreTests {
+
+    private final InMemoryObjectStore store = new InMemoryObjectStore();
+
+    @Test
+    void testBytesAndStringsAreStreamed() {
+        store.putObject("storage", "bytes", new byte[]{1, 2, 3}, "application/octet-stream");
+        store.putObject("storage", "string", "¡Hola, señor!", "text/plain");
+
+        assertThat(store.getObjectAsBytes("storage", "bytes")).containsExactly(1, 2, 3);
+        assertThat(store.getObjectAsString("storage", "string")).isEqualTo("¡Hola, señor!");
+        assertThat(store.objects.get("storage/string")).hasSize(15);
+    }
+
+    @Test
+    void testPutObjectFromStreams() throws IOException {
+        InputStream content = new ByteArrayInputStream("headerbody".getBytes());
+
+        store.putObject("storage", "known", content, 6, "text/plain");
+        store.putObject("storage", "unknown", content, "text/plain");
+
+        assertThat(store.getObjectAsString("storage", "known")).isEqualTo("header");
+        assertThat(store.getObjectAsString("storage", "unknown")).isEqualTo("body");
+        try (ReadableByteChannel channel = store.openObjectChannel("storage", "known")) {
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            assertThat(channel.read(buffer)).isEqualTo(6);
+        }
+    }
+
+    @Test
+    void testCopyObjectTo() {
+        byte[] object = new byte[3 * ObjectStore.COPY_BUFFER_SIZE + 17];
+        new Random(42).nextBytes(object);
+        store.putObject("storage", "large", object, "application/octet-stream");
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        long copied = store.copyObjectTo("storage", "large", Channels.newChannel(target));
+
+        assertThat(copied).isEqualTo(object.length);
+        assertThat(target.toByteArray()).isEqualTo(object);
+        assertThatThrownBy(() -> store.copyObjectTo("storage", "missing", Channels.newChannel(target)))
+            .isInstanceOf(ServiceException.class);
+    }
+
+    @Test
+    void testRangesAndMetadata() throws IOException {
+        store.putObject("storage", "file", "0123456789", "text/plain");
+
+        try (InputStream footer = store.getObjectRange("storage", "file", 7, 3)) {
+            assertThat(footer.readAllBytes()).isEqualTo("789".getBytes());
+        }
+        try (InputStream middle = store.getObjectRange("storage", "file", 2, 4)) {
+            assertThat(middle.readAllBytes()).isEqualTo("2345".getBytes());
+        }
+        try (InputStream truncated = store.getObjectRange("storage", "file", 8, 100)) {
+            assertThat(truncated.readAllBytes()).isEqualTo("89".getBytes());
+        }
+        try (InputStream beyond = store.getObjectRange("storage", "file", 20, 5)) {
+            assertThat(beyond.read()).isEqualTo(-1);
+        }
+        assertThatThrownBy(() -> store.getObjectRange("storage", "file", -1, 5))
+            .isInstanceOf(IllegalArgumentException.class).hasMessage("offset must be >= 0 but is -1");
+
+        ObjectMetadata metadata = store.headObject("storage", "file");
+
+        assertThat(metadata.getContentLength()).isEqualTo(10);
+        assertThat(metadata.getContentType()).isEqualTo("text/plain");
+        assertThat(metadata.getETag()).isNotNull();
+        assertThat(metadata).isEqualTo(store.headObject("storage", "file"));
+        store.putObject("storage", "file", "0123456780", "text/plain");
+        assertThat(store.headObject("storage", "file").getETag()).isNotEqualTo(metadata.getETag());
+    }
+}
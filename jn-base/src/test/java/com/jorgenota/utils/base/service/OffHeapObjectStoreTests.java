@@ -0,0 +1,206 @@
+package com.jorgenota.utils.base.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class OffHeapObjectStoreTests {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    @Test
+    void testReadsAndWrites() throws IOException {
+        for (int size : new int[]{0, 1, BLOCK_SIZE, BLOCK_SIZE + 1, 100_000}) {
+            OffHeapObjectStore store = newStore(1024 * 1024, true);
+            byte[] content = randomBytes(size);
+
+            store.putObject("storage", "known", content, "application/octet-stream");
+            store.putObject("storage", "unknown", new ByteArrayInputStream(content), "application/octet-stream");
+
+            for (String key : Arrays.asList("known", "unknown")) {
+                assertThat(store.getObjectAsBytes("storage", key)).isEqualTo(content);
+                try (InputStream stream = store.openObject("storage", key)) {
+                    assertThat(stream.readAllBytes()).isEqualTo(content);
+                }
+                try (InputStream range = store.getObjectRange("storage", key, size / 3, size / 2)) {
+                    assertThat(range.readAllBytes())
+                        .isEqualTo(Arrays.copyOfRange(content, size / 3, size / 3 + size / 2));
+                }
+                ByteArrayOutputStream copy = new ByteArrayOutputStream();
+                assertThat(store.copyObjectTo("storage", key, Channels.newChannel(copy))).isEqualTo(size);
+                assertThat(copy.toByteArray()).isEqualTo(content);
+            }
+            assertThat(store.getUsedBytes()).isEqualTo(2L * ((size + BLOCK_SIZE - 1) / BLOCK_SIZE) * BLOCK_SIZE);
+        }
+    }
+
+    @Test
+    void testHeadObject() {
+        OffHeapObjectStore store = newStore(64 * 1024, true);
+        store.putObject("storage", "key", "¡Hola!", "text/plain");
+        ObjectMetadata metadata = store.headObject("storage", "key");
+
+        assertThat(metadata.getContentLength()).isEqualTo(7);
+        assertThat(metadata.getContentType()).isEqualTo("text/plain");
+        assertThat(metadata.getLastModified()).isNotNull();
+        assertThat(store.getObjectAsString("storage", "key")).isEqualTo("¡Hola!");
+
+        store.putObject("storage", "key", "other content", "text/plain");
+        assertThat(store.headObject("storage", "key").getETag()).isNotEqualTo(metadata.getETag());
+    }
+
+    @Test
+    void testFreedBlocksAreReused() {
+        OffHeapObjectStore store = newStore(64 * 1024, false);
+        byte[] content = randomBytes(10 * BLOCK_SIZE);
+
+        for (int i = 0; i < 100; i++) {
+            store.putObject("storage", "key" + i, content, "application/octet-stream");
+            store.putObject("storage", "key" + i, content, "application/octet-stream");
+            store.deleteObjects("storage", Arrays.asList("key" + i, "missing"));
+        }
+
+        assertThat(store.getUsedBytes()).isZero();
+        // Just the two slabs of 16 blocks holding the 20 blocks used at the same time
+        assertThat(store.getAllocatedBytes()).isEqualTo(32 * BLOCK_SIZE);
+        assertThat(store.getObjectCount()).isZero();
+    }
+
+    @Test
+    void testLeastRecentlyUsedObjectsAreEvicted() {
+        OffHeapObjectStore store = newStore(4 * BLOCK_SIZE, true);
+        byte[] content = randomBytes(2 * BLOCK_SIZE);
+        store.putObject("storage", "a", content, "application/octet-stream");
+        store.putObject("storage", "b", content, "application/octet-stream");
+        store.getObjectAsBytes("storage", "a");
+
+        store.putObject("storage", "c", content, "application/octet-stream");
+
+        assertThat(store.getObjectAsBytes("storage", "a")).isEqualTo(content);
+        assertThat(store.getObjectAsBytes("storage", "c")).isEqualTo(content);
+        assertThatThrownBy(() -> store.getObjectAsBytes("storage", "b"))
+            .isInstanceOf(ServiceException.class)
+            .hasMessage("Not found: storage/b");
+        assertThat(store.getEvictionCount()).isEqualTo(1);
+        assertThat(store.getAllocatedBytes()).isEqualTo(store.getCapacity());
+    }
+
+    @Test
+    void testWritesFailWithoutEviction() {
+        OffHeapObjectStore store = newStore(4 * BLOCK_SIZE, false);
+        store.putObject("storage", "a", randomBytes(3 * BLOCK_SIZE), "application/octet-stream");
+
+        assertThatThrownBy(() -> store.putObject("storage", "b", randomBytes(2 * BLOCK_SIZE),
+            "application/octet-stream"))
+            .isInstanceOf(ServiceException.class)
+            .hasMessage("Not enough space for 2 blocks: 3 of 4 are used");
+        assertThatThrownBy(() -> store.putObject("storage", "b",
+            new ByteArrayInputStream(randomBytes(2 * BLOCK_SIZE)), "application/octet-stream"))
+            .isInstanceOf(ServiceException.class);
+        assertThatThrownBy(() -> store.putObject("storage", "b", new ByteArrayInputStream(new byte[0]),
+            5 * BLOCK_SIZE, "application/octet-stream"))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(store.getUsedBytes()).isEqualTo(3 * BLOCK_SIZE);
+        assertThat(store.getObjectCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testTruncatedContentIsNotStored() {
+        OffHeapObjectStore store = newStore(64 * 1024, true);
+        store.putObject("storage", "key", "previous", "text/plain");
+
+        assertThatThrownBy(() -> store.putObject("storage", "key", new ByteArrayInputStream(new byte[3]),
+            2 * BLOCK_SIZE, "text/plain"))
+            .isInstanceOf(ServiceException.class)
+            .hasMessage("Could not put object storage/key");
+
+        assertThat(store.getObjectAsString("storage", "key")).isEqualTo("previous");
+        assertThat(store.getUsedBytes()).isEqualTo(BLOCK_SIZE);
+    }
+
+    @Test
+    void testOpenStreamsKeepRemovedObjects() throws IOException {
+        OffHeapObjectStore store = newStore(4 * BLOCK_SIZE, true);
+        byte[] content = randomBytes(2 * BLOCK_SIZE);
+        store.putObject("storage", "key", content, "application/octet-stream");
+        InputStream stream = store.openObject("storage", "key");
+
+        store.putObject("storage", "key", randomBytes(2 * BLOCK_SIZE), "application/octet-stream");
+        store.putObject("storage", "other", randomBytes(BLOCK_SIZE), "application/octet-stream");
+
+        assertThat(store.getEvictionCount()).isEqualTo(1);
+        assertThat(store.getUsedBytes()).isEqualTo(3 * BLOCK_SIZE);
+        assertThat(stream.readAllBytes()).isEqualTo(content);
+        stream.close();
+        stream.close();
+        assertThatThrownBy(stream::read).isInstanceOf(IOException.class);
+        assertThat(store.getUsedBytes()).isEqualTo(BLOCK_SIZE);
+    }
+
+    @Test
+    void testObjectsBeingReadAreNotEvicted() throws IOException {
+        OffHeapObjectStore store = newStore(4 * BLOCK_SIZE, true);
+        byte[] content = randomBytes(2 * BLOCK_SIZE);
+        store.putObject("storage", "a", content, "application/octet-stream");
+        store.putObject("storage", "b", content, "application/octet-stream");
+        try (InputStream stream = store.openObject("storage", "a")) {
+            // a is the least recently used object, but it's being read
+            store.getObjectAsBytes("storage", "b");
+
+            store.putObject("storage", "c", randomBytes(BLOCK_SIZE), "application/octet-stream");
+            assertThat(store.getEvictionCount()).isEqualTo(1);
+            assertThatThrownBy(() -> store.putObject("storage", "d", randomBytes(3 * BLOCK_SIZE),
+                "application/octet-stream"))
+                .isInstanceOf(ServiceException.class)
+                .hasMessageStartingWith("Not enough space for 3 blocks");
+
+            assertThat(store.getEvictionCount()).isEqualTo(2);
+            assertThat(store.getObjectAsBytes("storage", "a")).isEqualTo(content);
+            assertThat(stream.read()).isEqualTo(content[0] & 0xff);
+            assertThat(stream.readAllBytes()).isEqualTo(Arrays.copyOfRange(content, 1, content.length));
+            assertThat(stream.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void testDeleteBucket() {
+        OffHeapObjectStore store = newStore(64 * 1024, true);
+        store.putObject("storage", "a", "a", "text/plain");
+        store.putObject("storage2", "b", "b", "text/plain");
+
+        store.deleteBucket("storage");
+
+        assertThat(store.getObjectCount()).isEqualTo(1);
+        assertThat(store.getObjectAsString("storage2", "b")).isEqualTo("b");
+        assertThatThrownBy(() -> store.getObjectAsBytes("storage/a", "b"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static OffHeapObjectStore newStore(long capacity, boolean eviction) {
+        return OffHeapObjectStore.newBuilder()
+            .withCapacity(capacity)
+            .withBlockSize(BLOCK_SIZE)
+            .withSlabSize(16 * BLOCK_SIZE)
+            .withEviction(eviction)
+            .build();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}
@@ -0,0 +1,280 @@
+package com.jorgenota.utils.base.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class TieredObjectStoreTests {
+
+    @TempDir
+    Path diskDirectory;
+
+    private final CountingObjectStore backingStore = new CountingObjectStore();
+
+    @Test
+    void testObjectsArePlacedBySize() {
+        TieredObjectStore cache = newCache();
+        byte[] tiny = put("tiny", 100);
+        byte[] medium = put("medium", 10 * 1024);
+        byte[] large = put("large", 100 * 1024);
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(cache.getObjectAsBytes("storage", "tiny")).isEqualTo(tiny);
+            assertThat(cache.getObjectAsBytes("storage", "medium")).isEqualTo(medium);
+            assertThat(cache.getObjectAsBytes("storage", "large")).isEqualTo(large);
+        }
+
+        assertThat(backingStore.reads).hasValue(3);
+        assertThat(cache.getHeapStats().getHitCount()).isEqualTo(1);
+        assertThat(cache.getHeapStats().getObjectCount()).isEqualTo(1);
+        assertThat(cache.getOffHeapStats().getHitCount()).isEqualTo(1);
+        assertThat(cache.getOffHeapStats().getObjectCount()).isEqualTo(2);
+        assertThat(cache.getDiskStats().getHitCount()).isEqualTo(1);
+        assertThat(cache.getDiskStats().getObjectCount()).isEqualTo(1);
+        assertThat(cache.getDiskStats().getWeightedBytes()).isEqualTo(large.length);
+    }
+
+    @Test
+    void testObjectsAreDemotedAndPromotedByFrequency() {
+        TieredObjectStore cache = newCache();
+        for (int i = 0; i < 5; i++) {
+            put("object" + i, 16 * 1024);
+        }
+        // The off-heap tier holds 4 objects of 16 KiB, which are read twice
+        for (int i = 0; i < 4; i++) {
+            cache.getObjectAsBytes("storage", "object" + i);
+            cache.getObjectAsBytes("storage", "object" + i);
+        }
+
+        cache.getObjectAsBytes("storage", "object4");
+        assertThat(cache.getOffHeapStats().getEvictionCount()).isEqualTo(1);
+        assertThat(cache.getDiskStats().getObjectCount()).isEqualTo(1);
+
+        // object0 was demoted to disk and read again, so it's promoted and the one read once is dropped instead
+        cache.getObjectAsBytes("storage", "object0");
+        assertThat(cache.getDiskStats().getHitCount()).isEqualTo(1);
+        assertThat(cache.getDiskStats().getObjectCount()).isZero();
+        assertThat(cache.getOffHeapStats().getObjectCount()).isEqualTo(4);
+        int reads = backingStore.reads.get();
+        for (int i = 0; i < 4; i++) {
+            cache.getObjectAsBytes("storage", "object" + i);
+        }
+        assertThat(backingStore.reads).hasValue(reads);
+        cache.getObjectAsBytes("storage", "object4");
+        assertThat(backingStore.reads).hasValue(reads + 1);
+    }
+
+    @Test
+    void testLargeObjectsAreStreamedThroughTheDiskTier() throws IOException {
+        TieredObjectStore cache = newCache();
+        byte[] large = put("large", 100 * 1024);
+
+        try (InputStream stream = cache.openObject("storage", "large")) {
+            assertThat(stream.readAllBytes()).isEqualTo(large);
+        }
+        try (InputStream stream = cache.openObject("storage", "large")) {
+            assertThat(stream.readAllBytes()).isEqualTo(large);
+        }
+        try (InputStream range = cache.getObjectRange("storage", "large", 100, 1000)) {
+            assertThat(range.readAllBytes()).isEqualTo(Arrays.copyOfRange(large, 100, 1100));
+        }
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        assertThat(cache.copyObjectTo("storage", "large", Channels.newChannel(copy))).isEqualTo(large.length);
+        assertThat(copy.toByteArray()).isEqualTo(large);
+
+        assertThat(backingStore.reads).hasValue(1);
+        assertThat(cache.getDiskStats().getHitCount()).isEqualTo(4);
+    }
+
+    @Test
+    void testOnlyLoadsOfLargeObjectsAskForTheSize() throws IOException {
+        TieredObjectStore cache = TieredObjectStore.newBuilder(backingStore)
+            .withHeapTier(64 * 1024, 1024)
+            .withOffHeapTier(64 * 1024, 16 * 1024)
+            .withDiskTier(diskDirectory, 1024 * 1024, 256 * 1024)
+            .build();
+        byte[] medium = put("medium", 10 * 1024);
+        byte[] large = put("large", 100 * 1024);
+        byte[] huge = put("huge", 300 * 1024);
+
+        for (int i = 0; i < 2; i++) {
+            try (InputStream stream = cache.openObject("storage", "medium")) {
+                assertThat(stream.readAllBytes()).isEqualTo(medium);
+            }
+            try (InputStream stream = cache.openObject("storage", "large")) {
+                assertThat(stream.readAllBytes()).isEqualTo(large);
+            }
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            assertThat(cache.copyObjectTo("storage", "huge", Channels.newChannel(copy))).isEqualTo(huge.length);
+            assertThat(copy.toByteArray()).isEqualTo(huge);
+        }
+
+        assertThat(backingStore.heads).hasValue(2);
+        assertThat(backingStore.reads).hasValue(4);
+        assertThat(cache.getOffHeapStats().getHitCount()).isEqualTo(1);
+        assertThat(cache.getDiskStats().getObjectCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testContentIsClosedWhenTheSizeCannotBeRead() {
+        AtomicBoolean closed = new AtomicBoolean();
+        InMemoryObjectStore failingHeads = new InMemoryObjectStore() {
+            @Override
+            public InputStream openObject(String storageName, String key) {
+                return new FilterInputStream(super.openObject(storageName, key)) {
+                    @Override
+                    public void close() throws IOException {
+                        closed.set(true);
+                        super.close();
+                    }
+                };
+            }
+
+            @Override
+            public ObjectMetadata headObject(String storageName, String key) {
+                throw new ServiceException("Forbidden");
+            }
+        };
+        failingHeads.putObject("storage", "large", new byte[100 * 1024], "application/octet-stream");
+        TieredObjectStore cache = TieredObjectStore.newBuilder(failingHeads)
+            .withHeapTier(64 * 1024, 1024)
+            .withOffHeapTier(64 * 1024, 16 * 1024)
+            .withDiskTier(diskDirectory, 1024 * 1024, 512 * 1024)
+            .build();
+
+        assertThatThrownBy(() -> cache.openObject("storage", "large"))
+            .isInstanceOf(ServiceException.class)
+            .hasMessage("Forbidden");
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    void testWritesOnlyDiscardTheLoadsOfTheirObjects() throws Exception {
+        TieredObjectStore cache = newCache();
+        byte[] large = put("large", 100 * 1024);
+        put("medium", 10 * 1024);
+        backingStore.blockReads();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<byte[]> loadingLarge = executor.submit(() -> cache.getObjectAsBytes("storage", "large"));
+            assertThat(backingStore.readStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            cache.putObject("storage", "other", new byte[10], "application/octet-stream");
+            cache.deleteObject("storage", "medium");
+            backingStore.unblockReads();
+
+            assertThat(loadingLarge.get(5, TimeUnit.SECONDS)).isEqualTo(large);
+            assertThat(cache.getDiskStats().getObjectCount()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWritesDiscardTheLoadsOfTheirObjects() throws Exception {
+        TieredObjectStore cache = newCache();
+        put("large", 100 * 1024);
+        backingStore.blockReads();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<byte[]> loadingLarge = executor.submit(() -> cache.getObjectAsBytes("storage", "large"));
+            assertThat(backingStore.readStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            cache.putObject("storage", "large", new byte[100 * 1024], "application/octet-stream");
+            backingStore.unblockReads();
+
+            loadingLarge.get(5, TimeUnit.SECONDS);
+            assertThat(cache.getDiskStats().getObjectCount()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testDiskObjectsAreMappedInOneBuffer() {
+        assertThatThrownBy(() -> TieredObjectStore.newBuilder(backingStore)
+            .withDiskTier(diskDirectory, 4L * 1024 * 1024 * 1024, 3L * 1024 * 1024 * 1024))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("diskObjectBytes");
+    }
+
+    @Test
+    void testDiskTierIsBounded() {
+        TieredObjectStore cache = newCache();
+        for (int i = 0; i < 30; i++) {
+            put("large" + i, 100 * 1024);
+            cache.getObjectAsBytes("storage", "large" + i);
+            assertThat(cache.getDiskStats().getWeightedBytes()).isLessThanOrEqualTo(1024 * 1024);
+        }
+
+        assertThat(cache.getDiskStats().getEvictionCount()).isEqualTo(20);
+        assertThat(Files.exists(diskDirectory.resolve("storage"))).isTrue();
+    }
+
+    @Test
+    void testWritesInvalidateEveryTier() {
+        TieredObjectStore cache = newCache();
+        for (String key : Arrays.asList("tiny", "medium", "large")) {
+            put(key, 100);
+        }
+        cache.putObject("storage", "medium", new byte[10 * 1024], "application/octet-stream");
+        cache.putObject("storage", "large", new byte[100 * 1024], "application/octet-stream");
+        for (String key : Arrays.asList("tiny", "medium", "large")) {
+            cache.getObjectAsBytes("storage", key);
+        }
+
+        cache.putObject("storage", "tiny", "new tiny", "text/plain");
+        cache.putObject("storage", "medium", "new medium", "text/plain");
+        cache.deleteObject("storage", "large");
+
+        assertThat(cache.getObjectAsString("storage", "tiny")).isEqualTo("new tiny");
+        assertThat(cache.getObjectAsString("storage", "medium")).isEqualTo("new medium");
+        assertThat(cache.getDiskStats().getObjectCount()).isZero();
+        cache.getObjectAsBytes("storage", "medium");
+        cache.deleteBucket("storage");
+        assertThat(cache.getOffHeapStats().getObjectCount()).isZero();
+    }
+
+    @Test
+    void testDiskTierIsCleanedWhenBuilt() throws IOException {
+        Files.createDirectories(diskDirectory.resolve("storage"));
+        Files.write(diskDirectory.resolve("storage").resolve("leftover"), new byte[10]);
+
+        newCache();
+
+        assertThat(diskDirectory.resolve("storage")).doesNotExist();
+    }
+
+    private TieredObjectStore newCache() {
+        return TieredObjectStore.newBuilder(backingStore)
+            .withHeapTier(64 * 1024, 1024)
+            .withOffHeapTier(64 * 1024, 16 * 1024)
+            .withDiskTier(diskDirectory, 1024 * 1024, 512 * 1024)
+            .build();
+    }
+
+    private byte[] put(String key, int size) {
+        byte[] content = new byte[size];
+        new Random(key.hashCode()).nextBytes(content);
+        backingStore.putObject("storage", key, content, "application/octet-stream");
+        return content;
+    }
+}
@@ -0,0 +1,65 @@
+package com.jorgenota.utils.benchmarks.base;
+
+import com.jorgenota.utils.base.service.CachingObjectStore;
+import com.jorgenota.utils.base.service.OffHeapObjectStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cache hits of a {@link CachingObjectStore} reading objects of different sizes, from one thread and from
+ * four threads reading 100 objects at random.
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CachingObjectStoreBenchmark {
+    private static final int OBJECTS = 100;
+
+    @Param({"256", "4096"})
+    public int size;
+
+    private CachingObjectStore cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        OffHeapObjectStore store = OffHeapObjectStore.newBuilder().withCapacity(16 * 1024 * 1024).build();
+        cache = CachingObjectStore.newBuilder(store).build();
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        for (int i = 0; i < OBJECTS; i++) {
+            store.putObject("storage", "object" + i, content, "application/octet-stream");
+            cache.getObjectAsBytes("storage", "object" + i);
+        }
+    }
+
+    @Benchmark
+    public byte[] hit() {
+        return cache.getObjectAsBytes("storage", "object0");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] concurrentHits() {
+        return cache.getObjectAsBytes("storage", "object" + ThreadLocalRandom.current().nextInt(OBJECTS));
+    }
+}
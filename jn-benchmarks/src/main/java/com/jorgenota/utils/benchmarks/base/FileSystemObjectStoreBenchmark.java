@@ -0,0 +1,70 @@
+package com.jorgenota.utils.benchmarks.base;
+
+import com.jorgenota.utils.base.service.FileSystemObjectStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a hot object (in the page cache) of a {@link FileSystemObjectStore} into an array and mapping it
+ * into memory, for different object sizes.
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileSystemObjectStoreBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private Path root;
+    private FileSystemObjectStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("objects");
+        store = FileSystemObjectStore.newBuilder(root).build();
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        store.putObject("storage", "object", content, "application/octet-stream");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.deleteBucket("storage");
+        Files.deleteIfExists(root);
+    }
+
+    @Benchmark
+    public byte[] getObjectAsBytes() {
+        return store.getObjectAsBytes("storage", "object");
+    }
+
+    @Benchmark
+    public byte mapObject() {
+        MappedByteBuffer buffer = store.mapObject("storage", "object");
+        return buffer.get(size - 1);
+    }
+}
@@ -0,0 +1,76 @@
+package com.jorgenota.utils.benchmarks.base;
+
+import com.jorgenota.utils.base.service.OffHeapObjectStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading an object of an {@link OffHeapObjectStore} into an array and copying it into a channel (which just
+ * consumes the buffers it's given), for different object sizes.
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OffHeapObjectStoreBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private OffHeapObjectStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = OffHeapObjectStore.newBuilder().withCapacity(16 * 1024 * 1024).build();
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        store.putObject("storage", "object", content, "application/octet-stream");
+    }
+
+    @Benchmark
+    public byte[] getObjectAsBytes() {
+        return store.getObjectAsBytes("storage", "object");
+    }
+
+    @Benchmark
+    public long copyObjectTo(Blackhole blackhole) {
+        return store.copyObjectTo("storage", "object", new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                int remaining = src.remaining();
+                blackhole.consume(src.get(src.limit() - 1));
+                src.position(src.limit());
+                return remaining;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package com.jorgenota.utils.benchmarks.base;
+
+import com.jorgenota.utils.base.Preconditions;
+import com.jorgenota.utils.retry.WaitStrategies;
+import com.jorgenota.utils.retry.WaitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.CompilerControl;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the success path of the varargs {@link Preconditions} checks, which allocate an array and box their
+ * arguments, with the fixed-arity and {@code Supplier} overloads. The checks are called from methods that aren't
+ * inlined, as they usually are from large constructors, so escape analysis can't remove the allocations. Run it with
+ * {@code -prof gc} to compare the allocation rates.
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PreconditionsBenchmark {
+
+    private long value = 1_000L;
+    private int other = 2_000;
+
+    @Benchmark
+    public long varargs() {
+        return checkVarargs(value, other);
+    }
+
+    @Benchmark
+    public long fixedArity() {
+        return checkFixedArity(value, other);
+    }
+
+    @Benchmark
+    public long supplier() {
+        return checkSupplier(value, other);
+    }
+
+    @Benchmark
+    public WaitStrategy fixedWaitStrategy() {
+        return WaitStrategies.fixedWait(value);
+    }
+
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    private static long checkVarargs(long value, int other) {
+        Preconditions.isTrue(value >= 0L, "value must be >= 0 but is %d", new Object[]{value});
+        Preconditions.isTrue(value < other, "value must be < %d but is %d", new Object[]{other, value});
+        return value;
+    }
+
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    private static long checkFixedArity(long value, int other) {
+        Preconditions.isTrue(value >= 0L, "value must be >= 0 but is %d", value);
+        Preconditions.isTrue(value < other, "value must be < %d but is %d", other, value);
+        return value;
+    }
+
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    private static long checkSupplier(long value, int other) {
+        Preconditions.isTrue(value >= 0L, () -> "value must be >= 0 but is " + value);
+        Preconditions.isTrue(value < other, () -> "value must be < " + other + " but is " + value);
+        return value;
+    }
+}
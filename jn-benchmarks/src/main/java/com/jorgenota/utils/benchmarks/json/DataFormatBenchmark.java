@@ -0,0 +1,75 @@
+package com.jorgenota.utils.benchmarks.json;
+
+import com.jorgenota.utils.base.ContentCodec;
+import com.jorgenota.utils.base.ContentCodecs;
+import com.jorgenota.utils.base.DataFormat;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the encode and decode throughput of the JSON, Smile and CBOR {@link ContentCodec}s on an
+ * {@link OrderEvent}. The payload bytes encoded or decoded are reported as a secondary result, in bytes per
+ * millisecond, so the payload size of each format is that result divided by the primary one.
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DataFormatBenchmark {
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private DataFormat format;
+
+    private ContentCodec codec;
+    private OrderEvent event;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        codec = ContentCodecs.forFormat(format);
+        event = OrderEvent.sample();
+        bytes = codec.encode(event);
+    }
+
+    @Benchmark
+    public byte[] encode(PayloadCounters counters) throws IOException {
+        byte[] encoded = codec.encode(event);
+        counters.payloadBytes += encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public OrderEvent decode(PayloadCounters counters) throws IOException {
+        counters.payloadBytes += bytes.length;
+        return codec.decode(bytes, OrderEvent.class);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class PayloadCounters {
+        public long payloadBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            payloadBytes = 0;
+        }
+    }
+}
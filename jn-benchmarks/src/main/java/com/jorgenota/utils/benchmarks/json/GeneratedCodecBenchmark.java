@@ -0,0 +1,64 @@
+package com.jorgenota.utils.benchmarks.json;
+
+import com.jorgenota.utils.base.FastJson;
+import com.jorgenota.utils.base.ObjectMapperCache;
+import com.jorgenota.utils.base.ObjectMapperOptions;
+import com.jorgenota.utils.base.ObjectMappingUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the codecs generated for the {@link FastJson} annotated {@link OrderEvent} with the bean serializers and
+ * deserializers of Jackson, with and without Afterburner.
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class GeneratedCodecBenchmark {
+
+    @Param({"generated", "afterburner", "reflection"})
+    private String codec;
+
+    private ObjectMapperCache cache;
+    private OrderEvent event;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapperOptions options = ObjectMapperOptions.newBuilder()
+            .withGeneratedCodecs("generated".equals(codec))
+            .withBytecodeAcceleration("afterburner".equals(codec))
+            .build();
+        cache = new ObjectMapperCache(ObjectMappingUtils.configureObjectMapper(options));
+        event = OrderEvent.sample();
+        bytes = cache.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return cache.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public OrderEvent deserialize() throws IOException {
+        return cache.readValue(bytes, OrderEvent.class);
+    }
+}
@@ -0,0 +1,170 @@
+package com.jorgenota.utils.benchmarks.json;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jorgenota.utils.base.ObjectMapperCache;
+import com.jorgenota.utils.base.ObjectMapperOptions;
+import com.jorgenota.utils.base.ObjectMappingUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes SNS notifications wrapped in SQS messages, our typical payloads, with mappers configured with
+ * different {@link ObjectMapperOptions}:
+ * <ul>
+ * <li>{@code plain}: no bytecode acceleration</li>
+ * <li>{@code accelerated}: the default options, with Afterburner on the classpath</li>
+ * <li>{@code tuned}: bytecode acceleration and the expensive features disabled</li>
+ * </ul>
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MessageDtoBenchmark {
+
+    @Param({"plain", "accelerated", "tuned"})
+    private String options;
+
+    private ObjectReader sqsReader;
+    private ObjectReader snsReader;
+    private ObjectWriter sqsWriter;
+    private SqsMessage message;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapperCache cache = new ObjectMapperCache(ObjectMappingUtils.configureObjectMapper(options(options)));
+        sqsReader = cache.readerFor(SqsMessage.class);
+        snsReader = cache.readerFor(SnsNotification.class);
+        sqsWriter = cache.writerFor(SqsMessage.class);
+
+        SnsNotification notification = new SnsNotification();
+        notification.type = "Notification";
+        notification.messageId = "22b80b92-fdea-4c2c-8f9d-bdfb0c7bf324";
+        notification.topicArn = "arn:aws:sns:eu-west-1:123456789012:orders";
+        notification.subject = "Order shipped";
+        notification.message = "{\"orderId\":1234,\"status\":\"SHIPPED\",\"items\":[{\"sku\":\"A-1\",\"quantity\":2}]}";
+        notification.timestamp = "2020-11-10T09:31:47.123Z";
+        notification.signatureVersion = "1";
+        notification.signature = "EXAMPLEpH+DcEwjAPg8O9mY8dReBSwksfg2S7WKQcikcNKWLQjwu6A4VbeS0QHVCkhRS7fUQvi2egU3N858fiTDN6bkkOxYDVrY0Ad8L10Hs3zH81mtnPk5uvvolIC1CXGu43obcgFxeL3khZl8IKvO61GWB6jI9b5+gLPoBc1Q=";
+        notification.signingCertUrl = "https://sns.eu-west-1.amazonaws.com/SimpleNotificationService-f3ecfb7224c7233fe7bb5f59f96de52f.pem";
+        notification.unsubscribeUrl = "https://sns.eu-west-1.amazonaws.com/?Action=Unsubscribe&SubscriptionArn=arn:aws:sns:eu-west-1:123456789012:orders:c9135db0-26c4-47ec-8998-413945fb5a96";
+        notification.messageAttributes = new LinkedHashMap<>();
+        notification.messageAttributes.put("source", new MessageAttribute("String", "orders"));
+        notification.messageAttributes.put("priority", new MessageAttribute("Number", "1"));
+
+        message = new SqsMessage();
+        message.messageId = "19dd0b57-b21e-4ac1-bd88-01bbb068cb78";
+        message.receiptHandle = "MessageReceiptHandle";
+        message.md5OfBody = "7b270e59b47ff90a553787216d55d91d";
+        message.body = new String(cache.writeValueAsBytes(notification), StandardCharsets.UTF_8);
+        message.attributes = new LinkedHashMap<>();
+        message.attributes.put("ApproximateReceiveCount", "1");
+        message.attributes.put("SentTimestamp", "1605000707123");
+        message.attributes.put("SenderId", "AIDAIENQZJOLO23YVJ4VO");
+        message.attributes.put("ApproximateFirstReceiveTimestamp", "1605000707130");
+        bytes = cache.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public SnsNotification read() throws IOException {
+        SqsMessage sqsMessage = sqsReader.readValue(bytes);
+        return snsReader.readValue(sqsMessage.body);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return sqsWriter.writeValueAsBytes(message);
+    }
+
+    private static ObjectMapperOptions options(String name) {
+        switch (name) {
+            case "plain":
+                return ObjectMapperOptions.defaults();
+            case "accelerated":
+                return ObjectMapperOptions.newBuilder().withBytecodeAcceleration(true).build();
+            case "tuned":
+                return ObjectMapperOptions.newBuilder()
+                    .withBytecodeAcceleration(true)
+                    .withExpensiveFeaturesDisabled(true)
+                    .build();
+            default:
+                throw new IllegalArgumentException("Unknown options " + name);
+        }
+    }
+
+    public static class SqsMessage {
+        @JsonProperty("MessageId")
+        public String messageId;
+        @JsonProperty("ReceiptHandle")
+        public String receiptHandle;
+        @JsonProperty("MD5OfBody")
+        public String md5OfBody;
+        @JsonProperty("Body")
+        public String body;
+        @JsonProperty("Attributes")
+        public Map<String, String> attributes;
+    }
+
+    public static class SnsNotification {
+        @JsonProperty("Type")
+        public String type;
+        @JsonProperty("MessageId")
+        public String messageId;
+        @JsonProperty("TopicArn")
+        public String topicArn;
+        @JsonProperty("Subject")
+        public String subject;
+        @JsonProperty("Message")
+        public String message;
+        @JsonProperty("Timestamp")
+        public String timestamp;
+        @JsonProperty("SignatureVersion")
+        public String signatureVersion;
+        @JsonProperty("Signature")
+        public String signature;
+        @JsonProperty("SigningCertURL")
+        public String signingCertUrl;
+        @JsonProperty("UnsubscribeURL")
+        public String unsubscribeUrl;
+        @JsonProperty("MessageAttributes")
+        public Map<String, MessageAttribute> messageAttributes;
+    }
+
+    public static class MessageAttribute {
+        @JsonProperty("Type")
+        public String type;
+        @JsonProperty("Value")
+        public String value;
+
+        public MessageAttribute() {
+        }
+
+        MessageAttribute(String type, String value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
+}
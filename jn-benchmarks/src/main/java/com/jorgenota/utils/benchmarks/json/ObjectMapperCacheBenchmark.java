@@ -0,0 +1,80 @@
+package com.jorgenota.utils.benchmarks.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jorgenota.utils.base.ObjectMapperCache;
+import com.jorgenota.utils.base.ObjectMappingUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares plain {@link ObjectMapper} calls with the cached readers and writers of an {@link ObjectMapperCache}, reading
+ * and writing a small message.
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ObjectMapperCacheBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ObjectMapperCache cache;
+    private Message message;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = ObjectMappingUtils.configureObjectMapper();
+        cache = new ObjectMapperCache(objectMapper);
+        message = new Message();
+        message.id = "4c2f9a7e-0d3b-4a51-8a0e-2f6f0c1d9b11";
+        message.timestamp = 1_605_000_000_000L;
+        message.attributes = Arrays.asList("source=orders", "priority=high", "region=eu-west-1");
+        message.body = "{\"orderId\":1234,\"status\":\"SHIPPED\"}";
+        bytes = objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public Message objectMapperRead() throws IOException {
+        return objectMapper.readValue(bytes, Message.class);
+    }
+
+    @Benchmark
+    public Message cachedReaderRead() throws IOException {
+        return cache.readValue(bytes, Message.class);
+    }
+
+    @Benchmark
+    public byte[] objectMapperWrite() throws IOException {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] cachedWriterWrite() throws IOException {
+        return cache.writeValueAsBytes(message);
+    }
+
+    public static class Message {
+        public String id;
+        public long timestamp;
+        public List<String> attributes;
+        public String body;
+    }
+}
@@ -0,0 +1,52 @@
+package com.jorgenota.utils.benchmarks.json;
+
+import com.jorgenota.utils.base.FastJson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A typical internal event, as published to SQS or Kinesis. Its JSON codec is generated at build time.
+ *
+ * @author Jorge Alonso
+ */
+@FastJson
+public class OrderEvent {
+    public long orderId;
+    public String customerId;
+    public String status;
+    public long createdAt;
+    public double total;
+    public List<Item> items;
+    public Map<String, String> attributes;
+
+    static OrderEvent sample() {
+        OrderEvent event = new OrderEvent();
+        event.orderId = 1_234_567L;
+        event.customerId = "c-7f3e2a91";
+        event.status = "SHIPPED";
+        event.createdAt = 1_605_000_707_123L;
+        event.items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Item item = new Item();
+            item.sku = "SKU-" + (1000 + i);
+            item.quantity = i + 1;
+            item.price = 9.95d * (i + 1);
+            event.items.add(item);
+            event.total += item.price * item.quantity;
+        }
+        event.attributes = new LinkedHashMap<>();
+        event.attributes.put("source", "orders");
+        event.attributes.put("region", "eu-west-1");
+        return event;
+    }
+
+    @FastJson
+    public static class Item {
+        public String sku;
+        public int quantity;
+        public double price;
+    }
+}
@@ -0,0 +1,63 @@
+package com.jorgenota.utils.benchmarks.json;
+
+import com.jorgenota.utils.base.ByteBufferPool;
+import com.jorgenota.utils.base.ObjectMapperCache;
+import com.jorgenota.utils.base.ObjectMappingUtils;
+import com.jorgenota.utils.base.PooledByteBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serializing an {@link OrderEvent} into a new array wrapped in a {@link ByteBuffer}, as it's usually handed
+ * to the AWS SDK, with serializing it into a buffer borrowed from a {@link ByteBufferPool}. Run it with
+ * {@code -prof gc} to compare the allocation rates.
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(4)
+@State(Scope.Benchmark)
+public class PooledSerializationBenchmark {
+
+    private ObjectMapperCache cache;
+    private ByteBufferPool pool;
+    private OrderEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cache = new ObjectMapperCache(ObjectMappingUtils.configureObjectMapper());
+        pool = ByteBufferPool.newBuilder().build();
+        event = OrderEvent.sample();
+    }
+
+    @Benchmark
+    public void writeValueAsBytes(Blackhole blackhole) throws IOException {
+        blackhole.consume(ByteBuffer.wrap(cache.writeValueAsBytes(event)));
+    }
+
+    @Benchmark
+    public void writeValueAsBuffer(Blackhole blackhole) throws IOException {
+        try (PooledByteBuffer buffer = cache.writeValueAsBuffer(event, pool)) {
+            blackhole.consume(buffer.buffer());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * @author Jorge Alonso
+ */
+@NonNullApi
+@NonNullFields
+package com.jorgenota.utils.benchmarks.json;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
+
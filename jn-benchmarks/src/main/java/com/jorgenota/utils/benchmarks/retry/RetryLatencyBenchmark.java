@@ -0,0 +1,59 @@
+package com.jorgenota.utils.benchmarks.retry;
+
+import com.jorgenota.utils.retry.Retrier;
+import com.jorgenota.utils.retry.RetrierBuilder;
+import com.jorgenota.utils.retry.RetryException;
+import com.jorgenota.utils.retry.metrics.RetryLatencyRecorder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of recording the latencies of a {@link Retrier} into a {@link RetryLatencyRecorder} on the
+ * success path. Run it with {@code -prof gc} to check that recording doesn't allocate.
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RetryLatencyBenchmark {
+
+    private Retrier plainRetrier;
+    private Retrier recordingRetrier;
+    private Callable<Integer> callable;
+    private int value = 42;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        plainRetrier = RetrierBuilder.newBuilder().build();
+        recordingRetrier = RetrierBuilder.newBuilder().withListener(new RetryLatencyRecorder()).build();
+        callable = () -> value * 31 + 7;
+    }
+
+    @Benchmark
+    public int retrierCall() throws RetryException {
+        return plainRetrier.call(callable);
+    }
+
+    @Benchmark
+    public int recordingRetrierCall() throws RetryException {
+        return recordingRetrier.call(callable);
+    }
+}
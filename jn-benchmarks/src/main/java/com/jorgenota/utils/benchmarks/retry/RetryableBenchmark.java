@@ -0,0 +1,95 @@
+package com.jorgenota.utils.benchmarks.retry;
+
+import com.jorgenota.utils.retry.Retrier;
+import com.jorgenota.utils.retry.RetrierBuilder;
+import com.jorgenota.utils.retry.RetryException;
+import com.jorgenota.utils.retry.annotation.EnableRetryable;
+import com.jorgenota.utils.retry.annotation.Retryable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of a {@link Retryable} proxy on the success path.
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RetryableBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private Service plainService;
+    private Service retryableService;
+    private Retrier retrier;
+    private int value = 42;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(BenchmarkConfiguration.class);
+        retryableService = context.getBean(Service.class);
+        plainService = new Service();
+        retrier = context.getBean(Retrier.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int directCall() {
+        return plainService.compute(value);
+    }
+
+    @Benchmark
+    public int retrierCall() throws RetryException {
+        return retrier.call(() -> plainService.compute(value));
+    }
+
+    @Benchmark
+    public int retryableProxyCall() {
+        return retryableService.compute(value);
+    }
+
+    @Configuration
+    @EnableRetryable
+    public static class BenchmarkConfiguration {
+
+        @Bean
+        public Retrier benchmarkRetrier() {
+            return RetrierBuilder.newBuilder().withName("benchmark").build();
+        }
+
+        @Bean
+        public Service service() {
+            return new Service();
+        }
+    }
+
+    public static class Service {
+
+        @Retryable(name = "benchmark")
+        public int compute(int x) {
+            return x * 31 + 7;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.jorgenota.utils.benchmarks.transfer;
+
+import com.jorgenota.utils.base.service.ObjectMetadata;
+import com.jorgenota.utils.base.service.ObjectStore;
+import com.jorgenota.utils.base.service.ServiceException;
+import com.jorgenota.utils.retry.RetryException;
+import com.jorgenota.utils.transfer.ParallelDownloader;
+import com.jorgenota.utils.transfer.ParallelDownloaderBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the time to download a 32 MiB object into a file with a {@link ParallelDownloader} and different
+ * parallelisms, from a store whose connections are throttled to 64 MB/s each, like a single connection to S3.
+ *
+ * @author Jorge Alonso
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelDownloadBenchmark {
+    private static final int OBJECT_SIZE = 32 * 1024 * 1024;
+    private static final long BYTES_PER_SECOND = 64L * 1000 * 1000;
+
+    @Param({"1", "4", "16"})
+    public int parallelism;
+
+    private ExecutorService executor;
+    private ParallelDownloader downloader;
+    private Path file;
+    private FileChannel target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] content = new byte[OBJECT_SIZE];
+        new Random(42).nextBytes(content);
+        executor = Executors.newFixedThreadPool(parallelism);
+        downloader = ParallelDownloaderBuilder.newBuilder(new ThrottledObjectStore(content), executor)
+            .withPartSize(2 * 1024 * 1024)
+            .withParallelism(parallelism)
+            .build();
+        file = Files.createTempFile("download", ".bin");
+        target = FileChannel.open(file, StandardOpenOption.WRITE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        target.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long download() throws RetryException, InterruptedException {
+        return downloader.download("bucket", "key", target);
+    }
+
+    private static final class ThrottledObjectStore implements ObjectStore {
+        private final byte[] content;
+
+        private ThrottledObjectStore(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public InputStream openObject(String storageName, String key) throws ServiceException {
+            return getObjectRange(storageName, key, 0, content.length);
+        }
+
+        @Override
+        public InputStream getObjectRange(String storageName, String key, long offset, long length)
+            throws ServiceException {
+            int end = (int) Math.min(content.length, offset + length);
+            return new ByteArrayInputStream(content, (int) offset, end - (int) offset) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    int read = super.read(b, off, len);
+                    if (read > 0) {
+                        LockSupport.parkNanos(read * 1_000_000_000L / BYTES_PER_SECOND);
+                    }
+                    return read;
+                }
+            };
+        }
+
+        @Override
+        public ObjectMetadata headObject(String storageName, String key) throws ServiceException {
+            return ObjectMetadata.newBuilder().withContentLength(content.length).build();
+        }
+
+        @Override
+        public void putObject(String storageName, String key, InputStream content, long contentLength,
+                              String contentType) throws ServiceException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteObject(String storageName, String key) throws ServiceException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteObjects(String storageName, Collection<String> keys) throws ServiceException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteBucket(String storageName) throws ServiceException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
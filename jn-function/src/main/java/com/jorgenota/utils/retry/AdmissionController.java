@@ -0,0 +1,135 @@
+package com.jorgenota.utils.retry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides whether an attempt can be made, shedding low-priority work and retries first when the load is too high.
+ * <p>
+ * Every attempt of a retrier configured with an admission controller must acquire a permit before starting, and
+ * releases it when it finishes, before waiting for the next attempt. The controller sheds attempts in this order:
+ * <ol>
+ * <li>Retries of {@link RetryPriority#BACKGROUND} executions, while there are 40% of the maximum concurrency attempts
+ * in flight.</li>
+ * <li>First attempts of {@link RetryPriority#BACKGROUND} executions, from 50%.</li>
+ * <li>Retries of {@link RetryPriority#NORMAL} executions, from 60%.</li>
+ * <li>First attempts of {@link RetryPriority#NORMAL} executions, from 80%.</li>
+ * <li>Retries of {@link RetryPriority#CRITICAL} executions, from 90%.</li>
+ * <li>First attempts of {@link RetryPriority#CRITICAL} executions, from 100%.</li>
+ * </ol>
+ * Besides, while the moving average of the attempt latencies exceeds the latency threshold, all the retries and all
+ * the background work are shed, and only first attempts of critical and normal executions are admitted. The average
+ * is forgotten when no attempt has finished during the last second, so background-only traffic can probe whether the
+ * overload is over.
+ * <p>
+ * The controller is lock-free and is intended to be shared by all the retriers calling the same service.
+ *
+ * @author Jorge Alonso
+ * @see AdmissionControllerBuilder
+ */
+public final class AdmissionController {
+    private static final double[] CONCURRENCY_SHARES = {1.0d, 0.9d, 0.8d, 0.6d, 0.5d, 0.4d};
+    private static final long LATENCY_WINDOW = TimeUnit.SECONDS.toNanos(1L);
+    // The moving average gives a weight of 1/2^LATENCY_SMOOTHING to each new latency
+    private static final int LATENCY_SMOOTHING = 3;
+
+    private final int maxConcurrency;
+    private final int[] limits = new int[CONCURRENCY_SHARES.length];
+    private final long latencyThresholdNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong averageLatency = new AtomicLong();
+    private volatile long lastLatencyTime;
+    private final AtomicLongArray shed = new AtomicLongArray(RetryPriority.values().length);
+
+    AdmissionController(int maxConcurrency, long latencyThresholdNanos) {
+        this.maxConcurrency = maxConcurrency;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        for (int i = 0; i < limits.length; i++) {
+            limits[i] = Math.max(1, (int) Math.ceil(maxConcurrency * CONCURRENCY_SHARES[i]));
+        }
+        // No latency has been recorded yet
+        this.lastLatencyTime = System.nanoTime() - 2 * LATENCY_WINDOW;
+    }
+
+    /**
+     * Tries to acquire a permit for an attempt. If it's acquired, it must be released with {@link #release(long)}.
+     *
+     * @param priority the priority of the execution
+     * @param retry    <code>true</code> if the attempt is a retry, <code>false</code> if it's the first attempt
+     * @return <code>true</code> if the attempt is admitted, <code>false</code> if it's shed
+     */
+    public boolean tryAcquire(RetryPriority priority, boolean retry) {
+        if (isOverloaded() && (retry || priority == RetryPriority.BACKGROUND)) {
+            shed.incrementAndGet(priority.ordinal());
+            return false;
+        }
+        int limit = limits[priority.ordinal() * 2 + (retry ? 1 : 0)];
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                shed.incrementAndGet(priority.ordinal());
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Releases a permit acquired by {@link #tryAcquire(RetryPriority, boolean)}.
+     *
+     * @param latencyNanos the duration of the attempt, in nanoseconds
+     */
+    public void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        if (latencyThresholdNanos > 0L) {
+            long now = System.nanoTime();
+            long average;
+            long updated;
+            do {
+                average = averageLatency.get();
+                updated = (now - lastLatencyTime > LATENCY_WINDOW)
+                    ? latencyNanos
+                    : average + ((latencyNanos - average) >> LATENCY_SMOOTHING);
+            } while (!averageLatency.compareAndSet(average, updated));
+            lastLatencyTime = now;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the moving average of the attempt latencies exceeds the latency threshold.
+     *
+     * @return <code>true</code> if the controller is overloaded
+     */
+    public boolean isOverloaded() {
+        return latencyThresholdNanos > 0L
+            && averageLatency.get() > latencyThresholdNanos
+            && System.nanoTime() - lastLatencyTime <= LATENCY_WINDOW;
+    }
+
+    /**
+     * Returns the number of attempts currently in flight.
+     *
+     * @return the number of acquired permits
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the number of attempts of the given priority shed so far.
+     *
+     * @param priority the priority
+     * @return the number of shed attempts
+     */
+    public long shedCount(RetryPriority priority) {
+        return shed.get(priority.ordinal());
+    }
+}
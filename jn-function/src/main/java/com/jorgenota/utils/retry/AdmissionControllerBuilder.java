@@ -0,0 +1,66 @@
+package com.jorgenota.utils.retry;
+
+import com.jorgenota.utils.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Builds {@link AdmissionController} instances. By default, only the concurrency is limited.
+ *
+ * @author Jorge Alonso
+ */
+public class AdmissionControllerBuilder {
+    private static final int DEFAULT_MAX_CONCURRENCY = 64;
+
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private long latencyThresholdNanos;
+
+    private AdmissionControllerBuilder() {
+    }
+
+    /**
+     * Constructs a new builder
+     *
+     * @return the new builder
+     */
+    public static AdmissionControllerBuilder newBuilder() {
+        return new AdmissionControllerBuilder();
+    }
+
+    /**
+     * Sets the maximum number of attempts in flight, reached only by first attempts of critical executions. The
+     * default maximum is {@value #DEFAULT_MAX_CONCURRENCY}.
+     *
+     * @param maxConcurrency the maximum number of attempts in flight
+     * @return <code>this</code>
+     */
+    public AdmissionControllerBuilder withMaxConcurrency(int maxConcurrency) {
+        Preconditions.isTrue(maxConcurrency >= 1, "maxConcurrency must be >= 1 but is %d", maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets the attempt latency above which retries and background work are shed.
+     *
+     * @param latencyThreshold the latency threshold
+     * @param timeUnit         the unit of the latency threshold
+     * @return <code>this</code>
+     */
+    public AdmissionControllerBuilder withLatencyThreshold(long latencyThreshold, TimeUnit timeUnit) {
+        Preconditions.isTrue(latencyThreshold >= 1L, "latencyThreshold must be >= 1 but is %d", latencyThreshold);
+        this.latencyThresholdNanos = notNull(timeUnit, "timeUnit may not be null").toNanos(latencyThreshold);
+        return this;
+    }
+
+    /**
+     * Builds the admission controller.
+     *
+     * @return the admission controller
+     */
+    public AdmissionController build() {
+        return new AdmissionController(maxConcurrency, latencyThresholdNanos);
+    }
+}
@@ -0,0 +1,177 @@
+package com.jorgenota.utils.retry;
+
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Retries asynchronous operations using the stop strategy, wait strategy and fail predicate of a {@link Retrier}.
+ * <p>
+ * Instead of sleeping the calling thread between attempts, the next attempt is delayed using a
+ * {@link RetryScheduler}, so no thread is blocked while an operation is waiting to be retried. The returned futures
+ * complete with the result of the first successful attempt or exceptionally with a {@link RetryException} when the
+ * retries fail or are exhausted. Cancelling a returned future cancels its pending attempt, if any.
+ *
+ * @author Jorge Alonso
+ */
+public final class AsyncRetrier {
+    private final Retrier retrier;
+    private final RetryScheduler scheduler;
+
+    public AsyncRetrier(Retrier retrier, RetryScheduler scheduler) {
+        this.retrier = notNull(retrier, "retrier may not be null");
+        this.scheduler = notNull(scheduler, "scheduler may not be null");
+    }
+
+    /**
+     * Executes an asynchronous operation with retries. The operation is considered failed if it throws an exception
+     * or if the returned stage completes exceptionally.
+     *
+     * @param operation the supplier of the asynchronous operation, called once per attempt
+     * @param <T>       the type of the result
+     * @return a future completed with the result of the first successful attempt
+     */
+    public <T> CompletableFuture<T> call(Supplier<? extends CompletionStage<T>> operation) {
+        notNull(operation, "operation may not be null");
+        Execution<T> execution = new Execution<>(operation);
+        execution.run();
+        return execution.result;
+    }
+
+    /**
+     * Executes a blocking callable with retries, running each attempt on the given executor. Errors thrown by the
+     * callable complete the returned future exceptionally without being retried.
+     *
+     * @param callable the callable to execute
+     * @param executor the executor used to run each attempt
+     * @param <T>      the type of the result
+     * @return a future completed with the result of the first successful attempt
+     */
+    public <T> CompletableFuture<T> call(Callable<T> callable, Executor executor) {
+        notNull(callable, "callable may not be null");
+        notNull(executor, "executor may not be null");
+        return call(() -> {
+            CompletableFuture<T> attempt = new CompletableFuture<>();
+            executor.execute(() -> {
+                try {
+                    attempt.complete(callable.call());
+                } catch (Throwable e) {
+                    attempt.completeExceptionally(e);
+                }
+            });
+            return attempt;
+        });
+    }
+
+    private final class Execution<T> implements Runnable, BiConsumer<T, Throwable> {
+        private final Supplier<? extends CompletionStage<T>> operation;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long startTime = System.nanoTime();
+        // Attempts never overlap, and the scheduler and the stages provide the needed happens-before edges
+        private int attemptNumber;
+        private long attemptStartTime;
+        @Nullable
+        private volatile RetryTimeout pendingAttempt;
+
+        private Execution(Supplier<? extends CompletionStage<T>> operation) {
+            this.operation = operation;
+            result.whenComplete((r, t) -> {
+                RetryTimeout timeout = pendingAttempt;
+                if (result.isCancelled() && timeout != null) {
+                    timeout.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            if (result.isDone()) {
+                return;
+            }
+            attemptNumber++;
+            attemptStartTime = System.nanoTime();
+            AdmissionController admissionController = retrier.getAdmissionController();
+            if (admissionController != null
+                && !admissionController.tryAcquire(retrier.getPriority(), attemptNumber > 1)) {
+                result.completeExceptionally(retrier.shed(attemptNumber, startTime));
+                return;
+            }
+            CompletionStage<T> stage;
+            try {
+                stage = notNull(operation.get(), "operation may not return a null stage");
+            } catch (Throwable e) {
+                releasePermit();
+                onFailedAttempt(e);
+                return;
+            }
+            stage.whenComplete(this);
+        }
+
+        @Override
+        public void accept(@Nullable T value, @Nullable Throwable throwable) {
+            releasePermit();
+            if (throwable == null) {
+                RetryListener listener = retrier.getListener();
+                if (listener != null) {
+                    long now = System.nanoTime();
+                    listener.onAttempt(now - attemptStartTime, true);
+                    listener.onExecution(now - startTime, attemptNumber, true);
+                }
+                result.complete(value);
+            } else {
+                onFailedAttempt(throwable);
+            }
+        }
+
+        private void releasePermit() {
+            AdmissionController admissionController = retrier.getAdmissionController();
+            if (admissionController != null) {
+                admissionController.release(System.nanoTime() - attemptStartTime);
+            }
+        }
+
+        private void onFailedAttempt(Throwable throwable) {
+            Throwable cause = (throwable instanceof CompletionException && throwable.getCause() != null)
+                ? throwable.getCause()
+                : throwable;
+            if (!(cause instanceof Exception)) {
+                // Errors are not retried, as it happens with the blocking retrier
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            long now = System.nanoTime();
+            FailedAttempt failedAttempt = retrier.newFailedAttempt((Exception) cause, attemptNumber, startTime, now);
+            RetryListener listener = retrier.getListener();
+            if (listener != null) {
+                listener.onAttempt(now - attemptStartTime, false);
+            }
+            long sleepTime;
+            try {
+                sleepTime = retrier.computeSleepTime(failedAttempt);
+            } catch (RetryException e) {
+                if (listener != null) {
+                    listener.onExecution(now - startTime, attemptNumber, false);
+                }
+                result.completeExceptionally(e);
+                return;
+            }
+
+            try {
+                pendingAttempt = scheduler.schedule(this, Math.max(sleepTime, 0L), TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // e.g. the scheduler has been closed
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -13,6 +13,8 @@ public abstract class DoerWithRetries<T, U, E extends Exception> {
         public void handleRetryException(RetryException e) {
             if (e instanceof FailException) {
                 log.error("Execution with retries failed", e.getCause());
+            } else if (e instanceof RejectedRetryException) {
+                log.error("Execution with retries rejected", e.getCause());
             } else if (e instanceof SleepInterruptedException) {
                 log.error("Execution interrupted while sleeping", e.getCause());
             } else {
@@ -0,0 +1,92 @@
+package com.jorgenota.utils.retry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import static com.jorgenota.utils.base.Preconditions.noNullElements;
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Executes groups of tasks in parallel, each task with retries, e.g. to fetch hundreds of objects or to call several
+ * services for a single request.
+ * <p>
+ * The tasks of a group are run on the executor with bounded parallelism and share a deadline and, optionally, a
+ * {@link RetryBudget}, so a group can't retry its way past the deadline nor multiply the load on a failing service.
+ * Each task uses the strategies and fail predicate of the template {@link Retrier}, limited by the deadline and by the
+ * budget. The results are returned as the tasks complete (see {@link FanOutExecution}).
+ *
+ * @author Jorge Alonso
+ * @see FanOutBuilder
+ */
+public final class FanOut {
+    private final Executor executor;
+    private final Retrier retrier;
+    private final int parallelism;
+    private final long deadlineNanos;
+    private final double retryRatio;
+    private final int maxRetries;
+
+    FanOut(Executor executor, Retrier retrier, int parallelism, long deadlineNanos, double retryRatio, int maxRetries) {
+        this.executor = executor;
+        this.retrier = retrier;
+        this.parallelism = parallelism;
+        this.deadlineNanos = deadlineNanos;
+        this.retryRatio = retryRatio;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Starts executing a group of tasks. The deadline starts counting now.
+     *
+     * @param tasks the tasks to execute
+     * @param mode  how the outcome of the execution is decided
+     * @param <T>   the type of the results of the tasks
+     * @return the execution, used to get the outcomes of the tasks as they complete
+     */
+    public <T> FanOutExecution<T> submit(Collection<? extends Callable<T>> tasks, FanOutMode mode) {
+        notNull(tasks, "tasks may not be null");
+        notNull(mode, "mode may not be null");
+        List<? extends Callable<T>> taskList = new ArrayList<>(tasks);
+        noNullElements(taskList.toArray(), "tasks may not contain null elements");
+        // The budget starts full, so a group can use up to maxRetries retries apart from the ratio of its own tasks
+        RetryBudget retryBudget = (maxRetries > 0) ? new RetryBudget(retryRatio, maxRetries) : null;
+        FanOutExecution<T> execution = new FanOutExecution<>(taskList, mode, retrier, parallelism, deadlineNanos,
+            retryBudget);
+        execution.start(executor);
+        return execution;
+    }
+
+    /**
+     * Executes a group of tasks in {@link FanOutMode#ALL_OR_NOTHING} mode and waits for their results.
+     *
+     * @param tasks the tasks to execute
+     * @param <T>   the type of the results of the tasks
+     * @return the results of all the tasks, in the order of the collection
+     * @throws RetryException       the failure of the first failed task, or a {@link RejectedRetryException} if the
+     *                              deadline expired
+     * @throws InterruptedException if the current thread is interrupted while waiting. The execution is cancelled
+     */
+    public <T> List<T> invokeAll(Collection<? extends Callable<T>> tasks) throws RetryException, InterruptedException {
+        try (FanOutExecution<T> execution = submit(tasks, FanOutMode.ALL_OR_NOTHING)) {
+            return execution.getResults();
+        }
+    }
+
+    /**
+     * Executes a group of tasks in {@link FanOutMode#BEST_EFFORT} mode and waits for their outcomes.
+     *
+     * @param tasks the tasks to execute
+     * @param <T>   the type of the results of the tasks
+     * @return the outcomes of all the tasks, in the order of the collection
+     * @throws InterruptedException if the current thread is interrupted while waiting. The execution is cancelled
+     */
+    public <T> List<TaskOutcome<T>> invokeBestEffort(Collection<? extends Callable<T>> tasks)
+        throws InterruptedException {
+        try (FanOutExecution<T> execution = submit(tasks, FanOutMode.BEST_EFFORT)) {
+            return execution.awaitAll();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.jorgenota.utils.retry;
+
+import com.jorgenota.utils.base.Preconditions;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Builds {@link FanOut} instances. By default, groups of tasks have no deadline and no retry budget.
+ *
+ * @author Jorge Alonso
+ */
+public class FanOutBuilder {
+    private static final int DEFAULT_PARALLELISM = 16;
+
+    private final Executor executor;
+    private Retrier retrier = RetrierBuilder.getDefaultRetrier();
+    private int parallelism = DEFAULT_PARALLELISM;
+    private long deadlineNanos;
+    private double retryRatio;
+    private int maxRetries;
+
+    private FanOutBuilder(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Constructs a new builder
+     *
+     * @param executor the executor used to run the tasks. It should have at least as many threads as the parallelism
+     * @return the new builder
+     */
+    public static FanOutBuilder newBuilder(Executor executor) {
+        return new FanOutBuilder(notNull(executor, "executor may not be null"));
+    }
+
+    /**
+     * Sets the retrier whose strategies and fail predicate are used by every task. The default retrier is used if none
+     * is set.
+     *
+     * @param retrier the template retrier
+     * @return <code>this</code>
+     */
+    public FanOutBuilder withRetrier(Retrier retrier) {
+        this.retrier = notNull(retrier, "retrier may not be null");
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of tasks of a group running at the same time. The default parallelism is
+     * {@value #DEFAULT_PARALLELISM}.
+     *
+     * @param parallelism the maximum number of concurrent tasks per group
+     * @return <code>this</code>
+     */
+    public FanOutBuilder withParallelism(int parallelism) {
+        Preconditions.isTrue(parallelism >= 1, "parallelism must be >= 1 but is %d", parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the time every group has to complete, counted from its submission. When it expires, the outstanding tasks
+     * of the group are cancelled.
+     *
+     * @param deadline the maximum duration of a group
+     * @param timeUnit the unit of the deadline
+     * @return <code>this</code>
+     */
+    public FanOutBuilder withDeadline(long deadline, TimeUnit timeUnit) {
+        Preconditions.isTrue(deadline >= 1L, "deadline must be >= 1 but is %d", deadline);
+        this.deadlineNanos = notNull(timeUnit, "timeUnit may not be null").toNanos(deadline);
+        return this;
+    }
+
+    /**
+     * Sets a {@link RetryBudget} shared by the tasks of each group. Tasks stop retrying when the budget of their
+     * group is exhausted.
+     *
+     * @param retryRatio the number of retries allowed per task
+     * @param maxRetries the maximum number of retries that can be accumulated
+     * @return <code>this</code>
+     */
+    public FanOutBuilder withRetryBudget(double retryRatio, int maxRetries) {
+        Preconditions.isTrue(retryRatio >= 0.0d && retryRatio <= 1000.0d,
+            "retryRatio must be >= 0 and <= 1000 but is %s", retryRatio);
+        Preconditions.isTrue(maxRetries >= 1, "maxRetries must be >= 1 but is %d", maxRetries);
+        this.retryRatio = retryRatio;
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Builds the fan-out.
+     *
+     * @return the fan-out
+     */
+    public FanOut build() {
+        return new FanOut(executor, retrier, parallelism, deadlineNanos, retryRatio, maxRetries);
+    }
+}
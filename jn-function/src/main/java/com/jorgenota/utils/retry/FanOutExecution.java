@@ -0,0 +1,292 @@
+package com.jorgenota.utils.retry;
+
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A group of tasks being executed by a {@link FanOut}.
+ * <p>
+ * The outcomes of the tasks are returned by {@link #next()} as they complete, or all at once by {@link #awaitAll()}.
+ * When the outcome of the execution is decided (the first failure in {@link FanOutMode#ALL_OR_NOTHING} mode, the
+ * deadline or an explicit {@link #cancel()}), the tasks not started yet are failed with a
+ * {@link RejectedRetryException}, running tasks stop retrying and their threads are interrupted. A task that throws an
+ * error is failed with an {@link ExhaustedRetryException} caused by it.
+ * <p>
+ * The deadline is checked before each task and each retry, and by the methods waiting for outcomes, which cancel the
+ * execution as soon as it expires. The outcomes must be consumed by a single thread.
+ *
+ * @param <T> the type of the results of the tasks
+ * @author Jorge Alonso
+ */
+public final class FanOutExecution<T> implements AutoCloseable {
+    private final List<? extends Callable<T>> tasks;
+    private final FanOutMode mode;
+    private final boolean hasDeadline;
+    private final long deadline;
+    private final long startTime = System.nanoTime();
+    @Nullable
+    private final RetryBudget retryBudget;
+    private final Retrier retrier;
+    private final List<Runner> runners;
+
+    private final AtomicInteger nextTask = new AtomicInteger();
+    private final BlockingQueue<TaskOutcome<T>> completed = new LinkedBlockingQueue<>();
+    private final AtomicReference<RetryException> firstFailure = new AtomicReference<>();
+    private final AtomicReference<Exception> cancellationCause = new AtomicReference<>();
+    // Only accessed by the consuming thread
+    private final List<TaskOutcome<T>> consumed = new ArrayList<>();
+
+    FanOutExecution(List<? extends Callable<T>> tasks,
+                    FanOutMode mode,
+                    Retrier template,
+                    int parallelism,
+                    long deadlineNanos,
+                    @Nullable RetryBudget retryBudget) {
+        this.tasks = tasks;
+        this.mode = mode;
+        this.hasDeadline = deadlineNanos > 0L;
+        this.deadline = startTime + deadlineNanos;
+        this.retryBudget = retryBudget;
+        StopStrategy stopStrategy = template.getStopStrategy();
+        WaitStrategy waitStrategy = template.getWaitStrategy();
+        this.retrier = template.withStrategies(
+            failedAttempt -> cancellationCause.get() != null
+                || stopStrategy.shouldStop(failedAttempt)
+                || (hasDeadline && remainingNanos() <= 0L)
+                || (retryBudget != null && !retryBudget.tryWithdraw()),
+            failedAttempt -> {
+                long sleepTime = waitStrategy.computeSleepTime(failedAttempt);
+                // Never wait beyond the deadline
+                return hasDeadline ? Math.min(sleepTime, TimeUnit.NANOSECONDS.toMillis(remainingNanos())) : sleepTime;
+            });
+        int runnerCount = Math.min(parallelism, tasks.size());
+        this.runners = new ArrayList<>(runnerCount);
+        for (int i = 0; i < runnerCount; i++) {
+            runners.add(new Runner());
+        }
+    }
+
+    void start(Executor executor) {
+        for (Runner runner : runners) {
+            try {
+                executor.execute(runner);
+            } catch (RejectedExecutionException e) {
+                cancel(e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the outcome of the next task that completes, waiting for it if needed.
+     *
+     * @return the outcome of a task, or <code>null</code> if the outcomes of all the tasks have already been returned
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    @Nullable
+    public TaskOutcome<T> next() throws InterruptedException {
+        if (consumed.size() == tasks.size()) {
+            return null;
+        }
+        TaskOutcome<T> outcome;
+        if (hasDeadline && cancellationCause.get() == null) {
+            outcome = completed.poll(Math.max(remainingNanos(), 0L), TimeUnit.NANOSECONDS);
+            if (outcome == null) {
+                cancel(new TimeoutException("Fan-out deadline exceeded"));
+                outcome = completed.take();
+            }
+        } else {
+            outcome = completed.take();
+        }
+        consumed.add(outcome);
+        return outcome;
+    }
+
+    /**
+     * Waits for the outcomes of all the tasks.
+     *
+     * @return the outcomes of all the tasks, in the order of the submitted collection
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public List<TaskOutcome<T>> awaitAll() throws InterruptedException {
+        while (next() != null) {
+            // Consumes the pending outcomes
+        }
+        List<TaskOutcome<T>> outcomes = new ArrayList<>(consumed);
+        outcomes.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return outcomes;
+    }
+
+    /**
+     * Waits for the outcomes of all the tasks and returns their results if all of them succeeded.
+     *
+     * @return the results of all the tasks, in the order of the submitted collection
+     * @throws RetryException       the first failure, i.e. the one that decided the outcome of the execution
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public List<T> getResults() throws RetryException, InterruptedException {
+        List<TaskOutcome<T>> outcomes = awaitAll();
+        RetryException failure = firstFailure.get();
+        if (failure != null) {
+            throw failure;
+        }
+        List<T> results = new ArrayList<>(outcomes.size());
+        for (TaskOutcome<T> outcome : outcomes) {
+            results.add(outcome.getValue());
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Waits for the outcomes of all the tasks and returns the results of the successful ones.
+     *
+     * @return the results of the successful tasks, in the order of the submitted collection
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public List<T> getSuccessfulResults() throws InterruptedException {
+        List<T> results = new ArrayList<>();
+        for (TaskOutcome<T> outcome : awaitAll()) {
+            if (outcome.isSuccessful()) {
+                results.add(outcome.getValue());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Cancels the execution: tasks not started yet are failed and running tasks are interrupted.
+     */
+    public void cancel() {
+        cancel(new CancellationException("Fan-out cancelled"));
+    }
+
+    /**
+     * Cancels the execution, if it isn't done yet.
+     */
+    @Override
+    public void close() {
+        if (consumed.size() < tasks.size()) {
+            cancel();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancellationCause.get() != null;
+    }
+
+    private void cancel(Exception cause) {
+        if (!cancellationCause.compareAndSet(null, cause)) {
+            return;
+        }
+        firstFailure.compareAndSet(null, rejection(cause));
+        // Tasks are claimed exactly once, either here or by a runner
+        int index;
+        while ((index = nextTask.getAndIncrement()) < tasks.size()) {
+            completed.add(TaskOutcome.failure(index, rejection(cause)));
+        }
+        for (Runner runner : runners) {
+            runner.interrupt();
+        }
+    }
+
+    private void report(TaskOutcome<T> outcome) {
+        RetryException failure = outcome.getFailure();
+        if (failure != null && firstFailure.compareAndSet(null, failure) && mode == FanOutMode.ALL_OR_NOTHING) {
+            cancel(new CancellationException("Fan-out cancelled after task " + outcome.getIndex() + " failed"));
+        }
+        completed.add(outcome);
+    }
+
+    private RejectedRetryException rejection(Exception cause) {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        return new RejectedRetryException(cause.getMessage(), new FailedAttempt(cause, 0L, elapsed));
+    }
+
+    private ExhaustedRetryException unexpectedFailure(Throwable throwable) {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        Exception cause = (throwable instanceof Exception) ? (Exception) throwable : new ExecutionException(throwable);
+        return new ExhaustedRetryException("Task failed unexpectedly: " + throwable,
+            new FailedAttempt(cause, 1L, elapsed));
+    }
+
+    private long remainingNanos() {
+        return deadline - System.nanoTime();
+    }
+
+    /**
+     * Executes tasks until there are no more tasks to start. Its thread is only interrupted while it's running.
+     */
+    private final class Runner implements Runnable {
+        @Nullable
+        private Thread thread;
+        private boolean finished;
+        private boolean interrupted;
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancellationCause.get() != null) {
+                    finished = true;
+                    return;
+                }
+                thread = Thread.currentThread();
+            }
+            try {
+                int index;
+                while (cancellationCause.get() == null && (index = nextTask.getAndIncrement()) < tasks.size()) {
+                    if (hasDeadline && remainingNanos() <= 0L) {
+                        TimeoutException cause = new TimeoutException("Fan-out deadline exceeded");
+                        completed.add(TaskOutcome.failure(index, rejection(cause)));
+                        cancel(cause);
+                        break;
+                    }
+                    execute(index);
+                }
+            } finally {
+                synchronized (this) {
+                    finished = true;
+                    thread = null;
+                    if (interrupted) {
+                        // Don't leak the interruption to the next task of the executor
+                        Thread.interrupted();
+                    }
+                }
+            }
+        }
+
+        private void execute(int index) {
+            if (retryBudget != null) {
+                retryBudget.deposit();
+            }
+            try {
+                report(TaskOutcome.success(index, retrier.call(tasks.get(index))));
+            } catch (RetryException e) {
+                report(TaskOutcome.failure(index, e));
+            } catch (Throwable e) {
+                // Errors (and exceptions thrown by the listeners) escape the retrier, the task still has to complete
+                report(TaskOutcome.failure(index, unexpectedFailure(e)));
+            }
+        }
+
+        private synchronized void interrupt() {
+            if (!finished && thread != null) {
+                interrupted = true;
+                thread.interrupt();
+            }
+        }
+    }
+}
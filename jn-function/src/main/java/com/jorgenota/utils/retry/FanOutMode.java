@@ -0,0 +1,21 @@
+package com.jorgenota.utils.retry;
+
+/**
+ * How a {@link FanOut} decides the outcome of the execution of a group of tasks.
+ *
+ * @author Jorge Alonso
+ */
+public enum FanOutMode {
+
+    /**
+     * The execution fails as soon as a task fails (once its retries are exhausted), and the outstanding tasks are
+     * cancelled.
+     */
+    ALL_OR_NOTHING,
+
+    /**
+     * Every task is executed until it succeeds or fails, and the execution collects the results of the successful
+     * ones. Only the deadline cancels outstanding tasks.
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,427 @@
+package com.jorgenota.utils.retry;
+
+import com.jorgenota.utils.base.Preconditions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * A {@link RetryScheduler} backed by a hashed timing wheel, suitable for a very large number of pending delayed
+ * attempts.
+ * <p>
+ * Scheduling and cancelling a task are O(1) operations that never block: new and cancelled tasks are queued and
+ * a single worker thread moves them into the wheel buckets once per tick. On each tick all the expired tasks of the
+ * current bucket are collected and handed over in a batch to the task executor. The accuracy of the delays is bounded
+ * by the tick duration, so tasks are never executed before their delay expires but may be executed up to one tick
+ * later.
+ * <p>
+ * By default expired tasks are run on the worker thread, so they must be short and non-blocking (the tasks scheduled
+ * by {@link AsyncRetrier} just start the next attempt). Provide a task executor otherwise.
+ *
+ * @author Jorge Alonso
+ * @see <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf">Hashed and Hierarchical
+ * Timing Wheels</a>
+ */
+@Slf4j
+public final class HashedWheelRetryScheduler implements RetryScheduler, AutoCloseable {
+    private static final long DEFAULT_TICK_DURATION_MILLIS = 10L;
+    private static final int DEFAULT_TICKS_PER_WHEEL = 512;
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private static final int WORKER_INIT = 0;
+    private static final int WORKER_STARTED = 1;
+    private static final int WORKER_SHUTDOWN = 2;
+
+    private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
+
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor taskExecutor;
+    private final Thread workerThread;
+    private final AtomicInteger workerState = new AtomicInteger(WORKER_INIT);
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+    private final Queue<Timeout> timeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingTimeouts = new AtomicLong();
+    private volatile long startTime;
+
+    /**
+     * Creates a scheduler with a tick duration of {@value #DEFAULT_TICK_DURATION_MILLIS} milliseconds and
+     * {@value #DEFAULT_TICKS_PER_WHEEL} ticks per wheel that runs the expired tasks on its worker thread.
+     */
+    public HashedWheelRetryScheduler() {
+        this(DEFAULT_TICK_DURATION_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Creates a scheduler that runs the expired tasks on its worker thread.
+     *
+     * @param tickDuration  the duration between ticks, i.e. the resolution of the scheduler
+     * @param unit          the time unit of the tick duration
+     * @param ticksPerWheel the number of buckets of the wheel; it's rounded up to a power of two
+     */
+    public HashedWheelRetryScheduler(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(tickDuration, unit, ticksPerWheel, Runnable::run);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param tickDuration  the duration between ticks, i.e. the resolution of the scheduler
+     * @param unit          the time unit of the tick duration
+     * @param ticksPerWheel the number of buckets of the wheel; it's rounded up to a power of two
+     * @param taskExecutor  the executor used to run the expired tasks
+     */
+    public HashedWheelRetryScheduler(long tickDuration, TimeUnit unit, int ticksPerWheel, Executor taskExecutor) {
+        notNull(unit, "unit may not be null");
+        Preconditions.isTrue(unit.toMillis(tickDuration) >= 1L,
+            "tickDuration must be >= 1 millisecond but is %d %s", tickDuration, unit);
+        Preconditions.isTrue(ticksPerWheel > 0 && ticksPerWheel <= (1 << 30),
+            "ticksPerWheel must be > 0 and <= 2^30 but is %d", ticksPerWheel);
+        this.tickDuration = unit.toNanos(tickDuration);
+        this.wheel = createWheel(ticksPerWheel);
+        this.mask = wheel.length - 1;
+        Preconditions.isTrue(this.tickDuration < Long.MAX_VALUE / wheel.length,
+            "tickDuration %d %s is too long for a wheel of %d ticks", tickDuration, unit, wheel.length);
+        this.taskExecutor = notNull(taskExecutor, "taskExecutor may not be null");
+
+        this.workerThread = new Thread(new Worker(), "retry-wheel-" + INSTANCE_COUNTER.incrementAndGet());
+        this.workerThread.setDaemon(true);
+    }
+
+    @Override
+    public RetryTimeout schedule(Runnable task, long delay, TimeUnit unit) {
+        notNull(task, "task may not be null");
+        notNull(unit, "unit may not be null");
+        start();
+
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+        // Guard against overflow
+        if (delay > 0 && deadline < 0) {
+            deadline = Long.MAX_VALUE;
+        }
+        Timeout timeout = new Timeout(this, task, deadline);
+        pendingTimeouts.incrementAndGet();
+        timeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the number of scheduled tasks that have neither expired nor been cancelled yet.
+     *
+     * @return the number of pending tasks
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * Stops the worker thread and cancels all the pending tasks. Once closed, the scheduler cannot be used anymore.
+     */
+    @Override
+    public void close() {
+        Preconditions.state(Thread.currentThread() != workerThread,
+            "close() cannot be called from a task executed by the scheduler");
+
+        if (!workerState.compareAndSet(WORKER_STARTED, WORKER_SHUTDOWN)) {
+            workerState.set(WORKER_SHUTDOWN);
+            return;
+        }
+
+        boolean interrupted = false;
+        while (workerThread.isAlive()) {
+            workerThread.interrupt();
+            try {
+                workerThread.join(100);
+            } catch (InterruptedException ignored) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void start() {
+        switch (workerState.get()) {
+            case WORKER_INIT:
+                if (workerState.compareAndSet(WORKER_INIT, WORKER_STARTED)) {
+                    workerThread.start();
+                }
+                break;
+            case WORKER_STARTED:
+                break;
+            default:
+                throw new IllegalStateException("The scheduler cannot be used once closed");
+        }
+
+        // Wait until the worker has initialized the start time
+        while (startTime == 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException ignore) {
+                // Wait again, the worker will initialize it very soon
+            }
+        }
+    }
+
+    private static Bucket[] createWheel(int ticksPerWheel) {
+        int normalizedTicksPerWheel = 1;
+        while (normalizedTicksPerWheel < ticksPerWheel) {
+            normalizedTicksPerWheel <<= 1;
+        }
+        Bucket[] wheel = new Bucket[normalizedTicksPerWheel];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        return wheel;
+    }
+
+    private final class Worker implements Runnable {
+        private final List<Timeout> expiredTimeouts = new ArrayList<>();
+        private long tick;
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            // 0 is used as the "not initialized" value
+            startTime = (now == 0) ? 1 : now;
+            startTimeInitialized.countDown();
+
+            do {
+                long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    processCancelledTimeouts();
+                    transferTimeoutsToBuckets();
+                    wheel[(int) (tick & mask)].expireTimeouts(deadline, expiredTimeouts);
+                    dispatchExpiredTimeouts();
+                    tick++;
+                }
+            } while (workerState.get() == WORKER_STARTED);
+
+            // Cancel everything left behind
+            for (Bucket bucket : wheel) {
+                bucket.cancelAll();
+            }
+            Timeout timeout;
+            while ((timeout = timeouts.poll()) != null) {
+                timeout.cancel();
+            }
+            processCancelledTimeouts();
+        }
+
+        private void transferTimeoutsToBuckets() {
+            for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+                Timeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state() == Timeout.ST_CANCELLED) {
+                    continue;
+                }
+
+                long calculated = timeout.deadline / tickDuration;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+                // Ensure we don't schedule for the past
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void processCancelledTimeouts() {
+            Timeout timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                timeout.remove();
+            }
+        }
+
+        private void dispatchExpiredTimeouts() {
+            for (Timeout timeout : expiredTimeouts) {
+                try {
+                    taskExecutor.execute(timeout.task);
+                } catch (Throwable t) {
+                    log.warn("An exception was thrown while executing a scheduled retry", t);
+                }
+            }
+            expiredTimeouts.clear();
+        }
+
+        /**
+         * Waits until the next tick is due and returns the elapsed time since the start time, or
+         * {@link Long#MIN_VALUE} if the worker has been shut down.
+         */
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+
+            for (; ; ) {
+                long currentTime = System.nanoTime() - startTime;
+                long sleepTimeMillis = (deadline - currentTime + 999_999) / 1_000_000;
+
+                if (sleepTimeMillis <= 0) {
+                    return (currentTime == Long.MIN_VALUE) ? -Long.MAX_VALUE : currentTime;
+                }
+                try {
+                    Thread.sleep(sleepTimeMillis);
+                } catch (InterruptedException ignored) {
+                    if (workerState.get() == WORKER_SHUTDOWN) {
+                        return Long.MIN_VALUE;
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Timeout implements RetryTimeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedWheelRetryScheduler scheduler;
+        private final Runnable task;
+        private final long deadline;
+        private volatile int state = ST_INIT;
+
+        // The following fields are only accessed by the worker thread
+        private long remainingRounds;
+        @Nullable
+        private Timeout next;
+        @Nullable
+        private Timeout prev;
+        @Nullable
+        private Bucket bucket;
+
+        private Timeout(HashedWheelRetryScheduler scheduler, Runnable task, long deadline) {
+            this.scheduler = scheduler;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            scheduler.pendingTimeouts.decrementAndGet();
+            // The removal from its bucket is done by the worker thread in the next tick
+            scheduler.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        private int state() {
+            return state;
+        }
+
+        private boolean expire() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return false;
+            }
+            scheduler.pendingTimeouts.decrementAndGet();
+            return true;
+        }
+
+        private void remove() {
+            Bucket b = this.bucket;
+            if (b != null) {
+                b.remove(this);
+            }
+        }
+    }
+
+    /**
+     * A doubly-linked list of timeouts only accessed by the worker thread.
+     */
+    private static final class Bucket {
+        @Nullable
+        private Timeout head;
+        @Nullable
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void expireTimeouts(long deadline, List<Timeout> expired) {
+            Timeout timeout = head;
+
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    if (timeout.expire()) {
+                        expired.add(timeout);
+                    }
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                // Already removed
+                return;
+            }
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        private void cancelAll() {
+            Timeout timeout;
+            while ((timeout = head) != null) {
+                timeout.cancel();
+                remove(timeout);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.jorgenota.utils.retry;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Clock;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The retry state of a partition of a {@link PartitionedRetrier}: its circuit, its retry budget and its backoff level.
+ * <p>
+ * The state is updated from the strategies of the partition retrier, so it sees every failed attempt: the consecutive
+ * failed attempts open the circuit when they reach the failure threshold and raise the backoff level, and a successful
+ * execution closes the circuit and lowers the backoff level again. While the circuit is open, executions are rejected
+ * without any attempt and running executions stop retrying. Once the open duration has elapsed, a single trial
+ * execution is let through (half-open circuit): the circuit is closed if it succeeds and opened again otherwise.
+ *
+ * @author Jorge Alonso
+ */
+final class PartitionState implements StopStrategy, WaitStrategy {
+    private static final int CLOSED = 0;
+    private static final int OPEN = 1;
+    private static final int HALF_OPEN = 2;
+
+    private final String key;
+    private final StopStrategy stopStrategy;
+    private final WaitStrategy waitStrategy;
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    @Nullable
+    private final RetryBudget retryBudget;
+    private final int maxBackoffLevel;
+    private final Clock clock;
+    private final Retrier retrier;
+
+    // Guarded by this
+    private int circuitState = CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    // Updated without synchronization: a lost update just delays the change of level
+    private volatile int backoffLevel;
+    private volatile long lastAccessTime;
+
+    PartitionState(String key,
+                   Retrier template,
+                   int failureThreshold,
+                   long openDurationMillis,
+                   @Nullable RetryBudget retryBudget,
+                   int maxBackoffLevel,
+                   Clock clock) {
+        this.key = key;
+        this.stopStrategy = template.getStopStrategy();
+        this.waitStrategy = template.getWaitStrategy();
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.retryBudget = retryBudget;
+        this.maxBackoffLevel = maxBackoffLevel;
+        this.clock = clock;
+        this.retrier = template.withStrategies(this, this);
+        this.lastAccessTime = clock.millis();
+    }
+
+    Retrier retrier() {
+        return retrier;
+    }
+
+    long lastAccessTime() {
+        return lastAccessTime;
+    }
+
+    void touch(long now) {
+        lastAccessTime = now;
+    }
+
+    /**
+     * Admits a new execution or rejects it if the circuit is open.
+     */
+    void beforeExecution() throws RejectedRetryException {
+        if (failureThreshold > 0) {
+            synchronized (this) {
+                if (circuitState == HALF_OPEN
+                    || (circuitState == OPEN && clock.millis() - openedAt < openDurationMillis)) {
+                    throw new RejectedRetryException("Circuit open for partition " + key,
+                        new FailedAttempt(new RejectedExecutionException("Circuit open for partition " + key), 0L, 0L));
+                }
+                if (circuitState == OPEN) {
+                    // This execution is the trial of the half-open circuit
+                    circuitState = HALF_OPEN;
+                }
+            }
+        }
+        if (retryBudget != null) {
+            retryBudget.deposit();
+        }
+    }
+
+    void onSuccess() {
+        if (failureThreshold > 0) {
+            synchronized (this) {
+                circuitState = CLOSED;
+                consecutiveFailures = 0;
+            }
+        }
+        int level = backoffLevel;
+        if (level > 0) {
+            backoffLevel = level - 1;
+        }
+    }
+
+    /**
+     * Records a failed execution. A half-open circuit is opened again even if its trial didn't record any failed
+     * attempt, e.g. because the fail predicate aborted it.
+     */
+    void onFailure() {
+        if (failureThreshold > 0) {
+            synchronized (this) {
+                if (circuitState == HALF_OPEN) {
+                    open();
+                }
+            }
+        }
+    }
+
+    boolean isCircuitOpen() {
+        synchronized (this) {
+            return circuitState == HALF_OPEN
+                || (circuitState == OPEN && clock.millis() - openedAt < openDurationMillis);
+        }
+    }
+
+    int backoffLevel() {
+        return backoffLevel;
+    }
+
+    @Override
+    public boolean shouldStop(FailedAttempt failedAttempt) {
+        boolean circuitOpen = recordFailedAttempt();
+        return stopStrategy.shouldStop(failedAttempt)
+            || circuitOpen
+            || (retryBudget != null && !retryBudget.tryWithdraw());
+    }
+
+    @Override
+    public long computeSleepTime(FailedAttempt failedAttempt) {
+        long sleepTime = waitStrategy.computeSleepTime(failedAttempt);
+        int level = backoffLevel;
+        if (level == 0 || sleepTime <= 0L) {
+            return sleepTime;
+        }
+        return sleepTime > (Long.MAX_VALUE >> level) ? Long.MAX_VALUE : sleepTime << level;
+    }
+
+    /**
+     * Records a failed attempt, returning <code>true</code> if the circuit is open after it.
+     */
+    private boolean recordFailedAttempt() {
+        int level = backoffLevel;
+        if (level < maxBackoffLevel) {
+            backoffLevel = level + 1;
+        }
+        if (failureThreshold == 0) {
+            return false;
+        }
+        synchronized (this) {
+            consecutiveFailures++;
+            if (circuitState == HALF_OPEN || (circuitState == CLOSED && consecutiveFailures >= failureThreshold)) {
+                open();
+            }
+            return circuitState == OPEN;
+        }
+    }
+
+    private void open() {
+        circuitState = OPEN;
+        openedAt = clock.millis();
+    }
+}
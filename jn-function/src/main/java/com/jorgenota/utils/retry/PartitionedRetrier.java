@@ -0,0 +1,283 @@
+package com.jorgenota.utils.retry;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.*;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Executes code with retries keeping an isolated retry state per partition, where the partition is identified by a
+ * key supplied by the caller (e.g. a bucket and prefix, or a shard id).
+ * <p>
+ * Each partition has its own circuit breaker, retry budget and adaptive backoff level, so a partition that is failing
+ * or being throttled backs off and is eventually rejected while the rest of partitions keep retrying as usual. Apart from
+ * that, every execution uses the strategies and fail predicate of the template {@link Retrier}. Executions rejected
+ * because the circuit of their partition is open throw a {@link RejectedRetryException} without making any attempt, and
+ * executions that end with any other exception or error count as failures of their partition.
+ * <p>
+ * The states are kept in a bounded map split into lock-striped segments, so executions on different partitions rarely
+ * contend. When a segment is full, its least recently used partition is evicted, and partitions that haven't been used
+ * for the idle timeout are evicted as new partitions are created. An evicted partition starts again from a clean state.
+ *
+ * @author Jorge Alonso
+ * @see PartitionedRetrierBuilder
+ */
+public final class PartitionedRetrier {
+    private final Retrier template;
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final double retryRatio;
+    private final int maxRetries;
+    private final int maxBackoffLevel;
+    private final long idleTimeoutMillis;
+    private final Clock clock;
+    private final Stripe[] stripes;
+    private final int mask;
+
+    PartitionedRetrier(Retrier template,
+                       int failureThreshold,
+                       long openDurationMillis,
+                       double retryRatio,
+                       int maxRetries,
+                       int maxBackoffLevel,
+                       int maximumPartitions,
+                       long idleTimeoutMillis,
+                       Clock clock) {
+        this.template = template;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.retryRatio = retryRatio;
+        this.maxRetries = maxRetries;
+        this.maxBackoffLevel = maxBackoffLevel;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.clock = clock;
+
+        int stripeCount = stripeCount(maximumPartitions);
+        int stripeCapacity = (maximumPartitions + stripeCount - 1) / stripeCount;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+        this.mask = stripeCount - 1;
+    }
+
+    /**
+     * Returns the name of the template retrier.
+     *
+     * @return the name of the retrier
+     */
+    public String getName() {
+        return template.getName();
+    }
+
+    public <T> T call(String key, Callable<T> callable) throws RetryException {
+        PartitionState state = beforeExecution(key);
+        try {
+            T result = state.retrier().call(callable);
+            state.onSuccess();
+            return result;
+        } catch (Throwable e) {
+            state.onFailure();
+            throw e;
+        }
+    }
+
+    public <T, R> R apply(String key, Function<T, R> function, T t) throws RetryException {
+        PartitionState state = beforeExecution(key);
+        try {
+            R result = state.retrier().apply(function, t);
+            state.onSuccess();
+            return result;
+        } catch (Throwable e) {
+            state.onFailure();
+            throw e;
+        }
+    }
+
+    public <T, U, R> R apply(String key, BiFunction<T, U, R> function, T t, U u) throws RetryException {
+        PartitionState state = beforeExecution(key);
+        try {
+            R result = state.retrier().apply(function, t, u);
+            state.onSuccess();
+            return result;
+        } catch (Throwable e) {
+            state.onFailure();
+            throw e;
+        }
+    }
+
+    public <T> void accept(String key, Consumer<T> consumer, T t) throws RetryException {
+        PartitionState state = beforeExecution(key);
+        try {
+            state.retrier().accept(consumer, t);
+            state.onSuccess();
+        } catch (Throwable e) {
+            state.onFailure();
+            throw e;
+        }
+    }
+
+    public <T, U> void accept(String key, BiConsumer<T, U> consumer, T t, U u) throws RetryException {
+        PartitionState state = beforeExecution(key);
+        try {
+            state.retrier().accept(consumer, t, u);
+            state.onSuccess();
+        } catch (Throwable e) {
+            state.onFailure();
+            throw e;
+        }
+    }
+
+    public void run(String key, Runnable runnable) throws RetryException {
+        PartitionState state = beforeExecution(key);
+        try {
+            state.retrier().run(runnable);
+            state.onSuccess();
+        } catch (Throwable e) {
+            state.onFailure();
+            throw e;
+        }
+    }
+
+    public <T> T get(String key, Supplier<T> supplier) throws RetryException {
+        PartitionState state = beforeExecution(key);
+        try {
+            T result = state.retrier().get(supplier);
+            state.onSuccess();
+            return result;
+        } catch (Throwable e) {
+            state.onFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the circuit of a partition is open, i.e. new executions on it are being rejected.
+     *
+     * @param key the key of the partition
+     * @return <code>true</code> if the circuit is open, <code>false</code> if it's closed or the partition has no state
+     */
+    public boolean isCircuitOpen(String key) {
+        notNull(key, "key may not be null");
+        PartitionState state = stripeFor(key).getIfPresent(key);
+        return state != null && state.isCircuitOpen();
+    }
+
+    /**
+     * Returns the number of partitions whose state is currently kept.
+     *
+     * @return the number of partitions
+     */
+    public int partitionCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    private PartitionState beforeExecution(String key) throws RejectedRetryException {
+        notNull(key, "key may not be null");
+        PartitionState state = stripeFor(key).getOrCreate(key);
+        state.beforeExecution();
+        return state;
+    }
+
+    private Stripe stripeFor(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    private PartitionState newState(String key) {
+        RetryBudget retryBudget = (maxRetries > 0) ? new RetryBudget(retryRatio, maxRetries) : null;
+        return new PartitionState(key, template, failureThreshold, openDurationMillis, retryBudget, maxBackoffLevel,
+            clock);
+    }
+
+    private static int stripeCount(int maximumPartitions) {
+        int target = Math.min(Runtime.getRuntime().availableProcessors() * 4, maximumPartitions);
+        int count = 1;
+        // The largest power of two not above the target, so every stripe can hold at least one partition
+        while (count * 2 <= target && count < (1 << 16)) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    /**
+     * A segment of the partition map: an access-ordered map guarded by its own lock.
+     */
+    private final class Stripe {
+        private final Lock lock = new ReentrantLock();
+        private final LinkedHashMap<String, PartitionState> states;
+
+        private Stripe(int capacity) {
+            this.states = new LinkedHashMap<String, PartitionState>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PartitionState> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        private PartitionState getOrCreate(String key) {
+            long now = clock.millis();
+            lock.lock();
+            try {
+                PartitionState state = states.get(key);
+                if (state == null || now - state.lastAccessTime() >= idleTimeoutMillis) {
+                    evictIdle(now);
+                    state = newState(key);
+                    states.put(key, state);
+                }
+                state.touch(now);
+                return state;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Nullable
+        private PartitionState getIfPresent(String key) {
+            lock.lock();
+            try {
+                // This reorders the entry without touching it, which at most delays the eviction of idle partitions
+                PartitionState state = states.get(key);
+                return (state != null && clock.millis() - state.lastAccessTime() < idleTimeoutMillis) ? state : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return states.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Removes the idle partitions at the beginning of the map, which is access ordered, so only the least recently
+         * used partitions are checked.
+         */
+        private void evictIdle(long now) {
+            Iterator<PartitionState> iterator = states.values().iterator();
+            while (iterator.hasNext()) {
+                if (now - iterator.next().lastAccessTime() < idleTimeoutMillis) {
+                    return;
+                }
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.jorgenota.utils.retry;
+
+import com.jorgenota.utils.base.Preconditions;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Builds {@link PartitionedRetrier} instances. By default, partitions have no circuit breaker, no retry budget and no
+ * adaptive backoff, so all the features must be enabled explicitly.
+ *
+ * @author Jorge Alonso
+ */
+public class PartitionedRetrierBuilder {
+    private static final int DEFAULT_MAXIMUM_PARTITIONS = 10_000;
+    private static final long DEFAULT_IDLE_TIMEOUT = 600_000L;
+
+    private Retrier retrier = RetrierBuilder.getDefaultRetrier();
+    private int failureThreshold;
+    private long openDurationMillis;
+    private double retryRatio;
+    private int maxRetries;
+    private int maxBackoffLevel;
+    private int maximumPartitions = DEFAULT_MAXIMUM_PARTITIONS;
+    private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT;
+    private Clock clock = Clock.systemUTC();
+
+    private PartitionedRetrierBuilder() {
+    }
+
+    /**
+     * Constructs a new builder
+     *
+     * @return the new builder
+     */
+    public static PartitionedRetrierBuilder newBuilder() {
+        return new PartitionedRetrierBuilder();
+    }
+
+    /**
+     * Sets the retrier whose name, strategies and fail predicate are used by every partition. The default retrier is
+     * used if none is set.
+     *
+     * @param retrier the template retrier
+     * @return <code>this</code>
+     */
+    public PartitionedRetrierBuilder withRetrier(Retrier retrier) {
+        this.retrier = notNull(retrier, "retrier may not be null");
+        return this;
+    }
+
+    /**
+     * Enables a circuit breaker per partition. The circuit opens after the given number of consecutive failed attempts
+     * and rejects new executions during the open duration. After that, a single trial execution is let through.
+     *
+     * @param failureThreshold   the number of consecutive failed attempts that open the circuit
+     * @param openDurationMillis the time, in milliseconds, the circuit stays open before letting a trial execution
+     * @return <code>this</code>
+     */
+    public PartitionedRetrierBuilder withCircuitBreaker(int failureThreshold, long openDurationMillis) {
+        Preconditions.isTrue(failureThreshold >= 1, "failureThreshold must be >= 1 but is %d", failureThreshold);
+        Preconditions.isTrue(openDurationMillis >= 0L, "openDurationMillis must be >= 0 but is %d",
+            openDurationMillis);
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        return this;
+    }
+
+    /**
+     * Enables a {@link RetryBudget} per partition. Executions stop retrying while the budget of their partition is
+     * exhausted.
+     *
+     * @param retryRatio the number of retries allowed per execution
+     * @param maxRetries the maximum number of retries that can be accumulated
+     * @return <code>this</code>
+     */
+    public PartitionedRetrierBuilder withRetryBudget(double retryRatio, int maxRetries) {
+        Preconditions.isTrue(retryRatio >= 0.0d && retryRatio <= 1000.0d,
+            "retryRatio must be >= 0 and <= 1000 but is %s", retryRatio);
+        Preconditions.isTrue(maxRetries >= 1, "maxRetries must be >= 1 but is %d", maxRetries);
+        this.retryRatio = retryRatio;
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Enables an adaptive backoff per partition: each failed attempt doubles the waits of the partition, up to
+     * 2<sup>maxLevel</sup> times the wait computed by the wait strategy, and each successful execution halves them
+     * again.
+     *
+     * @param maxLevel the maximum number of doublings
+     * @return <code>this</code>
+     */
+    public PartitionedRetrierBuilder withAdaptiveBackoff(int maxLevel) {
+        Preconditions.isTrue(maxLevel >= 1 && maxLevel <= 30, "maxLevel must be >= 1 and <= 30 but is %d", maxLevel);
+        this.maxBackoffLevel = maxLevel;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of partitions whose state is kept. The default maximum is
+     * {@value #DEFAULT_MAXIMUM_PARTITIONS}.
+     *
+     * @param maximumPartitions the maximum number of partitions
+     * @return <code>this</code>
+     */
+    public PartitionedRetrierBuilder withMaximumPartitions(int maximumPartitions) {
+        Preconditions.isTrue(maximumPartitions >= 1, "maximumPartitions must be >= 1 but is %d", maximumPartitions);
+        this.maximumPartitions = maximumPartitions;
+        return this;
+    }
+
+    /**
+     * Sets the time after which the state of an unused partition is evicted. The default timeout is 10 minutes.
+     *
+     * @param idleTimeout the idle timeout, of at least a millisecond
+     * @param timeUnit    the unit of the idle timeout
+     * @return <code>this</code>
+     */
+    public PartitionedRetrierBuilder withIdleTimeout(long idleTimeout, TimeUnit timeUnit) {
+        long millis = notNull(timeUnit, "timeUnit may not be null").toMillis(idleTimeout);
+        Preconditions.isTrue(millis >= 1L, "idleTimeout must be >= 1 ms but is %d %s", idleTimeout, timeUnit);
+        this.idleTimeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * Sets the clock used for the circuit breakers and the idle timeouts. The default is the system UTC clock.
+     *
+     * @param clock the clock
+     * @return <code>this</code>
+     */
+    public PartitionedRetrierBuilder withClock(Clock clock) {
+        this.clock = notNull(clock, "clock may not be null");
+        return this;
+    }
+
+    /**
+     * Builds the partitioned retrier.
+     *
+     * @return the partitioned retrier
+     */
+    public PartitionedRetrier build() {
+        return new PartitionedRetrier(retrier, failureThreshold, openDurationMillis, retryRatio, maxRetries,
+            maxBackoffLevel, maximumPartitions, idleTimeoutMillis, clock);
+    }
+}
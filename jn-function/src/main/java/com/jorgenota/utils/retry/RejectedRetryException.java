@@ -0,0 +1,19 @@
+package com.jorgenota.utils.retry;
+
+/**
+ * Thrown when an execution is rejected before making an attempt, e.g. because the circuit of its partition is open.
+ * Its failed attempt has number 0 and its cause describes the reason of the rejection.
+ *
+ * @author Jorge Alonso
+ */
+public class RejectedRetryException extends RetryException {
+
+    public RejectedRetryException(FailedAttempt failedAttempt) {
+        this("Execution rejected: " + failedAttempt.getExceptionCause().getMessage(), failedAttempt);
+    }
+
+    public RejectedRetryException(String message, FailedAttempt failedAttempt) {
+        super(message, failedAttempt);
+    }
+
+}
@@ -1,128 +1,353 @@
 package com.jorgenota.utils.retry;
 
+import org.springframework.lang.Nullable;
+
 import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.*;
 
+import static com.jorgenota.utils.base.Preconditions.hasText;
 import static com.jorgenota.utils.base.Preconditions.notNull;
 
 /**
  * @author Jorge Alonso
  */
 public final class Retrier {
+    static final String DEFAULT_NAME = "default";
+
+    private final String name;
     private final StopStrategy stopStrategy;
     private final WaitStrategy waitStrategy;
     private final Predicate<FailedAttempt> failPredicate;
+    @Nullable
+    private final RetryListener listener;
+    @Nullable
+    private final AdmissionController admissionController;
+    private final RetryPriority priority;
 
     public Retrier(StopStrategy stopStrategy,
                    WaitStrategy waitStrategy,
                    Predicate<FailedAttempt> failPredicate
     ) {
+        this(DEFAULT_NAME, stopStrategy, waitStrategy, failPredicate);
+    }
+
+    public Retrier(String name,
+                   StopStrategy stopStrategy,
+                   WaitStrategy waitStrategy,
+                   Predicate<FailedAttempt> failPredicate
+    ) {
+        this(name, stopStrategy, waitStrategy, failPredicate, null);
+    }
+
+    public Retrier(String name,
+                   StopStrategy stopStrategy,
+                   WaitStrategy waitStrategy,
+                   Predicate<FailedAttempt> failPredicate,
+                   @Nullable RetryListener listener
+    ) {
+        this(name, stopStrategy, waitStrategy, failPredicate, listener, null, RetryPriority.NORMAL);
+    }
+
+    public Retrier(String name,
+                   StopStrategy stopStrategy,
+                   WaitStrategy waitStrategy,
+                   Predicate<FailedAttempt> failPredicate,
+                   @Nullable RetryListener listener,
+                   @Nullable AdmissionController admissionController,
+                   RetryPriority priority
+    ) {
 
+        this.name = hasText(name, "name may not be empty");
         this.stopStrategy = notNull(stopStrategy, "stopStrategy may not be null");
         this.waitStrategy = notNull(waitStrategy, "waitStrategy may not be null");
         this.failPredicate = notNull(failPredicate, "failPredicate may not be null");
+        this.listener = listener;
+        this.admissionController = admissionController;
+        this.priority = notNull(priority, "priority may not be null");
+    }
+
+    /**
+     * Returns the name of this retrier, used to refer to it (e.g. from {@code @Retryable}) and to identify it in logs
+     * and metrics.
+     *
+     * @return the name of the retrier
+     */
+    public String getName() {
+        return name;
+    }
+
+    StopStrategy getStopStrategy() {
+        return stopStrategy;
+    }
+
+    WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    @Nullable
+    RetryListener getListener() {
+        return listener;
+    }
+
+    @Nullable
+    AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    /**
+     * Returns the priority of the executions of this retrier, used by its admission controller, if any.
+     *
+     * @return the priority of the retrier
+     */
+    public RetryPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Returns a copy of this retrier that uses the given strategies instead of its own ones.
+     */
+    Retrier withStrategies(StopStrategy stopStrategy, WaitStrategy waitStrategy) {
+        return new Retrier(name, stopStrategy, waitStrategy, failPredicate, listener, admissionController, priority);
     }
 
     public <T> T call(Callable<T> callable) throws RetryException {
         long startTime = System.nanoTime();
+        long attemptStartTime = startTime;
         for (int attemptNumber = 1; ; attemptNumber++) {
+            acquirePermit(attemptNumber, startTime);
+            Exception failure;
             try {
-                return callable.call();
+                T result = callable.call();
+                onSuccess(attemptNumber, startTime, attemptStartTime);
+                return result;
             } catch (Exception e) {
-                handleFailedAttempt(e, attemptNumber, startTime);
+                failure = e;
+            } finally {
+                releasePermit(attemptStartTime);
             }
+            attemptStartTime = handleFailedAttempt(failure, attemptNumber, startTime, attemptStartTime);
         }
     }
 
     public <T, R> R apply(Function<T, R> function, T t) throws RetryException {
         long startTime = System.nanoTime();
+        long attemptStartTime = startTime;
         for (int attemptNumber = 1; ; attemptNumber++) {
+            acquirePermit(attemptNumber, startTime);
+            Exception failure;
             try {
-                return function.apply(t);
+                R result = function.apply(t);
+                onSuccess(attemptNumber, startTime, attemptStartTime);
+                return result;
             } catch (Exception e) {
-                handleFailedAttempt(e, attemptNumber, startTime);
+                failure = e;
+            } finally {
+                releasePermit(attemptStartTime);
             }
+            attemptStartTime = handleFailedAttempt(failure, attemptNumber, startTime, attemptStartTime);
         }
     }
 
     public <T, U, R> R apply(BiFunction<T, U, R> function, T t, U u) throws RetryException {
         long startTime = System.nanoTime();
+        long attemptStartTime = startTime;
         for (int attemptNumber = 1; ; attemptNumber++) {
+            acquirePermit(attemptNumber, startTime);
+            Exception failure;
             try {
-                return function.apply(t, u);
+                R result = function.apply(t, u);
+                onSuccess(attemptNumber, startTime, attemptStartTime);
+                return result;
             } catch (Exception e) {
-                handleFailedAttempt(e, attemptNumber, startTime);
+                failure = e;
+            } finally {
+                releasePermit(attemptStartTime);
             }
+            attemptStartTime = handleFailedAttempt(failure, attemptNumber, startTime, attemptStartTime);
         }
     }
 
     public <T> void accept(Consumer<T> consumer, T t) throws RetryException {
         long startTime = System.nanoTime();
+        long attemptStartTime = startTime;
         for (int attemptNumber = 1; ; attemptNumber++) {
+            acquirePermit(attemptNumber, startTime);
+            Exception failure;
             try {
                 consumer.accept(t);
+                onSuccess(attemptNumber, startTime, attemptStartTime);
                 return;
             } catch (Exception e) {
-                handleFailedAttempt(e, attemptNumber, startTime);
+                failure = e;
+            } finally {
+                releasePermit(attemptStartTime);
             }
+            attemptStartTime = handleFailedAttempt(failure, attemptNumber, startTime, attemptStartTime);
         }
     }
 
     public <T, U> void accept(BiConsumer<T, U> consumer, T t, U u) throws RetryException {
         long startTime = System.nanoTime();
+        long attemptStartTime = startTime;
         for (int attemptNumber = 1; ; attemptNumber++) {
+            acquirePermit(attemptNumber, startTime);
+            Exception failure;
             try {
                 consumer.accept(t, u);
+                onSuccess(attemptNumber, startTime, attemptStartTime);
                 return;
             } catch (Exception e) {
-                handleFailedAttempt(e, attemptNumber, startTime);
+                failure = e;
+            } finally {
+                releasePermit(attemptStartTime);
             }
+            attemptStartTime = handleFailedAttempt(failure, attemptNumber, startTime, attemptStartTime);
         }
     }
 
     public void run(Runnable runnable) throws RetryException {
         long startTime = System.nanoTime();
+        long attemptStartTime = startTime;
         for (int attemptNumber = 1; ; attemptNumber++) {
+            acquirePermit(attemptNumber, startTime);
+            Exception failure;
             try {
                 runnable.run();
+                onSuccess(attemptNumber, startTime, attemptStartTime);
                 return;
             } catch (Exception e) {
-                handleFailedAttempt(e, attemptNumber, startTime);
+                failure = e;
+            } finally {
+                releasePermit(attemptStartTime);
             }
+            attemptStartTime = handleFailedAttempt(failure, attemptNumber, startTime, attemptStartTime);
         }
     }
 
     public <T> T get(Supplier<T> supplier) throws RetryException {
         long startTime = System.nanoTime();
+        long attemptStartTime = startTime;
         for (int attemptNumber = 1; ; attemptNumber++) {
+            acquirePermit(attemptNumber, startTime);
+            Exception failure;
             try {
-                return supplier.get();
+                T result = supplier.get();
+                onSuccess(attemptNumber, startTime, attemptStartTime);
+                return result;
             } catch (Exception e) {
-                handleFailedAttempt(e, attemptNumber, startTime);
+                failure = e;
+            } finally {
+                releasePermit(attemptStartTime);
             }
+            attemptStartTime = handleFailedAttempt(failure, attemptNumber, startTime, attemptStartTime);
         }
     }
 
-    private void handleFailedAttempt(Exception e, int attemptNumber, long startTime) throws RetryException {
-        long delaySinceFirstAttempt = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
-        FailedAttempt failedAttempt = new FailedAttempt(e, attemptNumber, delaySinceFirstAttempt);
+    /**
+     * Returns an asynchronous view of this retrier that uses the given scheduler to delay the attempts
+     * instead of sleeping the calling thread.
+     *
+     * @param scheduler the scheduler used to run delayed attempts
+     * @return an asynchronous retrier sharing the strategies of this one
+     */
+    public AsyncRetrier async(RetryScheduler scheduler) {
+        return new AsyncRetrier(this, scheduler);
+    }
 
-        if (failPredicate.test(failedAttempt)) {
-            throw new FailException(failedAttempt);
+    /**
+     * Acquires a permit of the admission controller, if any, throwing a {@link RejectedRetryException} if the attempt
+     * is shed.
+     */
+    private void acquirePermit(int attemptNumber, long startTime) throws RejectedRetryException {
+        if (admissionController != null && !admissionController.tryAcquire(priority, attemptNumber > 1)) {
+            throw shed(attemptNumber, startTime);
         }
-        if (stopStrategy.shouldStop(failedAttempt)) {
-            throw new ExhaustedRetryException(failedAttempt);
-        } else {
-            long sleepTime = waitStrategy.computeSleepTime(failedAttempt);
+    }
+
+    private void releasePermit(long attemptStartTime) {
+        if (admissionController != null) {
+            admissionController.release(System.nanoTime() - attemptStartTime);
+        }
+    }
+
+    /**
+     * Creates the exception thrown when an attempt is shed, emitting its event and notifying the end of the execution.
+     */
+    RejectedRetryException shed(int attemptNumber, long startTime) {
+        long now = System.nanoTime();
+        String message = String.format("%s attempt %d shed by the admission controller", priority, attemptNumber);
+        FailedAttempt failedAttempt = newFailedAttempt(new RejectedExecutionException(message), attemptNumber - 1,
+            startTime, now);
+        RetryEvents.failed(name, failedAttempt, "Shed by the admission controller");
+        if (listener != null && attemptNumber > 1) {
+            listener.onExecution(now - startTime, attemptNumber - 1L, false);
+        }
+        return new RejectedRetryException(message, failedAttempt);
+    }
+
+    private void onSuccess(int attemptNumber, long startTime, long attemptStartTime) {
+        if (listener != null) {
+            long now = System.nanoTime();
+            listener.onAttempt(now - attemptStartTime, true);
+            listener.onExecution(now - startTime, attemptNumber, true);
+        }
+    }
+
+    /**
+     * Handles a failed attempt, sleeping before the next one, and returns the start time of the next attempt.
+     */
+    private long handleFailedAttempt(Exception e, int attemptNumber, long startTime, long attemptStartTime)
+        throws RetryException {
+        long now = System.nanoTime();
+        FailedAttempt failedAttempt = newFailedAttempt(e, attemptNumber, startTime, now);
+        if (listener != null) {
+            listener.onAttempt(now - attemptStartTime, false);
+        }
+        try {
+            long sleepTime = computeSleepTime(failedAttempt);
             if (sleepTime > 0) {
+                RetryEvents.WaitEvent waitEvent = RetryEvents.beginWait(name, failedAttempt, sleepTime);
                 try {
                     Thread.sleep(sleepTime);
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
+                    RetryEvents.failed(name, failedAttempt, "Interrupted while waiting");
                     throw new SleepInterruptedException(failedAttempt);
+                } finally {
+                    RetryEvents.endWait(waitEvent);
                 }
             }
+        } catch (RetryException re) {
+            if (listener != null) {
+                listener.onExecution(System.nanoTime() - startTime, attemptNumber, false);
+            }
+            throw re;
+        }
+        // The time is only needed to measure the attempts
+        return (listener != null || admissionController != null) ? System.nanoTime() : 0L;
+    }
+
+    FailedAttempt newFailedAttempt(Exception e, int attemptNumber, long startTime, long now) {
+        long delaySinceFirstAttempt = TimeUnit.NANOSECONDS.toMillis(now - startTime);
+        return new FailedAttempt(e, attemptNumber, delaySinceFirstAttempt);
+    }
+
+    /**
+     * Decides what to do after a failed attempt: either aborts the execution throwing a {@link RetryException} or
+     * returns the time, in milliseconds, to wait before the next attempt.
+     */
+    long computeSleepTime(FailedAttempt failedAttempt) throws RetryException {
+        RetryEvents.attemptFailed(name, failedAttempt);
+        if (failPredicate.test(failedAttempt)) {
+            RetryEvents.failed(name, failedAttempt, "Fail predicate matched");
+            throw new FailException(failedAttempt);
+        }
+        if (stopStrategy.shouldStop(failedAttempt)) {
+            RetryEvents.exhausted(name, failedAttempt);
+            throw new ExhaustedRetryException(failedAttempt);
         }
+        return waitStrategy.computeSleepTime(failedAttempt);
     }
 }
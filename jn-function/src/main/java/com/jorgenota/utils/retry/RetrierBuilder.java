@@ -1,7 +1,10 @@
 package com.jorgenota.utils.retry;
 
+import org.springframework.lang.Nullable;
+
 import java.util.function.Predicate;
 
+import static com.jorgenota.utils.base.Preconditions.hasText;
 import static com.jorgenota.utils.base.Preconditions.notNull;
 
 /**
@@ -10,9 +13,15 @@ import static com.jorgenota.utils.base.Preconditions.notNull;
 public class RetrierBuilder {
     private static final int DEFAULT_ATTEMPT_NUMBER = 10;
 
+    private String name = Retrier.DEFAULT_NAME;
     private StopStrategy stopStrategy = StopStrategies.stopAfterAttempt(DEFAULT_ATTEMPT_NUMBER);
     private WaitStrategy waitStrategy = WaitStrategies.noWait();
     private Predicate<FailedAttempt> failPredicate = (x -> false);
+    @Nullable
+    private RetryListener listener;
+    @Nullable
+    private AdmissionController admissionController;
+    private RetryPriority priority = RetryPriority.NORMAL;
 
     private static final Retrier DEFAULT_RETRIER = newBuilder().build();
 
@@ -37,6 +46,17 @@ public class RetrierBuilder {
         return DEFAULT_RETRIER;
     }
 
+    /**
+     * Sets the name of the retrier. The default name is "{@value Retrier#DEFAULT_NAME}".
+     *
+     * @param name the name of the retrier
+     * @return <code>this</code>
+     */
+    public RetrierBuilder withName(String name) {
+        this.name = hasText(name, "name may not be empty");
+        return this;
+    }
+
     /**
      * Sets the wait strategy used to decide how long to sleep between failed attempts.
      * The default strategy is to retry immediately after a failed attempt.
@@ -111,13 +131,51 @@ public class RetrierBuilder {
         return this;
     }
 
+    /**
+     * Adds a listener notified of the latencies of the attempts and executions of the retrier, e.g. a
+     * {@link com.jorgenota.utils.retry.metrics.RetryLatencyRecorder}. If several listeners are added, they are
+     * notified in order. By default, nothing is measured.
+     *
+     * @param listener the listener to add
+     * @return <code>this</code>
+     */
+    public RetrierBuilder withListener(RetryListener listener) {
+        notNull(listener, "listener may not be null");
+        this.listener = (this.listener == null) ? listener : RetryListener.composite(this.listener, listener);
+        return this;
+    }
+
+    /**
+     * Sets the admission controller that must admit every attempt of the retrier, and the priority of its executions.
+     * Attempts shed by the controller throw a {@link RejectedRetryException}. By default, every attempt is admitted.
+     *
+     * @param admissionController the admission controller, usually shared by several retriers
+     * @param priority            the priority of the executions of the retrier
+     * @return <code>this</code>
+     */
+    public RetrierBuilder withAdmissionController(AdmissionController admissionController, RetryPriority priority) {
+        this.admissionController = notNull(admissionController, "admissionController may not be null");
+        this.priority = notNull(priority, "priority may not be null");
+        return this;
+    }
+
     /**
      * Builds the retrier.
      *
      * @return the built retrier.
      */
     public Retrier build() {
-        return new Retrier(stopStrategy, waitStrategy, failPredicate);
+        return new Retrier(name, stopStrategy, waitStrategy, failPredicate, listener, admissionController, priority);
+    }
+
+    /**
+     * Builds an asynchronous retrier that delays the attempts using the given scheduler.
+     *
+     * @param scheduler the scheduler used to run delayed attempts, e.g. a {@link HashedWheelRetryScheduler}
+     * @return the built asynchronous retrier.
+     */
+    public AsyncRetrier buildAsync(RetryScheduler scheduler) {
+        return build().async(scheduler);
     }
 
     private static final class ExceptionClassPredicate implements Predicate<FailedAttempt> {
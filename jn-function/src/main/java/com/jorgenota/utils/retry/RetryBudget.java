@@ -0,0 +1,75 @@
+package com.jorgenota.utils.retry;
+
+import com.jorgenota.utils.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A budget that limits the number of retries to a ratio of the number of executions, so retries can't multiply the
+ * load on a service that is failing.
+ * <p>
+ * Each execution deposits {@code retryRatio} retries in the budget, up to {@code maxRetries}, and each retry withdraws
+ * one. The budget starts full. It's lock-free and can be shared by several retriers.
+ *
+ * @author Jorge Alonso
+ */
+public final class RetryBudget {
+    private static final long SCALE = 1000L;
+
+    private final long depositAmount;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    /**
+     * Creates a retry budget.
+     *
+     * @param retryRatio the number of retries allowed per execution, e.g. 0.1 allows 1 retry every 10 executions
+     * @param maxRetries the maximum number of retries that can be accumulated in the budget
+     */
+    public RetryBudget(double retryRatio, int maxRetries) {
+        Preconditions.isTrue(retryRatio >= 0.0d && retryRatio <= 1000.0d,
+            "retryRatio must be >= 0 and <= 1000 but is %s", retryRatio);
+        Preconditions.isTrue(maxRetries >= 0, "maxRetries must be >= 0 but is %d", maxRetries);
+        this.depositAmount = Math.round(retryRatio * SCALE);
+        this.maxBalance = maxRetries * SCALE;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    /**
+     * Records a new execution, depositing its share of retries in the budget.
+     */
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + depositAmount)));
+    }
+
+    /**
+     * Withdraws a retry from the budget, if available.
+     *
+     * @return <code>true</code> if the retry is allowed, <code>false</code> if the budget is exhausted
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    /**
+     * Returns the number of retries currently available.
+     *
+     * @return the available retries
+     */
+    public int availableRetries() {
+        return (int) (balance.get() / SCALE);
+    }
+}
@@ -0,0 +1,143 @@
+package com.jorgenota.utils.retry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.springframework.lang.Nullable;
+
+/**
+ * Java Flight Recorder events emitted by the retriers, so the retries can be correlated with GC, locks, I/O, etc. in
+ * the same recording. All of them are enabled by default and carry the name of the retrier.
+ * <p>
+ * Each event is only populated and committed if it's enabled in a running recording. Otherwise, the JIT compiler
+ * eliminates the event instance, so emitting events is virtually free when nothing is being recorded.
+ *
+ * @author Jorge Alonso
+ */
+final class RetryEvents {
+    static final String CATEGORY = "Jn Utils";
+
+    private RetryEvents() {
+    }
+
+    static void attemptFailed(String retrierName, FailedAttempt failedAttempt) {
+        AttemptFailedEvent event = new AttemptFailedEvent();
+        if (event.isEnabled()) {
+            event.retrier = retrierName;
+            event.exceptionClass = failedAttempt.getExceptionCause().getClass();
+            event.exceptionMessage = failedAttempt.getExceptionCause().getMessage();
+            event.attemptNumber = failedAttempt.getAttemptNumber();
+            event.commit();
+        }
+    }
+
+    static void exhausted(String retrierName, FailedAttempt failedAttempt) {
+        ExhaustedEvent event = new ExhaustedEvent();
+        if (event.isEnabled()) {
+            event.retrier = retrierName;
+            event.exceptionClass = failedAttempt.getExceptionCause().getClass();
+            event.attempts = failedAttempt.getAttemptNumber();
+            event.delaySinceFirstAttempt = failedAttempt.getDelaySinceFirstAttempt();
+            event.commit();
+        }
+    }
+
+    static void failed(String retrierName, FailedAttempt failedAttempt, String reason) {
+        FailedEvent event = new FailedEvent();
+        if (event.isEnabled()) {
+            event.retrier = retrierName;
+            event.exceptionClass = failedAttempt.getExceptionCause().getClass();
+            event.attempts = failedAttempt.getAttemptNumber();
+            event.reason = reason;
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts timing a wait. The returned event must be passed to {@link #endWait(WaitEvent)} after the wait.
+     */
+    static WaitEvent beginWait(String retrierName, FailedAttempt failedAttempt, long sleepTime) {
+        WaitEvent event = new WaitEvent();
+        if (event.isEnabled()) {
+            event.retrier = retrierName;
+            event.attemptNumber = failedAttempt.getAttemptNumber();
+            event.sleepTime = sleepTime;
+            event.begin();
+        }
+        return event;
+    }
+
+    static void endWait(WaitEvent event) {
+        if (event.isEnabled()) {
+            event.commit();
+        }
+    }
+
+    @Name("com.jorgenota.utils.retry.AttemptFailed")
+    @Label("Retry Attempt Failed")
+    @Description("An attempt of an execution with retries threw an exception")
+    @Category({CATEGORY, "Retry"})
+    static final class AttemptFailedEvent extends Event {
+        @Label("Retrier")
+        String retrier;
+        @Label("Exception Class")
+        Class<?> exceptionClass;
+        @Label("Exception Message")
+        @Nullable
+        String exceptionMessage;
+        @Label("Attempt Number")
+        long attemptNumber;
+    }
+
+    @Name("com.jorgenota.utils.retry.Wait")
+    @Label("Retry Wait")
+    @Description("Wait of the calling thread between two attempts")
+    @Category({CATEGORY, "Retry"})
+    static final class WaitEvent extends Event {
+        @Label("Retrier")
+        String retrier;
+        @Label("Attempt Number")
+        @Description("Number of the failed attempt before the wait")
+        long attemptNumber;
+        @Label("Sleep Time")
+        @Description("Wait computed by the wait strategy")
+        @Timespan(Timespan.MILLISECONDS)
+        long sleepTime;
+    }
+
+    @Name("com.jorgenota.utils.retry.Exhausted")
+    @Label("Retries Exhausted")
+    @Description("The stop strategy stopped an execution with retries")
+    @Category({CATEGORY, "Retry"})
+    static final class ExhaustedEvent extends Event {
+        @Label("Retrier")
+        String retrier;
+        @Label("Exception Class")
+        @Description("Class of the exception thrown by the last attempt")
+        Class<?> exceptionClass;
+        @Label("Attempts")
+        long attempts;
+        @Label("Delay Since First Attempt")
+        @Timespan(Timespan.MILLISECONDS)
+        long delaySinceFirstAttempt;
+    }
+
+    @Name("com.jorgenota.utils.retry.Failed")
+    @Label("Retries Failed")
+    @Description("An execution with retries was aborted before exhausting its retries")
+    @Category({CATEGORY, "Retry"})
+    static final class FailedEvent extends Event {
+        @Label("Retrier")
+        String retrier;
+        @Label("Exception Class")
+        @Description("Class of the exception thrown by the last attempt")
+        Class<?> exceptionClass;
+        @Label("Attempts")
+        long attempts;
+        @Label("Reason")
+        String reason;
+    }
+}
@@ -0,0 +1,58 @@
+package com.jorgenota.utils.retry;
+
+/**
+ * Receives the latencies of the attempts and executions of a {@link Retrier}, e.g. to record them as metrics.
+ * <p>
+ * Listeners are called synchronously from the thread executing the code, so they must be fast and shouldn't throw any
+ * exception. Latencies are passed as primitives so listeners can record them without allocating any object.
+ *
+ * @author Jorge Alonso
+ * @see RetrierBuilder#withListener(RetryListener)
+ */
+public interface RetryListener {
+
+    /**
+     * Called after each attempt, successful or not.
+     *
+     * @param latencyNanos the duration of the attempt, in nanoseconds
+     * @param successful   <code>true</code> if the attempt succeeded
+     */
+    default void onAttempt(long latencyNanos, boolean successful) {
+    }
+
+    /**
+     * Called once per execution, after its last attempt, including the time waiting between attempts.
+     *
+     * @param latencyNanos the duration of the whole execution, in nanoseconds
+     * @param attempts     the number of attempts made
+     * @param successful   <code>true</code> if the execution succeeded, <code>false</code> if a {@link RetryException}
+     *                     is thrown
+     */
+    default void onExecution(long latencyNanos, long attempts, boolean successful) {
+    }
+
+    /**
+     * Returns a listener that notifies all the given listeners, in order.
+     *
+     * @param listeners the listeners to notify
+     * @return the composite listener
+     */
+    static RetryListener composite(RetryListener... listeners) {
+        RetryListener[] copy = listeners.clone();
+        return new RetryListener() {
+            @Override
+            public void onAttempt(long latencyNanos, boolean successful) {
+                for (RetryListener listener : copy) {
+                    listener.onAttempt(latencyNanos, successful);
+                }
+            }
+
+            @Override
+            public void onExecution(long latencyNanos, long attempts, boolean successful) {
+                for (RetryListener listener : copy) {
+                    listener.onExecution(latencyNanos, attempts, successful);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.jorgenota.utils.retry;
+
+/**
+ * The priority of the executions of a {@link Retrier}, used by an {@link AdmissionController} to decide which work is
+ * shed first under overload.
+ *
+ * @author Jorge Alonso
+ */
+public enum RetryPriority {
+
+    /**
+     * Work that must be done even under overload, e.g. user-facing requests that can't be degraded.
+     */
+    CRITICAL,
+
+    /**
+     * The default priority, e.g. user-facing requests.
+     */
+    NORMAL,
+
+    /**
+     * Work that can be delayed or dropped, e.g. batch jobs or asynchronous replication. It's the first to be shed.
+     */
+    BACKGROUND
+}
@@ -0,0 +1,22 @@
+package com.jorgenota.utils.retry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules delayed attempts for an {@link AsyncRetrier}.
+ *
+ * @author Jorge Alonso
+ */
+public interface RetryScheduler {
+
+    /**
+     * Schedules the given task to be executed once after the given delay.
+     *
+     * @param task  the task to execute
+     * @param delay the time from now to delay the execution
+     * @param unit  the time unit of the delay
+     * @return a handle that can be used to cancel the scheduled task
+     * @throws IllegalStateException if the scheduler has been shut down
+     */
+    RetryTimeout schedule(Runnable task, long delay, TimeUnit unit);
+}
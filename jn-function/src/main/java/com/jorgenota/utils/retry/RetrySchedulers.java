@@ -0,0 +1,75 @@
+package com.jorgenota.utils.retry;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Factory class for instances of {@link RetryScheduler}.
+ *
+ * @author Jorge Alonso
+ */
+public final class RetrySchedulers {
+
+    private RetrySchedulers() {
+    }
+
+    /**
+     * Returns a scheduler backed by a hashed timing wheel with the default tick duration and wheel size. Use it when
+     * a large number of delayed attempts may be pending at the same time.
+     *
+     * @return a new hashed wheel scheduler
+     * @see HashedWheelRetryScheduler
+     */
+    public static HashedWheelRetryScheduler hashedWheel() {
+        return new HashedWheelRetryScheduler();
+    }
+
+    /**
+     * Returns a scheduler that delegates on the given {@link ScheduledExecutorService}.
+     *
+     * @param executorService the executor service used to schedule the tasks
+     * @return a scheduler backed by the given executor service
+     */
+    public static RetryScheduler fromExecutor(ScheduledExecutorService executorService) {
+        return new ScheduledExecutorRetryScheduler(executorService);
+    }
+
+    private static final class ScheduledExecutorRetryScheduler implements RetryScheduler {
+        private final ScheduledExecutorService executorService;
+
+        private ScheduledExecutorRetryScheduler(ScheduledExecutorService executorService) {
+            this.executorService = notNull(executorService, "executorService may not be null");
+        }
+
+        @Override
+        public RetryTimeout schedule(Runnable task, long delay, TimeUnit unit) {
+            return new ScheduledFutureRetryTimeout(executorService.schedule(task, delay, unit));
+        }
+    }
+
+    private static final class ScheduledFutureRetryTimeout implements RetryTimeout {
+        private final ScheduledFuture<?> future;
+
+        private ScheduledFutureRetryTimeout(ScheduledFuture<?> future) {
+            this.future = future;
+        }
+
+        @Override
+        public boolean cancel() {
+            return future.cancel(false);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return future.getDelay(TimeUnit.NANOSECONDS) <= 0 && !future.isCancelled();
+        }
+    }
+}
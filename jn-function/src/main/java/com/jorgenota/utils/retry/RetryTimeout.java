@@ -0,0 +1,30 @@
+package com.jorgenota.utils.retry;
+
+/**
+ * A handle associated with a task scheduled by a {@link RetryScheduler}.
+ *
+ * @author Jorge Alonso
+ */
+public interface RetryTimeout {
+
+    /**
+     * Attempts to cancel the scheduled task. If the task has already been executed or cancelled, it does nothing.
+     *
+     * @return <code>true</code> if the task has been cancelled by this call, <code>false</code> otherwise
+     */
+    boolean cancel();
+
+    /**
+     * Returns <code>true</code> if the scheduled task has been cancelled.
+     *
+     * @return <code>true</code> if the task has been cancelled
+     */
+    boolean isCancelled();
+
+    /**
+     * Returns <code>true</code> if the delay has expired and the task has been handed over for execution.
+     *
+     * @return <code>true</code> if the task has expired
+     */
+    boolean isExpired();
+}
@@ -0,0 +1,68 @@
+package com.jorgenota.utils.retry;
+
+import com.jorgenota.utils.base.Preconditions;
+import org.springframework.lang.Nullable;
+
+/**
+ * The outcome of a task executed by a {@link FanOut}: either its result or the {@link RetryException} that finished
+ * it. Tasks cancelled before starting fail with a {@link RejectedRetryException}.
+ *
+ * @param <T> the type of the result
+ * @author Jorge Alonso
+ */
+public final class TaskOutcome<T> {
+    private final int index;
+    @Nullable
+    private final T value;
+    @Nullable
+    private final RetryException failure;
+
+    private TaskOutcome(int index, @Nullable T value, @Nullable RetryException failure) {
+        this.index = index;
+        this.value = value;
+        this.failure = failure;
+    }
+
+    static <T> TaskOutcome<T> success(int index, @Nullable T value) {
+        return new TaskOutcome<>(index, value, null);
+    }
+
+    static <T> TaskOutcome<T> failure(int index, RetryException failure) {
+        return new TaskOutcome<>(index, null, failure);
+    }
+
+    /**
+     * Returns the position of the task in the submitted collection.
+     *
+     * @return the index of the task
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+
+    /**
+     * Returns the result of the task.
+     *
+     * @return the result of the task
+     * @throws IllegalStateException if the task failed
+     */
+    @Nullable
+    public T getValue() throws IllegalStateException {
+        Preconditions.state(failure == null, "Task %d failed", index);
+        return value;
+    }
+
+    /**
+     * Returns the exception that finished the task.
+     *
+     * @return the exception, or <code>null</code> if the task succeeded
+     */
+    @Nullable
+    public RetryException getFailure() {
+        return failure;
+    }
+}
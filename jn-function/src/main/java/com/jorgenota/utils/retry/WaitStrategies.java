@@ -135,7 +135,7 @@ public final class WaitStrategies {
             Preconditions.isTrue(minimum >= 0,
                 "minimum must be >= 0 but is %d", minimum);
             Preconditions.isTrue(maximum > minimum,
-                "maximum must be > minimum but maximum is %d and minimum is", maximum, minimum);
+                "maximum must be > minimum but maximum is %d and minimum is %d", maximum, minimum);
 
             this.minimum = minimum;
             this.maximum = maximum;
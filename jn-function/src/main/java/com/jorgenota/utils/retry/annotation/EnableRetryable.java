@@ -0,0 +1,21 @@
+package com.jorgenota.utils.retry.annotation;
+
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables the processing of {@link Retryable} annotations in the beans of the application context.
+ *
+ * @author Jorge Alonso
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Import(RetryableConfiguration.class)
+public @interface EnableRetryable {
+}
@@ -0,0 +1,31 @@
+package com.jorgenota.utils.retry.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of a Spring bean (or all the public methods of a bean class) to be executed with retries using a
+ * named {@link com.jorgenota.utils.retry.Retrier}.
+ * <p>
+ * It requires {@link EnableRetryable} on a configuration class. When all the attempts fail, the exception thrown by
+ * the last attempt is rethrown.
+ *
+ * @author Jorge Alonso
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Retryable {
+
+    /**
+     * The name of the retrier to use, matching either the name of a {@link com.jorgenota.utils.retry.Retrier} bean
+     * (see {@link com.jorgenota.utils.retry.Retrier#getName()}) or its bean name. If empty, the default retrier is
+     * used.
+     *
+     * @return the name of the retrier
+     */
+    String name() default "";
+}
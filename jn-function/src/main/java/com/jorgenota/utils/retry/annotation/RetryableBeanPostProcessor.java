@@ -0,0 +1,145 @@
+package com.jorgenota.utils.retry.annotation;
+
+import com.jorgenota.utils.retry.Retrier;
+import com.jorgenota.utils.retry.RetrierBuilder;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.MethodMatcher;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.AopInfrastructureBean;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Creates proxies for the beans with {@link Retryable} methods.
+ * <p>
+ * All the interception metadata is resolved once, when the bean is initialized: each annotated method gets its own
+ * advisor whose pointcut only matches that method and whose interceptor already holds the resolved
+ * {@link Retrier}, so no annotation lookup nor retrier lookup is done per call. Class-based proxies are used, so the
+ * target methods are invoked through the generated proxy class instead of reflection.
+ *
+ * @author Jorge Alonso
+ */
+public class RetryableBeanPostProcessor implements BeanPostProcessor, BeanFactoryAware, Ordered {
+
+    @Nullable
+    private ListableBeanFactory beanFactory;
+    @Nullable
+    private Map<String, Retrier> retriersByName;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        if (beanFactory instanceof ListableBeanFactory) {
+            this.beanFactory = (ListableBeanFactory) beanFactory;
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // Run after the rest of post processors so existing proxies are reused
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof AopInfrastructureBean) {
+            return bean;
+        }
+
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        Map<Method, Retryable> retryableMethods = MethodIntrospector.selectMethods(targetClass,
+            (MethodIntrospector.MetadataLookup<Retryable>) method -> findRetryable(method, targetClass));
+        if (retryableMethods.isEmpty()) {
+            return bean;
+        }
+
+        if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            Advised advised = (Advised) bean;
+            retryableMethods.forEach((method, retryable) -> advised.addAdvisor(0, createAdvisor(method, retryable)));
+            return bean;
+        }
+
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        retryableMethods.forEach((method, retryable) -> proxyFactory.addAdvisor(createAdvisor(method, retryable)));
+        proxyFactory.setFrozen(true);
+        return proxyFactory.getProxy(ClassUtils.getDefaultClassLoader());
+    }
+
+    @Nullable
+    private static Retryable findRetryable(Method method, Class<?> targetClass) {
+        Retryable retryable = AnnotatedElementUtils.findMergedAnnotation(method, Retryable.class);
+        if (retryable == null && Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class) {
+            retryable = AnnotatedElementUtils.findMergedAnnotation(targetClass, Retryable.class);
+        }
+        return retryable;
+    }
+
+    private DefaultPointcutAdvisor createAdvisor(Method method, Retryable retryable) {
+        return new DefaultPointcutAdvisor(new SingleMethodPointcut(method),
+            new RetryableMethodInterceptor(resolveRetrier(retryable.name())));
+    }
+
+    private synchronized Retrier resolveRetrier(String name) {
+        if (!StringUtils.hasText(name)) {
+            return RetrierBuilder.getDefaultRetrier();
+        }
+        if (retriersByName == null) {
+            retriersByName = new HashMap<>();
+            if (beanFactory != null) {
+                // Names of the retriers take precedence over bean names
+                Map<String, Retrier> retrierBeans = beanFactory.getBeansOfType(Retrier.class);
+                retriersByName.putAll(retrierBeans);
+                retrierBeans.values().forEach(retrier -> retriersByName.put(retrier.getName(), retrier));
+            }
+        }
+        return notNull(retriersByName.get(name), "No Retrier named '" + name + "' found for @Retryable");
+    }
+
+    /**
+     * A pointcut that only matches one method. It's evaluated once per method when the proxy builds its interceptor
+     * chains.
+     */
+    private static final class SingleMethodPointcut extends StaticMethodMatcher implements Pointcut {
+        private final Method method;
+
+        private SingleMethodPointcut(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public boolean matches(Method candidate, Class<?> targetClass) {
+            return method.equals(candidate) || method.equals(AopUtils.getMostSpecificMethod(candidate, targetClass));
+        }
+
+        @Override
+        public ClassFilter getClassFilter() {
+            return ClassFilter.TRUE;
+        }
+
+        @Override
+        public MethodMatcher getMethodMatcher() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.jorgenota.utils.retry.annotation;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+
+/**
+ * Registers the infrastructure needed to process {@link Retryable} annotations.
+ *
+ * @author Jorge Alonso
+ * @see EnableRetryable
+ */
+@Configuration(proxyBeanMethods = false)
+@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+public class RetryableConfiguration {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static RetryableBeanPostProcessor retryableBeanPostProcessor() {
+        return new RetryableBeanPostProcessor();
+    }
+}
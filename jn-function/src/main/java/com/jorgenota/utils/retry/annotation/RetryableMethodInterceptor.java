@@ -0,0 +1,47 @@
+package com.jorgenota.utils.retry.annotation;
+
+import com.jorgenota.utils.retry.Retrier;
+import com.jorgenota.utils.retry.RetryException;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Executes the intercepted method with retries using a {@link Retrier} resolved when the proxy was created.
+ *
+ * @author Jorge Alonso
+ */
+final class RetryableMethodInterceptor implements MethodInterceptor {
+    private final Retrier retrier;
+
+    RetryableMethodInterceptor(Retrier retrier) {
+        this.retrier = retrier;
+    }
+
+    @Override
+    @Nullable
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        try {
+            return retrier.call(() -> proceed(invocation));
+        } catch (RetryException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Nullable
+    private static Object proceed(MethodInvocation invocation) throws Exception {
+        try {
+            // Each attempt must go through the rest of the interceptor chain, so it needs its own invocation
+            return (invocation instanceof ProxyMethodInvocation)
+                ? ((ProxyMethodInvocation) invocation).invocableClone().proceed()
+                : invocation.proceed();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * @author Jorge Alonso
+ */
+@NonNullApi
+@NonNullFields
+package com.jorgenota.utils.retry.annotation;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
+
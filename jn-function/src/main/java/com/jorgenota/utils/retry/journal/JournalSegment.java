@@ -0,0 +1,236 @@
+package com.jorgenota.utils.retry.journal;
+
+import com.jorgenota.utils.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A memory-mapped file holding a fixed number of fixed-size entry slots.
+ * <p>
+ * The file starts with a header (magic number, version, slot size and slot count) followed by the slots. Each slot
+ * contains the state, the number of attempts already made, the time of the first submission, the time of the next
+ * attempt and the key and payload reference encoded in UTF-8. Slots are only appended, so every slot after the first
+ * free one is also free. The state is always written after the rest of the slot, so an entry never becomes pending
+ * before it is complete.
+ *
+ * @author Jorge Alonso
+ */
+final class JournalSegment {
+    static final int HEADER_SIZE = 16;
+    static final int SLOT_HEADER_SIZE = 28;
+
+    private static final int MAGIC = 0x524A4E4C;
+    private static final int VERSION = 1;
+
+    private static final byte STATE_FREE = 0;
+    private static final byte STATE_PENDING = 1;
+    private static final byte STATE_DONE = 2;
+
+    private static final int STATE_OFFSET = 0;
+    private static final int ATTEMPT_NUMBER_OFFSET = 4;
+    private static final int FIRST_ATTEMPT_TIME_OFFSET = 8;
+    private static final int NEXT_ATTEMPT_TIME_OFFSET = 16;
+    private static final int KEY_LENGTH_OFFSET = 24;
+    private static final int PAYLOAD_REFERENCE_LENGTH_OFFSET = 26;
+
+    private final long sequence;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int slotSize;
+    private final int slotCount;
+    private final AtomicInteger pendingEntries = new AtomicInteger();
+    // Written under the append lock of the journal, read without it
+    private volatile int nextSlot;
+
+    private JournalSegment(long sequence, Path path, MappedByteBuffer buffer, int slotSize, int slotCount) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+        this.slotSize = slotSize;
+        this.slotCount = slotCount;
+    }
+
+    static JournalSegment create(long sequence, Path path, int slotSize, int slotCount) throws IOException {
+        long fileSize = HEADER_SIZE + (long) slotSize * slotCount;
+        try (FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, slotSize);
+            buffer.putInt(12, slotCount);
+            return new JournalSegment(sequence, path, buffer, slotSize, slotCount);
+        }
+    }
+
+    static JournalSegment open(long sequence, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Preconditions.state(channel.size() >= HEADER_SIZE, "Corrupted journal segment %s", path);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            Preconditions.state(buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION,
+                "Unknown journal segment format in %s", path);
+            int slotSize = buffer.getInt(8);
+            int slotCount = buffer.getInt(12);
+            Preconditions.state(channel.size() == HEADER_SIZE + (long) slotSize * slotCount,
+                "Corrupted journal segment %s", path);
+
+            JournalSegment segment = new JournalSegment(sequence, path, buffer, slotSize, slotCount);
+            segment.recover();
+            return segment;
+        }
+    }
+
+    private void recover() {
+        int pending = 0;
+        int slot = 0;
+        for (; slot < slotCount; slot++) {
+            byte state = buffer.get(offset(slot) + STATE_OFFSET);
+            if (state == STATE_FREE) {
+                break;
+            }
+            if (state == STATE_PENDING) {
+                pending++;
+            }
+        }
+        pendingEntries.set(pending);
+        nextSlot = slot;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    boolean isFull() {
+        return nextSlot >= slotCount;
+    }
+
+    int slotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Returns the number of slots written so far. Only these slots need to be scanned.
+     */
+    int usedSlots() {
+        return nextSlot;
+    }
+
+    int pendingEntries() {
+        return pendingEntries.get();
+    }
+
+    int maxEntrySize() {
+        return slotSize - SLOT_HEADER_SIZE;
+    }
+
+    /**
+     * Appends a pending entry. It must be called holding the append lock of the journal and only if the segment is
+     * not full.
+     */
+    void append(byte[] key, byte[] payloadReference, int attemptNumber, long firstAttemptTime, long nextAttemptTime) {
+        int slot = nextSlot;
+        Preconditions.state(slot < slotCount, "Journal segment %d is full", sequence);
+        Preconditions.isTrue(key.length + payloadReference.length <= maxEntrySize(),
+            "Entry of %d bytes exceeds the %d bytes of the slots", key.length + payloadReference.length, maxEntrySize());
+        int offset = offset(slot);
+        buffer.putInt(offset + ATTEMPT_NUMBER_OFFSET, attemptNumber);
+        buffer.putLong(offset + FIRST_ATTEMPT_TIME_OFFSET, firstAttemptTime);
+        buffer.putLong(offset + NEXT_ATTEMPT_TIME_OFFSET, nextAttemptTime);
+        buffer.putShort(offset + KEY_LENGTH_OFFSET, (short) key.length);
+        buffer.putShort(offset + PAYLOAD_REFERENCE_LENGTH_OFFSET, (short) payloadReference.length);
+        ByteBuffer data = buffer.duplicate();
+        data.position(offset + SLOT_HEADER_SIZE);
+        data.put(key);
+        data.put(payloadReference);
+        buffer.put(offset + STATE_OFFSET, STATE_PENDING);
+        pendingEntries.incrementAndGet();
+        nextSlot = slot + 1;
+    }
+
+    boolean isPending(int slot) {
+        return buffer.get(offset(slot) + STATE_OFFSET) == STATE_PENDING;
+    }
+
+    int attemptNumber(int slot) {
+        return buffer.getInt(offset(slot) + ATTEMPT_NUMBER_OFFSET);
+    }
+
+    long firstAttemptTime(int slot) {
+        return buffer.getLong(offset(slot) + FIRST_ATTEMPT_TIME_OFFSET);
+    }
+
+    long nextAttemptTime(int slot) {
+        return buffer.getLong(offset(slot) + NEXT_ATTEMPT_TIME_OFFSET);
+    }
+
+    String key(int slot) {
+        int offset = offset(slot);
+        return readString(offset + SLOT_HEADER_SIZE, buffer.getShort(offset + KEY_LENGTH_OFFSET));
+    }
+
+    String payloadReference(int slot) {
+        int offset = offset(slot);
+        int keyLength = buffer.getShort(offset + KEY_LENGTH_OFFSET);
+        return readString(offset + SLOT_HEADER_SIZE + keyLength,
+            buffer.getShort(offset + PAYLOAD_REFERENCE_LENGTH_OFFSET));
+    }
+
+    byte[] keyBytes(int slot) {
+        int offset = offset(slot);
+        return readBytes(offset + SLOT_HEADER_SIZE, buffer.getShort(offset + KEY_LENGTH_OFFSET));
+    }
+
+    byte[] payloadReferenceBytes(int slot) {
+        int offset = offset(slot);
+        int keyLength = buffer.getShort(offset + KEY_LENGTH_OFFSET);
+        return readBytes(offset + SLOT_HEADER_SIZE + keyLength,
+            buffer.getShort(offset + PAYLOAD_REFERENCE_LENGTH_OFFSET));
+    }
+
+    /**
+     * Records a new failed attempt of a pending entry.
+     */
+    void update(int slot, int attemptNumber, long nextAttemptTime) {
+        int offset = offset(slot);
+        buffer.putLong(offset + NEXT_ATTEMPT_TIME_OFFSET, nextAttemptTime);
+        buffer.putInt(offset + ATTEMPT_NUMBER_OFFSET, attemptNumber);
+    }
+
+    void markDone(int slot) {
+        buffer.put(offset(slot) + STATE_OFFSET, STATE_DONE);
+        pendingEntries.decrementAndGet();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        // The mapping is released when the buffer is garbage collected
+        Files.deleteIfExists(path);
+    }
+
+    private int offset(int slot) {
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    private String readString(int offset, int length) {
+        return new String(readBytes(offset, length), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer data = buffer.duplicate();
+        data.position(offset);
+        data.get(bytes);
+        return bytes;
+    }
+}
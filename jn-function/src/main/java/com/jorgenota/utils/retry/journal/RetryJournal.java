@@ -0,0 +1,337 @@
+package com.jorgenota.utils.retry.journal;
+
+import com.jorgenota.utils.base.Preconditions;
+import com.jorgenota.utils.retry.ExhaustedRetryException;
+import com.jorgenota.utils.retry.FailedAttempt;
+import com.jorgenota.utils.retry.StopStrategy;
+import com.jorgenota.utils.retry.WaitStrategy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * A durable queue of operations to be retried, typically operations with long backoffs that must survive restarts.
+ * <p>
+ * Each pending operation is stored as an entry (key, payload reference, number of attempts, time of the first
+ * submission and time of the next attempt) in memory-mapped segment files, so the pending operations don't use heap
+ * memory however long the queue grows, and they are reloaded when a journal is opened again on the same directory.
+ * Only a reference to the payload is stored: the payload itself (e.g. a file to upload) must be kept somewhere else.
+ * <p>
+ * Due entries are executed by {@link #processDue()} using a {@link RetryJournalHandler}. After a failed attempt, the
+ * {@link StopStrategy} decides whether to keep retrying and the {@link WaitStrategy} computes the time of the next
+ * attempt, as it happens with a {@link com.jorgenota.utils.retry.Retrier}. Segments are deleted once all their entries
+ * are done, and sparse segments are compacted by moving their pending entries to the active segment.
+ * <p>
+ * Entries are executed at least once: after a crash, an attempt that was being executed may be executed again.
+ *
+ * @author Jorge Alonso
+ * @see RetryJournalBuilder
+ */
+@Slf4j
+public final class RetryJournal implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "retry-journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final Pattern SEGMENT_NAME = Pattern.compile(
+        Pattern.quote(SEGMENT_PREFIX) + "(\\d+)" + Pattern.quote(SEGMENT_SUFFIX));
+    private static final int COMPACTION_RATIO = 4;
+
+    private final Path directory;
+    private final StopStrategy stopStrategy;
+    private final WaitStrategy waitStrategy;
+    private final RetryJournalHandler handler;
+    private final Clock clock;
+    private final int slotSize;
+    private final int segmentCapacity;
+    private final boolean syncOnWrite;
+
+    private final List<JournalSegment> segments = new CopyOnWriteArrayList<>();
+    private final Lock appendLock = new ReentrantLock();
+    private final Lock processLock = new ReentrantLock();
+    private JournalSegment activeSegment;
+    private volatile boolean closed;
+
+    RetryJournal(Path directory,
+                 StopStrategy stopStrategy,
+                 WaitStrategy waitStrategy,
+                 RetryJournalHandler handler,
+                 Clock clock,
+                 int slotSize,
+                 int segmentCapacity,
+                 boolean syncOnWrite) throws IOException {
+        this.directory = directory;
+        this.stopStrategy = stopStrategy;
+        this.waitStrategy = waitStrategy;
+        this.handler = handler;
+        this.clock = clock;
+        this.slotSize = slotSize;
+        this.segmentCapacity = segmentCapacity;
+        this.syncOnWrite = syncOnWrite;
+
+        Files.createDirectories(directory);
+        loadSegments();
+        if (segments.isEmpty() || segments.get(segments.size() - 1).isFull()) {
+            activeSegment = newSegment(0);
+        } else {
+            activeSegment = segments.get(segments.size() - 1);
+        }
+    }
+
+    /**
+     * Adds an operation to the journal. Its first attempt will be executed by the next call to {@link #processDue()}.
+     *
+     * @param key              the key of the operation
+     * @param payloadReference the reference to the payload of the operation
+     */
+    public void submit(String key, String payloadReference) {
+        submit(key, payloadReference, 0L);
+    }
+
+    /**
+     * Adds an operation to the journal, delaying its first attempt.
+     *
+     * @param key              the key of the operation
+     * @param payloadReference the reference to the payload of the operation
+     * @param delayInMillis    the delay, in milliseconds, before the first attempt
+     */
+    public void submit(String key, String payloadReference, long delayInMillis) {
+        notNull(key, "key may not be null");
+        notNull(payloadReference, "payloadReference may not be null");
+        Preconditions.isTrue(delayInMillis >= 0L, "delayInMillis must be >= 0 but is %d", delayInMillis);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] payloadReferenceBytes = payloadReference.getBytes(StandardCharsets.UTF_8);
+        Preconditions.isTrue(keyBytes.length + payloadReferenceBytes.length <= slotSize - JournalSegment.SLOT_HEADER_SIZE,
+            "key and payloadReference must not exceed %d bytes", slotSize - JournalSegment.SLOT_HEADER_SIZE);
+
+        long now = clock.millis();
+        append(keyBytes, payloadReferenceBytes, 0, now, now + delayInMillis);
+    }
+
+    /**
+     * Executes an attempt of every entry whose next attempt is due, on the calling thread. Entries that succeed or
+     * whose retries are exhausted are removed from the journal, the rest are rescheduled. Finally, the segments with no
+     * pending entries are deleted and the sparse ones are compacted.
+     * <p>
+     * It's intended to be called periodically, e.g. from a scheduled executor. Concurrent calls are serialized.
+     *
+     * @return the number of attempts executed
+     */
+    public int processDue() {
+        Preconditions.state(!closed, "The journal is closed");
+        processLock.lock();
+        try {
+            int processed = 0;
+            for (JournalSegment segment : segments) {
+                processed += processDue(segment);
+            }
+            compact();
+            return processed;
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of operations pending to be retried.
+     *
+     * @return the number of pending entries
+     */
+    public long pendingEntries() {
+        long pending = 0L;
+        for (JournalSegment segment : segments) {
+            pending += segment.pendingEntries();
+        }
+        return pending;
+    }
+
+    /**
+     * Returns the number of segment files currently used by the journal.
+     *
+     * @return the number of segments
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Flushes the segments to the storage device and closes the journal. Pending entries are kept in the segment
+     * files and will be resumed when a journal is opened on the same directory.
+     */
+    @Override
+    public void close() {
+        processLock.lock();
+        appendLock.lock();
+        try {
+            if (!closed) {
+                closed = true;
+                for (JournalSegment segment : segments) {
+                    segment.force();
+                }
+            }
+        } finally {
+            appendLock.unlock();
+            processLock.unlock();
+        }
+    }
+
+    private int processDue(JournalSegment segment) {
+        int processed = 0;
+        int usedSlots = segment.usedSlots();
+        for (int slot = 0; slot < usedSlots && segment.pendingEntries() > 0; slot++) {
+            if (segment.isPending(slot) && segment.nextAttemptTime(slot) <= clock.millis()) {
+                executeAttempt(segment, slot);
+                processed++;
+            }
+        }
+        if (syncOnWrite && processed > 0) {
+            segment.force();
+        }
+        return processed;
+    }
+
+    private void executeAttempt(JournalSegment segment, int slot) {
+        String key = segment.key(slot);
+        String payloadReference = segment.payloadReference(slot);
+        int attemptNumber = segment.attemptNumber(slot) + 1;
+        try {
+            handler.execute(key, payloadReference);
+            segment.markDone(slot);
+        } catch (Exception e) {
+            long now = clock.millis();
+            FailedAttempt failedAttempt = new FailedAttempt(e, attemptNumber, now - segment.firstAttemptTime(slot));
+            if (stopStrategy.shouldStop(failedAttempt)) {
+                segment.markDone(slot);
+                notifyExhausted(key, payloadReference, failedAttempt);
+            } else {
+                long sleepTime = Math.max(waitStrategy.computeSleepTime(failedAttempt), 0L);
+                segment.update(slot, attemptNumber, now + sleepTime);
+            }
+        }
+    }
+
+    private void notifyExhausted(String key, String payloadReference, FailedAttempt failedAttempt) {
+        try {
+            handler.onExhausted(key, payloadReference, new ExhaustedRetryException(failedAttempt));
+        } catch (RuntimeException e) {
+            log.warn("Exhausted retries handler failed for key {}", key, e);
+        }
+    }
+
+    /**
+     * Deletes the inactive segments with no pending entries and moves the pending entries of the sparse inactive
+     * segments to the active one. Must be called holding the process lock.
+     */
+    private void compact() {
+        for (JournalSegment segment : segments) {
+            if (segment == activeSegment) {
+                continue;
+            }
+            int pending = segment.pendingEntries();
+            if (pending > 0 && pending <= segment.slotCount() / COMPACTION_RATIO) {
+                relocatePendingEntries(segment);
+                pending = segment.pendingEntries();
+            }
+            if (pending == 0) {
+                deleteSegment(segment);
+            }
+        }
+    }
+
+    private void relocatePendingEntries(JournalSegment segment) {
+        int usedSlots = segment.usedSlots();
+        for (int slot = 0; slot < usedSlots && segment.pendingEntries() > 0; slot++) {
+            if (segment.isPending(slot)) {
+                // The copy is written before the original is marked as done, so a crash may duplicate an entry but
+                // never lose it
+                append(segment.keyBytes(slot), segment.payloadReferenceBytes(slot), segment.attemptNumber(slot),
+                    segment.firstAttemptTime(slot), segment.nextAttemptTime(slot));
+                segment.markDone(slot);
+            }
+        }
+        if (syncOnWrite) {
+            segment.force();
+        }
+    }
+
+    private void deleteSegment(JournalSegment segment) {
+        appendLock.lock();
+        try {
+            if (segment != activeSegment) {
+                segments.remove(segment);
+                segment.delete();
+            }
+        } catch (IOException e) {
+            log.warn("Journal segment {} could not be deleted", segment.sequence(), e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void append(byte[] key, byte[] payloadReference, int attemptNumber, long firstAttemptTime,
+                        long nextAttemptTime) {
+        appendLock.lock();
+        try {
+            Preconditions.state(!closed, "The journal is closed");
+            int entrySize = key.length + payloadReference.length;
+            if (activeSegment.isFull() || activeSegment.maxEntrySize() < entrySize) {
+                // A reloaded active segment may have been created with a smaller slot size, and compaction may move
+                // entries written with a larger one
+                activeSegment = newSegment(entrySize);
+            }
+            activeSegment.append(key, payloadReference, attemptNumber, firstAttemptTime, nextAttemptTime);
+            if (syncOnWrite) {
+                activeSegment.force();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal segment could not be created", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private JournalSegment newSegment(int entrySize) throws IOException {
+        long sequence = segments.isEmpty() ? 1L : segments.get(segments.size() - 1).sequence() + 1L;
+        JournalSegment segment = JournalSegment.create(sequence, segmentPath(sequence),
+            Math.max(slotSize, entrySize + JournalSegment.SLOT_HEADER_SIZE), segmentCapacity);
+        segments.add(segment);
+        return segment;
+    }
+
+    private void loadSegments() throws IOException {
+        List<JournalSegment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    JournalSegment segment = JournalSegment.open(Long.parseLong(matcher.group(1)), path);
+                    if (segment.pendingEntries() == 0 && segment.isFull()) {
+                        segment.delete();
+                    } else {
+                        loaded.add(segment);
+                    }
+                }
+            }
+        }
+        loaded.sort(Comparator.comparingLong(JournalSegment::sequence));
+        segments.addAll(loaded);
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+}
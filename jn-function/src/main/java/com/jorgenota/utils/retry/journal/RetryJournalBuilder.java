@@ -0,0 +1,131 @@
+package com.jorgenota.utils.retry.journal;
+
+import com.jorgenota.utils.base.Preconditions;
+import com.jorgenota.utils.retry.StopStrategies;
+import com.jorgenota.utils.retry.StopStrategy;
+import com.jorgenota.utils.retry.WaitStrategies;
+import com.jorgenota.utils.retry.WaitStrategy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * @author Jorge Alonso
+ */
+public class RetryJournalBuilder {
+    private static final int DEFAULT_SLOT_SIZE = 512;
+    private static final int DEFAULT_SEGMENT_CAPACITY = 4096;
+    private static final long DEFAULT_MAXIMUM_WAIT = 15L * 60L * 1000L;
+
+    private final Path directory;
+    private StopStrategy stopStrategy = StopStrategies.neverStop();
+    private WaitStrategy waitStrategy = WaitStrategies.exponentialWait(100L, DEFAULT_MAXIMUM_WAIT);
+    private Clock clock = Clock.systemUTC();
+    private int slotSize = DEFAULT_SLOT_SIZE;
+    private int segmentCapacity = DEFAULT_SEGMENT_CAPACITY;
+    private boolean syncOnWrite = false;
+
+    private RetryJournalBuilder(Path directory) {
+        this.directory = notNull(directory, "directory may not be null");
+    }
+
+    /**
+     * Constructs a new builder
+     *
+     * @param directory the directory where the segment files are stored
+     * @return the new builder
+     */
+    public static RetryJournalBuilder newBuilder(Path directory) {
+        return new RetryJournalBuilder(directory);
+    }
+
+    /**
+     * Sets the stop strategy used to decide when to stop retrying an operation. The default strategy is to never
+     * stop.
+     *
+     * @param stopStrategy the strategy used to decide when to stop retrying
+     * @return <code>this</code>
+     */
+    public RetryJournalBuilder withStopStrategy(StopStrategy stopStrategy) {
+        this.stopStrategy = notNull(stopStrategy, "stopStrategy may not be null");
+        return this;
+    }
+
+    /**
+     * Sets the wait strategy used to compute the time of the next attempt after a failed one. The default strategy is
+     * an exponential backoff of up to 15 minutes.
+     *
+     * @param waitStrategy the strategy used to compute the time between attempts
+     * @return <code>this</code>
+     */
+    public RetryJournalBuilder withWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = notNull(waitStrategy, "waitStrategy may not be null");
+        return this;
+    }
+
+    /**
+     * Sets the maximum size, in bytes, of the UTF-8 encoded key plus payload reference of the entries. The default
+     * is {@value #DEFAULT_SLOT_SIZE} bytes minus the size of the entry header.
+     *
+     * @param maxEntrySize the maximum size of the key and payload reference of an entry
+     * @return <code>this</code>
+     */
+    public RetryJournalBuilder withMaxEntrySize(int maxEntrySize) {
+        Preconditions.isTrue(maxEntrySize > 0 && maxEntrySize <= Short.MAX_VALUE,
+            "maxEntrySize must be > 0 and <= %d but is %d", Short.MAX_VALUE, maxEntrySize);
+        this.slotSize = maxEntrySize + JournalSegment.SLOT_HEADER_SIZE;
+        return this;
+    }
+
+    /**
+     * Sets the number of entries of each segment file. The default is {@value #DEFAULT_SEGMENT_CAPACITY}.
+     *
+     * @param segmentCapacity the number of entries of each segment
+     * @return <code>this</code>
+     */
+    public RetryJournalBuilder withSegmentCapacity(int segmentCapacity) {
+        Preconditions.isTrue(segmentCapacity > 0, "segmentCapacity must be > 0 but is %d", segmentCapacity);
+        this.segmentCapacity = segmentCapacity;
+        return this;
+    }
+
+    /**
+     * Configures the journal to flush the modified segments to the storage device after every write. Otherwise,
+     * writes survive a crash of the process but may be lost if the operating system crashes.
+     *
+     * @return <code>this</code>
+     */
+    public RetryJournalBuilder syncOnWrite() {
+        this.syncOnWrite = true;
+        return this;
+    }
+
+    /**
+     * Sets the clock used to compute the times of the attempts. The default is the system UTC clock.
+     *
+     * @param clock the clock
+     * @return <code>this</code>
+     */
+    public RetryJournalBuilder withClock(Clock clock) {
+        this.clock = notNull(clock, "clock may not be null");
+        return this;
+    }
+
+    /**
+     * Builds the journal, reloading the pending entries stored in its directory.
+     *
+     * @param handler the handler used to execute the journaled operations
+     * @return the built journal.
+     * @throws IOException if the directory or the segment files cannot be read or created
+     */
+    public RetryJournal build(RetryJournalHandler handler) throws IOException {
+        notNull(handler, "handler may not be null");
+        Preconditions.isTrue(JournalSegment.HEADER_SIZE + (long) slotSize * segmentCapacity <= Integer.MAX_VALUE,
+            "segments must not exceed %d bytes", Integer.MAX_VALUE);
+        return new RetryJournal(directory, stopStrategy, waitStrategy, handler, clock, slotSize, segmentCapacity,
+            syncOnWrite);
+    }
+}
@@ -0,0 +1,32 @@
+package com.jorgenota.utils.retry.journal;
+
+import com.jorgenota.utils.retry.RetryException;
+
+/**
+ * Executes the operations stored in a {@link RetryJournal}.
+ *
+ * @author Jorge Alonso
+ */
+public interface RetryJournalHandler {
+
+    /**
+     * Executes one attempt of a journaled operation. The operation is considered successful if no exception is
+     * thrown.
+     *
+     * @param key              the key of the operation
+     * @param payloadReference the reference to the payload of the operation (e.g. a file path or an object key)
+     * @throws Exception if the attempt fails
+     */
+    void execute(String key, String payloadReference) throws Exception;
+
+    /**
+     * Called when the stop strategy of the journal decides to stop retrying an operation. The entry has already been
+     * removed from the journal when this method is called. By default it does nothing.
+     *
+     * @param key              the key of the operation
+     * @param payloadReference the reference to the payload of the operation
+     * @param e                the exception describing the last failed attempt
+     */
+    default void onExhausted(String key, String payloadReference, RetryException e) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.jorgenota.utils.retry.metrics;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable snapshot of the latencies recorded by a {@link RetryLatencyRecorder} during an interval. All the
+ * latencies are in nanoseconds.
+ *
+ * @author Jorge Alonso
+ */
+public final class LatencyDistribution {
+    private final Histogram histogram;
+
+    LatencyDistribution(Histogram histogram) {
+        this.histogram = histogram;
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the number of latencies
+     */
+    public long getCount() {
+        return histogram.getTotalCount();
+    }
+
+    public long getMinNanos() {
+        return histogram.getTotalCount() == 0L ? 0L : histogram.getMinValue();
+    }
+
+    public long getMaxNanos() {
+        return histogram.getMaxValue();
+    }
+
+    public double getMeanNanos() {
+        return histogram.getMean();
+    }
+
+    /**
+     * Returns the latency below which the given percentage of the recorded latencies are, e.g. 99.9 for the 99.9th
+     * percentile.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency at the percentile, in nanoseconds
+     */
+    public long getValueAtPercentile(double percentile) {
+        return histogram.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Returns the duration of the interval, in milliseconds.
+     *
+     * @return the duration of the interval
+     */
+    public long getIntervalMillis() {
+        return histogram.getEndTimeStamp() - histogram.getStartTimeStamp();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, p50=%dus, p99=%dus, p99.9=%dus, max=%dus", getCount(),
+            TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(50.0d)),
+            TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(99.0d)),
+            TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(99.9d)),
+            TimeUnit.NANOSECONDS.toMicros(getMaxNanos()));
+    }
+}
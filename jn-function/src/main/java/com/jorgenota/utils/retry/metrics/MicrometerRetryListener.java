@@ -0,0 +1,74 @@
+package com.jorgenota.utils.retry.metrics;
+
+import com.jorgenota.utils.retry.RetryListener;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static com.jorgenota.utils.base.Preconditions.hasText;
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Publishes the latencies of the attempts and executions of a {@link com.jorgenota.utils.retry.Retrier} as Micrometer
+ * distribution summaries, in seconds, with their 50th, 90th, 99th and 99.9th percentiles:
+ * <ul>
+ * <li>{@value #ATTEMPT_LATENCY}: the latency of each attempt.</li>
+ * <li>{@value #EXECUTION_LATENCY}: the latency of each execution, including its retries and the waits between them.</li>
+ * </ul>
+ * Both are tagged with the name of the retrier ({@code retrier}) and the outcome ({@code success} or {@code failure}).
+ * The summaries are registered when the listener is created, so recording doesn't look up nor allocate any meter.
+ * <p>
+ * This class needs Micrometer on the classpath.
+ *
+ * @author Jorge Alonso
+ * @see com.jorgenota.utils.retry.RetrierBuilder#withListener(RetryListener)
+ */
+public final class MicrometerRetryListener implements RetryListener {
+    public static final String ATTEMPT_LATENCY = "retry.attempt.latency";
+    public static final String EXECUTION_LATENCY = "retry.execution.latency";
+
+    private static final double NANOS_TO_SECONDS = 1.0e-9d;
+
+    private final DistributionSummary successfulAttempts;
+    private final DistributionSummary failedAttempts;
+    private final DistributionSummary successfulExecutions;
+    private final DistributionSummary failedExecutions;
+
+    /**
+     * Creates a listener that registers its summaries in the given registry.
+     *
+     * @param registry    the meter registry
+     * @param retrierName the name of the retrier, used as a tag
+     */
+    public MicrometerRetryListener(MeterRegistry registry, String retrierName) {
+        notNull(registry, "registry may not be null");
+        hasText(retrierName, "retrierName may not be empty");
+        this.successfulAttempts = register(registry, ATTEMPT_LATENCY, "Latency of the attempts", retrierName, "success");
+        this.failedAttempts = register(registry, ATTEMPT_LATENCY, "Latency of the attempts", retrierName, "failure");
+        this.successfulExecutions = register(registry, EXECUTION_LATENCY, "Latency of the executions with retries",
+            retrierName, "success");
+        this.failedExecutions = register(registry, EXECUTION_LATENCY, "Latency of the executions with retries",
+            retrierName, "failure");
+    }
+
+    @Override
+    public void onAttempt(long latencyNanos, boolean successful) {
+        (successful ? successfulAttempts : failedAttempts).record(latencyNanos);
+    }
+
+    @Override
+    public void onExecution(long latencyNanos, long attempts, boolean successful) {
+        (successful ? successfulExecutions : failedExecutions).record(latencyNanos);
+    }
+
+    private static DistributionSummary register(MeterRegistry registry, String name, String description,
+                                                String retrierName, String outcome) {
+        return DistributionSummary.builder(name)
+            .description(description)
+            .baseUnit("seconds")
+            .scale(NANOS_TO_SECONDS)
+            .tag("retrier", retrierName)
+            .tag("outcome", outcome)
+            .publishPercentiles(0.5d, 0.9d, 0.99d, 0.999d)
+            .register(registry);
+    }
+}
@@ -0,0 +1,99 @@
+package com.jorgenota.utils.retry.metrics;
+
+import com.jorgenota.utils.base.Preconditions;
+import com.jorgenota.utils.retry.RetryListener;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latencies of the attempts and executions of a {@link com.jorgenota.utils.retry.Retrier} into
+ * HdrHistogram recorders, so accurate tail percentiles can be computed.
+ * <p>
+ * Recording is wait-free and doesn't allocate any object. Each recorder is double-buffered: taking a snapshot swaps the
+ * histogram being recorded into with an inactive one, so every snapshot contains the latencies recorded since the
+ * previous one (an interval) and recording is never blocked. Latencies are tracked with 2 significant digits by default,
+ * from 1 microsecond up to the highest trackable latency (1 hour by default). Greater latencies are recorded as the
+ * highest trackable one.
+ * <p>
+ * This class needs HdrHistogram on the classpath.
+ *
+ * @author Jorge Alonso
+ * @see com.jorgenota.utils.retry.RetrierBuilder#withListener(RetryListener)
+ */
+public final class RetryLatencyRecorder implements RetryListener {
+    private static final long LOWEST_DISCERNIBLE_VALUE = TimeUnit.MICROSECONDS.toNanos(1L);
+    private static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = TimeUnit.HOURS.toNanos(1L);
+    private static final int DEFAULT_SIGNIFICANT_DIGITS = 2;
+
+    private final long highestTrackableValue;
+    private final Recorder attemptRecorder;
+    private final Recorder executionRecorder;
+    // Inactive histograms, reused by the next snapshot. Guarded by the corresponding recorder
+    @Nullable
+    private Histogram attemptHistogram;
+    @Nullable
+    private Histogram executionHistogram;
+
+    public RetryLatencyRecorder() {
+        this(DEFAULT_HIGHEST_TRACKABLE_VALUE, TimeUnit.NANOSECONDS, DEFAULT_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Creates a recorder.
+     *
+     * @param highestTrackableLatency the highest latency that can be tracked
+     * @param unit                    the unit of the highest trackable latency
+     * @param significantValueDigits  the number of significant digits of the recorded latencies, between 1 and 5
+     */
+    public RetryLatencyRecorder(long highestTrackableLatency, TimeUnit unit, int significantValueDigits) {
+        this.highestTrackableValue = unit.toNanos(highestTrackableLatency);
+        Preconditions.isTrue(highestTrackableValue >= 2 * LOWEST_DISCERNIBLE_VALUE,
+            "highestTrackableLatency must be >= 2 microseconds but is %d ns", highestTrackableValue);
+        Preconditions.isTrue(significantValueDigits >= 1 && significantValueDigits <= 5,
+            "significantValueDigits must be >= 1 and <= 5 but is %d", significantValueDigits);
+        this.attemptRecorder = new Recorder(LOWEST_DISCERNIBLE_VALUE, highestTrackableValue, significantValueDigits);
+        this.executionRecorder = new Recorder(LOWEST_DISCERNIBLE_VALUE, highestTrackableValue, significantValueDigits);
+    }
+
+    @Override
+    public void onAttempt(long latencyNanos, boolean successful) {
+        attemptRecorder.recordValue(clamp(latencyNanos));
+    }
+
+    @Override
+    public void onExecution(long latencyNanos, long attempts, boolean successful) {
+        executionRecorder.recordValue(clamp(latencyNanos));
+    }
+
+    /**
+     * Returns the latencies of the attempts, successful or not, recorded since the previous call.
+     *
+     * @return the distribution of the attempt latencies of the interval
+     */
+    public LatencyDistribution attemptLatencies() {
+        synchronized (attemptRecorder) {
+            attemptHistogram = attemptRecorder.getIntervalHistogram(attemptHistogram);
+            return new LatencyDistribution(attemptHistogram.copy());
+        }
+    }
+
+    /**
+     * Returns the latencies of the whole executions (all their attempts and the waits between them), successful or
+     * not, recorded since the previous call.
+     *
+     * @return the distribution of the execution latencies of the interval
+     */
+    public LatencyDistribution executionLatencies() {
+        synchronized (executionRecorder) {
+            executionHistogram = executionRecorder.getIntervalHistogram(executionHistogram);
+            return new LatencyDistribution(executionHistogram.copy());
+        }
+    }
+
+    private long clamp(long latencyNanos) {
+        return Math.min(Math.max(latencyNanos, 0L), highestTrackableValue);
+    }
+}
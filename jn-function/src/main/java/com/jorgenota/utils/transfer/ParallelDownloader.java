@@ -0,0 +1,215 @@
+package com.jorgenota.utils.transfer;
+
+import com.jorgenota.utils.base.ByteBufferPool;
+import com.jorgenota.utils.base.service.ObjectMetadata;
+import com.jorgenota.utils.base.service.ObjectStore;
+import com.jorgenota.utils.base.service.ServiceException;
+import com.jorgenota.utils.retry.FanOut;
+import com.jorgenota.utils.retry.RetryException;
+import com.jorgenota.utils.retry.Retrier;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+import static com.jorgenota.utils.base.Preconditions.hasText;
+import static com.jorgenota.utils.base.Preconditions.isTrue;
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Downloads large objects of an {@link ObjectStore} over several connections at the same time, since a single
+ * connection is usually limited to a fraction of the available bandwidth.
+ * <p>
+ * The object is split in part-sized ranges, fetched with {@link ObjectStore#getObjectRange(String, String, long,
+ * long)} by a {@link FanOut} with bounded parallelism and retries per part. Every part is written straight to its
+ * offset of the target (a {@link FileChannel} or a {@link ByteBuffer}, e.g. a {@link MappedByteBuffer}) through a
+ * buffer borrowed from a {@link ByteBufferPool}, so the object is never assembled on the heap. A retried part writes
+ * its whole range again.
+ * <p>
+ * When a part fails for good, the outstanding ones are cancelled and their threads interrupted. Interrupting a thread
+ * writing to a {@link FileChannel} closes the channel, so the target channel can't be used after a failed download.
+ *
+ * @author Jorge Alonso
+ * @see ParallelDownloaderBuilder
+ */
+public final class ParallelDownloader {
+    private final ObjectStore store;
+    private final Retrier retrier;
+    private final FanOut fanOut;
+    private final long partSize;
+    private final ByteBufferPool bufferPool;
+
+    ParallelDownloader(ObjectStore store, Retrier retrier, FanOut fanOut, long partSize, ByteBufferPool bufferPool) {
+        this.store = store;
+        this.retrier = retrier;
+        this.fanOut = fanOut;
+        this.partSize = partSize;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Downloads an object into a file, which is created or truncated. The file is deleted if the download fails.
+     *
+     * @param storageName name of the storage containing the object
+     * @param key         key of the object
+     * @param target      the file to write the object to
+     * @return the number of bytes downloaded
+     * @throws RetryException       the failure of the first part (or of getting the size of the object) that failed
+     *                              after its retries
+     * @throws InterruptedException if the current thread is interrupted while waiting for the parts
+     * @throws ServiceException     if the object was replaced while being downloaded
+     * @throws IOException          if the file can't be opened
+     */
+    public long download(String storageName, String key, Path target)
+        throws RetryException, InterruptedException, IOException {
+        notNull(target, "target may not be null");
+        boolean downloaded = false;
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = download(storageName, key, channel);
+            downloaded = true;
+            return size;
+        } finally {
+            if (!downloaded) {
+                Files.deleteIfExists(target);
+            }
+        }
+    }
+
+    /**
+     * Downloads an object into a channel, writing every part at its offset from the start of the channel. The
+     * position of the channel is not changed, nor the channel closed.
+     *
+     * @param storageName name of the storage containing the object
+     * @param key         key of the object
+     * @param target      the channel to write the object to
+     * @return the number of bytes downloaded
+     * @throws RetryException       the failure of the first part (or of getting the size of the object) that failed
+     *                              after its retries
+     * @throws InterruptedException if the current thread is interrupted while waiting for the parts
+     * @throws ServiceException     if the object was replaced while being downloaded
+     */
+    public long download(String storageName, String key, FileChannel target)
+        throws RetryException, InterruptedException {
+        notNull(target, "target may not be null");
+        ObjectMetadata metadata = head(storageName, key);
+        long size = metadata.getContentLength();
+        List<Callable<Long>> parts = new ArrayList<>();
+        for (long offset = 0; offset < size; offset += partSize) {
+            long partOffset = offset;
+            long partLength = Math.min(partSize, size - offset);
+            parts.add(() -> copyPart(storageName, key, partOffset, partLength, target));
+        }
+        fanOut.invokeAll(parts);
+        checkUnchanged(storageName, key, metadata);
+        return size;
+    }
+
+    /**
+     * Downloads an object into a buffer, e.g. a file mapped with {@link FileChannel#map(FileChannel.MapMode, long,
+     * long)}. The object is written from the position of the buffer, which is advanced by its size once downloaded.
+     *
+     * @param storageName name of the storage containing the object
+     * @param key         key of the object
+     * @param target      the buffer to write the object to, with at least as many bytes remaining as the object has
+     * @return the number of bytes downloaded
+     * @throws RetryException       the failure of the first part (or of getting the size of the object) that failed
+     *                              after its retries
+     * @throws InterruptedException if the current thread is interrupted while waiting for the parts
+     * @throws ServiceException     if the object was replaced while being downloaded
+     */
+    public long download(String storageName, String key, ByteBuffer target)
+        throws RetryException, InterruptedException {
+        notNull(target, "target may not be null");
+        ObjectMetadata metadata = head(storageName, key);
+        long size = metadata.getContentLength();
+        isTrue(size <= target.remaining(), "target must have at least %d bytes remaining but has %d", size,
+            target.remaining());
+        int start = target.position();
+        List<Callable<Long>> parts = new ArrayList<>();
+        for (long offset = 0; offset < size; offset += partSize) {
+            long partOffset = offset;
+            int partStart = start + (int) offset;
+            int partLength = (int) Math.min(partSize, size - offset);
+            parts.add(() -> readPart(storageName, key, partOffset, partLength, target, partStart));
+        }
+        fanOut.invokeAll(parts);
+        checkUnchanged(storageName, key, metadata);
+        target.position(start + (int) size);
+        return size;
+    }
+
+    private ObjectMetadata head(String storageName, String key) throws RetryException {
+        hasText(storageName, "storageName may not be empty");
+        hasText(key, "key may not be empty");
+        return retrier.call(() -> store.headObject(storageName, key));
+    }
+
+    /**
+     * Checks the ETag of an object is still the one it had when the download started, since ranges are fetched
+     * independently and an object replaced meanwhile would be downloaded as a mix of versions. Getting the current
+     * ETag fails with a {@link RetryException}, and a different ETag with a {@link ServiceException}.
+     */
+    private void checkUnchanged(String storageName, String key, ObjectMetadata metadata) throws RetryException {
+        if (metadata.getETag() != null) {
+            ObjectMetadata current = head(storageName, key);
+            if (!Objects.equals(metadata.getETag(), current.getETag())) {
+                throw new ServiceException("Object " + storageName + "/" + key + " changed while being downloaded");
+            }
+        }
+    }
+
+    private long copyPart(String storageName, String key, long offset, long length, FileChannel target)
+        throws IOException {
+        ByteBuffer buffer = bufferPool.acquire(ObjectStore.COPY_BUFFER_SIZE);
+        try (ReadableByteChannel content = Channels.newChannel(store.getObjectRange(storageName, key, offset,
+            length))) {
+            long position = offset;
+            long end = offset + length;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                if (content.read(buffer) == -1) {
+                    throw endOfPart(offset, position - offset, length);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    position += target.write(buffer, position);
+                }
+            }
+            return length;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    private long readPart(String storageName, String key, long offset, int length, ByteBuffer target, int start)
+        throws IOException {
+        // A new view of the target for every attempt, so a retry writes the range from its start
+        ByteBuffer part = target.duplicate();
+        part.limit(start + length).position(start);
+        try (ReadableByteChannel content = Channels.newChannel(store.getObjectRange(storageName, key, offset,
+            length))) {
+            while (part.hasRemaining()) {
+                if (content.read(part) == -1) {
+                    throw endOfPart(offset, part.position() - start, length);
+                }
+            }
+            return length;
+        }
+    }
+
+    private static EOFException endOfPart(long offset, long read, long length) {
+        return new EOFException("Part at offset " + offset + " ended after " + read + " of " + length + " bytes");
+    }
+}
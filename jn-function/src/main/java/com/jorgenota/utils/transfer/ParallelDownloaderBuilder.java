@@ -0,0 +1,114 @@
+package com.jorgenota.utils.transfer;
+
+import com.jorgenota.utils.base.ByteBufferPool;
+import com.jorgenota.utils.base.Preconditions;
+import com.jorgenota.utils.base.service.ObjectStore;
+import com.jorgenota.utils.retry.FanOutBuilder;
+import com.jorgenota.utils.retry.Retrier;
+import com.jorgenota.utils.retry.RetrierBuilder;
+import com.jorgenota.utils.retry.StopStrategies;
+import com.jorgenota.utils.retry.WaitStrategies;
+
+import java.util.concurrent.Executor;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Builds {@link ParallelDownloader} instances. By default, parts are retried after any exception up to 5 attempts,
+ * with exponential waits of up to 5 seconds, and the buffers are borrowed from {@link ByteBufferPool#shared()}.
+ *
+ * @author Jorge Alonso
+ */
+public class ParallelDownloaderBuilder {
+    private static final long DEFAULT_PART_SIZE = 8L * 1024 * 1024;
+    private static final int DEFAULT_PARALLELISM = 8;
+
+    private final ObjectStore store;
+    private final Executor executor;
+    private Retrier retrier = RetrierBuilder.newBuilder()
+        .withName("parallel-download")
+        .withStopStrategy(StopStrategies.stopAfterAttempt(5))
+        .withWaitStrategy(WaitStrategies.exponentialWait(100L, 5000L))
+        .build();
+    private long partSize = DEFAULT_PART_SIZE;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private ByteBufferPool bufferPool = ByteBufferPool.shared();
+
+    private ParallelDownloaderBuilder(ObjectStore store, Executor executor) {
+        this.store = store;
+        this.executor = executor;
+    }
+
+    /**
+     * Constructs a new builder
+     *
+     * @param store    the store to download the objects from
+     * @param executor the executor used to download the parts. It should have at least as many threads as the
+     *                 parallelism
+     * @return the new builder
+     */
+    public static ParallelDownloaderBuilder newBuilder(ObjectStore store, Executor executor) {
+        return new ParallelDownloaderBuilder(notNull(store, "store may not be null"),
+            notNull(executor, "executor may not be null"));
+    }
+
+    /**
+     * Sets the retrier used for every part and for getting the size of the objects.
+     *
+     * @param retrier the template retrier
+     * @return <code>this</code>
+     */
+    public ParallelDownloaderBuilder withRetrier(Retrier retrier) {
+        this.retrier = notNull(retrier, "retrier may not be null");
+        return this;
+    }
+
+    /**
+     * Sets the size of the ranges downloaded by each request. The default part size is {@value #DEFAULT_PART_SIZE}
+     * bytes.
+     *
+     * @param partSize the number of bytes of every part but the last one
+     * @return <code>this</code>
+     */
+    public ParallelDownloaderBuilder withPartSize(long partSize) {
+        Preconditions.isTrue(partSize >= 1L, "partSize must be >= 1 but is %d", partSize);
+        this.partSize = partSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of parts of an object downloaded at the same time. The default parallelism is
+     * {@value #DEFAULT_PARALLELISM}.
+     *
+     * @param parallelism the maximum number of concurrent requests per object
+     * @return <code>this</code>
+     */
+    public ParallelDownloaderBuilder withParallelism(int parallelism) {
+        Preconditions.isTrue(parallelism >= 1, "parallelism must be >= 1 but is %d", parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the pool the buffers used to copy the parts to files are borrowed from.
+     *
+     * @param bufferPool the pool of buffers
+     * @return <code>this</code>
+     */
+    public ParallelDownloaderBuilder withBufferPool(ByteBufferPool bufferPool) {
+        this.bufferPool = notNull(bufferPool, "bufferPool may not be null");
+        return this;
+    }
+
+    /**
+     * Builds the downloader.
+     *
+     * @return the downloader
+     */
+    public ParallelDownloader build() {
+        return new ParallelDownloader(store, retrier, FanOutBuilder.newBuilder(executor)
+            .withRetrier(retrier)
+            .withParallelism(parallelism)
+            .build(), partSize, bufferPool);
+    }
+}
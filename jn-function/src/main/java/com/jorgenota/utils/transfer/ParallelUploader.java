@@ -0,0 +1,237 @@
+package com.jorgenota.utils.transfer;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.jorgenota.utils.base.service.MultipartObjectStore;
+import com.jorgenota.utils.base.service.ServiceException;
+import com.jorgenota.utils.retry.RetryException;
+import com.jorgenota.utils.retry.Retrier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.jorgenota.utils.base.Preconditions.hasText;
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Uploads large objects to a {@link MultipartObjectStore} from a stream, in parts uploaded at the same time.
+ * <p>
+ * The stream is read in part-sized direct buffers, and every buffer is uploaded as a part on the executor, retried
+ * with the {@link Retrier}, while the next one is read. The uploader owns as many buffers as its parallelism, which
+ * are reused by all its uploads: reading waits for a free buffer, so the memory used by the uploader is capped at
+ * <code>parallelism × partSize</code> bytes whatever the size of the objects or the number of concurrent uploads.
+ * <p>
+ * Streams shorter than a part are put in a single request. Otherwise, the upload is completed once all the parts are
+ * uploaded. If a part fails after its retries, or reading the stream fails, no more parts are read, and the upload is
+ * aborted once the parts in flight finish, so the object is either stored as a whole or not at all. Stores usually
+ * limit the number of parts (10,000 for S3), so the part size bounds the size of the objects (about 78 GiB with the
+ * default 8 MiB parts).
+ *
+ * @author Jorge Alonso
+ * @see ParallelUploaderBuilder
+ */
+public final class ParallelUploader {
+    private final MultipartObjectStore store;
+    private final Executor executor;
+    private final Retrier retrier;
+    private final int partSize;
+    private final Semaphore freeBuffers;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger allocatedBuffers = new AtomicInteger();
+
+    ParallelUploader(MultipartObjectStore store, Executor executor, Retrier retrier, int partSize, int parallelism) {
+        this.store = store;
+        this.executor = executor;
+        this.retrier = retrier;
+        this.partSize = partSize;
+        this.freeBuffers = new Semaphore(parallelism);
+    }
+
+    /**
+     * Uploads an object from a stream.
+     *
+     * @param storageName name of the storage to put the object into
+     * @param key         key of the object
+     * @param content     the content of the object, which is read until its end but not closed
+     * @param contentType the content type of the object
+     * @return the number of bytes uploaded
+     * @throws RetryException       the failure of the first part (or of starting or completing the upload) that failed
+     *                              after its retries
+     * @throws InterruptedException if the current thread is interrupted while waiting for a buffer or for the parts.
+     *                              The upload is aborted without waiting for the parts in flight
+     * @throws IOException          if the stream can't be read
+     */
+    public long upload(String storageName, String key, InputStream content, String contentType)
+        throws RetryException, InterruptedException, IOException {
+        hasText(storageName, "storageName may not be empty");
+        hasText(key, "key may not be empty");
+        notNull(content, "content may not be null");
+        notNull(contentType, "contentType may not be null");
+        ReadableByteChannel channel = Channels.newChannel(content);
+        ByteBuffer first = readPart(channel);
+        if (first.limit() < partSize) {
+            // Small objects are put in a single request
+            try {
+                retrier.run(() -> store.putObject(storageName, key, new ByteBufferBackedInputStream(first.duplicate()),
+                    first.limit(), contentType));
+                return first.limit();
+            } finally {
+                releaseBuffer(first);
+            }
+        }
+
+        String uploadId;
+        try {
+            uploadId = retrier.call(() -> store.createMultipartUpload(storageName, key, contentType));
+        } catch (RetryException | RuntimeException e) {
+            releaseBuffer(first);
+            throw e;
+        }
+        List<CompletableFuture<String>> parts = new ArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        try {
+            long size = 0;
+            ByteBuffer buffer = first;
+            while (true) {
+                size += buffer.limit();
+                boolean last = buffer.limit() < partSize;
+                parts.add(uploadPart(storageName, key, uploadId, parts.size() + 1, buffer, failed));
+                if (last || failed.get()) {
+                    break;
+                }
+                buffer = readPart(channel);
+                if (!buffer.hasRemaining()) {
+                    releaseBuffer(buffer);
+                    break;
+                }
+            }
+            List<String> partETags = awaitParts(parts);
+            retrier.run(() -> store.completeMultipartUpload(storageName, key, uploadId, partETags));
+            return size;
+        } catch (InterruptedException e) {
+            abort(storageName, key, uploadId, e);
+            throw e;
+        } catch (RetryException | IOException | RuntimeException e) {
+            // Parts still in flight could be stored after the abort, so it waits for them
+            try {
+                CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).exceptionally(failure -> null)
+                    .get();
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ignored) {
+                // Can't happen, failures are ignored
+            }
+            abort(storageName, key, uploadId, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of buffers allocated by the uploader, which never exceeds its parallelism.
+     *
+     * @return the number of allocated buffers
+     */
+    int getAllocatedBuffers() {
+        return allocatedBuffers.get();
+    }
+
+    private ByteBuffer readPart(ReadableByteChannel channel) throws InterruptedException, IOException {
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // Read until the part is full or the stream ends
+            }
+        } catch (IOException | RuntimeException e) {
+            releaseBuffer(buffer);
+            throw e;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private CompletableFuture<String> uploadPart(String storageName, String key, String uploadId, int partNumber,
+                                                 ByteBuffer buffer, AtomicBoolean failed) {
+        CompletableFuture<String> part = new CompletableFuture<>();
+        Runnable upload = () -> {
+            String eTag;
+            try {
+                // A new view of the buffer for every attempt, so a retry uploads the part from its start
+                eTag = retrier.call(() -> store.uploadPart(storageName, key, uploadId, partNumber,
+                    buffer.duplicate()));
+            } catch (Throwable e) {
+                // Any failure completes the part and releases its buffer, or the upload would wait for it forever
+                failed.set(true);
+                releaseBuffer(buffer);
+                part.completeExceptionally(e);
+                return;
+            }
+            releaseBuffer(buffer);
+            part.complete(eTag);
+        };
+        try {
+            executor.execute(upload);
+        } catch (RejectedExecutionException e) {
+            failed.set(true);
+            releaseBuffer(buffer);
+            part.completeExceptionally(e);
+        }
+        return part;
+    }
+
+    private static List<String> awaitParts(List<CompletableFuture<String>> parts)
+        throws RetryException, InterruptedException {
+        List<String> partETags = new ArrayList<>(parts.size());
+        for (CompletableFuture<String> part : parts) {
+            try {
+                partETags.add(part.get());
+            } catch (ExecutionException e) {
+                Throwable failure = e.getCause();
+                if (failure instanceof RetryException) {
+                    throw (RetryException) failure;
+                }
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                }
+                throw new ServiceException(failure);
+            }
+        }
+        return partETags;
+    }
+
+    private void abort(String storageName, String key, String uploadId, Exception failure) {
+        try {
+            retrier.run(() -> store.abortMultipartUpload(storageName, key, uploadId));
+        } catch (RetryException | RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private ByteBuffer acquireBuffer() throws InterruptedException {
+        freeBuffers.acquire();
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            allocatedBuffers.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(partSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        buffers.offer(buffer);
+        freeBuffers.release();
+    }
+}
@@ -0,0 +1,97 @@
+package com.jorgenota.utils.transfer;
+
+import com.jorgenota.utils.base.Preconditions;
+import com.jorgenota.utils.base.service.MultipartObjectStore;
+import com.jorgenota.utils.retry.Retrier;
+import com.jorgenota.utils.retry.RetrierBuilder;
+import com.jorgenota.utils.retry.StopStrategies;
+import com.jorgenota.utils.retry.WaitStrategies;
+
+import java.util.concurrent.Executor;
+
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * Builds {@link ParallelUploader} instances. By default, parts are retried after any exception up to 5 attempts,
+ * with exponential waits of up to 5 seconds.
+ *
+ * @author Jorge Alonso
+ */
+public class ParallelUploaderBuilder {
+    private static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+    private static final int DEFAULT_PARALLELISM = 4;
+
+    private final MultipartObjectStore store;
+    private final Executor executor;
+    private Retrier retrier = RetrierBuilder.newBuilder()
+        .withName("parallel-upload")
+        .withStopStrategy(StopStrategies.stopAfterAttempt(5))
+        .withWaitStrategy(WaitStrategies.exponentialWait(100L, 5000L))
+        .build();
+    private int partSize = DEFAULT_PART_SIZE;
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    private ParallelUploaderBuilder(MultipartObjectStore store, Executor executor) {
+        this.store = store;
+        this.executor = executor;
+    }
+
+    /**
+     * Constructs a new builder
+     *
+     * @param store    the store to upload the objects to
+     * @param executor the executor used to upload the parts. It should have at least as many threads as the
+     *                 parallelism
+     * @return the new builder
+     */
+    public static ParallelUploaderBuilder newBuilder(MultipartObjectStore store, Executor executor) {
+        return new ParallelUploaderBuilder(notNull(store, "store may not be null"),
+            notNull(executor, "executor may not be null"));
+    }
+
+    /**
+     * Sets the retrier used for every part and for starting, completing and aborting the uploads.
+     *
+     * @param retrier the template retrier
+     * @return <code>this</code>
+     */
+    public ParallelUploaderBuilder withRetrier(Retrier retrier) {
+        this.retrier = notNull(retrier, "retrier may not be null");
+        return this;
+    }
+
+    /**
+     * Sets the size of the parts, which is also the size of the buffers of the uploader. Stores may require a minimum
+     * size (5 MiB for S3). The default part size is {@value #DEFAULT_PART_SIZE} bytes.
+     *
+     * @param partSize the number of bytes of every part but the last one
+     * @return <code>this</code>
+     */
+    public ParallelUploaderBuilder withPartSize(int partSize) {
+        Preconditions.isTrue(partSize >= 1, "partSize must be >= 1 but is %d", partSize);
+        this.partSize = partSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of parts uploaded (or read) at the same time by all the uploads of the uploader, which
+     * is also its number of buffers. The default parallelism is {@value #DEFAULT_PARALLELISM}.
+     *
+     * @param parallelism the maximum number of concurrent parts
+     * @return <code>this</code>
+     */
+    public ParallelUploaderBuilder withParallelism(int parallelism) {
+        Preconditions.isTrue(parallelism >= 1, "parallelism must be >= 1 but is %d", parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Builds the uploader.
+     *
+     * @return the uploader
+     */
+    public ParallelUploader build() {
+        return new ParallelUploader(store, executor, retrier, partSize, parallelism);
+    }
+}
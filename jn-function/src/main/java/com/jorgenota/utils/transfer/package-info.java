@@ -0,0 +1,9 @@
+/**
+ * @author Jorge Alonso
+ */
+@NonNullApi
+@NonNullFields
+package com.jorgenota.utils.transfer;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
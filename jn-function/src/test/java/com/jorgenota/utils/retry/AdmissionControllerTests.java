@@ -0,0 +1,102 @@
+package com.jorgenota.utils.retry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class AdmissionControllerTests {
+
+    @Test
+    void testShedsLowPriorityWorkAndRetriesFirst() {
+        AdmissionController controller = AdmissionControllerBuilder.newBuilder().withMaxConcurrency(10).build();
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(controller.tryAcquire(RetryPriority.BACKGROUND, true)).isTrue();
+        }
+        assertThat(controller.tryAcquire(RetryPriority.BACKGROUND, true)).isFalse();
+        assertThat(controller.tryAcquire(RetryPriority.BACKGROUND, false)).isTrue();
+        assertThat(controller.tryAcquire(RetryPriority.BACKGROUND, false)).isFalse();
+        assertThat(controller.tryAcquire(RetryPriority.NORMAL, true)).isTrue();
+        assertThat(controller.tryAcquire(RetryPriority.NORMAL, true)).isFalse();
+        assertThat(controller.tryAcquire(RetryPriority.NORMAL, false)).isTrue();
+        assertThat(controller.tryAcquire(RetryPriority.NORMAL, false)).isTrue();
+        assertThat(controller.tryAcquire(RetryPriority.NORMAL, false)).isFalse();
+        assertThat(controller.tryAcquire(RetryPriority.CRITICAL, true)).isTrue();
+        assertThat(controller.tryAcquire(RetryPriority.CRITICAL, true)).isFalse();
+        assertThat(controller.tryAcquire(RetryPriority.CRITICAL, false)).isTrue();
+        assertThat(controller.tryAcquire(RetryPriority.CRITICAL, false)).isFalse();
+
+        assertThat(controller.inFlight()).isEqualTo(10);
+        assertThat(controller.shedCount(RetryPriority.BACKGROUND)).isEqualTo(2L);
+        assertThat(controller.shedCount(RetryPriority.NORMAL)).isEqualTo(2L);
+        assertThat(controller.shedCount(RetryPriority.CRITICAL)).isEqualTo(2L);
+
+        controller.release(0L);
+        assertThat(controller.tryAcquire(RetryPriority.CRITICAL, false)).isTrue();
+    }
+
+    @Test
+    void testHighLatencyShedsRetriesAndBackgroundWork() {
+        AdmissionController controller = AdmissionControllerBuilder.newBuilder()
+            .withLatencyThreshold(100L, TimeUnit.MILLISECONDS)
+            .build();
+
+        assertThat(controller.tryAcquire(RetryPriority.NORMAL, true)).isTrue();
+        controller.release(TimeUnit.MILLISECONDS.toNanos(500L));
+
+        assertThat(controller.isOverloaded()).isTrue();
+        assertThat(controller.tryAcquire(RetryPriority.BACKGROUND, false)).isFalse();
+        assertThat(controller.tryAcquire(RetryPriority.CRITICAL, true)).isFalse();
+        assertThat(controller.tryAcquire(RetryPriority.NORMAL, false)).isTrue();
+        assertThat(controller.tryAcquire(RetryPriority.CRITICAL, false)).isTrue();
+
+        // Fast attempts bring the average down again
+        for (int i = 0; i < 30; i++) {
+            controller.release(TimeUnit.MILLISECONDS.toNanos(1L));
+        }
+        assertThat(controller.isOverloaded()).isFalse();
+    }
+
+    @Test
+    void testRetrierRejectsShedAttempts() throws RetryException {
+        AdmissionController controller = AdmissionControllerBuilder.newBuilder().withMaxConcurrency(10).build();
+        Retrier background = RetrierBuilder.newBuilder()
+            .withAdmissionController(controller, RetryPriority.BACKGROUND)
+            .build();
+        Retrier critical = RetrierBuilder.newBuilder()
+            .withAdmissionController(controller, RetryPriority.CRITICAL)
+            .build();
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Keep 4 attempts in flight, so background retries are shed but first attempts are admitted
+        for (int i = 0; i < 4; i++) {
+            controller.tryAcquire(RetryPriority.CRITICAL, false);
+        }
+
+        assertThatThrownBy(() -> background.run(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException();
+        }))
+            .isInstanceOf(RejectedRetryException.class)
+            .hasMessageContaining("BACKGROUND attempt 2");
+        assertThat(attempts).hasValue(1);
+
+        attempts.set(0);
+        critical.run(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException();
+            }
+        });
+        assertThat(attempts).hasValue(3);
+
+        // Every permit acquired by the retriers has been released
+        assertThat(controller.inFlight()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,151 @@
+package com.jorgenota.utils.retry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class AsyncRetrierTests {
+
+    private final HashedWheelRetryScheduler scheduler = new HashedWheelRetryScheduler(1, TimeUnit.MILLISECONDS, 64);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testSucceedsAfterFailedAttempts() throws Exception {
+        AsyncRetrier retrier = RetrierBuilder.newBuilder()
+            .withWaitStrategy(WaitStrategies.fixedWait(5L))
+            .buildAsync(scheduler);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<Integer> result = retrier.call(() -> attempts.incrementAndGet() < 4
+            ? failedFuture(new IOException())
+            : CompletableFuture.completedFuture(5));
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(5);
+        assertThat(attempts).hasValue(4);
+    }
+
+    @Test
+    void testCallableSucceedsAfterFailedAttempts() throws Exception {
+        AsyncRetrier retrier = RetrierBuilder.newBuilder().buildAsync(scheduler);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<Integer> result = retrier.call(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IOException();
+            }
+            return 7;
+        }, executor);
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(7);
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void testCallableErrorsAreNotRetried() {
+        AsyncRetrier retrier = RetrierBuilder.newBuilder().buildAsync(scheduler);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<Integer> result = retrier.call(() -> {
+            attempts.incrementAndGet();
+            throw new AssertionError();
+        }, executor);
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(AssertionError.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void testExhaustedRetries() {
+        AsyncRetrier retrier = RetrierBuilder.newBuilder()
+            .withStopStrategy(StopStrategies.stopAfterAttempt(3))
+            .buildAsync(scheduler);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<Integer> result = retrier.call(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException();
+        });
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(ExhaustedRetryException.class);
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void testFailPredicate() {
+        AsyncRetrier retrier = RetrierBuilder.newBuilder()
+            .failIfExceptionOfType(IOException.class)
+            .buildAsync(scheduler);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<Integer> result = retrier.call(() -> {
+            attempts.incrementAndGet();
+            return failedFuture(new IOException());
+        });
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(FailException.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void testCancellingTheResultCancelsThePendingAttempt() throws InterruptedException {
+        AsyncRetrier retrier = RetrierBuilder.newBuilder()
+            .withWaitStrategy(WaitStrategies.fixedWait(50L))
+            .buildAsync(scheduler);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<Integer> result = retrier.call(() -> {
+            attempts.incrementAndGet();
+            return failedFuture(new IOException());
+        });
+        result.cancel(false);
+
+        Thread.sleep(150);
+        assertThat(attempts).hasValue(1);
+        assertThat(scheduler.pendingTimeouts()).isZero();
+    }
+
+    @Test
+    void testRetrierWithExecutorBasedScheduler() throws Exception {
+        AsyncRetrier retrier = RetrierBuilder.newBuilder()
+            .withWaitStrategy(WaitStrategies.fixedWait(1L))
+            .buildAsync(RetrySchedulers.fromExecutor(Executors.newSingleThreadScheduledExecutor()));
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<Integer> result = retrier.call(() -> attempts.incrementAndGet() < 2
+            ? failedFuture(new IOException())
+            : CompletableFuture.completedFuture(1));
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+}
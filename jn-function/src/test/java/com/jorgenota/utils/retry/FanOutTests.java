@@ -0,0 +1,223 @@
+package com.jorgenota.utils.retry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class FanOutTests {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testReturnsResultsInOrder() throws Exception {
+        FanOut fanOut = FanOutBuilder.newBuilder(executor).withParallelism(3).build();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            int value = i;
+            tasks.add(() -> {
+                // Every other attempt fails once
+                if (attempts.incrementAndGet() % 2 == 0) {
+                    throw new IOException();
+                }
+                return value;
+            });
+        }
+
+        List<Integer> results = fanOut.invokeAll(tasks);
+
+        assertThat(results).hasSize(20);
+        for (int i = 0; i < 20; i++) {
+            assertThat(results.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void testParallelismIsBounded() throws Exception {
+        FanOut fanOut = FanOutBuilder.newBuilder(executor).withParallelism(2).build();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5L);
+                running.decrementAndGet();
+                return 1;
+            });
+        }
+
+        assertThat(fanOut.invokeAll(tasks)).hasSize(10);
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void testAllOrNothingCancelsOutstandingTasks() throws Exception {
+        FanOut fanOut = FanOutBuilder.newBuilder(executor)
+            .withParallelism(2)
+            .withRetrier(RetrierBuilder.newBuilder().withStopStrategy(StopStrategies.stopAfterAttempt(2)).build())
+            .build();
+        CountDownLatch blocked = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        List<Callable<String>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            blocked.countDown();
+            Thread.sleep(10_000L);
+            return "slow";
+        });
+        tasks.add(() -> {
+            blocked.await();
+            throw new IllegalStateException("failed");
+        });
+        for (int i = 0; i < 10; i++) {
+            tasks.add(() -> {
+                started.incrementAndGet();
+                return "never";
+            });
+        }
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> fanOut.invokeAll(tasks))
+            .isInstanceOf(ExhaustedRetryException.class)
+            .hasCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000L);
+        assertThat(started).hasValue(0);
+    }
+
+    @Test
+    void testBestEffortCollectsEveryOutcome() throws Exception {
+        FanOut fanOut = FanOutBuilder.newBuilder(executor)
+            .withRetrier(RetrierBuilder.newBuilder().withStopStrategy(StopStrategies.stopAfterAttempt(3)).build())
+            .build();
+        List<Callable<String>> tasks = Arrays.asList(() -> "a", () -> {
+            throw new IOException();
+        }, () -> "c");
+
+        List<TaskOutcome<String>> outcomes = fanOut.invokeBestEffort(tasks);
+
+        assertThat(outcomes).extracting(TaskOutcome::isSuccessful).containsExactly(true, false, true);
+        assertThat(outcomes.get(0).getValue()).isEqualTo("a");
+        assertThat(outcomes.get(1).getFailure()).isInstanceOf(ExhaustedRetryException.class);
+        assertThat(outcomes.get(1).getFailure().getNumberOfFailedAttempts()).isEqualTo(3L);
+        assertThatThrownBy(() -> outcomes.get(1).getValue()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testErrorsFailTheirTask() throws Exception {
+        FanOut fanOut = FanOutBuilder.newBuilder(executor).withParallelism(1).build();
+        List<Callable<String>> tasks = Arrays.asList(() -> {
+            throw new AssertionError("broken");
+        }, () -> "b");
+
+        List<TaskOutcome<String>> outcomes = fanOut.invokeBestEffort(tasks);
+
+        assertThat(outcomes).extracting(TaskOutcome::isSuccessful).containsExactly(false, true);
+        assertThat(outcomes.get(0).getFailure()).isInstanceOf(ExhaustedRetryException.class)
+            .hasRootCauseInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    void testDeadlineCancelsOutstandingTasks() throws Exception {
+        FanOut fanOut = FanOutBuilder.newBuilder(executor)
+            .withParallelism(1)
+            .withDeadline(100L, TimeUnit.MILLISECONDS)
+            .build();
+        List<Callable<String>> tasks = Arrays.asList(() -> "fast", () -> {
+            Thread.sleep(10_000L);
+            return "slow";
+        }, () -> "never");
+
+        List<TaskOutcome<String>> outcomes;
+        try (FanOutExecution<String> execution = fanOut.submit(tasks, FanOutMode.BEST_EFFORT)) {
+            outcomes = execution.awaitAll();
+            assertThat(execution.isCancelled()).isTrue();
+        }
+
+        assertThat(outcomes.get(0).getValue()).isEqualTo("fast");
+        assertThat(outcomes.get(1).isSuccessful()).isFalse();
+        assertThat(outcomes.get(2).getFailure())
+            .isInstanceOf(RejectedRetryException.class)
+            .hasCauseInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void testRetryBudgetIsShared() throws Exception {
+        FanOut fanOut = FanOutBuilder.newBuilder(executor)
+            .withParallelism(1)
+            .withRetrier(RetrierBuilder.newBuilder().withStopStrategy(StopStrategies.neverStop()).build())
+            .withRetryBudget(0.0d, 5)
+            .build();
+        AtomicInteger attempts = new AtomicInteger();
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            tasks.add(() -> {
+                attempts.incrementAndGet();
+                throw new IOException();
+            });
+        }
+
+        List<TaskOutcome<String>> outcomes = fanOut.invokeBestEffort(tasks);
+
+        assertThat(outcomes).noneMatch(TaskOutcome::isSuccessful);
+        // One attempt per task plus the 5 retries of the shared budget
+        assertThat(attempts).hasValue(8);
+    }
+
+    @Test
+    void testOutcomesAsTheyComplete() throws Exception {
+        FanOut fanOut = FanOutBuilder.newBuilder(executor).withParallelism(2).build();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Callable<String>> tasks = Arrays.asList(() -> {
+            release.await();
+            return "second";
+        }, () -> "first");
+
+        try (FanOutExecution<String> execution = fanOut.submit(tasks, FanOutMode.ALL_OR_NOTHING)) {
+            TaskOutcome<String> outcome = execution.next();
+            assertThat(outcome.getIndex()).isEqualTo(1);
+            release.countDown();
+            assertThat(execution.next().getValue()).isEqualTo("second");
+            assertThat(execution.next()).isNull();
+        }
+    }
+
+    @Test
+    void testCancel() throws Exception {
+        FanOut fanOut = FanOutBuilder.newBuilder(executor).withParallelism(1).build();
+        List<Callable<String>> tasks = Arrays.asList(() -> {
+            Thread.sleep(10_000L);
+            return "slow";
+        }, () -> "never");
+
+        FanOutExecution<String> execution = fanOut.submit(tasks, FanOutMode.ALL_OR_NOTHING);
+        execution.cancel();
+
+        assertThatThrownBy(execution::getResults)
+            .isInstanceOf(RejectedRetryException.class)
+            .hasCauseInstanceOf(CancellationException.class);
+    }
+}
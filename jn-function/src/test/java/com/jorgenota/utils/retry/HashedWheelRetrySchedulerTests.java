@@ -0,0 +1,112 @@
+package com.jorgenota.utils.retry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class HashedWheelRetrySchedulerTests {
+
+    private final HashedWheelRetryScheduler scheduler = new HashedWheelRetryScheduler(1, TimeUnit.MILLISECONDS, 8);
+
+    @AfterEach
+    void closeScheduler() {
+        scheduler.close();
+    }
+
+    @Test
+    void testTaskIsNotExecutedBeforeItsDelay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicLong executionTime = new AtomicLong();
+        long scheduleTime = System.nanoTime();
+
+        RetryTimeout timeout = scheduler.schedule(() -> {
+            executionTime.set(System.nanoTime());
+            latch.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(executionTime.get() - scheduleTime)).isGreaterThanOrEqualTo(50L);
+        assertThat(timeout.isExpired()).isTrue();
+        assertThat(timeout.isCancelled()).isFalse();
+    }
+
+    @Test
+    void testTaskWithDelayLongerThanOneWheelRound() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long scheduleTime = System.nanoTime();
+
+        // 8 ticks of 1 ms per wheel, so it needs several rounds
+        scheduler.schedule(latch::countDown, 30, TimeUnit.MILLISECONDS);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduleTime)).isGreaterThanOrEqualTo(30L);
+    }
+
+    @Test
+    void testCancelledTaskIsNotExecuted() throws InterruptedException {
+        AtomicBoolean executed = new AtomicBoolean();
+        RetryTimeout timeout = scheduler.schedule(() -> executed.set(true), 20, TimeUnit.MILLISECONDS);
+
+        assertThat(timeout.cancel()).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(timeout.isCancelled()).isTrue();
+
+        Thread.sleep(60);
+        assertThat(executed).isFalse();
+        assertThat(timeout.isExpired()).isFalse();
+        assertThat(scheduler.pendingTimeouts()).isZero();
+    }
+
+    @Test
+    void testManyTasksExpireInBatch() throws InterruptedException {
+        int tasks = 100_000;
+        CountDownLatch latch = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            scheduler.schedule(latch::countDown, i % 20, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(scheduler.pendingTimeouts()).isZero();
+    }
+
+    @Test
+    void testFailingTaskDoesNotStopTheScheduler() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        scheduler.schedule(() -> {
+            throw new IllegalStateException();
+        }, 1, TimeUnit.MILLISECONDS);
+        scheduler.schedule(latch::countDown, 5, TimeUnit.MILLISECONDS);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void testCloseCancelsPendingTasks() {
+        RetryTimeout timeout = scheduler.schedule(() -> {
+        }, 1, TimeUnit.HOURS);
+
+        scheduler.close();
+
+        assertThat(timeout.isCancelled()).isTrue();
+        assertThatThrownBy(() -> scheduler.schedule(() -> {
+        }, 1, TimeUnit.MILLISECONDS)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThatThrownBy(() -> new HashedWheelRetryScheduler(100, TimeUnit.MICROSECONDS, 8))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HashedWheelRetryScheduler(1, TimeUnit.MILLISECONDS, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,186 @@
+package com.jorgenota.utils.retry;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class PartitionedRetrierTests {
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void testSucceedsAfterFailedAttempts() throws RetryException {
+        PartitionedRetrier retrier = PartitionedRetrierBuilder.newBuilder().build();
+        AtomicInteger attempts = new AtomicInteger();
+
+        Integer result = retrier.call("bucket/a", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IOException();
+            }
+            return 5;
+        });
+
+        assertThat(result).isEqualTo(5);
+        assertThat(attempts).hasValue(3);
+        assertThat(retrier.partitionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testOpenCircuitOnlyRejectsItsPartition() throws RetryException {
+        PartitionedRetrier retrier = PartitionedRetrierBuilder.newBuilder()
+            .withCircuitBreaker(3, 1_000L)
+            .withClock(clock)
+            .build();
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retrier.run("shard-1", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException();
+        })).isInstanceOf(ExhaustedRetryException.class);
+        assertThat(attempts).hasValue(3);
+        assertThat(retrier.isCircuitOpen("shard-1")).isTrue();
+
+        assertThatThrownBy(() -> retrier.run("shard-1", attempts::incrementAndGet))
+            .isInstanceOf(RejectedRetryException.class)
+            .hasMessageContaining("shard-1");
+        assertThat(attempts).hasValue(3);
+
+        assertThat(retrier.isCircuitOpen("shard-2")).isFalse();
+        assertThat(retrier.get("shard-2", () -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void testHalfOpenCircuit() throws RetryException {
+        PartitionedRetrier retrier = PartitionedRetrierBuilder.newBuilder()
+            .withRetrier(RetrierBuilder.newBuilder().withStopStrategy(StopStrategies.stopAfterAttempt(1)).build())
+            .withCircuitBreaker(1, 1_000L)
+            .withClock(clock)
+            .build();
+        Runnable failing = () -> {
+            throw new IllegalStateException();
+        };
+
+        assertThatThrownBy(() -> retrier.run("key", failing)).isInstanceOf(ExhaustedRetryException.class);
+        assertThatThrownBy(() -> retrier.run("key", () -> {
+        })).isInstanceOf(RejectedRetryException.class);
+
+        // A failed trial opens the circuit again
+        clock.advance(1_000L);
+        assertThatThrownBy(() -> retrier.run("key", failing)).isInstanceOf(ExhaustedRetryException.class);
+        assertThat(retrier.isCircuitOpen("key")).isTrue();
+
+        // A successful trial closes it
+        clock.advance(1_000L);
+        retrier.run("key", () -> {
+        });
+        assertThat(retrier.isCircuitOpen("key")).isFalse();
+    }
+
+    @Test
+    void testErrorFailsTheHalfOpenTrial() throws RetryException {
+        PartitionedRetrier retrier = PartitionedRetrierBuilder.newBuilder()
+            .withRetrier(RetrierBuilder.newBuilder().withStopStrategy(StopStrategies.stopAfterAttempt(1)).build())
+            .withCircuitBreaker(1, 1_000L)
+            .withClock(clock)
+            .build();
+
+        assertThatThrownBy(() -> retrier.run("key", () -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(ExhaustedRetryException.class);
+        clock.advance(1_000L);
+        assertThatThrownBy(() -> retrier.run("key", () -> {
+            throw new AssertionError();
+        })).isInstanceOf(AssertionError.class);
+
+        // The trial ended, so the circuit accepts another one after the open duration
+        clock.advance(1_000L);
+        retrier.run("key", () -> {
+        });
+        assertThat(retrier.isCircuitOpen("key")).isFalse();
+    }
+
+    @Test
+    void testRetryBudgetLimitsRetries() {
+        PartitionedRetrier retrier = PartitionedRetrierBuilder.newBuilder()
+            .withRetrier(RetrierBuilder.newBuilder().withStopStrategy(StopStrategies.neverStop()).build())
+            .withRetryBudget(0.0d, 4)
+            .build();
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retrier.run("key", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException();
+        })).isInstanceOf(ExhaustedRetryException.class);
+
+        // The first attempt plus the 4 retries of the budget
+        assertThat(attempts).hasValue(5);
+    }
+
+    @Test
+    void testAdaptiveBackoff() {
+        Retrier template = RetrierBuilder.newBuilder().withWaitStrategy(WaitStrategies.fixedWait(10L)).build();
+        PartitionState state = new PartitionState("key", template, 0, 0L, null, 2, clock);
+        FailedAttempt failedAttempt = new FailedAttempt(new IOException(), 1L, 0L);
+
+        assertThat(state.computeSleepTime(failedAttempt)).isEqualTo(10L);
+        state.shouldStop(failedAttempt);
+        assertThat(state.computeSleepTime(failedAttempt)).isEqualTo(20L);
+        state.shouldStop(failedAttempt);
+        state.shouldStop(failedAttempt);
+        assertThat(state.computeSleepTime(failedAttempt)).isEqualTo(40L);
+        state.onSuccess();
+        assertThat(state.computeSleepTime(failedAttempt)).isEqualTo(20L);
+    }
+
+    @Test
+    void testPartitionsAreBounded() throws RetryException {
+        PartitionedRetrier retrier = PartitionedRetrierBuilder.newBuilder()
+            .withMaximumPartitions(1)
+            .build();
+
+        retrier.run("a", () -> {
+        });
+        retrier.run("b", () -> {
+        });
+
+        assertThat(retrier.partitionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testIdlePartitionsAreEvicted() throws RetryException {
+        PartitionedRetrier retrier = PartitionedRetrierBuilder.newBuilder()
+            .withCircuitBreaker(1, 10_000L)
+            .withMaximumPartitions(1)
+            .withIdleTimeout(1L, TimeUnit.SECONDS)
+            .withClock(clock)
+            .build();
+
+        assertThatThrownBy(() -> retrier.run("key", () -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(ExhaustedRetryException.class);
+        assertThat(retrier.isCircuitOpen("key")).isTrue();
+
+        clock.advance(1_000L);
+        assertThat(retrier.isCircuitOpen("key")).isFalse();
+        retrier.run("key", () -> {
+        });
+        assertThat(retrier.partitionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testIdleTimeoutIsAtLeastAMillisecond() {
+        assertThatThrownBy(() -> PartitionedRetrierBuilder.newBuilder().withIdleTimeout(500L, TimeUnit.MICROSECONDS))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("idleTimeout must be >= 1 ms but is 500 MICROSECONDS");
+        assertThat(PartitionedRetrierBuilder.newBuilder().withIdleTimeout(1_000L, TimeUnit.MICROSECONDS).build())
+            .isNotNull();
+    }
+}
@@ -0,0 +1,85 @@
+package com.jorgenota.utils.retry;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class RetryEventsTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testEmitsAttemptWaitAndExhaustedEvents() throws IOException {
+        Retrier retrier = RetrierBuilder.newBuilder()
+            .withName("s3")
+            .withStopStrategy(StopStrategies.stopAfterAttempt(2))
+            .withWaitStrategy(WaitStrategies.fixedWait(5L))
+            .build();
+
+        List<RecordedEvent> events = record(() -> assertThatThrownBy(() -> retrier.run(() -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(ExhaustedRetryException.class));
+
+        assertThat(events).extracting(e -> e.getEventType().getName()).containsExactly(
+            "com.jorgenota.utils.retry.AttemptFailed",
+            "com.jorgenota.utils.retry.Wait",
+            "com.jorgenota.utils.retry.AttemptFailed",
+            "com.jorgenota.utils.retry.Exhausted");
+        assertThat(events).allSatisfy(e -> assertThat(e.getString("retrier")).isEqualTo("s3"));
+
+        RecordedEvent attemptFailed = events.get(0);
+        assertThat(attemptFailed.getClass("exceptionClass").getName()).isEqualTo(IllegalStateException.class.getName());
+        assertThat(attemptFailed.getString("exceptionMessage")).isEqualTo("boom");
+        assertThat(attemptFailed.getLong("attemptNumber")).isEqualTo(1L);
+        assertThat(events.get(1).getDuration().toMillis()).isGreaterThanOrEqualTo(4L);
+        assertThat(events.get(1).getDuration("sleepTime").toMillis()).isEqualTo(5L);
+        assertThat(events.get(3).getLong("attempts")).isEqualTo(2L);
+    }
+
+    @Test
+    void testEmitsFailedEvent() throws IOException {
+        Retrier retrier = RetrierBuilder.newBuilder().failIfRuntimeException().build();
+
+        List<RecordedEvent> events = record(() -> assertThatThrownBy(() -> retrier.run(() -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(FailException.class));
+
+        assertThat(events).extracting(e -> e.getEventType().getName()).containsExactly(
+            "com.jorgenota.utils.retry.AttemptFailed",
+            "com.jorgenota.utils.retry.Failed");
+        assertThat(events.get(1).getString("retrier")).isEqualTo(Retrier.DEFAULT_NAME);
+        assertThat(events.get(1).getString("reason")).isEqualTo("Fail predicate matched");
+    }
+
+    private List<RecordedEvent> record(Runnable runnable) throws IOException {
+        Path file = directory.resolve("retries.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(RetryEvents.AttemptFailedEvent.class);
+            recording.enable(RetryEvents.WaitEvent.class);
+            recording.enable(RetryEvents.ExhaustedEvent.class);
+            recording.enable(RetryEvents.FailedEvent.class);
+            recording.start();
+            runnable.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+            .filter(e -> e.getEventType().getName().startsWith("com.jorgenota.utils.retry."))
+            .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+            .collect(Collectors.toList());
+    }
+}
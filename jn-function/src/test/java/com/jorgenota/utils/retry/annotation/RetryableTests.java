@@ -0,0 +1,158 @@
+package com.jorgenota.utils.retry.annotation;
+
+import com.jorgenota.utils.retry.Retrier;
+import com.jorgenota.utils.retry.RetrierBuilder;
+import com.jorgenota.utils.retry.StopStrategies;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class RetryableTests {
+
+    @Test
+    void testRetryableMethodIsRetriedWithTheNamedRetrier() throws IOException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(TestConfiguration.class)) {
+            Service service = context.getBean(Service.class);
+
+            assertThat(service.worksAfter(2)).isEqualTo(3);
+            assertThat(service.attempts()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void testLastExceptionIsRethrownWhenRetriesAreExhausted() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(TestConfiguration.class)) {
+            Service service = context.getBean(Service.class);
+
+            // The "threeAttempts" retrier stops after 3 attempts
+            assertThatThrownBy(() -> service.worksAfter(5)).isInstanceOf(IOException.class);
+            assertThat(service.attempts()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void testRetrierCanBeReferencedByBeanName() throws IOException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(TestConfiguration.class)) {
+            Service service = context.getBean(Service.class);
+
+            assertThat(service.worksAfterUsingBeanName(1)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void testMethodsAreRetriedUsingTheAnnotationOfTheClass() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(TestConfiguration.class)) {
+            ClassLevelService service = context.getBean(ClassLevelService.class);
+
+            assertThat(service.worksAfter(4)).isEqualTo(5);
+        }
+    }
+
+    @Test
+    void testMethodsWithoutAnnotationAreNotRetried() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(TestConfiguration.class)) {
+            Service service = context.getBean(Service.class);
+
+            assertThatThrownBy(service::notRetried).isInstanceOf(IllegalStateException.class);
+            assertThat(service.attempts()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testUnknownRetrierFailsAtStartup() {
+        assertThatThrownBy(() -> new AnnotationConfigApplicationContext(WrongConfiguration.class))
+            .isInstanceOf(BeanCreationException.class)
+            .hasMessageContaining("No Retrier named 'unknown'");
+    }
+
+    @Configuration
+    @EnableRetryable
+    static class TestConfiguration {
+
+        @Bean
+        Retrier retrierBean() {
+            return RetrierBuilder.newBuilder()
+                .withName("threeAttempts")
+                .withStopStrategy(StopStrategies.stopAfterAttempt(3))
+                .build();
+        }
+
+        @Bean
+        Service service() {
+            return new Service();
+        }
+
+        @Bean
+        ClassLevelService classLevelService() {
+            return new ClassLevelService();
+        }
+    }
+
+    @Configuration
+    @EnableRetryable
+    static class WrongConfiguration {
+
+        @Bean
+        WrongService wrongService() {
+            return new WrongService();
+        }
+    }
+
+    static class Service {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        public int attempts() {
+            return counter.get();
+        }
+
+        @Retryable(name = "threeAttempts")
+        public int worksAfter(int failures) throws IOException {
+            int attempt = counter.incrementAndGet();
+            if (attempt <= failures) {
+                throw new IOException();
+            }
+            return attempt;
+        }
+
+        @Retryable(name = "retrierBean")
+        public int worksAfterUsingBeanName(int failures) throws IOException {
+            return worksAfter(failures);
+        }
+
+        public void notRetried() {
+            counter.incrementAndGet();
+            throw new IllegalStateException();
+        }
+    }
+
+    @Retryable
+    static class ClassLevelService {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        public int worksAfter(int failures) {
+            int attempt = counter.incrementAndGet();
+            if (attempt <= failures) {
+                throw new IllegalStateException();
+            }
+            return attempt;
+        }
+    }
+
+    static class WrongService {
+
+        @Retryable(name = "unknown")
+        public void doSomething() {
+        }
+    }
+}
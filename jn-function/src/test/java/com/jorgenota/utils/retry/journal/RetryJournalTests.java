@@ -0,0 +1,208 @@
+package com.jorgenota.utils.retry.journal;
+
+import com.jorgenota.utils.retry.MutableClock;
+import com.jorgenota.utils.retry.RetryException;
+import com.jorgenota.utils.retry.StopStrategies;
+import com.jorgenota.utils.retry.WaitStrategies;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class RetryJournalTests {
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void testSucceedingEntriesAreRemoved() throws IOException {
+        List<String> executed = new ArrayList<>();
+        try (RetryJournal journal = newBuilder().build((key, ref) -> executed.add(key + "=" + ref))) {
+            journal.submit("a", "ref-a");
+            journal.submit("b", "ref-b");
+            assertThat(journal.pendingEntries()).isEqualTo(2L);
+
+            assertThat(journal.processDue()).isEqualTo(2);
+
+            assertThat(executed).containsExactly("a=ref-a", "b=ref-b");
+            assertThat(journal.pendingEntries()).isZero();
+        }
+    }
+
+    @Test
+    void testFailedEntriesAreRescheduledUsingTheWaitStrategy() throws IOException {
+        FailingHandler handler = new FailingHandler(2);
+        try (RetryJournal journal = newBuilder()
+            .withWaitStrategy(WaitStrategies.fixedWait(1000L))
+            .build(handler)) {
+            journal.submit("a", "ref-a");
+
+            assertThat(journal.processDue()).isEqualTo(1);
+            // Not due yet
+            assertThat(journal.processDue()).isZero();
+
+            clock.advance(1000L);
+            assertThat(journal.processDue()).isEqualTo(1);
+            assertThat(journal.pendingEntries()).isEqualTo(1L);
+
+            clock.advance(1000L);
+            assertThat(journal.processDue()).isEqualTo(1);
+            assertThat(journal.pendingEntries()).isZero();
+            assertThat(handler.attempts).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void testExhaustedEntriesAreRemovedAndNotified() throws IOException {
+        FailingHandler handler = new FailingHandler(Integer.MAX_VALUE);
+        try (RetryJournal journal = newBuilder()
+            .withStopStrategy(StopStrategies.stopAfterAttempt(2))
+            .withWaitStrategy(WaitStrategies.noWait())
+            .build(handler)) {
+            journal.submit("a", "ref-a");
+
+            journal.processDue();
+            journal.processDue();
+
+            assertThat(journal.pendingEntries()).isZero();
+            assertThat(handler.exhausted).isNotNull();
+            assertThat(handler.exhausted.getNumberOfFailedAttempts()).isEqualTo(2L);
+        }
+    }
+
+    @Test
+    void testPendingEntriesAreResumedAfterReopening() throws IOException {
+        FailingHandler handler = new FailingHandler(1);
+        try (RetryJournal journal = newBuilder().withWaitStrategy(WaitStrategies.fixedWait(500L)).build(handler)) {
+            journal.submit("a", "ref-a");
+            journal.submit("b", "ref-b", 10_000L);
+            journal.processDue();
+        }
+
+        List<String> executed = new ArrayList<>();
+        try (RetryJournal journal = newBuilder().build((key, ref) -> executed.add(key))) {
+            assertThat(journal.pendingEntries()).isEqualTo(2L);
+
+            clock.advance(500L);
+            journal.processDue();
+            assertThat(executed).containsExactly("a");
+
+            clock.advance(10_000L);
+            journal.processDue();
+            assertThat(executed).containsExactly("a", "b");
+            assertThat(journal.pendingEntries()).isZero();
+        }
+    }
+
+    @Test
+    void testSegmentsAreDeletedAndCompacted() throws IOException {
+        Set<String> failing = new HashSet<>();
+        try (RetryJournal journal = newBuilder()
+            .withSegmentCapacity(4)
+            .withWaitStrategy(WaitStrategies.fixedWait(1000L))
+            .build((key, ref) -> {
+                if (failing.contains(key)) {
+                    throw new IOException();
+                }
+            })) {
+            for (int i = 0; i < 12; i++) {
+                journal.submit("key-" + i, "ref");
+            }
+            assertThat(journal.segmentCount()).isEqualTo(3);
+
+            failing.add("key-1");
+            journal.processDue();
+
+            // The pending entry of the first segment has been moved to a new active segment and the rest of the
+            // segments have been deleted
+            assertThat(journal.pendingEntries()).isEqualTo(1L);
+            assertThat(journal.segmentCount()).isEqualTo(1);
+
+            failing.clear();
+            clock.advance(1000L);
+            journal.processDue();
+            assertThat(journal.pendingEntries()).isZero();
+        }
+    }
+
+    @Test
+    void testCompactionKeepsEntriesBiggerThanTheCurrentMaximumSize() throws IOException {
+        try (RetryJournal journal = newBuilder().withSegmentCapacity(8).build((key, ref) -> {
+        })) {
+            for (int i = 0; i < 8; i++) {
+                journal.submit("a-long-key-" + i, "a-long-reference-" + i);
+            }
+        }
+
+        Set<String> attempted = new HashSet<>();
+        List<String> executed = new ArrayList<>();
+        try (RetryJournal journal = newBuilder()
+            .withSegmentCapacity(8)
+            .withMaxEntrySize(8)
+            .withWaitStrategy(WaitStrategies.fixedWait(1000L))
+            .build((key, ref) -> {
+                if (attempted.add(key) && (key.endsWith("0") || key.endsWith("1"))) {
+                    throw new IOException();
+                }
+                executed.add(key + "@" + ref);
+            })) {
+            journal.processDue();
+            assertThat(executed).hasSize(6);
+            assertThat(journal.segmentCount()).isEqualTo(1);
+
+            // The relocated entries don't fit in the slots of the current maximum size
+            clock.advance(1000L);
+            journal.processDue();
+            assertThat(executed).contains("a-long-key-0@a-long-reference-0", "a-long-key-1@a-long-reference-1");
+            assertThat(journal.pendingEntries()).isZero();
+        }
+    }
+
+    @Test
+    void testEntriesBiggerThanTheMaximumSizeAreRejected() throws IOException {
+        try (RetryJournal journal = newBuilder().withMaxEntrySize(8).build((key, ref) -> {
+        })) {
+            assertThatThrownBy(() -> journal.submit("key", "reference"))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private RetryJournalBuilder newBuilder() {
+        return RetryJournalBuilder.newBuilder(directory).withClock(clock);
+    }
+
+    private static final class FailingHandler implements RetryJournalHandler {
+        private final int failures;
+        private int attempts;
+        private RetryException exhausted;
+
+        private FailingHandler(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public void execute(String key, String payloadReference) throws Exception {
+            if (attempts++ < failures) {
+                throw new IOException();
+            }
+        }
+
+        @Override
+        public void onExhausted(String key, String payloadReference, RetryException e) {
+            exhausted = e;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.jorgenota.utils.retry.metrics;
+
+import com.jorgenota.utils.retry.Retrier;
+import com.jorgenota.utils.retry.RetrierBuilder;
+import com.jorgenota.utils.retry.RetryException;
+import com.jorgenota.utils.retry.StopStrategies;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * @author Jorge Alonso
+ */
+class RetryLatencyRecorderTests {
+
+    @Test
+    void testRecordsAttemptsAndExecutions() throws RetryException {
+        RetryLatencyRecorder recorder = new RetryLatencyRecorder();
+        Retrier retrier = RetrierBuilder.newBuilder().withListener(recorder).build();
+        AtomicInteger attempts = new AtomicInteger();
+
+        retrier.run(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException();
+            }
+        });
+
+        assertThat(recorder.attemptLatencies().getCount()).isEqualTo(3L);
+        assertThat(recorder.executionLatencies().getCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void testSnapshotsAreIntervals() {
+        RetryLatencyRecorder recorder = new RetryLatencyRecorder();
+        for (long latency = 1L; latency <= 100L; latency++) {
+            recorder.onAttempt(TimeUnit.MILLISECONDS.toNanos(latency), true);
+        }
+
+        LatencyDistribution latencies = recorder.attemptLatencies();
+        assertThat(latencies.getCount()).isEqualTo(100L);
+        assertThat((double) latencies.getValueAtPercentile(99.0d))
+            .isCloseTo(TimeUnit.MILLISECONDS.toNanos(99L), within(TimeUnit.MILLISECONDS.toNanos(1L) * 1.0d));
+        assertThat(latencies.getMaxNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(99L));
+
+        recorder.onAttempt(TimeUnit.MILLISECONDS.toNanos(5L), false);
+        assertThat(recorder.attemptLatencies().getCount()).isEqualTo(1L);
+        assertThat(recorder.attemptLatencies().getCount()).isZero();
+    }
+
+    @Test
+    void testOutOfRangeLatenciesAreClamped() {
+        RetryLatencyRecorder recorder = new RetryLatencyRecorder(1L, TimeUnit.SECONDS, 2);
+
+        recorder.onExecution(TimeUnit.MINUTES.toNanos(1L), 1L, false);
+        recorder.onExecution(-1L, 1L, true);
+
+        LatencyDistribution latencies = recorder.executionLatencies();
+        assertThat(latencies.getCount()).isEqualTo(2L);
+        assertThat(latencies.getMaxNanos()).isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(1_010L));
+    }
+
+    @Test
+    void testPublishesMicrometerSummaries() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Retrier retrier = RetrierBuilder.newBuilder()
+            .withName("s3")
+            .withStopStrategy(StopStrategies.stopAfterAttempt(2))
+            .withListener(new MicrometerRetryListener(registry, "s3"))
+            .build();
+
+        assertThatThrownBy(() -> retrier.run(() -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(RetryException.class);
+
+        DistributionSummary failedAttempts = registry.get(MicrometerRetryListener.ATTEMPT_LATENCY)
+            .tags("retrier", "s3", "outcome", "failure").summary();
+        DistributionSummary failedExecutions = registry.get(MicrometerRetryListener.EXECUTION_LATENCY)
+            .tags("retrier", "s3", "outcome", "failure").summary();
+        assertThat(failedAttempts.count()).isEqualTo(2L);
+        assertThat(failedExecutions.count()).isEqualTo(1L);
+        assertThat(failedExecutions.totalAmount()).isLessThan(1.0d);
+    }
+}
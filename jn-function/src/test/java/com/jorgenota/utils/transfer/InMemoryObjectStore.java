@@ -0,0 +1,174 @@
+package com.jorgenota.utils.transfer;
+
+import com.jorgenota.utils.base.service.MultipartObjectStore;
+import com.jorgenota.utils.base.service.ObjectMetadata;
+import com.jorgenota.utils.base.service.ServiceException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory {@link MultipartObjectStore} counting the requests, optionally failing the first attempt of every range
+ * (in the middle of it) and of every part.
+ *
+ * @author Jorge Alonso
+ */
+class InMemoryObjectStore implements MultipartObjectStore {
+    final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    final AtomicInteger rangeRequests = new AtomicInteger();
+    final AtomicInteger openRanges = new AtomicInteger();
+    final AtomicInteger maxOpenRanges = new AtomicInteger();
+    final AtomicInteger putRequests = new AtomicInteger();
+    final AtomicInteger partRequests = new AtomicInteger();
+    final AtomicInteger abortedUploads = new AtomicInteger();
+    private final Set<Long> failedOffsets = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> failedParts = ConcurrentHashMap.newKeySet();
+    volatile boolean failFirstAttempts;
+    volatile int failingPart;
+    volatile int brokenPart;
+
+    @Override
+    public InputStream openObject(String storageName, String key) throws ServiceException {
+        return new ByteArrayInputStream(content(storageName, key));
+    }
+
+    @Override
+    public InputStream getObjectRange(String storageName, String key, long offset, long length)
+        throws ServiceException {
+        rangeRequests.incrementAndGet();
+        byte[] content = content(storageName, key);
+        int end = (int) Math.min(content.length, offset + length);
+        boolean fail = failFirstAttempts && failedOffsets.add(offset);
+        maxOpenRanges.accumulateAndGet(openRanges.incrementAndGet(), Math::max);
+        return new ByteArrayInputStream(content, (int) offset, end - (int) offset) {
+            private boolean closed;
+
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (fail && pos - (int) offset >= (end - (int) offset) / 2) {
+                    throw new ServiceException("Connection reset");
+                }
+                return super.read(b, off, Math.min(len, 1024));
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    openRanges.decrementAndGet();
+                }
+                super.close();
+            }
+        };
+    }
+
+    @Override
+    public ObjectMetadata headObject(String storageName, String key) throws ServiceException {
+        byte[] content = content(storageName, key);
+        return ObjectMetadata.newBuilder()
+            .withContentLength(content.length)
+            .withETag(Integer.toHexString(Arrays.hashCode(content)))
+            .build();
+    }
+
+    @Override
+    public void putObject(String storageName, String key, InputStream content, long contentLength,
+                          String contentType) throws ServiceException {
+        putRequests.incrementAndGet();
+        try {
+            objects.put(storageName + "/" + key, content.readAllBytes());
+        } catch (IOException e) {
+            throw new ServiceException(e);
+        }
+    }
+
+    @Override
+    public String createMultipartUpload(String storageName, String key, String contentType) throws ServiceException {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentHashMap<>());
+        return uploadId;
+    }
+
+    @Override
+    public String uploadPart(String storageName, String key, String uploadId, int partNumber, ByteBuffer content)
+        throws ServiceException {
+        partRequests.incrementAndGet();
+        if (partNumber == brokenPart) {
+            throw new AssertionError("Broken part " + partNumber);
+        }
+        if (partNumber == failingPart || (failFirstAttempts && failedParts.add(partNumber))) {
+            content.position(content.position() + content.remaining() / 2);
+            throw new ServiceException("Connection reset");
+        }
+        byte[] part = new byte[content.remaining()];
+        content.get(part);
+        upload(uploadId).put(partNumber, part);
+        return Integer.toHexString(Arrays.hashCode(part));
+    }
+
+    @Override
+    public void completeMultipartUpload(String storageName, String key, String uploadId, List<String> partETags)
+        throws ServiceException {
+        Map<Integer, byte[]> parts = upload(uploadId);
+        ByteArrayOutputStream object = new ByteArrayOutputStream();
+        for (int i = 0; i < partETags.size(); i++) {
+            byte[] part = parts.get(i + 1);
+            if (part == null || !Integer.toHexString(Arrays.hashCode(part)).equals(partETags.get(i))) {
+                throw new ServiceException("Invalid part " + (i + 1));
+            }
+            object.writeBytes(part);
+        }
+        uploads.remove(uploadId);
+        objects.put(storageName + "/" + key, object.toByteArray());
+    }
+
+    @Override
+    public void abortMultipartUpload(String storageName, String key, String uploadId) throws ServiceException {
+        upload(uploadId);
+        uploads.remove(uploadId);
+        abortedUploads.incrementAndGet();
+    }
+
+    @Override
+    public void deleteObject(String storageName, String key) throws ServiceException {
+        objects.remove(storageName + "/" + key);
+    }
+
+    @Override
+    public void deleteObjects(String storageName, Collection<String> keys) throws ServiceException {
+        keys.forEach(key -> deleteObject(storageName, key));
+    }
+
+    @Override
+    public void deleteBucket(String storageName) throws ServiceException {
+        objects.keySet().removeIf(key -> key.startsWith(storageName + "/"));
+    }
+
+    private Map<Integer, byte[]> upload(String uploadId) {
+        Map<Integer, byte[]> parts = uploads.get(uploadId);
+        if (parts == null) {
+            throw new ServiceException("No such upload: " + uploadId);
+        }
+        return parts;
+    }
+
+    private byte[] content(String storageName, String key) {
+        byte[] content = objects.get(storageName + "/" + key);
+        if (content == null) {
+            throw new ServiceException("Not found: " + storageName + "/" + key);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,152 @@
+package com.jorgenota.utils.transfer;
+
+import com.jorgenota.utils.base.service.ServiceException;
+import com.jorgenota.utils.retry.RetrierBuilder;
+import com.jorgenota.utils.retry.RetryException;
+import com.jorgenota.utils.retry.StopStrategies;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class ParallelDownloaderTests {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final InMemoryObjectStore store = new InMemoryObjectStore();
+    private final byte[] content = new byte[100_000];
+
+    @TempDir
+    Path directory;
+
+    ParallelDownloaderTests() {
+        new Random(42).nextBytes(content);
+        store.objects.put("bucket/key", content);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testDownloadsPartsIntoFile() throws Exception {
+        ParallelDownloader downloader = ParallelDownloaderBuilder.newBuilder(store, executor)
+            .withPartSize(16 * 1024)
+            .withParallelism(3)
+            .build();
+        Path file = directory.resolve("object");
+
+        assertThat(downloader.download("bucket", "key", file)).isEqualTo(content.length);
+
+        assertThat(Files.readAllBytes(file)).isEqualTo(content);
+        assertThat(store.rangeRequests).hasValue(7);
+        assertThat(store.maxOpenRanges.get()).isBetween(1, 3);
+        assertThat(store.openRanges).hasValue(0);
+    }
+
+    @Test
+    void testRetriesFailedParts() throws Exception {
+        store.failFirstAttempts = true;
+        ParallelDownloader downloader = ParallelDownloaderBuilder.newBuilder(store, executor)
+            .withPartSize(30_000)
+            .withRetrier(RetrierBuilder.newBuilder().withStopStrategy(StopStrategies.stopAfterAttempt(2)).build())
+            .build();
+        Path file = directory.resolve("object");
+
+        downloader.download("bucket", "key", file);
+
+        assertThat(Files.readAllBytes(file)).isEqualTo(content);
+        assertThat(store.rangeRequests).hasValue(8);
+    }
+
+    @Test
+    void testDownloadsIntoMappedBuffer() throws Exception {
+        ParallelDownloader downloader = ParallelDownloaderBuilder.newBuilder(store, executor)
+            .withPartSize(10_000)
+            .build();
+        Path file = directory.resolve("object");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, content.length + 10);
+            buffer.position(10);
+
+            assertThat(downloader.download("bucket", "key", buffer)).isEqualTo(content.length);
+
+            assertThat(buffer.position()).isEqualTo(content.length + 10);
+            buffer.force();
+        }
+        byte[] written = Files.readAllBytes(file);
+        assertThat(ByteBuffer.wrap(written, 10, content.length)).isEqualTo(ByteBuffer.wrap(content));
+    }
+
+    @Test
+    void testRejectsSmallBuffers() {
+        ParallelDownloader downloader = ParallelDownloaderBuilder.newBuilder(store, executor).build();
+
+        assertThatThrownBy(() -> downloader.download("bucket", "key", ByteBuffer.allocateDirect(10)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testDeletesFileOfFailedDownload() throws IOException {
+        store.failFirstAttempts = true;
+        ParallelDownloader downloader = ParallelDownloaderBuilder.newBuilder(store, executor)
+            .withRetrier(RetrierBuilder.newBuilder().withStopStrategy(StopStrategies.stopAfterAttempt(1)).build())
+            .build();
+        Path file = directory.resolve("object");
+        Files.write(file, new byte[]{1, 2, 3});
+
+        assertThatThrownBy(() -> downloader.download("bucket", "key", file))
+            .isInstanceOf(RetryException.class)
+            .hasCauseInstanceOf(ServiceException.class);
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void testFailsWhenObjectIsReplacedWhileDownloading() {
+        ParallelDownloader downloader = ParallelDownloaderBuilder.newBuilder(new InMemoryObjectStore() {
+            {
+                objects.put("bucket/key", content);
+            }
+
+            @Override
+            public InputStream getObjectRange(String storageName, String key, long offset, long length) {
+                objects.put("bucket/key", new byte[content.length]);
+                return super.getObjectRange(storageName, key, offset, length);
+            }
+        }, executor).build();
+
+        assertThatThrownBy(() -> downloader.download("bucket", "key", ByteBuffer.allocate(content.length)))
+            .isInstanceOf(ServiceException.class)
+            .hasMessage("Object bucket/key changed while being downloaded");
+    }
+
+    @Test
+    void testDownloadsEmptyObjects() throws Exception {
+        store.objects.put("bucket/empty", new byte[0]);
+        ParallelDownloader downloader = ParallelDownloaderBuilder.newBuilder(store, executor).build();
+        Path file = directory.resolve("empty");
+
+        assertThat(downloader.download("bucket", "empty", file)).isZero();
+        assertThat(file).exists().hasBinaryContent(new byte[0]);
+        assertThat(store.rangeRequests).hasValue(0);
+    }
+}
@@ -0,0 +1,145 @@
+package com.jorgenota.utils.transfer;
+
+import com.jorgenota.utils.base.service.ServiceException;
+import com.jorgenota.utils.retry.RetrierBuilder;
+import com.jorgenota.utils.retry.RetryException;
+import com.jorgenota.utils.retry.StopStrategies;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jorge Alonso
+ */
+class ParallelUploaderTests {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final InMemoryObjectStore store = new InMemoryObjectStore();
+    private final byte[] content = new byte[100_000];
+
+    ParallelUploaderTests() {
+        new Random(42).nextBytes(content);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testUploadsPartsWithBoundedBuffers() throws Exception {
+        ParallelUploader uploader = ParallelUploaderBuilder.newBuilder(store, executor)
+            .withPartSize(16 * 1024)
+            .withParallelism(3)
+            .build();
+
+        assertThat(uploader.upload("bucket", "key", new ByteArrayInputStream(content), "application/octet-stream"))
+            .isEqualTo(content.length);
+
+        assertThat(store.objects.get("bucket/key")).isEqualTo(content);
+        assertThat(store.partRequests).hasValue(7);
+        assertThat(store.putRequests).hasValue(0);
+        assertThat(store.uploads).isEmpty();
+        assertThat(uploader.getAllocatedBuffers()).isBetween(1, 3);
+    }
+
+    @Test
+    void testPutsSmallObjectsInOneRequest() throws Exception {
+        ParallelUploader uploader = ParallelUploaderBuilder.newBuilder(store, executor).build();
+
+        uploader.upload("bucket", "key", new ByteArrayInputStream(content), "application/octet-stream");
+
+        assertThat(store.objects.get("bucket/key")).isEqualTo(content);
+        assertThat(store.putRequests).hasValue(1);
+        assertThat(store.partRequests).hasValue(0);
+    }
+
+    @Test
+    void testRetriesFailedParts() throws Exception {
+        store.failFirstAttempts = true;
+        ParallelUploader uploader = ParallelUploaderBuilder.newBuilder(store, executor)
+            .withPartSize(30_000)
+            .withRetrier(RetrierBuilder.newBuilder().withStopStrategy(StopStrategies.stopAfterAttempt(2)).build())
+            .build();
+
+        uploader.upload("bucket", "key", new ByteArrayInputStream(content), "application/octet-stream");
+
+        assertThat(store.objects.get("bucket/key")).isEqualTo(content);
+        assertThat(store.partRequests).hasValue(8);
+    }
+
+    @Test
+    void testAbortsUploadWhenPartFails() throws Exception {
+        store.failingPart = 3;
+        ParallelUploader uploader = ParallelUploaderBuilder.newBuilder(store, executor)
+            .withPartSize(10_000)
+            .withParallelism(2)
+            .withRetrier(RetrierBuilder.newBuilder().withStopStrategy(StopStrategies.stopAfterAttempt(2)).build())
+            .build();
+
+        assertThatThrownBy(() -> uploader.upload("bucket", "key", new ByteArrayInputStream(content),
+            "application/octet-stream"))
+            .isInstanceOf(RetryException.class)
+            .hasCauseInstanceOf(ServiceException.class);
+        assertThat(store.objects).doesNotContainKey("bucket/key");
+        assertThat(store.abortedUploads).hasValue(1);
+        assertThat(store.uploads).isEmpty();
+
+        // Every buffer was released
+        store.failingPart = 0;
+        uploader.upload("bucket", "key", new ByteArrayInputStream(content), "application/octet-stream");
+        assertThat(store.objects.get("bucket/key")).isEqualTo(content);
+        assertThat(uploader.getAllocatedBuffers()).isBetween(1, 2);
+    }
+
+    @Test
+    void testAbortsUploadWhenPartThrowsAnError() throws Exception {
+        store.brokenPart = 2;
+        ParallelUploader uploader = ParallelUploaderBuilder.newBuilder(store, executor)
+            .withPartSize(10_000)
+            .withParallelism(2)
+            .build();
+
+        assertThatThrownBy(() -> uploader.upload("bucket", "key", new ByteArrayInputStream(content),
+            "application/octet-stream"))
+            .isInstanceOf(ServiceException.class)
+            .hasCauseInstanceOf(AssertionError.class);
+        assertThat(store.abortedUploads).hasValue(1);
+
+        // The buffer of the broken part was released
+        store.brokenPart = 0;
+        uploader.upload("bucket", "key", new ByteArrayInputStream(content), "application/octet-stream");
+        assertThat(store.objects.get("bucket/key")).isEqualTo(content);
+        assertThat(uploader.getAllocatedBuffers()).isBetween(1, 2);
+    }
+
+    @Test
+    void testAbortsUploadWhenStreamFails() {
+        ParallelUploader uploader = ParallelUploaderBuilder.newBuilder(store, executor)
+            .withPartSize(10_000)
+            .build();
+        InputStream failing = new SequenceInputStream(new ByteArrayInputStream(content, 0, 45_000), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        });
+
+        assertThatThrownBy(() -> uploader.upload("bucket", "key", failing, "application/octet-stream"))
+            .isInstanceOf(IOException.class)
+            .hasMessage("Broken pipe");
+        assertThat(store.objects).doesNotContainKey("bucket/key");
+        assertThat(store.abortedUploads).hasValue(1);
+        assertThat(store.uploads).isEmpty();
+    }
+}
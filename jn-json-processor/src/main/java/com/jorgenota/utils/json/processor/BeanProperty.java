@@ -0,0 +1,61 @@
+package com.jorgenota.utils.json.processor;
+
+import org.springframework.lang.Nullable;
+
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A property of a class annotated with {@code @FastJson}, with the expressions to read and write it from the generated
+ * code.
+ *
+ * @author Jorge Alonso
+ */
+final class BeanProperty {
+    private final String name;
+    private final TypeMirror type;
+    @Nullable
+    private final String getter;
+    private final boolean getterIsMethod;
+    @Nullable
+    private final String setter;
+    private final boolean setterIsMethod;
+
+    BeanProperty(String name, TypeMirror type, @Nullable String getter, boolean getterIsMethod,
+                 @Nullable String setter, boolean setterIsMethod) {
+        this.name = name;
+        this.type = type;
+        this.getter = getter;
+        this.getterIsMethod = getterIsMethod;
+        this.setter = setter;
+        this.setterIsMethod = setterIsMethod;
+    }
+
+    /**
+     * Returns the name of the property in the JSON content.
+     *
+     * @return the name
+     */
+    String getName() {
+        return name;
+    }
+
+    TypeMirror getType() {
+        return type;
+    }
+
+    boolean isReadable() {
+        return getter != null;
+    }
+
+    boolean isWritable() {
+        return setter != null;
+    }
+
+    String readExpression(String bean) {
+        return getterIsMethod ? bean + "." + getter + "()" : bean + "." + getter;
+    }
+
+    String writeStatement(String bean, String value) {
+        return setterIsMethod ? bean + "." + setter + "(" + value + ");" : bean + "." + setter + " = " + value + ";";
+    }
+}
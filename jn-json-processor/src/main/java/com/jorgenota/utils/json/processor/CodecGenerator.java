@@ -0,0 +1,433 @@
+package com.jorgenota.utils.json.processor;
+
+import org.springframework.lang.Nullable;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the source of the {@code FastJsonCodec} of a class: a serializer writing every property straight to the
+ * generator, and a deserializer switching on the property names. The primitives, their wrappers and strings are read
+ * and written with the streaming API; any other type is delegated to the serializers and deserializers Jackson finds
+ * for it.
+ *
+ * @author Jorge Alonso
+ */
+final class CodecGenerator {
+    private static final String GENERATOR = FastJsonProcessor.class.getName();
+
+    private final ProcessingEnvironment processingEnv;
+    private final TypeElement type;
+    private final List<BeanProperty> properties;
+    private final String packageName;
+    private final String simpleName;
+    private final String typeName;
+    private final StringBuilder source = new StringBuilder(8192);
+    private int indent;
+
+    CodecGenerator(ProcessingEnvironment processingEnv, TypeElement type, List<BeanProperty> properties) {
+        this.processingEnv = processingEnv;
+        this.type = type;
+        this.properties = properties;
+        this.packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element outer = type.getEnclosingElement(); !(outer instanceof PackageElement);
+             outer = outer.getEnclosingElement()) {
+            name.insert(0, '_').insert(0, outer.getSimpleName());
+        }
+        this.simpleName = name.append("_FastJsonCodec").toString();
+        this.typeName = type.getQualifiedName().toString();
+    }
+
+    /**
+     * Returns the fully qualified name of the generated codec.
+     *
+     * @return the codec name
+     */
+    String getCodecName() {
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    void write() throws IOException {
+        if (!packageName.isEmpty()) {
+            line("package %s;", packageName);
+            line("");
+        }
+        line("@javax.annotation.processing.Generated(\"%s\")", GENERATOR);
+        open("public final class %s implements com.jorgenota.utils.base.FastJsonCodec<%s>", simpleName, typeName);
+        line("");
+        line("@Override");
+        open("public Class<%s> getType()", typeName);
+        line("return %s.class;", typeName);
+        close();
+        line("");
+        line("@Override");
+        open("public com.fasterxml.jackson.databind.JsonSerializer<%s> serializer()", typeName);
+        line("return new Serializer();");
+        close();
+        line("");
+        line("@Override");
+        open("public com.fasterxml.jackson.databind.JsonDeserializer<%s> deserializer()", typeName);
+        line("return new Deserializer();");
+        close();
+        line("");
+        writeSerializer();
+        line("");
+        writeDeserializer();
+        close();
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(getCodecName(), type).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private void writeSerializer() {
+        open("static final class Serializer extends com.fasterxml.jackson.databind.ser.std.StdSerializer<%s>",
+            typeName);
+        for (int i = 0; i < properties.size(); i++) {
+            if (properties.get(i).isReadable()) {
+                line("private static final com.fasterxml.jackson.core.io.SerializedString NAME_%d =", i);
+                line("    new com.fasterxml.jackson.core.io.SerializedString(%s);",
+                    literal(properties.get(i).getName()));
+            }
+        }
+        line("");
+        open("Serializer()");
+        line("super(%s.class);", typeName);
+        close();
+        line("");
+        line("@Override");
+        open("public void serialize(%s value, com.fasterxml.jackson.core.JsonGenerator gen, "
+            + "com.fasterxml.jackson.databind.SerializerProvider provider) throws java.io.IOException", typeName);
+        line("gen.writeStartObject(value);");
+        line("writeProperties(value, gen, provider);");
+        line("gen.writeEndObject();");
+        close();
+        line("");
+        line("@Override");
+        open("public void serializeWithType(%s value, com.fasterxml.jackson.core.JsonGenerator gen, "
+            + "com.fasterxml.jackson.databind.SerializerProvider provider, "
+            + "com.fasterxml.jackson.databind.jsontype.TypeSerializer typeSer) throws java.io.IOException", typeName);
+        line("com.fasterxml.jackson.core.type.WritableTypeId typeId = typeSer.writeTypePrefix(gen,");
+        line("    typeSer.typeId(value, com.fasterxml.jackson.core.JsonToken.START_OBJECT));");
+        line("gen.setCurrentValue(value);");
+        line("writeProperties(value, gen, provider);");
+        line("typeSer.writeTypeSuffix(gen, typeId);");
+        close();
+        line("");
+        open("private void writeProperties(%s value, com.fasterxml.jackson.core.JsonGenerator gen, "
+            + "com.fasterxml.jackson.databind.SerializerProvider provider) throws java.io.IOException", typeName);
+        line("// None of the properties has a view, so none is included when a view is active");
+        open("if (provider.getActiveView() != null)");
+        line("return;");
+        close();
+        for (int i = 0; i < properties.size(); i++) {
+            BeanProperty property = properties.get(i);
+            if (property.isReadable()) {
+                writeProperty(property, i);
+            }
+        }
+        close();
+        close();
+    }
+
+    private void writeProperty(BeanProperty property, int index) {
+        String read = property.readExpression("value");
+        TypeMirror propertyType = property.getType();
+        switch (propertyType.getKind()) {
+            case BOOLEAN:
+                line("gen.writeFieldName(NAME_%d);", index);
+                line("gen.writeBoolean(%s);", read);
+                return;
+            case BYTE:
+                line("gen.writeFieldName(NAME_%d);", index);
+                line("gen.writeNumber((int) %s);", read);
+                return;
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                line("gen.writeFieldName(NAME_%d);", index);
+                line("gen.writeNumber(%s);", read);
+                return;
+            default:
+                break;
+        }
+        String boxed = streamedType(propertyType);
+        if (boxed == null) {
+            line("gen.writeFieldName(NAME_%d);", index);
+            line("provider.defaultSerializeValue(%s, gen);", read);
+            return;
+        }
+        line("%s value%d = %s;", boxed, index, read);
+        line("gen.writeFieldName(NAME_%d);", index);
+        open("if (value%d == null)", index);
+        line("gen.writeNull();");
+        closeAndOpen("else");
+        switch (boxed) {
+            case "java.lang.String":
+                line("gen.writeString(value%d);", index);
+                break;
+            case "java.lang.Boolean":
+                line("gen.writeBoolean(value%d);", index);
+                break;
+            default:
+                line("gen.writeNumber(value%d);", index);
+                break;
+        }
+        close();
+    }
+
+    private void writeDeserializer() {
+        line("static final class Deserializer extends com.fasterxml.jackson.databind.deser.std.StdDeserializer<%s>",
+            typeName);
+        open("    implements com.fasterxml.jackson.databind.deser.ResolvableDeserializer");
+        for (int i = 0; i < properties.size(); i++) {
+            if (properties.get(i).isWritable() && !isPrimitiveParsed(properties.get(i).getType())) {
+                line("private com.fasterxml.jackson.databind.JsonDeserializer<Object> deserializer%d;", i);
+            }
+        }
+        line("");
+        open("Deserializer()");
+        line("super(%s.class);", typeName);
+        close();
+        line("");
+        line("@Override");
+        open("public void resolve(com.fasterxml.jackson.databind.DeserializationContext ctxt) "
+            + "throws com.fasterxml.jackson.databind.JsonMappingException");
+        for (int i = 0; i < properties.size(); i++) {
+            BeanProperty property = properties.get(i);
+            if (property.isWritable() && !isPrimitiveParsed(property.getType())) {
+                line("deserializer%d = ctxt.findRootValueDeserializer(%s);", i, javaType(property.getType()));
+            }
+        }
+        close();
+        line("");
+        line("@Override");
+        open("public boolean isCachable()");
+        line("return true;");
+        close();
+        line("");
+        line("@Override");
+        open("public %s deserialize(com.fasterxml.jackson.core.JsonParser p, "
+            + "com.fasterxml.jackson.databind.DeserializationContext ctxt) throws java.io.IOException", typeName);
+        line("return deserialize(p, ctxt, new %s());", typeName);
+        close();
+        line("");
+        line("@Override");
+        line("@SuppressWarnings(\"unchecked\")");
+        open("public %s deserialize(com.fasterxml.jackson.core.JsonParser p, "
+            + "com.fasterxml.jackson.databind.DeserializationContext ctxt, %s bean) throws java.io.IOException",
+            typeName, typeName);
+        line("com.fasterxml.jackson.core.JsonToken t = p.currentToken();");
+        open("if (t == com.fasterxml.jackson.core.JsonToken.START_OBJECT)");
+        line("t = p.nextToken();");
+        closeAndOpen("else if (t != com.fasterxml.jackson.core.JsonToken.FIELD_NAME "
+            + "&& t != com.fasterxml.jackson.core.JsonToken.END_OBJECT)");
+        line("return (%s) ctxt.handleUnexpectedToken(%s.class, p);", typeName, typeName);
+        close();
+        line("boolean inView = ctxt.getActiveView() == null;");
+        open("for (; t == com.fasterxml.jackson.core.JsonToken.FIELD_NAME; t = p.nextToken())");
+        line("String name = p.getCurrentName();");
+        line("t = p.nextToken();");
+        open("if (!inView)");
+        line("p.skipChildren();");
+        line("continue;");
+        close();
+        open("switch (name)");
+        for (int i = 0; i < properties.size(); i++) {
+            BeanProperty property = properties.get(i);
+            if (property.isWritable()) {
+                line("case %s:", literal(property.getName()));
+                indent++;
+                line(property.writeStatement("bean", readExpression(property.getType(), i)));
+                line("break;");
+                indent--;
+            }
+        }
+        line("default:");
+        line("    handleUnknownProperty(p, ctxt, bean, name);");
+        close();
+        close();
+        line("return bean;");
+        close();
+        line("");
+        line("@Override");
+        open("public Object deserializeWithType(com.fasterxml.jackson.core.JsonParser p, "
+            + "com.fasterxml.jackson.databind.DeserializationContext ctxt, "
+            + "com.fasterxml.jackson.databind.jsontype.TypeDeserializer typeDeserializer) throws java.io.IOException");
+        line("return typeDeserializer.deserializeTypedFromObject(p, ctxt);");
+        close();
+        line("");
+        open("private static Object delegate(com.fasterxml.jackson.databind.JsonDeserializer<Object> deserializer, "
+            + "com.fasterxml.jackson.core.JsonParser p, com.fasterxml.jackson.databind.DeserializationContext ctxt) "
+            + "throws java.io.IOException");
+        line("return p.hasToken(com.fasterxml.jackson.core.JsonToken.VALUE_NULL) ? deserializer.getNullValue(ctxt)");
+        line("    : deserializer.deserialize(p, ctxt);");
+        close();
+        close();
+    }
+
+    private String readExpression(TypeMirror propertyType, int index) {
+        String delegated = "delegate(deserializer" + index + ", p, ctxt)";
+        switch (propertyType.getKind()) {
+            case BOOLEAN:
+                // The (p, ctxt) variant is deprecated
+                return "t == com.fasterxml.jackson.core.JsonToken.VALUE_TRUE || (t != com.fasterxml.jackson.core"
+                    + ".JsonToken.VALUE_FALSE && _parseBooleanPrimitive(ctxt, p, java.lang.Boolean.TYPE))";
+            case BYTE:
+                return "_parseBytePrimitive(p, ctxt)";
+            case SHORT:
+                return "_parseShortPrimitive(p, ctxt)";
+            case INT:
+                return "_parseIntPrimitive(p, ctxt)";
+            case LONG:
+                return "_parseLongPrimitive(p, ctxt)";
+            case FLOAT:
+                return "_parseFloatPrimitive(p, ctxt)";
+            case DOUBLE:
+                return "_parseDoublePrimitive(p, ctxt)";
+            case CHAR:
+                return "(java.lang.Character) " + delegated;
+            default:
+                break;
+        }
+        String boxed = streamedType(propertyType);
+        String token = "com.fasterxml.jackson.core.JsonToken.";
+        if (boxed == null) {
+            return "(" + typeName(propertyType) + ") " + delegated;
+        }
+        switch (boxed) {
+            case "java.lang.String":
+                return "t == " + token + "VALUE_STRING ? p.getText() : (java.lang.String) " + delegated;
+            case "java.lang.Boolean":
+                return "t == " + token + "VALUE_TRUE ? java.lang.Boolean.TRUE : t == " + token
+                    + "VALUE_FALSE ? java.lang.Boolean.FALSE : (java.lang.Boolean) " + delegated;
+            case "java.lang.Integer":
+                return "t == " + token + "VALUE_NUMBER_INT ? java.lang.Integer.valueOf(p.getIntValue()) "
+                    + ": (java.lang.Integer) " + delegated;
+            case "java.lang.Long":
+                return "t == " + token + "VALUE_NUMBER_INT ? java.lang.Long.valueOf(p.getLongValue()) "
+                    + ": (java.lang.Long) " + delegated;
+            case "java.lang.Float":
+                return "t == " + token + "VALUE_NUMBER_FLOAT ? java.lang.Float.valueOf(p.getFloatValue()) "
+                    + ": (java.lang.Float) " + delegated;
+            default:
+                return "t == " + token + "VALUE_NUMBER_FLOAT ? java.lang.Double.valueOf(p.getDoubleValue()) "
+                    + ": (java.lang.Double) " + delegated;
+        }
+    }
+
+    /**
+     * Returns the name of the wrapper type (or {@code String}) read and written with the streaming API, or
+     * <code>null</code> if the type is delegated to Jackson.
+     */
+    @Nullable
+    private static String streamedType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        String name = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        switch (name) {
+            case "java.lang.String":
+            case "java.lang.Boolean":
+            case "java.lang.Integer":
+            case "java.lang.Long":
+            case "java.lang.Float":
+            case "java.lang.Double":
+                return name;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isPrimitiveParsed(TypeMirror type) {
+        return type.getKind().isPrimitive() && type.getKind() != TypeKind.CHAR;
+    }
+
+    private String javaType(TypeMirror type) {
+        String name = typeName(type);
+        TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+        if (name.equals(typeName(erasure))) {
+            return "ctxt.constructType(" + name + ".class)";
+        }
+        return "ctxt.getTypeFactory().constructType(new com.fasterxml.jackson.core.type.TypeReference<" + name
+            + ">() {})";
+    }
+
+    private static String typeName(TypeMirror type) {
+        switch (type.getKind()) {
+            case ARRAY:
+                return typeName(((ArrayType) type).getComponentType()) + "[]";
+            case DECLARED:
+                DeclaredType declared = (DeclaredType) type;
+                String name = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+                if (declared.getTypeArguments().isEmpty()) {
+                    return name;
+                }
+                return declared.getTypeArguments().stream().map(CodecGenerator::typeName)
+                    .collect(Collectors.joining(", ", name + "<", ">"));
+            case WILDCARD:
+                WildcardType wildcard = (WildcardType) type;
+                if (wildcard.getExtendsBound() != null) {
+                    return "? extends " + typeName(wildcard.getExtendsBound());
+                }
+                if (wildcard.getSuperBound() != null) {
+                    return "? super " + typeName(wildcard.getSuperBound());
+                }
+                return "?";
+            default:
+                return type.toString();
+        }
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void open(String format, Object... args) {
+        line(format + " {", args);
+        indent++;
+    }
+
+    private void closeAndOpen(String format, Object... args) {
+        indent--;
+        line("} " + format + " {", args);
+        indent++;
+    }
+
+    private void close() {
+        indent--;
+        line("}");
+    }
+
+    private void line(String format, Object... args) {
+        if (!format.isEmpty()) {
+            source.append("    ".repeat(indent)).append(args.length == 0 ? format : String.format(format, args));
+        }
+        source.append('\n');
+    }
+}
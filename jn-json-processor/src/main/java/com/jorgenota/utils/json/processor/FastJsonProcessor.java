@@ -0,0 +1,440 @@
+package com.jorgenota.utils.json.processor;
+
+import org.springframework.lang.Nullable;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates a {@code FastJsonCodec} for every class annotated with {@code @FastJson}, and registers the generated
+ * codecs in {@code META-INF/services/com.jorgenota.utils.base.FastJsonCodec} so {@code ObjectMappingUtils} finds them.
+ * <p>
+ * The properties of a class are found the way Jackson finds them with its default visibility: public fields, public
+ * getters (including {@code isXxx} for <code>boolean</code>s), setters, and the non-public fields that back a getter.
+ * They are named after the field, or after the accessor with Jackson's default name mangling, unless renamed with
+ * {@code @JsonProperty}, and ordered as Jackson does. The classes that use a feature of Jackson the generated code can't
+ * reproduce (other Jackson annotations, private members that must be accessed, getters used as setters, ...) are
+ * reported as compilation errors, so they can be fixed or left without the annotation.
+ *
+ * @author Jorge Alonso
+ */
+@SupportedAnnotationTypes(FastJsonProcessor.FAST_JSON)
+public class FastJsonProcessor extends AbstractProcessor {
+    static final String FAST_JSON = "com.jorgenota.utils.base.FastJson";
+    private static final String CODEC_SERVICE = "META-INF/services/com.jorgenota.utils.base.FastJsonCodec";
+    private static final String JACKSON_ANNOTATIONS = "com.fasterxml.jackson.";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+
+    private final Set<String> codecs = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!codecs.isEmpty()) {
+                writeServiceFile();
+            }
+            return false;
+        }
+        TypeElement fastJson = processingEnv.getElementUtils().getTypeElement(FAST_JSON);
+        if (fastJson == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(fastJson)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@FastJson is only supported on classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            boolean supported = isSupportedType(type);
+            List<BeanProperty> properties = collectProperties(type);
+            if (supported && properties != null) {
+                generateCodec(type, properties);
+            }
+        }
+        return false;
+    }
+
+    private boolean isSupportedType(TypeElement type) {
+        boolean supported = checkAnnotations(type);
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            supported = error(type, "A @FastJson class must not be abstract");
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            supported = error(type, "A @FastJson class must not be generic");
+        }
+        Element current = type;
+        while (current instanceof TypeElement) {
+            TypeElement currentType = (TypeElement) current;
+            if (currentType.getModifiers().contains(Modifier.PRIVATE)) {
+                supported = error(type, "A @FastJson class must not be private nor nested in a private class");
+            }
+            NestingKind nesting = currentType.getNestingKind();
+            if (nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS
+                || (nesting == NestingKind.MEMBER && !currentType.getModifiers().contains(Modifier.STATIC))) {
+                supported = error(type, "A @FastJson class must be a top-level or static nested class");
+            }
+            current = current.getEnclosingElement();
+        }
+        TypeElement superclass = (TypeElement) processingEnv.getTypeUtils().asElement(type.getSuperclass());
+        if (superclass == null || !superclass.getQualifiedName().contentEquals("java.lang.Object")) {
+            supported = error(type, "A @FastJson class must extend Object");
+        }
+        boolean defaultConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                defaultConstructor = true;
+            }
+        }
+        if (!defaultConstructor) {
+            supported = error(type, "A @FastJson class needs a non-private constructor without arguments");
+        }
+        return supported;
+    }
+
+    @Nullable
+    private List<BeanProperty> collectProperties(TypeElement type) {
+        Types types = processingEnv.getTypeUtils();
+        Map<String, PropertyBuilder> builders = new LinkedHashMap<>();
+        boolean supported = true;
+
+        // As Jackson does: fields in declaration order, then getters and setters
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            supported &= checkAnnotations(field);
+            builders.computeIfAbsent(field.getSimpleName().toString(), PropertyBuilder::new).field = field;
+        }
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            String methodName = method.getSimpleName().toString();
+            boolean visible = method.getModifiers().contains(Modifier.PUBLIC) || isAnnotated(method, JSON_PROPERTY);
+            TypeKind returnKind = method.getReturnType().getKind();
+            if (method.getParameters().isEmpty() && returnKind != TypeKind.VOID && visible) {
+                String name = methodName.startsWith("get") ? manglePropertyName(methodName, 3)
+                    : (methodName.startsWith("is") && returnKind == TypeKind.BOOLEAN)
+                    ? manglePropertyName(methodName, 2) : null;
+                if (name != null) {
+                    supported &= checkAnnotations(method);
+                    PropertyBuilder builder = builders.computeIfAbsent(name, PropertyBuilder::new);
+                    // getXxx is preferred over isXxx
+                    if (builder.getter == null || methodName.startsWith("get")) {
+                        builder.getter = method;
+                    }
+                }
+            } else if (method.getParameters().size() == 1 && methodName.startsWith("set")) {
+                String name = manglePropertyName(methodName, 3);
+                if (name != null) {
+                    supported &= checkAnnotations(method);
+                    builders.computeIfAbsent(name, PropertyBuilder::new).setter = method;
+                }
+            }
+        }
+
+        List<BeanProperty> properties = new ArrayList<>();
+        // As Jackson does too, the renamed properties go after the others
+        List<BeanProperty> renamed = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (PropertyBuilder builder : builders.values()) {
+            if (builder.isIgnored() || !builder.isVisible()) {
+                continue;
+            }
+            String name = builder.name;
+            for (Element member : builder.members()) {
+                String rename = getJsonPropertyValue(member);
+                if (rename != null && !rename.isEmpty()) {
+                    if (!name.equals(builder.name) && !name.equals(rename)) {
+                        supported = error(member, "Conflicting @JsonProperty names for property '%s'", builder.name);
+                    }
+                    name = rename;
+                }
+            }
+            if (!names.add(name)) {
+                supported = error(builder.members().get(0), "Duplicate property '%s'", name);
+                continue;
+            }
+            BeanProperty property = buildProperty(builder, name, types);
+            if (property == null) {
+                supported = false;
+            } else if (property.isReadable() || property.isWritable()) {
+                (name.equals(builder.name) ? properties : renamed).add(property);
+            }
+        }
+        properties.addAll(renamed);
+        return supported ? properties : null;
+    }
+
+    @Nullable
+    private BeanProperty buildProperty(PropertyBuilder builder, String name, Types types) {
+        VariableElement field = builder.field;
+        ExecutableElement getter = builder.getter;
+        ExecutableElement setter = builder.setter;
+        boolean fieldVisible = field != null
+            && (field.getModifiers().contains(Modifier.PUBLIC) || isAnnotated(field, JSON_PROPERTY));
+
+        String read = null;
+        boolean readIsMethod = false;
+        TypeMirror readType = null;
+        if (getter != null) {
+            if (getter.getModifiers().contains(Modifier.PRIVATE)) {
+                return nullWithError(getter, "The getter of property '%s' must not be private", name);
+            }
+            read = getter.getSimpleName().toString();
+            readIsMethod = true;
+            readType = getter.getReturnType();
+        } else if (fieldVisible) {
+            if (field.getModifiers().contains(Modifier.PRIVATE)) {
+                return nullWithError(field, "The field of property '%s' must not be private without a getter", name);
+            }
+            read = field.getSimpleName().toString();
+            readType = field.asType();
+        }
+
+        String write = null;
+        boolean writeIsMethod = false;
+        TypeMirror writeType = null;
+        if (setter != null) {
+            if (setter.getModifiers().contains(Modifier.PRIVATE)) {
+                return nullWithError(setter, "The setter of property '%s' must not be private", name);
+            }
+            write = setter.getSimpleName().toString();
+            writeIsMethod = true;
+            writeType = setter.getParameters().get(0).asType();
+        } else if (field != null && (fieldVisible || getter != null)) {
+            // Jackson writes the field behind a getter when there is no setter
+            if (field.getModifiers().contains(Modifier.PRIVATE) || field.getModifiers().contains(Modifier.FINAL)) {
+                return nullWithError(field, "Property '%s' needs a setter, or a non-private and non-final field",
+                    name);
+            }
+            write = field.getSimpleName().toString();
+            writeType = field.asType();
+        } else if (getter != null && isCollectionOrMap(getter.getReturnType())) {
+            return nullWithError(getter, "Property '%s' needs a setter: getters are not supported as setters", name);
+        }
+
+        if (readType != null && writeType != null && !types.isSameType(readType, writeType)) {
+            return nullWithError(builder.members().get(0), "The accessors of property '%s' have different types",
+                name);
+        }
+        TypeMirror type = (readType != null) ? readType : writeType;
+        return new BeanProperty(name, type, read, readIsMethod, write, writeIsMethod);
+    }
+
+    private void generateCodec(TypeElement type, List<BeanProperty> properties) {
+        CodecGenerator generator = new CodecGenerator(processingEnv, type, properties);
+        try {
+            generator.write();
+            codecs.add(generator.getCodecName());
+        } catch (IOException e) {
+            error(type, "Unable to write %s: %s", generator.getCodecName(), e.getMessage());
+        }
+    }
+
+    private void writeServiceFile() {
+        Set<String> entries = new TreeSet<>(codecs);
+        // Keep the codecs registered by previous (incremental) compilations
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                CODEC_SERVICE);
+            try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                        entries.add(line.trim());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // No previous service file
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                CODEC_SERVICE);
+            try (Writer writer = file.openWriter()) {
+                for (String entry : entries) {
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "Unable to write " + CODEC_SERVICE + ": " + e.getMessage());
+        }
+    }
+
+    private boolean checkAnnotations(Element element) {
+        boolean supported = true;
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            String name = ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+            if (!name.startsWith(JACKSON_ANNOTATIONS)) {
+                continue;
+            }
+            Map<? extends ExecutableElement, ? extends AnnotationValue> values = annotation.getElementValues();
+            boolean allowed;
+            if (name.equals(JSON_PROPERTY)) {
+                allowed = values.keySet().stream().allMatch(key -> key.getSimpleName().contentEquals("value"));
+            } else if (name.equals(JSON_IGNORE)) {
+                allowed = values.values().stream().allMatch(value -> Boolean.TRUE.equals(value.getValue()));
+            } else {
+                allowed = false;
+            }
+            if (!allowed) {
+                supported = error(element, "@%s is not supported by @FastJson, only @JsonProperty(value) and "
+                    + "@JsonIgnore are", annotation.getAnnotationType().asElement().getSimpleName());
+            }
+        }
+        return supported;
+    }
+
+    private boolean isCollectionOrMap(TypeMirror type) {
+        Types types = processingEnv.getTypeUtils();
+        Elements elements = processingEnv.getElementUtils();
+        TypeMirror erasure = types.erasure(type);
+        return types.isAssignable(erasure, types.erasure(elements.getTypeElement("java.util.Collection").asType()))
+            || types.isAssignable(erasure, types.erasure(elements.getTypeElement("java.util.Map").asType()));
+    }
+
+    private static boolean isAnnotated(Element element, String annotationName) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                .contentEquals(annotationName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private static String getJsonPropertyValue(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                .contentEquals(JSON_PROPERTY)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : annotation.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals("value")) {
+                        return (String) entry.getValue().getValue();
+                    }
+                }
+                return "";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Jackson's default (legacy) name mangling: the leading upper case characters are lower-cased, so
+     * <code>getURLValue</code> is the property <code>urlvalue</code>.
+     */
+    @Nullable
+    static String manglePropertyName(String methodName, int offset) {
+        int end = methodName.length();
+        if (offset == end) {
+            return null;
+        }
+        char upper = methodName.charAt(offset);
+        char lower = Character.toLowerCase(upper);
+        if (upper == lower) {
+            return methodName.substring(offset);
+        }
+        StringBuilder name = new StringBuilder(end - offset).append(lower);
+        for (int i = offset + 1; i < end; i++) {
+            upper = methodName.charAt(i);
+            lower = Character.toLowerCase(upper);
+            if (upper == lower) {
+                name.append(methodName, i, end);
+                break;
+            }
+            name.append(lower);
+        }
+        return name.toString();
+    }
+
+    private boolean error(Element element, String message, Object... args) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(message, args), element);
+        return false;
+    }
+
+    @Nullable
+    private BeanProperty nullWithError(Element element, String message, Object... args) {
+        error(element, message, args);
+        return null;
+    }
+
+    private static final class PropertyBuilder {
+        private final String name;
+        @Nullable
+        private VariableElement field;
+        @Nullable
+        private ExecutableElement getter;
+        @Nullable
+        private ExecutableElement setter;
+
+        private PropertyBuilder(String name) {
+            this.name = name;
+        }
+
+        private List<Element> members() {
+            List<Element> members = new ArrayList<>(3);
+            if (field != null) {
+                members.add(field);
+            }
+            if (getter != null) {
+                members.add(getter);
+            }
+            if (setter != null) {
+                members.add(setter);
+            }
+            return members;
+        }
+
+        private boolean isIgnored() {
+            return members().stream().anyMatch(member -> isAnnotated(member, JSON_IGNORE));
+        }
+
+        private boolean isVisible() {
+            return getter != null || setter != null || (field != null
+                && (field.getModifiers().contains(Modifier.PUBLIC) || isAnnotated(field, JSON_PROPERTY)));
+        }
+    }
+}
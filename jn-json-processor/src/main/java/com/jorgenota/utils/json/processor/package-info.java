@@ -0,0 +1,11 @@
+/**
+ * Annotation processor generating the {@code FastJsonCodec}s of the classes annotated with {@code @FastJson}.
+ *
+ * @author Jorge Alonso
+ */
+@NonNullApi
+@NonNullFields
+package com.jorgenota.utils.json.processor;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
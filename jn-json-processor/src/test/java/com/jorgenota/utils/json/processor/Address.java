@@ -0,0 +1,25 @@
+package com.jorgenota.utils.json.processor;
+
+import com.jorgenota.utils.base.FastJson;
+
+/**
+ * @author Jorge Alonso
+ */
+@FastJson
+public class Address {
+    public String street;
+    public int number;
+    public Integer floor;
+    public boolean main;
+    public Boolean verified;
+    public long id;
+    public Long version;
+    public double latitude;
+    public Double longitude;
+    public float accuracy;
+    public Float altitude;
+    public short zone;
+    public byte block;
+    public char letter;
+    public Character door;
+}
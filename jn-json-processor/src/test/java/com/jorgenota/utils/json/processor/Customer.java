@@ -0,0 +1,104 @@
+package com.jorgenota.utils.json.processor;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.jorgenota.utils.base.FastJson;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Jorge Alonso
+ */
+@FastJson
+public class Customer {
+    private String name;
+    private boolean active;
+    private Status status;
+    private List<Address> addresses;
+    private Map<String, Integer> scores;
+    private Note note;
+    private String password;
+    String url;
+    int[] codes;
+
+    public String getName() {
+        return name;
+    }
+
+    @JsonProperty("full_name")
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public List<Address> getAddresses() {
+        return addresses;
+    }
+
+    public void setAddresses(List<Address> addresses) {
+        this.addresses = addresses;
+    }
+
+    public Map<String, Integer> getScores() {
+        return scores;
+    }
+
+    public void setScores(Map<String, Integer> scores) {
+        this.scores = scores;
+    }
+
+    public Note getNote() {
+        return note;
+    }
+
+    public void setNote(Note note) {
+        this.note = note;
+    }
+
+    @JsonIgnore
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public String getURL() {
+        return url;
+    }
+
+    public int[] getCodes() {
+        return codes;
+    }
+
+    public int getCodeCount() {
+        return (codes == null) ? 0 : codes.length;
+    }
+
+    public enum Status {
+        NEW, ACTIVE, CLOSED
+    }
+
+    @FastJson
+    public static class Note {
+        public String text;
+        public Note reply;
+    }
+}
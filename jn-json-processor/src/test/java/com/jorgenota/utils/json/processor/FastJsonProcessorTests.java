@@ -0,0 +1,191 @@
+package com.jorgenota.utils.json.processor;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.jorgenota.utils.base.FastJson;
+import com.jorgenota.utils.base.ObjectMapperOptions;
+import com.jorgenota.utils.base.ObjectMappingUtils;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Jorge Alonso
+ */
+class FastJsonProcessorTests {
+
+    private final ObjectMapper generated = ObjectMappingUtils.configureObjectMapper();
+    private final ObjectMapper plain = ObjectMappingUtils.configureObjectMapper(
+        ObjectMapperOptions.newBuilder().withGeneratedCodecs(false).build());
+
+    @Test
+    void testGeneratedCodecsAreRegistered() throws Exception {
+        assertThat(generated.getSerializerProviderInstance().findValueSerializer(Customer.class))
+            .isInstanceOf(Customer_FastJsonCodec.Serializer.class);
+        assertThat(generated.getSerializerProviderInstance().findValueSerializer(Customer.Note.class))
+            .isInstanceOf(Customer_Note_FastJsonCodec.Serializer.class);
+        assertThat(deserializationContext(generated).findRootValueDeserializer(generated.constructType(Address.class)))
+            .isInstanceOf(Address_FastJsonCodec.Deserializer.class);
+        assertThat(plain.getSerializerProviderInstance().findValueSerializer(Customer.class))
+            .isNotInstanceOf(Customer_FastJsonCodec.Serializer.class);
+    }
+
+    @Test
+    void testSerializationMatchesJackson() throws IOException {
+        Customer customer = customer();
+
+        String json = generated.writeValueAsString(customer);
+
+        assertThat(json).isEqualTo(plain.writeValueAsString(customer));
+        assertThat(json).contains("\"full_name\":\"Jorge\"", "\"url\":\"https://jorgenota.com\"", "\"codeCount\":2")
+            .doesNotContain("password");
+        assertThat(generated.writeValueAsString(new Customer())).isEqualTo(plain.writeValueAsString(new Customer()));
+        assertThat(generated.writeValueAsString(new Address())).isEqualTo(plain.writeValueAsString(new Address()));
+    }
+
+    @Test
+    void testDeserializationMatchesJackson() throws IOException {
+        String json = plain.writeValueAsString(customer());
+
+        assertThat(plain.writeValueAsString(generated.readValue(json, Customer.class))).isEqualTo(json);
+
+        String coerced = "{\"number\":\"7\",\"floor\":\"3\",\"main\":\"true\",\"latitude\":1,\"longitude\":2,"
+            + "\"letter\":\"x\",\"door\":null,\"street\":null,\"unknown\":{\"a\":[1]},\"zone\":5}";
+        assertThat(plain.writeValueAsString(generated.readValue(coerced, Address.class)))
+            .isEqualTo(plain.writeValueAsString(plain.readValue(coerced, Address.class)));
+        assertThat(generated.readValue("[{\"street\":\"Main\"},null]", Address[].class))
+            .extracting(address -> (address == null) ? null : address.street).containsExactly("Main", null);
+    }
+
+    @Test
+    void testPolymorphicAndViews() throws IOException {
+        Holder holder = new Holder();
+        holder.value = customer().getAddresses().get(0);
+        holder.name = "holder";
+
+        String json = generated.writeValueAsString(holder);
+        Holder read = generated.readValue(json, Holder.class);
+
+        assertThat(json).isEqualTo(plain.writeValueAsString(holder));
+        assertThat(read.value).isInstanceOf(Address.class);
+        assertThat(((Address) read.value).street).isEqualTo("Gran Via");
+        assertThat(generated.writerWithView(Holder.class).writeValueAsString(holder))
+            .isEqualTo(plain.writerWithView(Holder.class).writeValueAsString(holder));
+    }
+
+    @Test
+    void testUnsupportedClassesAreReported() throws Exception {
+        List<String> errors = compile("test.Unsupported", "package test;\n"
+            + "@com.jorgenota.utils.base.FastJson\n"
+            + "@com.fasterxml.jackson.annotation.JsonInclude(com.fasterxml.jackson.annotation.JsonInclude.Include"
+            + ".NON_NULL)\n"
+            + "public class Unsupported {\n"
+            + "    @com.fasterxml.jackson.annotation.JsonProperty private String hidden;\n"
+            + "    private final java.util.List<String> items = new java.util.ArrayList<>();\n"
+            + "    public java.util.List<String> getItems() { return items; }\n"
+            + "}\n");
+
+        assertThat(errors).anyMatch(error -> error.contains("@JsonInclude is not supported"))
+            .anyMatch(error -> error.contains("'hidden' must not be private"))
+            .anyMatch(error -> error.contains("'items' needs a setter"));
+        assertThat(compile("test.Inner", "package test;\n"
+            + "public class Inner {\n"
+            + "    @com.jorgenota.utils.base.FastJson class Value { }\n"
+            + "}\n")).anyMatch(error -> error.contains("top-level or static nested"));
+    }
+
+    @Test
+    void testManglePropertyName() {
+        assertThat(FastJsonProcessor.manglePropertyName("getURLValue", 3)).isEqualTo("urlvalue");
+        assertThat(FastJsonProcessor.manglePropertyName("getName", 3)).isEqualTo("name");
+        assertThat(FastJsonProcessor.manglePropertyName("isa", 2)).isEqualTo("a");
+        assertThat(FastJsonProcessor.manglePropertyName("get", 3)).isNull();
+    }
+
+    private static Customer customer() {
+        Address address = new Address();
+        address.street = "Gran Via";
+        address.number = 28;
+        address.main = true;
+        address.verified = Boolean.FALSE;
+        address.id = Long.MAX_VALUE;
+        address.latitude = 40.42;
+        address.longitude = -3.70;
+        address.accuracy = 0.5f;
+        address.zone = 2;
+        address.block = 1;
+        address.letter = 'B';
+        address.door = 'a';
+        Customer.Note note = new Customer.Note();
+        note.text = "Hi \"there\"";
+        note.reply = new Customer.Note();
+        note.reply.text = "¡Hola!";
+        Customer customer = new Customer();
+        customer.setName("Jorge");
+        customer.setActive(true);
+        customer.setStatus(Customer.Status.ACTIVE);
+        customer.setAddresses(Arrays.asList(address, new Address()));
+        customer.setScores(Collections.singletonMap("gold", 3));
+        customer.setNote(note);
+        customer.setPassword("s3cr3t");
+        customer.url = "https://jorgenota.com";
+        customer.codes = new int[]{1, 2};
+        return customer;
+    }
+
+    private static DeserializationContext deserializationContext(ObjectMapper mapper) {
+        return ((DefaultDeserializationContext) mapper.getDeserializationContext())
+            .createInstance(mapper.getDeserializationConfig(), null, null);
+    }
+
+    private static List<String> compile(String className, String source) throws IOException, URISyntaxException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        String classPath = Arrays.asList(FastJson.class, JsonProperty.class).stream()
+            .map(type -> type.getProtectionDomain().getCodeSource().getLocation())
+            .map(location -> new File(location.getPath()).getPath())
+            .collect(Collectors.joining(File.pathSeparator));
+        Path output = Files.createTempDirectory("fastjson");
+        JavaFileObject file = new SimpleJavaFileObject(new URI("string:///" + className.replace('.', '/') + ".java"),
+            JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+            Arrays.asList("-classpath", classPath, "-d", output.toString()), null, Collections.singletonList(file));
+        task.setProcessors(Collections.singletonList(new FastJsonProcessor()));
+        task.call();
+        return diagnostics.getDiagnostics().stream().filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+            .map(diagnostic -> diagnostic.getMessage(null)).collect(Collectors.toList());
+    }
+
+    static class Holder {
+        @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS)
+        public Object value;
+        @JsonView(Holder.class)
+        public String name;
+    }
+}
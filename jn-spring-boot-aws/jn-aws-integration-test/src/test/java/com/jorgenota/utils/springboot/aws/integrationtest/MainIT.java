@@ -13,16 +13,33 @@ import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.AmazonSQSAsync;
 import com.amazonaws.services.sqs.model.CreateQueueRequest;
 import com.amazonaws.services.sqs.model.CreateQueueResult;
+import com.jorgenota.utils.base.service.ObjectStore;
+import com.jorgenota.utils.base.service.ServiceException;
+import com.jorgenota.utils.springboot.aws.s3.S3ObjectStore;
+import com.jorgenota.utils.transfer.ParallelDownloader;
+import com.jorgenota.utils.transfer.ParallelDownloaderBuilder;
+import com.jorgenota.utils.transfer.ParallelUploader;
+import com.jorgenota.utils.transfer.ParallelUploaderBuilder;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * @author Jorge Alonso
@@ -81,6 +98,84 @@ class MainIT {
         }
     }
 
+    @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+    @Nested
+    @DisplayName("S3 object store Test cases... ")
+    class S3ObjectStoreIntegrationTestCases {
+        private static final String BUCKET_NAME = "object-store";
+        private static final int MIB = 1024 * 1024;
+
+        @Autowired
+        AmazonS3 amazonS3;
+
+        @Autowired
+        ObjectStore objectStore;
+
+        @BeforeAll
+        public void setup() {
+            amazonS3.createBucket(BUCKET_NAME);
+        }
+
+        @AfterAll
+        public void tearDown() {
+            amazonS3.listObjectsV2(BUCKET_NAME).getObjectSummaries()
+                .forEach(summary -> amazonS3.deleteObject(BUCKET_NAME, summary.getKey()));
+            objectStore.deleteBucket(BUCKET_NAME);
+        }
+
+        @Test
+        void testObjectStore() throws Exception {
+            assertThat(objectStore).isInstanceOf(S3ObjectStore.class);
+
+            objectStore.putObject(BUCKET_NAME, "key", "¡Hola!", "text/plain");
+            assertThat(objectStore.getObjectAsString(BUCKET_NAME, "key")).isEqualTo("¡Hola!");
+            assertThat(objectStore.headObject(BUCKET_NAME, "key").getContentLength()).isEqualTo(7);
+            assertThat(objectStore.getObjectRange(BUCKET_NAME, "key", 1, 2).readAllBytes())
+                .isEqualTo("¡".getBytes(StandardCharsets.UTF_8));
+            assertThat(objectStore.getObjectRange(BUCKET_NAME, "key", 7, 10).read()).isEqualTo(-1);
+
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < 1100; i++) {
+                keys.add("batch/" + i);
+                objectStore.putObject(BUCKET_NAME, "batch/" + i, new byte[0], "application/octet-stream");
+            }
+            objectStore.deleteObjects(BUCKET_NAME, keys);
+            assertThat(amazonS3.listObjectsV2(BUCKET_NAME, "batch/").getKeyCount()).isZero();
+
+            assertThatThrownBy(() -> objectStore.headObject(BUCKET_NAME, "missing"))
+                .isInstanceOf(ServiceException.class)
+                .hasMessageContaining("404");
+        }
+
+        @Test
+        void testParallelTransfer() throws Exception {
+            S3ObjectStore s3ObjectStore = (S3ObjectStore) objectStore;
+            byte[] content = new byte[64 * MIB];
+            new Random(42).nextBytes(content);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            Path file = Files.createTempFile("download", ".bin");
+            try {
+                ParallelUploader uploader = ParallelUploaderBuilder.newBuilder(s3ObjectStore, executor)
+                    .withPartSize(8 * MIB)
+                    .withParallelism(8)
+                    .build();
+                assertThat(uploader.upload(BUCKET_NAME, "large", new ByteArrayInputStream(content),
+                    "application/octet-stream")).isEqualTo(content.length);
+
+                ParallelDownloader downloader = ParallelDownloaderBuilder.newBuilder(s3ObjectStore, executor)
+                    .withPartSize(8 * MIB)
+                    .withParallelism(8)
+                    .build();
+                assertThat(downloader.download(BUCKET_NAME, "large", file)).isEqualTo(content.length);
+
+                assertThat(Files.readAllBytes(file)).isEqualTo(content);
+            } finally {
+                executor.shutdownNow();
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
     @Nested
     @DisplayName("SES Test cases... ")
     class SesIntegrationTestCases {
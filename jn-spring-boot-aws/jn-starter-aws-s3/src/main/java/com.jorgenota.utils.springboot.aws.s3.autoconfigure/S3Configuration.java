@@ -2,6 +2,8 @@ package com.jorgenota.utils.springboot.aws.s3.autoconfigure;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.jorgenota.utils.base.service.ObjectStore;
+import com.jorgenota.utils.springboot.aws.s3.S3ObjectStore;
 import com.jorgenota.utils.springboot.aws.support.AwsEnvironment;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -39,4 +41,10 @@ public class S3Configuration {
 
         return builder.build();
     }
+
+    @Bean
+    @ConditionalOnMissingBean(ObjectStore.class)
+    public S3ObjectStore s3ObjectStore(AmazonS3 amazonS3) {
+        return new S3ObjectStore(amazonS3);
+    }
 }
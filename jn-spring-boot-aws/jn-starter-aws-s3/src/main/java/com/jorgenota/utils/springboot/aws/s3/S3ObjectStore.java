@@ -0,0 +1,323 @@
+package com.jorgenota.utils.springboot.aws.s3;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.jorgenota.utils.base.service.MultipartObjectStore;
+import com.jorgenota.utils.base.service.ObjectMetadata;
+import com.jorgenota.utils.base.service.ServiceException;
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.jorgenota.utils.base.Preconditions.isTrue;
+import static com.jorgenota.utils.base.Preconditions.notNull;
+
+/**
+ * An {@link MultipartObjectStore} backed by S3, where storages are buckets.
+ * <p>
+ * Failures of the client are thrown as {@link ServiceException}s whose message names the operation, the object and,
+ * for errors returned by S3, the status and error code. Objects are read into arrays of their exact size (and strings
+ * decoded from them) instead of growing buffers, ranges are read with ranged requests, and parts are uploaded straight
+ * from the buffers of the caller. Deletions of several objects are sent in batches of up to
+ * {@value #MAX_DELETE_BATCH_SIZE} keys.
+ *
+ * @author Jorge Alonso
+ */
+public class S3ObjectStore implements MultipartObjectStore {
+    static final int MAX_DELETE_BATCH_SIZE = 1000;
+    private static final int RANGE_NOT_SATISFIABLE = 416;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final AmazonS3 amazonS3;
+
+    public S3ObjectStore(AmazonS3 amazonS3) {
+        this.amazonS3 = notNull(amazonS3, "amazonS3 may not be null");
+    }
+
+    @Override
+    public byte[] getObjectAsBytes(String storageName, String key) throws ServiceException {
+        try (S3Object object = amazonS3.getObject(storageName, key)) {
+            long length = object.getObjectMetadata().getContentLength();
+            if (length > MAX_ARRAY_SIZE) {
+                throw new ServiceException("Object " + storageName + "/" + key + " is too large for an array: "
+                    + length + " bytes");
+            }
+            byte[] content = new byte[(int) length];
+            int read = object.getObjectContent().readNBytes(content, 0, content.length);
+            if (read < length) {
+                throw new EOFException("Object " + storageName + "/" + key + " ended after " + read + " of " + length
+                    + " bytes");
+            }
+            return content;
+        } catch (SdkClientException | IOException e) {
+            throw failure("get object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public String getObjectAsString(String storageName, String key) throws ServiceException {
+        return new String(getObjectAsBytes(storageName, key), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public InputStream openObject(String storageName, String key) throws ServiceException {
+        try {
+            return amazonS3.getObject(storageName, key).getObjectContent();
+        } catch (SdkClientException e) {
+            throw failure("get object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public InputStream getObjectRange(String storageName, String key, long offset, long length)
+        throws ServiceException {
+        isTrue(offset >= 0, "offset must be >= 0 but is %d", offset);
+        isTrue(length >= 0, "length must be >= 0 but is %d", length);
+        if (length == 0) {
+            return InputStream.nullInputStream();
+        }
+        try {
+            GetObjectRequest request = new GetObjectRequest(storageName, key)
+                .withRange(offset, offset + length - 1);
+            return amazonS3.getObject(request).getObjectContent();
+        } catch (AmazonServiceException e) {
+            if (e.getStatusCode() == RANGE_NOT_SATISFIABLE) {
+                // The range starts at the end of the object (or after it)
+                return InputStream.nullInputStream();
+            }
+            throw failure("get range of object", storageName, key, e);
+        } catch (SdkClientException e) {
+            throw failure("get range of object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public ObjectMetadata headObject(String storageName, String key) throws ServiceException {
+        try {
+            com.amazonaws.services.s3.model.ObjectMetadata metadata = amazonS3.getObjectMetadata(storageName, key);
+            return ObjectMetadata.newBuilder()
+                .withContentLength(metadata.getContentLength())
+                .withETag(metadata.getETag())
+                .withLastModified((metadata.getLastModified() == null) ? null : metadata.getLastModified().toInstant())
+                .withContentType(metadata.getContentType())
+                .build();
+        } catch (SdkClientException e) {
+            throw failure("get metadata of object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public void putObject(String storageName, String key, InputStream content, long contentLength,
+                          String contentType) throws ServiceException {
+        com.amazonaws.services.s3.model.ObjectMetadata metadata = metadata(contentType);
+        if (contentLength != UNKNOWN_LENGTH) {
+            // Otherwise the client reads the whole content into memory to find out its length
+            metadata.setContentLength(contentLength);
+        }
+        PutObjectRequest request = new PutObjectRequest(storageName, key, content, metadata);
+        if (content instanceof ByteArrayInputStream && contentLength != UNKNOWN_LENGTH
+            && contentLength < MAX_ARRAY_SIZE) {
+            // The content is already in memory, so the client can rewind all of it to retry the request. Other
+            // streams keep the default limit, as marking them could buffer the whole content
+            request.getRequestClientOptions().setReadLimit((int) contentLength + 1);
+        }
+        try {
+            amazonS3.putObject(request);
+        } catch (SdkClientException e) {
+            throw failure("put object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public String createMultipartUpload(String storageName, String key, String contentType) throws ServiceException {
+        try {
+            return amazonS3.initiateMultipartUpload(new InitiateMultipartUploadRequest(storageName, key,
+                metadata(contentType))).getUploadId();
+        } catch (SdkClientException e) {
+            throw failure("create multipart upload of object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public String uploadPart(String storageName, String key, String uploadId, int partNumber, ByteBuffer content)
+        throws ServiceException {
+        int size = content.remaining();
+        UploadPartRequest request = new UploadPartRequest()
+            .withBucketName(storageName)
+            .withKey(key)
+            .withUploadId(uploadId)
+            .withPartNumber(partNumber)
+            .withPartSize(size)
+            .withInputStream(content.hasArray()
+                ? new ByteArrayInputStream(content.array(), content.arrayOffset() + content.position(), size)
+                : new ByteBufferInputStream(content));
+        request.getRequestClientOptions().setReadLimit(size + 1);
+        try {
+            return amazonS3.uploadPart(request).getPartETag().getETag();
+        } catch (SdkClientException e) {
+            throw failure("upload part " + partNumber + " of object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public void completeMultipartUpload(String storageName, String key, String uploadId, List<String> partETags)
+        throws ServiceException {
+        List<PartETag> parts = new ArrayList<>(partETags.size());
+        for (int i = 0; i < partETags.size(); i++) {
+            parts.add(new PartETag(i + 1, partETags.get(i)));
+        }
+        try {
+            amazonS3.completeMultipartUpload(new CompleteMultipartUploadRequest(storageName, key, uploadId, parts));
+        } catch (SdkClientException e) {
+            throw failure("complete multipart upload of object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String storageName, String key, String uploadId) throws ServiceException {
+        try {
+            amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(storageName, key, uploadId));
+        } catch (SdkClientException e) {
+            throw failure("abort multipart upload of object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public void deleteObject(String storageName, String key) throws ServiceException {
+        try {
+            amazonS3.deleteObject(storageName, key);
+        } catch (SdkClientException e) {
+            throw failure("delete object", storageName, key, e);
+        }
+    }
+
+    @Override
+    public void deleteObjects(String storageName, Collection<String> keys) throws ServiceException {
+        List<DeleteObjectsRequest.KeyVersion> batch = new ArrayList<>(Math.min(keys.size(), MAX_DELETE_BATCH_SIZE));
+        for (String key : keys) {
+            batch.add(new DeleteObjectsRequest.KeyVersion(key));
+            if (batch.size() == MAX_DELETE_BATCH_SIZE) {
+                deleteBatch(storageName, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleteBatch(storageName, batch);
+        }
+    }
+
+    @Override
+    public void deleteBucket(String storageName) throws ServiceException {
+        try {
+            amazonS3.deleteBucket(storageName);
+        } catch (SdkClientException e) {
+            throw failure("delete bucket", storageName, null, e);
+        }
+    }
+
+    private void deleteBatch(String storageName, List<DeleteObjectsRequest.KeyVersion> keys) {
+        try {
+            // Quiet mode, so the response only lists the keys that couldn't be deleted
+            amazonS3.deleteObjects(new DeleteObjectsRequest(storageName).withKeys(new ArrayList<>(keys))
+                .withQuiet(true));
+        } catch (MultiObjectDeleteException e) {
+            throw new ServiceException("Could not delete " + e.getErrors().size() + " objects of " + storageName
+                + ": " + e.getErrors().stream().limit(10)
+                .map(error -> error.getKey() + " (" + error.getCode() + ")")
+                .collect(Collectors.joining(", ")), e);
+        } catch (SdkClientException e) {
+            throw failure("delete " + keys.size() + " objects of", storageName, null, e);
+        }
+    }
+
+    private static com.amazonaws.services.s3.model.ObjectMetadata metadata(String contentType) {
+        com.amazonaws.services.s3.model.ObjectMetadata metadata = new com.amazonaws.services.s3.model.ObjectMetadata();
+        metadata.setContentType(contentType);
+        return metadata;
+    }
+
+    private static ServiceException failure(String operation, String storageName, @Nullable String key,
+                                            Exception e) {
+        StringBuilder message = new StringBuilder("Could not ").append(operation).append(' ').append(storageName);
+        if (key != null) {
+            message.append('/').append(key);
+        }
+        if (e instanceof AmazonServiceException) {
+            AmazonServiceException serviceException = (AmazonServiceException) e;
+            message.append(" (").append(serviceException.getStatusCode()).append(' ')
+                .append(serviceException.getErrorCode()).append(')');
+        }
+        return new ServiceException(message.toString(), e);
+    }
+
+    /**
+     * A stream reading the remaining bytes of a (direct) buffer without copying them into an array first, which
+     * supports marking so the client can rewind it to retry a request.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer.duplicate();
+            this.buffer.mark();
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(len, buffer.remaining());
+            buffer.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            buffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buffer.reset();
+        }
+    }
+}
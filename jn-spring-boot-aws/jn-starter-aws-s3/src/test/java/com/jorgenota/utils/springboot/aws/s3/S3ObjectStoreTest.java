@@ -0,0 +1,188 @@
+package com.jorgenota.utils.springboot.aws.s3;
+
+import com.amazonaws.RequestClientOptions;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.jorgenota.utils.base.service.ServiceException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Jorge Alonso
+ */
+class S3ObjectStoreTest {
+
+    private final AmazonS3 amazonS3 = mock(AmazonS3.class);
+    private final S3ObjectStore objectStore = new S3ObjectStore(amazonS3);
+
+    @Test
+    void getObjectAsString() {
+        byte[] content = "¡Hola!".getBytes(StandardCharsets.UTF_8);
+        S3Object object = new S3Object();
+        object.getObjectMetadata().setContentLength(content.length);
+        object.setObjectContent(new ByteArrayInputStream(content));
+        when(amazonS3.getObject("bucket", "key")).thenReturn(object);
+
+        assertThat(objectStore.getObjectAsString("bucket", "key")).isEqualTo("¡Hola!");
+    }
+
+    @Test
+    void getObjectAsBytes_truncatedContent() {
+        S3Object object = new S3Object();
+        object.getObjectMetadata().setContentLength(10);
+        object.setObjectContent(new ByteArrayInputStream(new byte[4]));
+        when(amazonS3.getObject("bucket", "key")).thenReturn(object);
+
+        assertThatThrownBy(() -> objectStore.getObjectAsBytes("bucket", "key"))
+            .isInstanceOf(ServiceException.class)
+            .hasMessage("Could not get object bucket/key")
+            .hasRootCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void getObjectRange() throws IOException {
+        S3Object object = new S3Object();
+        object.setObjectContent(new ByteArrayInputStream(new byte[]{1, 2}));
+        ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass(GetObjectRequest.class);
+        when(amazonS3.getObject(request.capture())).thenReturn(object);
+
+        assertThat(objectStore.getObjectRange("bucket", "key", 10, 2).readAllBytes()).containsExactly(1, 2);
+        assertThat(request.getValue().getRange()).containsExactly(10L, 11L);
+        assertThat(objectStore.getObjectRange("bucket", "key", 10, 0).read()).isEqualTo(-1);
+    }
+
+    @Test
+    void getObjectRange_afterEndOfObject() throws IOException {
+        AmazonS3Exception exception = new AmazonS3Exception("The requested range is not satisfiable");
+        exception.setStatusCode(416);
+        when(amazonS3.getObject(any(GetObjectRequest.class))).thenThrow(exception);
+
+        assertThat(objectStore.getObjectRange("bucket", "key", 100, 10).read()).isEqualTo(-1);
+    }
+
+    @Test
+    void headObject() {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(42);
+        metadata.setHeader("ETag", "abc");
+        metadata.setLastModified(new Date(1_000L));
+        metadata.setContentType("text/plain");
+        when(amazonS3.getObjectMetadata("bucket", "key")).thenReturn(metadata);
+
+        assertThat(objectStore.headObject("bucket", "key")).isEqualTo(
+            com.jorgenota.utils.base.service.ObjectMetadata.newBuilder()
+                .withContentLength(42)
+                .withETag("abc")
+                .withLastModified(new Date(1_000L).toInstant())
+                .withContentType("text/plain")
+                .build());
+    }
+
+    @Test
+    void failuresAreMappedToServiceExceptions() {
+        AmazonS3Exception exception = new AmazonS3Exception("The specified key does not exist.");
+        exception.setStatusCode(404);
+        exception.setErrorCode("NoSuchKey");
+        when(amazonS3.getObjectMetadata("bucket", "key")).thenThrow(exception);
+
+        assertThatThrownBy(() -> objectStore.headObject("bucket", "key"))
+            .isInstanceOf(ServiceException.class)
+            .hasMessage("Could not get metadata of object bucket/key (404 NoSuchKey)")
+            .hasCause(exception);
+    }
+
+    @Test
+    void putObject_readLimit() {
+        ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        when(amazonS3.putObject(request.capture())).thenReturn(new PutObjectResult());
+
+        objectStore.putObject("bucket", "key", new byte[1000], "application/octet-stream");
+        objectStore.putObject("bucket", "key", new BufferedInputStream(new ByteArrayInputStream(new byte[1000])), 1000,
+            "application/octet-stream");
+
+        assertThat(request.getAllValues().get(0).getRequestClientOptions().getReadLimit()).isEqualTo(1001);
+        assertThat(request.getAllValues().get(1).getRequestClientOptions().getReadLimit())
+            .isEqualTo(RequestClientOptions.DEFAULT_STREAM_BUFFER_SIZE);
+    }
+
+    @Test
+    void uploadPart_fromDirectBuffer() throws IOException {
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(3);
+        result.setETag("etag");
+        ArgumentCaptor<UploadPartRequest> request = ArgumentCaptor.forClass(UploadPartRequest.class);
+        when(amazonS3.uploadPart(request.capture())).thenReturn(result);
+        ByteBuffer content = ByteBuffer.allocateDirect(8).put(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        content.position(2);
+
+        assertThat(objectStore.uploadPart("bucket", "key", "id", 3, content)).isEqualTo("etag");
+
+        assertThat(request.getValue().getPartSize()).isEqualTo(6);
+        assertThat(request.getValue().getPartNumber()).isEqualTo(3);
+        assertThat(request.getValue().getInputStream().markSupported()).isTrue();
+        assertThat(request.getValue().getInputStream().readAllBytes()).containsExactly(3, 4, 5, 6, 7, 8);
+    }
+
+    @Test
+    void deleteObjects_inBatches() {
+        List<String> keys = IntStream.range(0, 2500).mapToObj(i -> "key" + i).collect(Collectors.toList());
+        ArgumentCaptor<DeleteObjectsRequest> requests = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+
+        objectStore.deleteObjects("bucket", keys);
+
+        verify(amazonS3, times(3)).deleteObjects(requests.capture());
+        assertThat(requests.getAllValues()).extracting(request -> request.getKeys().size())
+            .containsExactly(1000, 1000, 500);
+        assertThat(requests.getAllValues()).allMatch(DeleteObjectsRequest::getQuiet);
+        assertThat(requests.getAllValues().get(2).getKeys().get(0).getKey()).isEqualTo("key2000");
+    }
+
+    @Test
+    void deleteObjects_noKeys() {
+        objectStore.deleteObjects("bucket", Collections.emptyList());
+
+        verifyNoInteractions(amazonS3);
+    }
+
+    @Test
+    void deleteObjects_partialFailure() {
+        MultiObjectDeleteException.DeleteError error = new MultiObjectDeleteException.DeleteError();
+        error.setKey("key1");
+        error.setCode("AccessDenied");
+        when(amazonS3.deleteObjects(any())).thenThrow(
+            new MultiObjectDeleteException(Collections.singletonList(error), Collections.emptyList()));
+
+        assertThatThrownBy(() -> objectStore.deleteObjects("bucket", Collections.singletonList("key1")))
+            .isInstanceOf(ServiceException.class)
+            .hasMessage("Could not delete 1 objects of bucket: key1 (AccessDenied)");
+    }
+}
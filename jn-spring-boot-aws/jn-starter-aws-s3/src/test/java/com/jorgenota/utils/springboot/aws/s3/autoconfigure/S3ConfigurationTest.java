@@ -1,12 +1,15 @@
 package com.jorgenota.utils.springboot.aws.s3.autoconfigure;
 
 import com.amazonaws.services.s3.AmazonS3;
+import com.jorgenota.utils.base.service.ObjectStore;
+import com.jorgenota.utils.springboot.aws.s3.S3ObjectStore;
 import com.jorgenota.utils.springboot.aws.testsupport.IrelandRegionAwsEnvironmentConfiguration;
 import com.jorgenota.utils.springboot.aws.testsupport.TestUtils;
 import org.assertj.core.api.AbstractObjectAssert;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.test.context.assertj.AssertableApplicationContext;
@@ -101,6 +104,26 @@ class S3ConfigurationTest {
                     .hasFieldOrPropertyWithValue("clientOptions.accelerateModeEnabled", true));
         }
 
+        @Test
+        void awsEnvironmentRegionConfigured_objectStoreCreated() {
+            contextRunner
+                .withUserConfiguration(IrelandRegionAwsEnvironmentConfiguration.class)
+                .run((context) -> assertThat(context)
+                    .getBean(ObjectStore.class)
+                    .isInstanceOf(S3ObjectStore.class));
+        }
+
+        @Test
+        void awsEnvironmentRegionConfigured_customObjectStoreConfigured() {
+            ObjectStore objectStore = new S3ObjectStore(Mockito.mock(AmazonS3.class));
+            contextRunner
+                .withUserConfiguration(IrelandRegionAwsEnvironmentConfiguration.class)
+                .withBean(ObjectStore.class, () -> objectStore)
+                .run((context) -> assertThat(context)
+                    .getBean(ObjectStore.class)
+                    .isSameAs(objectStore));
+        }
+
         private void assertThat_amazonS3_isCreated(AssertableApplicationContext context, String configuredRegion, @Nullable String configuredEndpoint) {
             AbstractObjectAssert<?, AmazonS3> amazonSesAbstractObjectAssert = assertThat(context)
                 .getBean("amazonS3", AmazonS3.class)